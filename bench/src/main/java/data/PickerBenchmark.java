@@ -0,0 +1,410 @@
+package data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import exception.NoValidFightersException;
+import util.LogLevel;
+import util.Logger;
+
+/**
+ * JMH benchmarks of the picker's hot paths on synthetic tier lists from
+ * <code>TierListFixture</code>:
+ * <ul>
+ * 	<li><code>loadFile</code>, by number of fighters.</li>
+ * 	<li><code>generateBattle</code>, by number of fighters, players, and
+ * 		"Cannot Get" size. Each invocation starts from a freshly loaded tier
+ * 		list and generates <b><i><code>BATTLES_PER_LOAD</code></b></i>
+ * 		battles in a row, so the "Cannot Get" queues fill up the way they
+ * 		would in a session.</li>
+ * 	<li><code>getValidCharacters</code>, with the same parameters, after
+ * 		a few battles have been generated.</li>
+ * 	<li><code>getLookupResults</code>, by number of fighters, going through
+ * 		every lookup type. The same lookups are also done with
+ * 		<code>getTopFighters</code> and <code>getBottomFighters</code>,
+ * 		finding only the top and bottom 10.</li>
+ * 	<li><code>Matchup.setWinner</code>, by number of fighters and players,
+ * 		changing the winner of the same battle each time.</li>
+ * </ul>
+ * Every benchmark reports the average time per operation, in microseconds.
+ * Combinations where the "Cannot Get" queues would block every fighter
+ * before the battles are generated can't be run, so their setup fails, and
+ * JMH reports them as failed and goes on to the next one.
+ * <br><br>
+ * Loading a tier list creates the stats, live stats, and journal files in
+ * the working directory, so the benchmarks have to be run from an empty
+ * directory, and those files are deleted at the end of each trial. From the
+ * root of the project:
+ * <br><br>
+ * <code>mvn -B package</code><br>
+ * <code>mkdir bench-run && cd bench-run</code><br>
+ * <code>java -jar ../bench/target/benchmarks.jar PickerBenchmark</code>
+ * <br><br>
+ * JMH's own options pick what to run, i.e.
+ * <code>PickerBenchmark.generateBattle</code> runs only that benchmark, and
+ * <code>-p fighters=80,1000 -p players=2,8 -p cannotGet=5</code> runs fewer
+ * parameters. <code>-h</code> lists the rest.
+ * 
+ * @author Jordan Knapp
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PickerBenchmark {
+	
+	/**
+	 * The number of battles generated in a row after each load in the
+	 * <code>generateBattle</code> benchmark.
+	 */
+	public static final int BATTLES_PER_LOAD = 10;
+	
+	private static final File TIER_LIST_FILE = new File("benchmark tier list.txt");
+	
+	private static final File[] STATE_FILES = {new File(StatsFile.FILE_NAME),
+			new File(StatsFile.LEGACY_FILE_NAME), new File(MappedStatsFile.FILE_NAME),
+			new File(BattleJournal.FILE_NAME), TIER_LIST_FILE};
+	
+	/**
+	 * A generated tier list and its stats, written to the working directory
+	 * for a trial, and a <code>TierList</code> loaded from them. Each kind of
+	 * benchmark has its own subclass, with the parameters it runs over.
+	 */
+	public static abstract class Fixture {
+		
+		//the tier list currently loaded, so it can be closed before the next
+		protected TierList current;
+		protected Settings settings;
+		private HashMap<String, int[]> stats;
+		
+		/**
+		 * Writes the tier list file and generates the stats for a trial.
+		 * 
+		 * @param numFighters	The number of fighters.
+		 * @param numPlayers	The number of players.
+		 * @param cannotGetSize	The size of the "Cannot Get" queue.
+		 * 
+		 * @throws IOException	Thrown if the tier list file can't be
+		 * 						written.
+		 */
+		protected void prepare(int numFighters, int numPlayers, int cannotGetSize) throws IOException {
+			for(File fileAt: STATE_FILES) {
+				if(fileAt.exists()) {
+					throw new IllegalStateException(fileAt.getName() + " already exists here. Run the " +
+							"benchmarks from an empty directory, so no real stats are overwritten.");
+				}
+			}
+			
+			//the benchmarks would otherwise spend their time printing
+			Logger.setLevel(LogLevel.ERROR);
+			
+			Random random = new Random(numFighters * 31 + numPlayers * 7 + cannotGetSize);
+			
+			TierListFixture.write(TIER_LIST_FILE, numFighters, numPlayers, cannotGetSize, random);
+			stats = TierListFixture.stats(numFighters, random);
+		}
+		
+		/**
+		 * Closes the current tier list, puts the stats back to how they were
+		 * generated, and loads the tier list again.
+		 * 
+		 * @throws Exception	Thrown if the tier list can't be loaded.
+		 */
+		protected void load() throws Exception {
+			close();
+			resetState();
+			
+			current = new TierList();
+			settings = current.loadFile(TIER_LIST_FILE);
+		}
+		
+		/**
+		 * Closes the current tier list, if there is one, so its files aren't
+		 * left open.
+		 * 
+		 * @throws IOException	Thrown if the stats can't be saved.
+		 */
+		protected void close() throws IOException {
+			if(current != null) {
+				current.saveStats();
+				current = null;
+			}
+		}
+		
+		/**
+		 * Deletes the live stats file and journal, so nothing is recovered
+		 * or replayed, and writes the generated stats to the stats file.
+		 * 
+		 * @throws IOException	Thrown if the stats file can't be written.
+		 */
+		protected void resetState() throws IOException {
+			new File(MappedStatsFile.FILE_NAME).delete();
+			new File(BattleJournal.FILE_NAME).delete();
+			StatsFile.write(new File(StatsFile.FILE_NAME), stats);
+		}
+		
+		/**
+		 * Closes the tier list and deletes every file the trial created.
+		 * 
+		 * @throws IOException	Thrown if the stats can't be saved.
+		 */
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException {
+			try {
+				close();
+			} finally {
+				for(File fileAt: STATE_FILES) {
+					fileAt.delete();
+				}
+			}
+		}
+		
+		/**
+		 * Generates one battle on the current tier list, trying as many
+		 * times as the program would.
+		 * 
+		 * @return	The id of the first fighter, or -1 if no battle could be
+		 * 			generated.
+		 * 
+		 * @throws NoValidFightersException	Thrown if no battle is left.
+		 */
+		protected long generate() throws NoValidFightersException {
+			Matchup matchup = current.generateBattle(settings, false, TierList.MAX_TRIES, null);
+			return matchup == null ? -1 : matchup.getFighter(0).getId();
+		}
+	}
+	
+	/**
+	 * A tier list that is loaded again before every call to
+	 * <code>loadFile</code>, with nothing loaded yet.
+	 */
+	@State(Scope.Benchmark)
+	public static class Roster extends Fixture {
+		
+		@Param({"80", "500", "1000", "5000"})
+		public int fighters;
+		
+		@Setup(Level.Trial)
+		public void setupTrial() throws IOException {
+			prepare(fighters, 8, 10);
+		}
+		
+		@Setup(Level.Invocation)
+		public void setupInvocation() throws IOException {
+			close();
+			resetState();
+		}
+	}
+	
+	/**
+	 * A tier list with any number of players and "Cannot Get" size, loaded
+	 * again before every set of battles.
+	 */
+	@State(Scope.Benchmark)
+	public static class Battles extends Fixture {
+		
+		@Param({"80", "500", "1000", "5000"})
+		public int fighters;
+		
+		@Param({"2", "4", "8"})
+		public int players;
+		
+		@Param({"0", "5", "15"})
+		public int cannotGet;
+		
+		@Setup(Level.Trial)
+		public void setupTrial() throws IOException {
+			checkFeasible(fighters, players, cannotGet);
+			prepare(fighters, players, cannotGet);
+		}
+		
+		@Setup(Level.Invocation)
+		public void setupInvocation() throws Exception {
+			load();
+		}
+	}
+	
+	/**
+	 * A tier list with any number of players and "Cannot Get" size, which
+	 * has generated half of <b><i><code>BATTLES_PER_LOAD</code></b></i>
+	 * battles at the start of every iteration.
+	 */
+	@State(Scope.Benchmark)
+	public static class ValidSets extends Fixture {
+		
+		@Param({"80", "500", "1000", "5000"})
+		public int fighters;
+		
+		@Param({"2", "4", "8"})
+		public int players;
+		
+		@Param({"0", "5", "15"})
+		public int cannotGet;
+		
+		private int player;
+		
+		@Setup(Level.Trial)
+		public void setupTrial() throws IOException {
+			checkFeasible(fighters, players, cannotGet);
+			prepare(fighters, players, cannotGet);
+		}
+		
+		@Setup(Level.Iteration)
+		public void setupIteration() throws Exception {
+			load();
+			
+			//fill the cannot get queues part of the way first
+			for(int at = 0; at < BATTLES_PER_LOAD / 2; at++) {
+				generate();
+			}
+		}
+	}
+	
+	/**
+	 * A tier list loaded once, for lookups, which don't change anything.
+	 */
+	@State(Scope.Benchmark)
+	public static class Lookups extends Fixture {
+		
+		@Param({"80", "500", "1000", "5000"})
+		public int fighters;
+		
+		//0 is each fighter's overall winrate, 1 isn't a fighter lookup, and
+		//the rest are each player's winrate
+		private int[] lookupTypes;
+		private int type;
+		
+		private final LookupListener ignore = new LookupListener() {
+			public void fighterFound(int rank, Fighter fighter, int wins, int battles) {
+				//only the number found is checked
+			}
+		};
+		
+		@Setup(Level.Trial)
+		public void setupTrial() throws Exception {
+			prepare(fighters, 8, 10);
+			load();
+			
+			lookupTypes = new int[ComparableArray.CompareType.values().length];
+			for(int at = 1; at < lookupTypes.length; at++) {
+				lookupTypes[at] = at + 1;
+			}
+		}
+		
+		/**
+		 * @return	The next lookup type to use.
+		 */
+		private int nextType() {
+			type = (type + 1) % lookupTypes.length;
+			return lookupTypes[type];
+		}
+	}
+	
+	/**
+	 * A tier list loaded once, with one battle whose winner keeps changing.
+	 * Changing the winner undoes the last one, so the stats never drift far.
+	 */
+	@State(Scope.Benchmark)
+	public static class Winners extends Fixture {
+		
+		@Param({"80", "500", "1000", "5000"})
+		public int fighters;
+		
+		@Param({"2", "4", "8"})
+		public int players;
+		
+		private Matchup matchup;
+		private int winner;
+		
+		@Setup(Level.Trial)
+		public void setupTrial() throws Exception {
+			prepare(fighters, players, 5);
+			load();
+			
+			matchup = current.generateBattle(settings, false, TierList.MAX_TRIES, null);
+			if(matchup == null) {
+				throw new IllegalStateException("No battle could be generated with " + fighters +
+						" fighters and " + players + " players.");
+			}
+		}
+	}
+	
+	@Benchmark
+	public int loadFile(Roster roster) throws Exception {
+		roster.current = new TierList();
+		return roster.current.loadFile(TIER_LIST_FILE).getNumPlayers();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATTLES_PER_LOAD)
+	public long generateBattle(Battles battles) throws NoValidFightersException {
+		long check = 0;
+		
+		for(int at = 0; at < BATTLES_PER_LOAD; at++) {
+			check += battles.generate();
+		}
+		
+		return check;
+	}
+	
+	@Benchmark
+	public int getValidCharacters(ValidSets validSets) {
+		validSets.player = (validSets.player + 1) % validSets.players;
+		return validSets.current.getValidCharacters(validSets.player, validSets.settings).getTotalWeight();
+	}
+	
+	@Benchmark
+	public int getLookupResults(Lookups lookups) {
+		return lookups.current.getLookupResults(lookups.nextType()).length;
+	}
+	
+	@Benchmark
+	public int getTopFighters(Lookups lookups) {
+		int type = lookups.nextType();
+		return lookups.current.getTopFighters(type, 10, LookupFilter.NONE, lookups.ignore) +
+				lookups.current.getBottomFighters(type, 10, LookupFilter.NONE, lookups.ignore);
+	}
+	
+	@Benchmark
+	public int setWinner(Winners winners) {
+		winners.winner = (winners.winner + 1) % winners.players;
+		winners.matchup.setWinner(winners.winner);
+		return winners.winner;
+	}
+	
+	/**
+	 * Makes sure <b><i><code>BATTLES_PER_LOAD</code></b></i> battles can be
+	 * generated in a row before the "Cannot Get" queues could block every
+	 * fighter.
+	 * 
+	 * @throws IllegalStateException	Thrown if they can't, so the
+	 * 									combination is skipped.
+	 */
+	private static void checkFeasible(int numFighters, int numPlayers, int cannotGetSize) {
+		if(numPlayers * (cannotGetSize + BATTLES_PER_LOAD) >= numFighters / 2) {
+			throw new IllegalStateException("Skipped: with " + numFighters + " fighters, " + numPlayers +
+					" players, and a \"Cannot Get\" size of " + cannotGetSize + ", the queues could block " +
+					"every fighter.");
+		}
+	}
+
+}
@@ -0,0 +1,137 @@
+package data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Generates synthetic tier lists and stats for the benchmarks, so they can
+ * be run with any number of fighters without needing a real tier list.
+ * <br><br>
+ * Fighters are named "Fighter 0", "Fighter 1", and so on, and are spread
+ * across the Double S to C tiers, since those are the tiers the default tier
+ * chances pick from. Every player excludes about 2% of the fighters and has
+ * one favorite.
+ * 
+ * @author Jordan Knapp
+ */
+public class TierListFixture {
+	
+	private static final String[] TIER_NAMES = {"upper double s", "mid double s", "lower double s",
+			"upper s", "mid s", "lower s", "upper a", "mid a", "lower a", "upper b", "mid b",
+			"lower b", "upper c", "mid c", "lower c"};
+	
+	/**
+	 * @param id	The number of a fighter.
+	 * @return		That fighter's name.
+	 */
+	public static String name(int id) {
+		return "Fighter " + id;
+	}
+	
+	/**
+	 * Generates the text of a tier list.
+	 * 
+	 * @param numFighters	The number of fighters.
+	 * @param numPlayers	The number of players, from 2 to 8.
+	 * @param cannotGetSize	The size of the "Cannot Get" queue, from 0 to 15.
+	 * @param random		The source of randomness for which fighters are
+	 * 						in which tier, excluded, or a favorite.
+	 * @return				The text of the tier list.
+	 */
+	public static String generate(int numFighters, int numPlayers, int cannotGetSize, Random random) {
+		StringBuilder[] tiers = new StringBuilder[TIER_NAMES.length];
+		for(int at = 0; at < tiers.length; at++) {
+			tiers[at] = new StringBuilder();
+		}
+		
+		//the first fighters go one to each tier, so no tier is ever empty
+		for(int idAt = 0; idAt < numFighters; idAt++) {
+			int tier = idAt < tiers.length ? idAt : random.nextInt(tiers.length);
+			
+			if(tiers[tier].length() > 0) {
+				tiers[tier].append(", ");
+			}
+			
+			tiers[tier].append(name(idAt));
+		}
+		
+		StringBuilder text = new StringBuilder(numFighters * 16);
+		for(int at = 0; at < tiers.length; at++) {
+			text.append(TIER_NAMES[at]).append(" = ").append(tiers[at]).append('\n');
+		}
+		
+		for(int playerAt = 1; playerAt <= numPlayers; playerAt++) {
+			text.append('p').append(playerAt).append(" exclude = ");
+			
+			int numExcluded = Math.max(1, numFighters / 50);
+			for(int at = 0; at < numExcluded; at++) {
+				if(at > 0) {
+					text.append(", ");
+				}
+				
+				text.append(name(random.nextInt(numFighters)));
+			}
+			
+			text.append('\n');
+			text.append('p').append(playerAt).append(" favorite = ").append(name(random.nextInt(numFighters)));
+			text.append('\n');
+		}
+		
+		text.append("tier chances = 10, 20, 25, 25, 20, 0, 0, 0\n");
+		text.append("bump chances = 50, 25, 25\n");
+		text.append("cannot get size = ").append(cannotGetSize).append('\n');
+		text.append("players = ").append(numPlayers).append('\n');
+		
+		return text.toString();
+	}
+	
+	/**
+	 * Generates a tier list and writes it to a file.
+	 * 
+	 * @param file			The file to write the tier list to.
+	 * @param numFighters	The number of fighters.
+	 * @param numPlayers	The number of players, from 2 to 8.
+	 * @param cannotGetSize	The size of the "Cannot Get" queue, from 0 to 15.
+	 * @param random		The source of randomness.
+	 * 
+	 * @throws IOException	Thrown if the file can't be written.
+	 */
+	public static void write(File file, int numFighters, int numPlayers, int cannotGetSize, Random random)
+			throws IOException {
+		Files.write(file.toPath(), generate(numFighters, numPlayers, cannotGetSize, random)
+				.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Generates stats for every fighter, as if a few hundred sessions had
+	 * already been played.
+	 * 
+	 * @param numFighters	The number of fighters.
+	 * @param random		The source of randomness.
+	 * @return				A <code>HashMap</code> mapping each fighter's name
+	 * 						to its 16 counts, in the format used by
+	 * 						<code>StatsFile</code>.
+	 */
+	public static HashMap<String, int[]> stats(int numFighters, Random random) {
+		HashMap<String, int[]> stats = new HashMap<String, int[]>(numFighters * 2);
+		
+		for(int idAt = 0; idAt < numFighters; idAt++) {
+			int[] counts = new int[16];
+			
+			for(int playerAt = 0; playerAt < 8; playerAt++) {
+				int battles = random.nextInt(40);
+				counts[playerAt * 2] = battles == 0 ? 0 : random.nextInt(battles + 1);
+				counts[playerAt * 2 + 1] = battles;
+			}
+			
+			stats.put(name(idAt), counts);
+		}
+		
+		return stats;
+	}
+
+}
@@ -0,0 +1,178 @@
+package data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares <code>TierListParser</code> against the way
+ * <code>TierList.loadFile()</code> used to split up a tier list, which built
+ * each key one character at a time and split each list with a regular
+ * expression. Tier lists with thousands of fighters are generated, and each
+ * one is parsed with both approaches by JMH, which reports the average time
+ * per parse in microseconds. To run it from the root of the project:
+ * <br><br>
+ * <code>mvn -B package</code><br>
+ * <code>java -jar bench/target/benchmarks.jar TierListParserBenchmark</code>
+ * 
+ * @author Jordan Knapp
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TierListParserBenchmark {
+	
+	private static final String[] TIER_NAMES = {"upper double s", "mid double s", "lower double s",
+			"upper s", "mid s", "lower s", "upper a", "mid a", "lower a", "upper b", "mid b",
+			"lower b", "upper c", "mid c", "lower c", "upper d", "mid d", "lower d", "upper e",
+			"mid e", "lower e", "upper f", "mid f", "lower f"};
+	
+	@Param({"1000", "5000", "20000"})
+	public int fighters;
+	
+	private String tierList;
+	
+	@Setup
+	public void setup() throws IOException {
+		tierList = generate(fighters, new Random(fighters));
+		
+		//make sure both approaches see the same thing before timing them
+		if(parseOld(tierList) != parseNew(tierList)) {
+			throw new IllegalStateException("Parsers disagree for " + fighters + " fighters.");
+		}
+	}
+	
+	@Benchmark
+	public long oldParse() throws IOException {
+		return parseOld(tierList);
+	}
+	
+	@Benchmark
+	public long newParse() throws IOException {
+		return parseNew(tierList);
+	}
+	
+	/**
+	 * Generates a tier list with the given number of fighters spread across
+	 * every tier, plus exclusion and favorite lists, settings, and comments.
+	 * 
+	 * @param numFighters	The number of fighters.
+	 * @param random		The source of randomness for the fighter names.
+	 * @return				The text of the tier list.
+	 */
+	private static String generate(int numFighters, Random random) {
+		StringBuilder text = new StringBuilder(numFighters * 16);
+		
+		for(int tierAt = 0; tierAt < TIER_NAMES.length; tierAt++) {
+			text.append("#comment for ").append(TIER_NAMES[tierAt]).append('\n');
+			text.append(TIER_NAMES[tierAt]).append(" = ");
+			
+			for(int idAt = tierAt; idAt < numFighters; idAt += TIER_NAMES.length) {
+				if(idAt != tierAt) {
+					text.append(", ");
+				}
+				
+				text.append("Fighter ").append(idAt).append(random.nextBoolean() ? " Jr." : "");
+			}
+			
+			text.append('\n');
+		}
+		
+		for(int playerAt = 1; playerAt <= 8; playerAt++) {
+			text.append('p').append(playerAt).append(" exclude = ");
+			text.append("Fighter ").append(playerAt).append(", Fighter ").append(playerAt * 3).append('\n');
+			text.append('p').append(playerAt).append(" favorite = Fighter ").append(playerAt * 7).append('\n');
+		}
+		
+		text.append("tier chances = 10, 20, 25, 25, 20, 0, 0, 0\n");
+		text.append("bump chances = 70, 15, 15\n");
+		text.append("cannot get size = 10\n");
+		text.append("players = 8\n");
+		
+		return text.toString();
+	}
+	
+	/**
+	 * Splits up the tier list the way <code>TierList.loadFile()</code> used
+	 * to.
+	 * 
+	 * @return	The total length of every key and item, so the results of the
+	 * 			two approaches can be compared.
+	 */
+	private static long parseOld(String tierList) throws IOException {
+		BufferedReader in = new BufferedReader(new StringReader(tierList));
+		long total = 0;
+		
+		String lineAt = in.readLine();
+		while(lineAt != null) {
+			String next = "";
+			boolean foundEqual = false;
+			for(char at: lineAt.toCharArray()) {
+				next += at;
+				
+				if(at == '=') {
+					foundEqual = true;
+					break;
+				}
+			}
+			
+			if(!foundEqual) {
+				lineAt = in.readLine();
+				continue;
+			}
+			
+			next = next.substring(0, next.length() - 2);
+			next = next.toLowerCase();
+			int posInLine = next.length() + 1;
+			total += next.length();
+			
+			String[] currentLine = lineAt.substring(posInLine + 2).split(",\\s*");
+			for(String itemAt: currentLine) {
+				total += itemAt.length();
+			}
+			
+			lineAt = in.readLine();
+		}
+		
+		in.close();
+		return total;
+	}
+	
+	/**
+	 * Splits up the tier list with <code>TierListParser</code>.
+	 * 
+	 * @return	The total length of every key and item, so the results of the
+	 * 			two approaches can be compared.
+	 */
+	private static long parseNew(String tierList) throws IOException {
+		TierListParser parser = new TierListParser(new StringReader(tierList));
+		long total = 0;
+		
+		while(parser.next()) {
+			total += parser.getKey().length();
+			
+			for(int itemAt = 0; itemAt < parser.numItems(); itemAt++) {
+				total += parser.getItem(itemAt).length();
+			}
+		}
+		
+		return total;
+	}
+}
@@ -0,0 +1,193 @@
+package data;
+
+import java.util.Random;
+import java.util.random.RandomGenerator;
+
+import util.RandomSource;
+
+/**
+ * Checks that a <code>WeightedSampler</code> draws each item as often as its
+ * weight says it should. Each case adds a set of weights, draws
+ * <b><i><code>DRAWS</code></b></i> items with a fixed seed, and compares how
+ * often each item came up with its weight divided by the total weight. An item passes if its count is
+ * within <b><i><code>TOLERANCE</code></b></i> standard deviations of what's
+ * expected, and an item with a weight of 0 passes only if it's never drawn.
+ * <br><br>
+ * The cases cover a mix of weights with zeros among them, a single item, a
+ * single item with any weight among zeros, weights that are far apart, and
+ * a few hundred random weights like a big tier list would have. A sampler
+ * with no weight at all has to refuse to draw.
+ * <br><br>
+ * The seed is fixed, so a run that passes always passes, and a change to
+ * <code>WeightedSampler</code> that breaks the distribution shows up as a
+ * failure rather than as a flaky run. From the root of the project:
+ * <br><br>
+ * <code>mvn -B package</code><br>
+ * <code>java -cp bench/target/benchmarks.jar data.WeightedSamplerCheck</code>
+ * <br><br>
+ * It prints one line per case, and exits with a status of 1 if any case
+ * failed.
+ *
+ * @author Jordan Knapp
+ */
+public class WeightedSamplerCheck {
+	
+	/**
+	 * The number of items drawn in each case.
+	 */
+	public static final int DRAWS = 1_000_000;
+	
+	/**
+	 * How many standard deviations an item's count can be from what's
+	 * expected before the case fails.
+	 */
+	public static final double TOLERANCE = 5;
+	
+	private static final long SEED = 20240101L;
+	
+	private static boolean failed = false;
+	
+	public static void main(String[] args) {
+		check("mixed with zeros", new int[] {10, 0, 20, 0, 35, 1, 0, 34});
+		check("single item", new int[] {7});
+		check("single weight among zeros", new int[] {0, 0, 5, 0});
+		check("far apart", new int[] {1, 1000, 1, 500000});
+		check("equal", new int[] {3, 3, 3, 3, 3, 3});
+		
+		//like a big tier list, where about one fighter in five can't be
+		//gotten at all
+		Random weightRandom = new Random(SEED);
+		int[] many = new int[300];
+		for(int at = 0; at < many.length; at++) {
+			many[at] = weightRandom.nextInt(5) == 0 ? 0 : 1 + weightRandom.nextInt(12300);
+		}
+		check("300 random weights", many);
+		
+		checkRefuses("every weight 0", new int[] {0, 0, 0});
+		checkRefuses("empty", new int[0]);
+		
+		if(failed) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+		
+		System.out.println("All cases passed.");
+	}
+	
+	/**
+	 * Draws from a sampler with the given weights, and checks the counts
+	 * against the weights.
+	 *
+	 * @param name		The name of the case.
+	 * @param weights	The weight of each item.
+	 */
+	private static void check(String name, int[] weights) {
+		WeightedSampler<Integer> sampler = build(weights);
+		
+		int[] counts = new int[weights.length];
+		RandomGenerator random = new RandomSource(SEED);
+		for(int at = 0; at < DRAWS; at++) {
+			counts[sampler.sample(random)]++;
+		}
+		
+		report(name, weights, sampler.getTotalWeight(), counts);
+	}
+	
+	/**
+	 * Compares the number of times each item was drawn with how many times
+	 * it should have been, and prints how far off the worst item was.
+	 *
+	 * @param name			The name of the case.
+	 * @param weights		The weight of each item.
+	 * @param totalWeight	The sum of the weights.
+	 * @param counts		The number of times each item was drawn.
+	 */
+	private static void report(String name, int[] weights, int totalWeight, int[] counts) {
+		double worst = 0;
+		String problem = null;
+		
+		for(int at = 0; at < weights.length; at++) {
+			if(weights[at] == 0) {
+				if(counts[at] != 0 && problem == null) {
+					problem = "item " + at + " has a weight of 0, but was drawn " + counts[at] + " times";
+				}
+				
+				continue;
+			}
+			
+			//each draw is a coin flip for whether this item comes up, so the
+			//count is binomial
+			double chance = (double) weights[at] / totalWeight;
+			double expected = DRAWS * chance;
+			double deviation = Math.sqrt(DRAWS * chance * (1 - chance));
+			
+			//an item that's certain to come up can't be off at all
+			double off;
+			if(deviation == 0) {
+				off = counts[at] == DRAWS ? 0 : Double.POSITIVE_INFINITY;
+			}
+			else {
+				off = Math.abs(counts[at] - expected) / deviation;
+			}
+			
+			if(off > worst) {
+				worst = off;
+			}
+			
+			if(off > TOLERANCE && problem == null) {
+				problem = String.format("item %d was drawn %d times, but %.1f were expected", at, counts[at],
+						expected);
+			}
+		}
+		
+		if(problem != null) {
+			failed = true;
+		}
+		
+		System.out.println(String.format("%-45s worst %5.2f sd  %s", name, worst,
+				problem == null ? "ok" : "FAILED: " + problem));
+	}
+	
+	/**
+	 * Checks that a sampler with no weight refuses to draw.
+	 *
+	 * @param name		The name of the case.
+	 * @param weights	The weight of each item, which must all be 0.
+	 */
+	private static void checkRefuses(String name, int[] weights) {
+		WeightedSampler<Integer> sampler = build(weights);
+		RandomGenerator random = new RandomSource(SEED);
+		
+		boolean refused = true;
+		
+		try {
+			sampler.sample(random);
+			refused = false;
+		} catch(IllegalStateException e) {
+			//this is what should happen
+		}
+		
+		if(!refused) {
+			failed = true;
+		}
+		
+		System.out.println(String.format("%-45s %s", name + ", no weight", refused ? "ok" :
+				"FAILED: drew an item with no weight to draw from"));
+	}
+	
+	/**
+	 * @param weights	The weight of each item.
+	 * @return			A sampler whose items are their own indexes, with the
+	 * 					given weights.
+	 */
+	private static WeightedSampler<Integer> build(int[] weights) {
+		WeightedSampler<Integer> sampler = new WeightedSampler<Integer>(weights.length);
+		
+		for(int at = 0; at < weights.length; at++) {
+			sampler.add(at, weights[at]);
+		}
+		
+		return sampler;
+	}
+
+}
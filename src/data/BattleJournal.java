@@ -0,0 +1,818 @@
+package data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The <code>BattleJournal</code> records everything that happens during a
+ * session in <code>smash stats.journal</code>: every battle that is
+ * generated (including whether it was generated by skipping the one before
+ * it), every swap, and every winner that is selected, including when the
+ * winner of a battle is changed. During a session the journal is only ever
+ * appended to, so it holds a complete history of every battle since the
+ * stats file was last saved.
+ * <br><br>
+ * The journal starts with a 16-byte header, consisting of the magic number
+ * "SSPJ" and the format version, as 4-byte integers, followed by the
+ * position of the first record as an 8-byte integer. Each record after that
+ * has the following layout:
+ * <ul>
+ * 	<li>The length of the record's data, as a 4-byte integer.</li>
+ * 	<li>The type of the record, as a single byte.</li>
+ * 	<li>The record's data.</li>
+ * 	<li>A 4-byte CRC32 checksum of the type and data.</li>
+ * </ul>
+ * If the program stops in the middle of writing a record, the checksum will
+ * not match, and that record and anything after it are ignored.
+ * <br><br>
+ * Records are not written to the file one at a time. Instead, they are
+ * collected and written together, with a single force to disk for the
+ * whole group, once <b><i><code>GROUP_COMMIT_RECORDS</code></b></i> records
+ * have been collected, or once the oldest of them has waited
+ * <b><i><code>GROUP_COMMIT_MS</code></b></i> milliseconds. The waiting is
+ * done by a background thread, so a record is on disk within that time even
+ * if nothing is recorded after it, like a battle that is waiting for its
+ * winner. If the program stops without closing the journal, at most the
+ * records from the last <b><i><code>GROUP_COMMIT_MS</code></b></i>
+ * milliseconds, plus however long the write itself takes, are lost.
+ * Anything still uncommitted is written when the journal is closed.
+ * <br><br>
+ * The stats file records how much of the journal its stats include. When a
+ * tier list is loaded, any records past that point belong to a session that
+ * did not close properly, and replaying them rebuilds that session's stats
+ * and "Cannot Get" queues. Once the stats file has been saved, everything in
+ * the journal is already in it, so <code>reset()</code> starts the journal
+ * over with no records. Positions keep counting up from where the old
+ * journal ended rather than starting over from the header, so the position
+ * in the stats file never points into the middle of a newer record.
+ * 
+ * @author Jordan Knapp
+ */
+public class BattleJournal {
+	
+	/**
+	 * The name of the journal file.
+	 */
+	public static final String FILE_NAME = "smash stats.journal";
+	
+	/**
+	 * The number of records that are collected before they are committed.
+	 */
+	public static final int GROUP_COMMIT_RECORDS = 16;
+	
+	/**
+	 * The longest a record waits to be committed, in milliseconds.
+	 */
+	public static final long GROUP_COMMIT_MS = 1000;
+	
+	/**
+	 * Marks the start of a new session, in which the "Cannot Get" queues
+	 * start out empty.
+	 */
+	public static final byte SESSION = 0;
+	
+	/**
+	 * A battle was generated.
+	 */
+	public static final byte BATTLE = 1;
+	
+	/**
+	 * Two players in the last battle swapped fighters.
+	 */
+	public static final byte SWAP = 2;
+	
+	/**
+	 * A winner was selected for the last battle.
+	 */
+	public static final byte WINNER = 3;
+	
+	//"SSPJ" -- Smash Stats, Picker Journal
+	private static final int MAGIC = 0x5353504A;
+	private static final int VERSION = 1;
+	
+	private static final int HEADER_SIZE = 16;
+	
+	//how much of the file is read at a time when going through its records
+	private static final int READ_CHUNK_SIZE = 64 * 1024;
+	
+	//the most data a record can have, for a battle with 8 players whose
+	//names are all as long as they can be. a length past this is garbage
+	//left by an incomplete write
+	private static final int MAX_RECORD_LENGTH = 4 + 8 * (2 + 0xFFFF);
+	
+	private FileChannel channel;
+	private long position;
+	
+	//what to add to a position in the file to get the position of the same
+	//record in the journal, which keeps counting up across resets
+	private long offset;
+	
+	//records collected since the last commit
+	private ByteBuffer pending;
+	private int pendingRecords;
+	private long oldestPendingTime;
+	
+	//commits records that have waited long enough when nothing else is
+	//being recorded. if it fails, the error is thrown by the next append
+	private Thread committer;
+	private IOException committerFailure;
+	private boolean closed;
+	
+	/**
+	 * A single record read back from the journal. Which values are
+	 * meaningful depends on the type of the record.
+	 */
+	public static class Entry {
+		
+		private byte type;
+		private boolean skipping;
+		private String[] fighters;
+		private Settings settings;
+		private int player1;
+		private int player2;
+		
+		/**
+		 * Creates an <code>Entry</code>. Use <code>BattleJournal.read()</code>
+		 * to get them.
+		 */
+		private Entry(byte type) {
+			this.type = type;
+			
+			player1 = -1;
+			player2 = -1;
+		}
+		
+		/**
+		 * @return	The type of the record, one of <code>SESSION</code>,
+		 * 			<code>BATTLE</code>, <code>SWAP</code>, or
+		 * 			<code>WINNER</code>.
+		 */
+		public byte getType() {
+			return type;
+		}
+		
+		/**
+		 * @return	For a <code>BATTLE</code>, whether it was generated by
+		 * 			skipping the battle before it.
+		 */
+		public boolean isSkipping() {
+			return skipping;
+		}
+		
+		/**
+		 * @return	For a <code>BATTLE</code>, the name of the fighter each
+		 * 			player got, in order of player.
+		 */
+		public String[] getFighters() {
+			return fighters;
+		}
+		
+		/**
+		 * @return	For a <code>BATTLE</code>, the "Cannot Get" settings that
+		 * 			were used when it was generated. Only the number of
+		 * 			players and the "Cannot Get" settings are filled in.
+		 */
+		public Settings getSettings() {
+			return settings;
+		}
+		
+		/**
+		 * @return	For a <code>WINNER</code>, the player who won. For a
+		 * 			<code>SWAP</code>, the first player who swapped.
+		 */
+		public int getPlayer1() {
+			return player1;
+		}
+		
+		/**
+		 * @return	For a <code>SWAP</code>, the second player who swapped.
+		 */
+		public int getPlayer2() {
+			return player2;
+		}
+	}
+	
+	/**
+	 * Opens the journal for appending, creating it if it doesn't exist. Only
+	 * the records past the given position are checked, since everything
+	 * before it is already in the stats file. If the last record in the file
+	 * was only partly written, it is cut off.
+	 * 
+	 * @param file	The journal file.
+	 * @param from	The position that the stats file is up to date with. A
+	 * 				new journal starts at this position.
+	 * @return		The opened <code>BattleJournal</code>.
+	 * 
+	 * @throws IOException	Thrown if the file can't be opened, or is not a
+	 * 						journal file.
+	 */
+	public static BattleJournal open(File file, long from) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		
+		try {
+			if(channel.size() == 0) {
+				writeHeader(channel, Math.max(from, HEADER_SIZE));
+			}
+			
+			long first = readHeader(file, channel);
+			long offset = first - HEADER_SIZE;
+			
+			//a position past the end means the journal is older than the
+			//stats file, so everything in it is already in the stats. start
+			//it over at that position, so the two line up again
+			if(from > offset + channel.size()) {
+				channel.close();
+				reset(file, from);
+				return open(file, from);
+			}
+			
+			long end = scan(channel, Math.max(from, first) - offset, null);
+			
+			if(end < channel.size()) {
+				channel.truncate(end);
+			}
+			
+			return new BattleJournal(channel, end, offset);
+		} catch(IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Reads every complete record in the journal, starting at the given
+	 * position.
+	 * 
+	 * @param file	The journal file.
+	 * @param from	The position to start reading at, such as the one stored
+	 * 				in the stats file.
+	 * @return		A <code>List</code> of the records that were read. Empty
+	 * 				if the file does not exist, or there are no records past
+	 * 				the given position.
+	 * 
+	 * @throws IOException	Thrown if the file can't be read, or is not a
+	 * 						journal file.
+	 */
+	public static List<Entry> read(File file, long from) throws IOException {
+		List<Entry> entries = new ArrayList<Entry>();
+		
+		if(!file.exists()) {
+			return entries;
+		}
+		
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long first = readHeader(file, channel);
+			scan(channel, Math.max(from, first) - first + HEADER_SIZE, entries);
+		}
+		
+		return entries;
+	}
+	
+	/**
+	 * Finds the position just after the end of a journal file, without
+	 * reading any of its records.
+	 * 
+	 * @param file	The journal file.
+	 * @return		The position at the end of the file, or 0 if it doesn't
+	 * 				exist.
+	 * 
+	 * @throws IOException	Thrown if the file can't be read, or is not a
+	 * 						journal file.
+	 */
+	public static long end(File file) throws IOException {
+		if(!file.exists()) {
+			return 0;
+		}
+		
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return readHeader(file, channel) - HEADER_SIZE + channel.size();
+		}
+	}
+	
+	/**
+	 * Replaces a journal file with one that has no records, whose first
+	 * record will be at the given position. This should only be done once
+	 * the stats file includes everything in the journal, and while the
+	 * journal isn't open. The new file is written next to the old one first,
+	 * and then replaces it, so the journal is never left half-written.
+	 * 
+	 * @param file	The journal file.
+	 * @param first	The position of the first record in the new journal,
+	 * 				which should be the one stored in the stats file.
+	 * 
+	 * @throws IOException	Thrown if the new file can't be written, or can't
+	 * 						replace the old one.
+	 */
+	public static void reset(File file, long first) throws IOException {
+		File tempFile = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+		
+		try(FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			writeHeader(channel, first);
+		}
+		
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+	
+	/**
+	 * Writes the header of a journal in the current format to an empty file,
+	 * and forces it to disk.
+	 * 
+	 * @param channel	An open channel for the file.
+	 * @param first		The position of the first record in the journal.
+	 * 
+	 * @throws IOException	Thrown if the header can't be written.
+	 */
+	private static void writeHeader(FileChannel channel, long first) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.putLong(first);
+		header.flip();
+		
+		while(header.hasRemaining()) {
+			channel.write(header, header.position());
+		}
+		
+		channel.force(false);
+	}
+	
+	/**
+	 * Reads and checks the header of a journal file.
+	 * 
+	 * @param file		The journal file, used in error messages.
+	 * @param channel	An open channel for the file.
+	 * @return			The position of the first record in the journal, which
+	 * 					is right after the header in the file.
+	 * 
+	 * @throws IOException	Thrown if the file can't be read, or does not have
+	 * 						a valid header.
+	 */
+	private static long readHeader(File file, FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+		readFully(channel, buffer, 0);
+		
+		if(buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+			throw new IOException(file.getName() + " is not a journal file.");
+		}
+		
+		int version = buffer.getInt();
+		if(version != VERSION) {
+			throw new IOException(file.getName() + " has version " + version +
+					", but only version " + VERSION + " is supported.");
+		}
+		
+		long first = buffer.getLong();
+		if(first < 0) {
+			throw new IOException(file.getName() + " is not a journal file.");
+		}
+		
+		return first;
+	}
+	
+	/**
+	 * Goes through the records in a journal file, checking their checksums,
+	 * until the end of the file or the first record that is incomplete. The
+	 * file is read <b><i><code>READ_CHUNK_SIZE</code></b></i> bytes at a
+	 * time, so only a small part of it is ever in memory, however large the
+	 * journal has grown.
+	 * 
+	 * @param channel	An open channel for the file.
+	 * @param from		The position in the file of the first record to read.
+	 * @param entries	A <code>List</code> to add the records to, or
+	 * 					<code>null</code> if they're not needed.
+	 * @return			The position in the file just after the last complete
+	 * 					record.
+	 * 
+	 * @throws IOException	Thrown if the file can't be read, or a record
+	 * 						is malformed.
+	 */
+	private static long scan(FileChannel channel, long from, List<Entry> entries) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK_SIZE);
+		buffer.flip();
+		
+		CRC32 crc = new CRC32();
+		long end = from;
+		
+		while(fill(channel, buffer, end, 4)) {
+			int length = buffer.getInt(buffer.position());
+			
+			if(length < 0 || length > MAX_RECORD_LENGTH) {
+				break;
+			}
+			
+			//a record bigger than a chunk gets a buffer big enough to hold it
+			int recordSize = 4 + 1 + length + 4;
+			if(buffer.capacity() < recordSize) {
+				ByteBuffer larger = ByteBuffer.allocate(recordSize);
+				larger.put(buffer);
+				larger.flip();
+				buffer = larger;
+			}
+			
+			if(!fill(channel, buffer, end, recordSize)) {
+				break;
+			}
+			
+			int start = buffer.position() + 4;
+			crc.reset();
+			crc.update(buffer.array(), start, 1 + length);
+			
+			if((int) crc.getValue() != buffer.getInt(start + 1 + length)) {
+				break;
+			}
+			
+			if(entries != null) {
+				ByteBuffer data = ByteBuffer.wrap(buffer.array(), start + 1, length);
+				entries.add(decode(buffer.get(start), data));
+			}
+			
+			buffer.position(start + 1 + length + 4);
+			end += recordSize;
+		}
+		
+		return end;
+	}
+	
+	/**
+	 * Makes sure the buffer holds at least the given number of bytes, by
+	 * moving what's left in it to the front and reading more from the
+	 * channel after it if it doesn't.
+	 * 
+	 * @param channel	An open channel for the file.
+	 * @param buffer	The buffer, ready to be read from.
+	 * @param position	The position in the file of the next byte in the
+	 * 					buffer.
+	 * @param needed	The number of bytes the buffer should hold.
+	 * @return			Whether the buffer holds enough bytes. If not, the
+	 * 					file ended first.
+	 * 
+	 * @throws IOException	Thrown if the file can't be read.
+	 */
+	private static boolean fill(FileChannel channel, ByteBuffer buffer, long position, int needed) throws IOException {
+		if(buffer.remaining() >= needed) {
+			return true;
+		}
+		
+		buffer.compact();
+		readFully(channel, buffer, position);
+		
+		return buffer.remaining() >= needed;
+	}
+	
+	/**
+	 * Fills the rest of the given buffer from the channel, and then flips
+	 * it. The given position is where the start of the buffer is in the
+	 * file.
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while(buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			
+			if(read == -1) {
+				break;
+			}
+		}
+		
+		buffer.flip();
+	}
+	
+	/**
+	 * Turns the data of a record back into an <code>Entry</code>.
+	 * 
+	 * @param type	The type of the record.
+	 * @param data	The record's data.
+	 * @return		The <code>Entry</code> it describes.
+	 * 
+	 * @throws IOException	Thrown if the record's data doesn't match its type.
+	 */
+	private static Entry decode(byte type, ByteBuffer data) throws IOException {
+		Entry entry = new Entry(type);
+		
+		try {
+			if(type == BATTLE) {
+				byte flags = data.get();
+				int cannotGetSize = data.getShort();
+				int numPlayers = data.get();
+				
+				entry.skipping = (flags & 1) != 0;
+				entry.settings = new Settings(numPlayers, new int[8], new int[3], cannotGetSize,
+						(flags & 2) != 0, (flags & 4) != 0);
+				
+				entry.fighters = new String[numPlayers];
+				for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+					int length = data.getShort() & 0xFFFF;
+					entry.fighters[playerAt] = new String(data.array(), data.position(), length,
+							StandardCharsets.UTF_8);
+					data.position(data.position() + length);
+				}
+			}
+			else if(type == SWAP) {
+				entry.player1 = data.get();
+				entry.player2 = data.get();
+			}
+			else if(type == WINNER) {
+				entry.player1 = data.get();
+			}
+			else if(type != SESSION) {
+				throw new IOException("Unknown journal record type " + type + ".");
+			}
+		} catch(RuntimeException e) {
+			throw new IOException("Journal record of type " + type + " is malformed.", e);
+		}
+		
+		return entry;
+	}
+	
+	/**
+	 * Applies the winners in the given records to a map of stats, the same
+	 * way <code>Matchup.setWinner()</code> would have when they were
+	 * recorded. Fighters that aren't in the map yet are added with no stats.
+	 * 
+	 * @param entries	The records to replay, in order.
+	 * @param stats		A <code>Map</code> from each fighter's name to its 16
+	 * 					counts, which is updated in place.
+	 */
+	public static void replayStats(List<Entry> entries, Map<String, int[]> stats) {
+		String[] current = null;
+		int winner = -1;
+		
+		for(Entry entryAt: entries) {
+			if(entryAt.type == BATTLE) {
+				current = entryAt.fighters.clone();
+				winner = -1;
+			}
+			else if(entryAt.type == SWAP && current != null) {
+				String temp = current[entryAt.player1];
+				current[entryAt.player1] = current[entryAt.player2];
+				current[entryAt.player2] = temp;
+			}
+			else if(entryAt.type == WINNER && current != null) {
+				//a second winner for the same battle replaces the first
+				if(winner != -1) {
+					applyResult(stats, current, winner, -1);
+				}
+				
+				winner = entryAt.player1;
+				applyResult(stats, current, winner, 1);
+			}
+		}
+	}
+	
+	/**
+	 * Adds or removes the result of a battle from a map of stats.
+	 * 
+	 * @param stats		The map of stats.
+	 * @param fighters	The name of the fighter each player got.
+	 * @param winner	The player who won.
+	 * @param delta		1 to add the result, -1 to remove it.
+	 */
+	private static void applyResult(Map<String, int[]> stats, String[] fighters, int winner, int delta) {
+		for(int playerAt = 0; playerAt < fighters.length; playerAt++) {
+			int[] counts = stats.get(fighters[playerAt]);
+			
+			if(counts == null) {
+				counts = new int[16];
+				stats.put(fighters[playerAt], counts);
+			}
+			
+			if(playerAt == winner) {
+				counts[playerAt * 2] += delta;
+			}
+			
+			counts[playerAt * 2 + 1] += delta;
+		}
+	}
+	
+	/**
+	 * Creates a <code>BattleJournal</code> around an open file. Use
+	 * <code>open()</code> to create one.
+	 * 
+	 * @param channel	The open channel for the file.
+	 * @param position	The position in the file at which the next record
+	 * 					will be written.
+	 * @param offset	What to add to a position in the file to get the same
+	 * 					position in the journal.
+	 */
+	private BattleJournal(FileChannel channel, long position, long offset) {
+		this.channel = channel;
+		this.position = position;
+		this.offset = offset;
+		
+		pending = ByteBuffer.allocate(1024);
+		pendingRecords = 0;
+		
+		closed = false;
+		committer = new Thread(new Runnable() {
+			public void run() {
+				commitWhenDue();
+			}
+		}, "Smash Character Picker Journal");
+		committer.setDaemon(true);
+		committer.start();
+	}
+	
+	/**
+	 * Records the start of a new session.
+	 * 
+	 * @throws IOException	Thrown if the journal can't be written to.
+	 */
+	public void recordSession() throws IOException {
+		append(SESSION, new byte[0]);
+	}
+	
+	/**
+	 * Records a generated battle.
+	 * 
+	 * @param matchup	The battle that was generated.
+	 * @param settings	The settings used to generate it.
+	 * @param skipping	Whether it was generated by skipping the battle before
+	 * 					it.
+	 * 
+	 * @throws IOException	Thrown if the journal can't be written to.
+	 */
+	public void recordBattle(Matchup matchup, Settings settings, boolean skipping) throws IOException {
+		byte[][] names = new byte[matchup.size()][];
+		int size = 4;
+		
+		for(int playerAt = 0; playerAt < names.length; playerAt++) {
+			names[playerAt] = matchup.getFighter(playerAt).getName().getBytes(StandardCharsets.UTF_8);
+			size += 2 + names[playerAt].length;
+		}
+		
+		int flags = (skipping ? 1 : 0) | (settings.sAllowedInCannotGet() ? 2 : 0) |
+				(settings.ssAllowedInCannotGet() ? 4 : 0);
+		
+		ByteBuffer data = ByteBuffer.allocate(size);
+		data.put((byte) flags);
+		data.putShort((short) settings.getCannotGetSize());
+		data.put((byte) names.length);
+		
+		for(byte[] nameAt: names) {
+			data.putShort((short) nameAt.length);
+			data.put(nameAt);
+		}
+		
+		append(BATTLE, data.array());
+	}
+	
+	/**
+	 * Records two players swapping fighters in the last battle.
+	 * 
+	 * @param player1	The first player who swapped.
+	 * @param player2	The second player who swapped.
+	 * 
+	 * @throws IOException	Thrown if the journal can't be written to.
+	 */
+	public void recordSwap(int player1, int player2) throws IOException {
+		append(SWAP, new byte[] {(byte) player1, (byte) player2});
+	}
+	
+	/**
+	 * Records the winner of the last battle. If a winner was already
+	 * recorded for that battle, this one replaces it.
+	 * 
+	 * @param player	The player who won.
+	 * 
+	 * @throws IOException	Thrown if the journal can't be written to.
+	 */
+	public void recordWinner(int player) throws IOException {
+		append(WINNER, new byte[] {(byte) player});
+	}
+	
+	/**
+	 * @return	The position just after the last record, including ones that
+	 * 			haven't been committed yet.
+	 */
+	public synchronized long position() {
+		return offset + position + pending.position();
+	}
+	
+	/**
+	 * Adds a record to the ones waiting to be committed, and commits them if
+	 * enough have been collected, or the oldest has waited long enough.
+	 * 
+	 * @param type	The type of the record.
+	 * @param data	The record's data.
+	 * 
+	 * @throws IOException	Thrown if the records can't be committed.
+	 */
+	private synchronized void append(byte type, byte[] data) throws IOException {
+		if(committerFailure != null) {
+			throw committerFailure;
+		}
+		
+		int recordSize = 4 + 1 + data.length + 4;
+		
+		if(pending.remaining() < recordSize) {
+			ByteBuffer larger = ByteBuffer.wrap(Arrays.copyOf(pending.array(),
+					Math.max(pending.capacity() * 2, pending.position() + recordSize)));
+			larger.position(pending.position());
+			pending = larger;
+		}
+		
+		int start = pending.position();
+		pending.putInt(data.length);
+		pending.put(type);
+		pending.put(data);
+		
+		CRC32 crc = new CRC32();
+		crc.update(pending.array(), start + 4, 1 + data.length);
+		pending.putInt((int) crc.getValue());
+		
+		long now = System.currentTimeMillis();
+		if(pendingRecords == 0) {
+			oldestPendingTime = now;
+			
+			//let the committer know how long it has
+			notifyAll();
+		}
+		
+		pendingRecords++;
+		
+		if(pendingRecords >= GROUP_COMMIT_RECORDS || now - oldestPendingTime >= GROUP_COMMIT_MS) {
+			commit();
+		}
+	}
+	
+	/**
+	 * Writes every collected record to the file and forces it to disk.
+	 * 
+	 * @throws IOException	Thrown if the records can't be written.
+	 */
+	public synchronized void commit() throws IOException {
+		if(pendingRecords == 0) {
+			return;
+		}
+		
+		pending.flip();
+		while(pending.hasRemaining()) {
+			position += channel.write(pending, position);
+		}
+		
+		channel.force(false);
+		
+		pending.clear();
+		pendingRecords = 0;
+	}
+	
+	/**
+	 * Commits any remaining records and closes the journal.
+	 * 
+	 * @throws IOException	Thrown if the records can't be written, or the
+	 * 						file can't be closed.
+	 */
+	public synchronized void close() throws IOException {
+		closed = true;
+		notifyAll();
+		
+		try {
+			commit();
+		} finally {
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Run by the committer thread until the journal is closed. Waits for a
+	 * record to be collected, and then commits it once it has waited
+	 * <b><i><code>GROUP_COMMIT_MS</code></b></i> milliseconds, unless enough
+	 * others were collected to commit it sooner.
+	 */
+	private synchronized void commitWhenDue() {
+		while(!closed) {
+			try {
+				if(pendingRecords == 0) {
+					wait();
+					continue;
+				}
+				
+				long remaining = oldestPendingTime + GROUP_COMMIT_MS - System.currentTimeMillis();
+				if(remaining > 0) {
+					wait(remaining);
+					continue;
+				}
+				
+				commit();
+			} catch(InterruptedException e) {
+				return;
+			} catch(IOException e) {
+				committerFailure = e;
+				return;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,299 @@
+package data;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * The <code>CandidateWindows</code> class keeps, for each player and each
+ * tier range, the fighters the player could get in that range and how much
+ * each one weighs. Every player but the one who decides the tier gets a
+ * fighter from one of these ranges, so without it, every battle walked each
+ * of those players' whole valid set, sorting every fighter into the chosen
+ * tier, one tier away, or two tiers away. Now only the fighters in the range
+ * are looked at, and only when something they depend on has changed.
+ * <br><br>
+ * A range's fighters and weights depend on three things:
+ * <ul>
+ * 	<li>Which fighters the player can get in each of its three tiers. The
+ * 		<code>EligibilityIndex</code> keeps a version for each, and a
+ * 		range is out of date when any of them has changed.</li>
+ * 	<li>The player's stats, since a fighter the player has gotten a lot
+ * 		weighs less. This class listens to the <code>StatsTable</code>, and
+ * 		every range of a player whose stats change is out of date.</li>
+ * 	<li>The tier chances and bump chances. Every range is out of date when
+ * 		either changes.</li>
+ * </ul>
+ * Ranges are only built the first time they're needed after going out of
+ * date, by the <code>TierList</code>, which knows how to weigh a fighter.
+ * The ranges around the top two tiers are the same three tiers in a
+ * different order, but are still kept separately, since the bump chance
+ * each fighter gets depends on its place in the range.
+ * 
+ * @author Jordan Knapp
+ */
+class CandidateWindows implements StatsListener {
+	
+	/**
+	 * The fighters one player could get in one tier range, in tier order,
+	 * along with each one's place in the range and its weight. Every
+	 * fighter's weight is above 0.
+	 */
+	static class Window {
+		
+		private int[] ids;
+		private int[] places;
+		private int[] weights;
+		private int size;
+		
+		//the versions this range was built from
+		private final int[] eligibleVersions;
+		private int statsVersion;
+		private int settingsVersion;
+		
+		//the ids handed out by getMatchingIds(), kept until it's rebuilt
+		private int[] matchingIds;
+		
+		private Window() {
+			ids = new int[8];
+			places = new int[8];
+			weights = new int[8];
+			size = 0;
+			
+			eligibleVersions = new int[3];
+		}
+		
+		/**
+		 * Adds a fighter to the end of the range.
+		 * 
+		 * @param id		The fighter's id.
+		 * @param place		Its place in the range: 0 if it's in the range's
+		 * 					tier, or 1 or 2 if it's bumped that many tiers.
+		 * @param weight	Its weight, which must be above 0.
+		 */
+		void add(int id, int place, int weight) {
+			if(size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+				places = Arrays.copyOf(places, size * 2);
+				weights = Arrays.copyOf(weights, size * 2);
+			}
+			
+			ids[size] = id;
+			places[size] = place;
+			weights[size] = weight;
+			size++;
+		}
+		
+		/**
+		 * @return	The number of fighters in the range.
+		 */
+		int size() {
+			return size;
+		}
+		
+		/**
+		 * @param index	An index, from 0 to <code>size() - 1</code>.
+		 * @return		The id of the fighter at that index.
+		 */
+		int getId(int index) {
+			return ids[index];
+		}
+		
+		/**
+		 * @param index	An index, from 0 to <code>size() - 1</code>.
+		 * @return		The place in the range of the fighter at that index.
+		 */
+		int getPlace(int index) {
+			return places[index];
+		}
+		
+		/**
+		 * @param index	An index, from 0 to <code>size() - 1</code>.
+		 * @return		The weight of the fighter at that index.
+		 */
+		int getWeight(int index) {
+			return weights[index];
+		}
+		
+		/**
+		 * Draws a fighter at random, with each fighter's chance being its
+		 * weight divided by the total weight of the fighters that can be
+		 * drawn. This walks the range, so it takes time proportional to the
+		 * size of the range, and the number of fighters to skip, which is
+		 * never more than a handful.
+		 * 
+		 * @param random	The source of randomness to use.
+		 * @param skip		The ids of fighters that can't be drawn, such as
+		 * 					those already in the matchup.
+		 * @param numSkip	The number of ids in <code>skip</code> to use.
+		 * @return			The id of the drawn fighter, or -1 if every
+		 * 					fighter in the range was skipped.
+		 */
+		int draw(RandomGenerator random, int[] skip, int numSkip) {
+			int total = 0;
+			for(int at = 0; at < size; at++) {
+				if(!contains(skip, numSkip, ids[at])) {
+					total += weights[at];
+				}
+			}
+			
+			if(total == 0) {
+				return -1;
+			}
+			
+			int pick = random.nextInt(total);
+			for(int at = 0; at < size; at++) {
+				if(!contains(skip, numSkip, ids[at])) {
+					pick -= weights[at];
+					
+					if(pick < 0) {
+						return ids[at];
+					}
+				}
+			}
+			
+			//can't happen, since the weights add up to the total
+			throw new IllegalStateException("Weights do not add up to " + total + ".");
+		}
+		
+		/**
+		 * Gets the ids of the first fighters in the range, for a
+		 * <code>FighterMatching</code>. The array is kept, so asking again
+		 * with the same limit doesn't copy anything.
+		 * 
+		 * @param max	The most ids to return.
+		 * @return		The ids, which must not be changed.
+		 */
+		int[] getMatchingIds(int max) {
+			int length = Math.min(max, size);
+			
+			if(matchingIds == null || matchingIds.length != length) {
+				matchingIds = Arrays.copyOf(ids, length);
+			}
+			
+			return matchingIds;
+		}
+		
+		private static boolean contains(int[] ids, int numIds, int id) {
+			for(int at = 0; at < numIds; at++) {
+				if(ids[at] == id) {
+					return true;
+				}
+			}
+			
+			return false;
+		}
+	}
+	
+	private final Window[] windows;
+	private final int[] statsVersions;
+	private int settingsVersion;
+	
+	//the settings the ranges were last built with
+	private Settings settings;
+	
+	/**
+	 * Creates a <code>CandidateWindows</code> in which every range is out of
+	 * date.
+	 * 
+	 * @param numPlayers	The maximum number of players.
+	 */
+	CandidateWindows(int numPlayers) {
+		windows = new Window[numPlayers * TierList.NUM_TIERS];
+		statsVersions = new int[numPlayers];
+		settingsVersion = 0;
+	}
+	
+	/**
+	 * Makes sure the ranges are weighed with the given settings. If their
+	 * tier chances or bump chances are different from last time, every range
+	 * goes out of date. This must be called before ranges are gotten with
+	 * new settings. Passing the same <code>Settings</code> as last time costs
+	 * nothing.
+	 * 
+	 * @param settings	The settings that battles are being generated with.
+	 */
+	void useSettings(Settings settings) {
+		if(settings == this.settings) {
+			return;
+		}
+		
+		if(this.settings == null || !settings.hasSameChances(this.settings)) {
+			settingsVersion++;
+		}
+		
+		this.settings = settings;
+	}
+	
+	/**
+	 * Puts every range out of date, such as when a fighter is added.
+	 */
+	void clear() {
+		settingsVersion++;
+	}
+	
+	/**
+	 * Gets a player's range around a tier, if it's up to date.
+	 * 
+	 * @param player		The player.
+	 * @param tier			The tier whose range to get.
+	 * @param eligibility	Which fighters each player can get.
+	 * @return				The range, or <code>null</code> if it has never
+	 * 						been built, or is out of date.
+	 */
+	Window getCurrent(int player, int tier, EligibilityIndex eligibility) {
+		Window window = windows[player * TierList.NUM_TIERS + tier];
+		
+		if(window == null || window.statsVersion != statsVersions[player] ||
+				window.settingsVersion != settingsVersion) {
+			return null;
+		}
+		
+		int[] tiers = TierWindows.getWindow(tier);
+		for(int placeAt = 0; placeAt < 3; placeAt++) {
+			if(window.eligibleVersions[placeAt] != eligibility.getVersion(player, tiers[placeAt])) {
+				return null;
+			}
+		}
+		
+		return window;
+	}
+	
+	/**
+	 * Empties a player's range around a tier so it can be built again, and
+	 * marks it as up to date. The caller must then add every fighter the
+	 * player could get in the range, in tier order.
+	 * 
+	 * @param player		The player.
+	 * @param tier			The tier whose range to rebuild.
+	 * @param eligibility	Which fighters each player can get.
+	 * @return				The empty range.
+	 */
+	Window rebuild(int player, int tier, EligibilityIndex eligibility) {
+		Window window = windows[player * TierList.NUM_TIERS + tier];
+		if(window == null) {
+			window = new Window();
+			windows[player * TierList.NUM_TIERS + tier] = window;
+		}
+		
+		window.size = 0;
+		window.matchingIds = null;
+		window.statsVersion = statsVersions[player];
+		window.settingsVersion = settingsVersion;
+		
+		int[] tiers = TierWindows.getWindow(tier);
+		for(int placeAt = 0; placeAt < 3; placeAt++) {
+			window.eligibleVersions[placeAt] = eligibility.getVersion(player, tiers[placeAt]);
+		}
+		
+		return window;
+	}
+	
+	/**
+	 * Puts every range of the player whose stats changed out of date.
+	 */
+	@Override
+	public void statsChanged(StatsTable table, int id, int player) {
+		statsVersions[player]++;
+	}
+
+}
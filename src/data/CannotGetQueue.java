@@ -0,0 +1,223 @@
+package data;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The <code>CannotGetQueue</code> is the queue used for the "Cannot Get"
+ * system. It behaves like any other first-in, first-out <code>Queue</code>,
+ * but checking whether it contains a fighter takes constant time, no matter
+ * how large the queue gets.
+ * <br><br>
+ * Fighters are stored in a ring buffer, in the order they were added. Next
+ * to that, the queue keeps a count of how many times each fighter is in it,
+ * indexed by the fighter's id. Because of this, only fighters that have been
+ * added to a <code>TierList</code> (and thus have an id) can be added.
+ *
+ * @author Jordan Knapp
+ */
+public class CannotGetQueue extends AbstractQueue<Fighter> {
+	
+	private Fighter[] buffer;
+	private int head;
+	private int size;
+	
+	//counts[id] is the number of times the fighter with that id is queued
+	private int[] counts;
+	
+	//incremented on every change, so iterators can tell if the queue was
+	//changed out from under them
+	private int modCount;
+	
+	/**
+	 * Creates an empty <code>CannotGetQueue</code>.
+	 */
+	public CannotGetQueue() {
+		buffer = new Fighter[16];
+		head = 0;
+		size = 0;
+		
+		counts = new int[16];
+		modCount = 0;
+	}
+	
+	/**
+	 * Adds a fighter to the end of the queue.
+	 *
+	 * @param fighter	The fighter to add.
+	 * @return			<code>true</code>, since there is always room.
+	 *
+	 * @throws NullPointerException		Thrown if the fighter is null.
+	 * @throws IllegalArgumentException	Thrown if the fighter has not been
+	 * 									added to a <code>TierList</code>, so
+	 * 									it doesn't have an id.
+	 */
+	@Override
+	public boolean offer(Fighter fighter) throws NullPointerException, IllegalArgumentException {
+		if(fighter == null) {
+			throw new NullPointerException("Cannot add null to a CannotGetQueue.");
+		}
+		else if(fighter.getId() < 0) {
+			throw new IllegalArgumentException(fighter + " has no id, so it cannot be added " +
+					"to a CannotGetQueue.");
+		}
+		
+		if(size == buffer.length) {
+			//unroll the ring into the start of a new, larger buffer
+			Fighter[] newBuffer = new Fighter[buffer.length * 2];
+			for(int at = 0; at < size; at++) {
+				newBuffer[at] = buffer[(head + at) % buffer.length];
+			}
+			
+			buffer = newBuffer;
+			head = 0;
+		}
+		
+		if(fighter.getId() >= counts.length) {
+			counts = Arrays.copyOf(counts, Math.max(counts.length * 2, fighter.getId() + 1));
+		}
+		
+		buffer[(head + size) % buffer.length] = fighter;
+		size++;
+		counts[fighter.getId()]++;
+		modCount++;
+		
+		return true;
+	}
+	
+	/**
+	 * Removes the fighter at the front of the queue.
+	 *
+	 * @return	The fighter that was removed, or <code>null</code> if the queue
+	 * 			is empty.
+	 */
+	@Override
+	public Fighter poll() {
+		if(size == 0) {
+			return null;
+		}
+		
+		Fighter removed = buffer[head];
+		buffer[head] = null;
+		head = (head + 1) % buffer.length;
+		size--;
+		counts[removed.getId()]--;
+		modCount++;
+		
+		return removed;
+	}
+	
+	/**
+	 * @return	The fighter at the front of the queue, or <code>null</code> if
+	 * 			the queue is empty.
+	 */
+	@Override
+	public Fighter peek() {
+		return size == 0 ? null : buffer[head];
+	}
+	
+	/**
+	 * @return	The number of fighters in the queue.
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Determines whether the given fighter is in the queue, in constant time.
+	 *
+	 * @param o	The fighter to check.
+	 * @return	<code>true</code> if the fighter is in the queue at least once,
+	 * 			<code>false</code> if it is not.
+	 */
+	@Override
+	public boolean contains(Object o) {
+		if(!(o instanceof Fighter)) {
+			return false;
+		}
+		
+		int id = ((Fighter) o).getId();
+		
+		return id >= 0 && id < counts.length && counts[id] > 0;
+	}
+	
+	/**
+	 * Removes the first occurrence of the given fighter from the queue, if
+	 * it is present. Everything behind it moves up one place.
+	 *
+	 * @param o	The fighter to remove.
+	 * @return	<code>true</code> if the fighter was present and removed,
+	 * 			<code>false</code> if it was not present.
+	 */
+	@Override
+	public boolean remove(Object o) {
+		//the count tells us whether there's anything to find before we bother
+		//looking for it
+		if(!contains(o)) {
+			return false;
+		}
+		
+		Fighter fighter = (Fighter) o;
+		
+		for(int at = 0; at < size; at++) {
+			if(buffer[(head + at) % buffer.length].getId() == fighter.getId()) {
+				for(int shift = at; shift < size - 1; shift++) {
+					buffer[(head + shift) % buffer.length] = buffer[(head + shift + 1) % buffer.length];
+				}
+				
+				buffer[(head + size - 1) % buffer.length] = null;
+				size--;
+				counts[fighter.getId()]--;
+				modCount++;
+				
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Removes every fighter from the queue.
+	 */
+	@Override
+	public void clear() {
+		Arrays.fill(buffer, null);
+		Arrays.fill(counts, 0);
+		head = 0;
+		size = 0;
+		modCount++;
+	}
+	
+	/**
+	 * @return	An <code>Iterator</code> over the fighters in the queue, from
+	 * 			front to back. Removing through the iterator is not supported.
+	 */
+	@Override
+	public Iterator<Fighter> iterator() {
+		return new Iterator<Fighter>() {
+			private int index = 0;
+			private int expectedModCount = modCount;
+			
+			public boolean hasNext() {
+				return index < size;
+			}
+			
+			public Fighter next() {
+				if(expectedModCount != modCount) {
+					throw new ConcurrentModificationException();
+				}
+				else if(index >= size) {
+					throw new NoSuchElementException();
+				}
+				
+				return buffer[(head + index++) % buffer.length];
+			}
+		};
+	}
+
+}
@@ -75,7 +75,7 @@ public class ComparableArray implements Comparable<ComparableArray> {
 		//overall winrate, which isn't handled here. so knowing that 1 will
 		//never be passed in, any other value can be subtracted by 1 to get
 		//the enum value
-		this(fighter, compareType == 0 ? CompareType.FIGHTER_OVERALL_WINRATE : CompareType.values()[compareType - 1]);
+		this(fighter, toCompareType(compareType));
 	}
 	
 	/**
@@ -135,6 +135,18 @@ public class ComparableArray implements Comparable<ComparableArray> {
 		}
 	}
 	
+	/**
+	 * Converts an index from the sort button's dropdown in
+	 * <code>MainWindow</code> to a <code>CompareType</code>, in the same way
+	 * as <code>ComparableArray(Fighter, int)</code>.
+	 * 
+	 * @param compareType	The index from the dropdown.
+	 * @return				The <code>CompareType</code> it stands for.
+	 */
+	static CompareType toCompareType(int compareType) {
+		return compareType == 0 ? CompareType.FIGHTER_OVERALL_WINRATE : CompareType.values()[compareType - 1];
+	}
+	
 	/**
 	 * A method needed to allow comparing <code>Fighter</code>'s names.
 	 * 
@@ -162,6 +174,17 @@ public class ComparableArray implements Comparable<ComparableArray> {
 	 * @return	The winrate for this character, or <code>wins</code>/<code>battles</code>.
 	 */
 	private double getWinrate() {
+		return winrate(wins, battles);
+	}
+	
+	/**
+	 * @param wins		A number of wins.
+	 * @param battles	A number of battles.
+	 * @return			<code>wins</code>/<code>battles</code>, worked out the
+	 * 					same way everywhere fighters are sorted, so two equal
+	 * 					winrates are always seen as equal.
+	 */
+	static double winrate(int wins, int battles) {
 		return (float) wins / battles;
 	}
 
@@ -230,11 +253,25 @@ public class ComparableArray implements Comparable<ComparableArray> {
 	 * ratio of wins to losses represented by a fraction.
 	 */
 	public String toString() {
+		return toString(fighter, compareType, wins, battles);
+	}
+	
+	/**
+	 * Gets the same string as <code>toString()</code> would, without having
+	 * to create a <code>ComparableArray</code> first.
+	 * 
+	 * @param fighter		The fighter.
+	 * @param compareType	The type of comparison being done.
+	 * @param wins			The number of wins to show.
+	 * @param battles		The number of battles to show.
+	 * @return				The string.
+	 */
+	static String toString(Fighter fighter, CompareType compareType, int wins, int battles) {
 		if(compareType == CompareType.TOTAL_BATTLES) {
 			return fighter.getName() + " - " + battles + " battles";
 		}
 		
-		return fighter.getName() + " - " + Util.printDouble(getWinrate() * 100) + "% (" + wins + "/" + battles + ")";
+		return fighter.getName() + " - " + Util.printDouble(winrate(wins, battles) * 100) + "% (" + wins + "/" + battles + ")";
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,220 @@
+package data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The <code>EligibilityIndex</code> keeps track of which fighters each player
+ * is currently able to get. Before this class existed, every battle that was
+ * generated would scan every tier for every player, checking each fighter
+ * against the "Cannot Get" queues and that player's exclusion list. Now, the
+ * <code>TierList</code> tells the index whenever one of those things changes,
+ * and the index updates only the entries that were affected.
+ * <br><br>
+ * Fighters are identified by the id given to them by the <code>TierList</code>
+ * when they are added. For each player, the index keeps a count of the
+ * number of reasons a fighter cannot be gotten (being in the "Cannot Get"
+ * queue, the player's individual "Cannot Get" queue, or the player's
+ * exclusion list). A fighter is eligible for a player when that count is 0.
+ * The eligible fighters are also kept in a <code>BitSet</code> for each tier,
+ * so that the eligible fighters of a tier can be walked without looking at
+ * any of the ineligible ones.
+ * <br><br>
+ * Note that tier chances are not considered here, since they can change from
+ * one battle to the next. Tiers that are turned off are simply skipped when
+ * reading from the index.
+ * <br><br>
+ * Each player's set of eligible fighters in each tier also has a version,
+ * which changes whenever the set does. Anything worked out from a set can
+ * remember its version, and tell whether it's out of date without looking
+ * at the set again.
+ *
+ * @author Jordan Knapp
+ */
+public class EligibilityIndex {
+	
+	private int numTiers;
+	private int numPlayers;
+	private int numFighters;
+	
+	//blockCount[player][id] is the number of reasons that player can't get
+	//the fighter with that id
+	private int[][] blockCount;
+	
+	//eligible[player][tier] has a bit set for each eligible fighter's id
+	private BitSet[][] eligible;
+	private int[] numEligible;
+	
+	//versions[player][tier] changes whenever eligible[player][tier] does
+	private int[][] versions;
+	
+	/**
+	 * Creates an empty <code>EligibilityIndex</code>.
+	 *
+	 * @param numTiers		The number of tiers fighters can be in.
+	 * @param numPlayers	The maximum number of players.
+	 */
+	public EligibilityIndex(int numTiers, int numPlayers) {
+		this.numTiers = numTiers;
+		this.numPlayers = numPlayers;
+		numFighters = 0;
+		
+		blockCount = new int[numPlayers][16];
+		eligible = new BitSet[numPlayers][numTiers];
+		numEligible = new int[numPlayers];
+		versions = new int[numPlayers][numTiers];
+		
+		for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+			for(int tierAt = 0; tierAt < numTiers; tierAt++) {
+				eligible[playerAt][tierAt] = new BitSet();
+			}
+		}
+	}
+	
+	/**
+	 * Adds a fighter to the index. Newly-added fighters are eligible for
+	 * every player. Ids must be given out in order, starting from 0.
+	 *
+	 * @param fighter	The fighter to add.
+	 *
+	 * @throws IllegalArgumentException	Thrown if the fighter's id is not the
+	 * 									next id in the sequence.
+	 */
+	public void addFighter(Fighter fighter) throws IllegalArgumentException {
+		if(fighter.getId() != numFighters) {
+			throw new IllegalArgumentException("Expected fighter with id " + numFighters +
+					", but " + fighter + " has id " + fighter.getId() + ".");
+		}
+		
+		if(numFighters == blockCount[0].length) {
+			for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+				blockCount[playerAt] = Arrays.copyOf(blockCount[playerAt], numFighters * 2);
+			}
+		}
+		
+		for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+			eligible[playerAt][fighter.getTier()].set(fighter.getId());
+			numEligible[playerAt]++;
+			versions[playerAt][fighter.getTier()]++;
+		}
+		
+		numFighters++;
+	}
+	
+	/**
+	 * Adds a reason that the given player cannot get the given fighter. If
+	 * it's the first such reason, the fighter stops being eligible.
+	 *
+	 * @param player	The player who can no longer get the fighter.
+	 * @param fighter	The fighter that can't be gotten.
+	 */
+	public void block(int player, Fighter fighter) {
+		int id = fighter.getId();
+		
+		if(blockCount[player][id]++ == 0) {
+			eligible[player][fighter.getTier()].clear(id);
+			numEligible[player]--;
+			versions[player][fighter.getTier()]++;
+		}
+	}
+	
+	/**
+	 * Removes a reason that the given player cannot get the given fighter.
+	 * If it was the last reason, the fighter becomes eligible again.
+	 *
+	 * @param player	The player who may be able to get the fighter again.
+	 * @param fighter	The fighter that may be gotten again.
+	 *
+	 * @throws IllegalStateException	Thrown if the fighter was not blocked
+	 * 									for that player in the first place.
+	 */
+	public void unblock(int player, Fighter fighter) throws IllegalStateException {
+		int id = fighter.getId();
+		
+		if(blockCount[player][id] == 0) {
+			throw new IllegalStateException(fighter + " is not blocked for player " + (player + 1) + ".");
+		}
+		
+		if(--blockCount[player][id] == 0) {
+			eligible[player][fighter.getTier()].set(id);
+			numEligible[player]++;
+			versions[player][fighter.getTier()]++;
+		}
+	}
+	
+	/**
+	 * Blocks the given fighter for every player. Used for the global "Cannot
+	 * Get" queue.
+	 *
+	 * @param fighter	The fighter that nobody can get.
+	 */
+	public void blockAll(Fighter fighter) {
+		for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+			block(playerAt, fighter);
+		}
+	}
+	
+	/**
+	 * Unblocks the given fighter for every player. Used when a fighter leaves
+	 * the global "Cannot Get" queue.
+	 *
+	 * @param fighter	The fighter to unblock.
+	 */
+	public void unblockAll(Fighter fighter) {
+		for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+			unblock(playerAt, fighter);
+		}
+	}
+	
+	/**
+	 * @param player	The player to check.
+	 * @param fighter	The fighter to check.
+	 * @return			<code>true</code> if that player can currently get
+	 * 					that fighter, <code>false</code> if not.
+	 */
+	public boolean isEligible(int player, Fighter fighter) {
+		return blockCount[player][fighter.getId()] == 0;
+	}
+	
+	/**
+	 * Gets the ids of the fighters in the given tier that the given player
+	 * can currently get. The returned <code>BitSet</code> belongs to the
+	 * index, and must not be modified.
+	 *
+	 * @param player	The player whose eligible fighters will be returned.
+	 * @param tier		The tier to get the eligible fighters of.
+	 * @return			A <code>BitSet</code> with a bit set for each
+	 * 					eligible fighter's id.
+	 */
+	public BitSet getEligible(int player, int tier) {
+		return eligible[player][tier];
+	}
+	
+	/**
+	 * @param player	The player to check.
+	 * @param tier		The tier to check.
+	 * @return			The version of the set of fighters in that tier that
+	 * 					the player can get. It changes whenever a fighter is
+	 * 					added to or removed from the set, and only then.
+	 */
+	public int getVersion(int player, int tier) {
+		return versions[player][tier];
+	}
+	
+	/**
+	 * @param player	The player to check.
+	 * @return			The number of fighters that player can currently get,
+	 * 					across all tiers.
+	 */
+	public int numEligible(int player) {
+		return numEligible[player];
+	}
+	
+	/**
+	 * @return	The number of tiers this index was created with.
+	 */
+	public int numTiers() {
+		return numTiers;
+	}
+
+}
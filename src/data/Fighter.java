@@ -8,9 +8,11 @@ import util.Util;
  * track fighters, but given that a fighter has both a name and a tier, it
  * makes more sense to have an object for it.
  * <br><br>
- * We also use this class to keep track of stats data. Each player's wins
- * and losses are kept here, and various methods are provided for accessing
- * that data.
+ * We also use this class to access stats data. Each player's wins and
+ * losses are kept in the <code>StatsTable</code> of the <code>TierList</code>
+ * this fighter belongs to, and various methods are provided for accessing
+ * that data. Until the fighter is added to a <code>TierList</code>, its stats
+ * are kept in the fighter itself.
  * 
  * @author Jordan Knapp
  */
@@ -18,6 +20,12 @@ public class Fighter {
 	
 	private String name;
 	private int tier;
+	private int id;
+	
+	//the table holding this fighter's stats, once it's been added to a
+	//TierList. before then, the stats live in the two arrays below, which
+	//are handed off to the table and dropped when the fighter is attached
+	private StatsTable statsTable;
 	
 	private int[] playerWins;
 	private int[] playerBattles;
@@ -31,6 +39,7 @@ public class Fighter {
 	public Fighter(String name, int tier) {
 		this.name = name;
 		this.tier = tier;
+		id = -1;
 		
 		playerWins = new int[8];
 		playerBattles = new int[8];
@@ -44,7 +53,7 @@ public class Fighter {
 	/**
 	 * Creates a new <code>Fighter</code> with a given name and tier as well
 	 * as stats data. Used when stats data is loaded, so the <code>Fighter</code>
-	 * object can have the stats found in the <code>.sel</code> file.
+	 * object can have the stats found in the stats file.
 	 * 
 	 * @param name	The name of the <code>Fighter</code> to create.
 	 * @param tier	The tier of the <code>Fighter</code> to create.
@@ -53,12 +62,12 @@ public class Fighter {
 	 * 				ordering should be as follows: P1 wins, P1 battles, P2
 	 * 				wins, P2 battles, and so on.
 	 */
-	public Fighter(String name, int tier, double[] stats) {
+	public Fighter(String name, int tier, int[] stats) {
 		this(name, tier);
 		
 		for(int at = 0; at < 8; at++) {
-			playerWins[at] = (int) stats[at * 2];
-			playerBattles[at] = (int) stats[at * 2 + 1];
+			playerWins[at] = stats[at * 2];
+			playerBattles[at] = stats[at * 2 + 1];
 		}
 	}
 	
@@ -76,6 +85,43 @@ public class Fighter {
 		return tier;
 	}
 	
+	/**
+	 * @return	The id of this <code>Fighter</code>, given to it when it was
+	 * 			added to a <code>TierList</code>. Ids start at 0 and are
+	 * 			dense, so they can be used to index into arrays. A fighter
+	 * 			that hasn't been added to a <code>TierList</code> has an id
+	 * 			of -1.
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * Sets the id of this <code>Fighter</code>. Only the <code>TierList</code>
+	 * should do this, when the fighter is added to it.
+	 * 
+	 * @param id	The id to give this fighter.
+	 */
+	void setId(int id) {
+		this.id = id;
+	}
+	
+	/**
+	 * Moves this fighter's stats into the given <code>StatsTable</code>.
+	 * From then on, all of this fighter's stats are read from and written to
+	 * that table. Only the <code>TierList</code> should do this, after giving
+	 * the fighter its id.
+	 * 
+	 * @param table	The table that will hold this fighter's stats.
+	 */
+	void attach(StatsTable table) {
+		table.addFighter(id, playerWins, playerBattles);
+		
+		statsTable = table;
+		playerWins = null;
+		playerBattles = null;
+	}
+	
 	/**
 	 * Compares two <code>Fighter</code>s to determine if they are equa. Two
 	 * <code>Fighter</code>s are considered equal if they have the same name
@@ -109,6 +155,10 @@ public class Fighter {
 	 * 					when playing this <code>Fighter</code>.
 	 */
 	public int getPlayerWins(int player) {
+		if(statsTable != null) {
+			return statsTable.getWins(id, player);
+		}
+		
 		return playerWins[player];
 	}
 	
@@ -120,6 +170,10 @@ public class Fighter {
 	 * 					in when playing this <code>Fighter</code>.
 	 */
 	public int getPlayerBattles(int player) {
+		if(statsTable != null) {
+			return statsTable.getBattles(id, player);
+		}
+		
 		return playerBattles[player];
 	}
 	
@@ -134,7 +188,7 @@ public class Fighter {
 	 * 					A percentage sign ("%") is also appended to the end.
 	 */
 	public String getPlayerWinrate(int player) {
-		return Util.printDouble(((float) playerWins[player] / playerBattles[player]) * 100) + "%";
+		return Util.printDouble(((float) getPlayerWins(player) / getPlayerBattles(player)) * 100) + "%";
 	}
 	
 	/**
@@ -142,6 +196,10 @@ public class Fighter {
 	 * 			it has participated in.
 	 */
 	public int getTotalWins() {
+		if(statsTable != null) {
+			return statsTable.getFighterWins(id);
+		}
+		
 		int sum = 0;
 		
 		for(int at: playerWins) {
@@ -155,6 +213,10 @@ public class Fighter {
 	 * @return	The total number of battles this fighter has participated in.
 	 */
 	public int getTotalBattles() {
+		if(statsTable != null) {
+			return statsTable.getFighterBattles(id);
+		}
+		
 		int sum = 0;
 		
 		for(int at: playerBattles) {
@@ -184,6 +246,11 @@ public class Fighter {
 	 * @param player	The player who won as this fighter.
 	 */
 	public void recordWin(int player) {
+		if(statsTable != null) {
+			statsTable.recordWin(id, player);
+			return;
+		}
+		
 		playerWins[player]++;
 		playerBattles[player]++;
 	}
@@ -195,6 +262,11 @@ public class Fighter {
 	 * @param player	The player who lost as this fighter.
 	 */
 	public void recordLoss(int player) {
+		if(statsTable != null) {
+			statsTable.recordLoss(id, player);
+			return;
+		}
+		
 		playerBattles[player]++;
 	}
 	
@@ -206,6 +278,11 @@ public class Fighter {
 	 * @param player	The player whose win is being removed.
 	 */
 	public void removeWin(int player) {
+		if(statsTable != null) {
+			statsTable.removeWin(id, player);
+			return;
+		}
+		
 		playerWins[player]--;
 		playerBattles[player]--;
 	}
@@ -219,6 +296,11 @@ public class Fighter {
 	 * @param player	The player whose loss is being removed.
 	 */
 	public void removeLoss(int player) {
+		if(statsTable != null) {
+			statsTable.removeLoss(id, player);
+			return;
+		}
+		
 		playerBattles[player]--;
 	}
 	
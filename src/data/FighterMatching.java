@@ -0,0 +1,309 @@
+package data;
+
+import java.util.Arrays;
+
+/**
+ * The <code>FighterMatching</code> class answers whether every player can be
+ * given a different fighter, when each player can only get certain ones.
+ * Every player having something to get isn't enough, since two players
+ * whose only fighter in range is the same one can't both get it. This is a
+ * bipartite matching problem, with players on one side and fighters on the
+ * other, and it's solved with Kuhn's algorithm: players are matched one at
+ * a time, and when a player's fighters are all taken, the players who took
+ * them are moved to other fighters if they can be.
+ * <br><br>
+ * There are at most 8 players, so a player with 15 or more fighters can
+ * always be matched, no matter what the other players get or which
+ * fighters are banned, since at most 7 are taken and at most 7 are banned.
+ * The <code>TierList</code> only gives each player that many, which keeps
+ * every check small.
+ * <br><br>
+ * Fighters are identified by their ids, but the work is done on the few
+ * fighters that are actually in a check. Each one is given a slot the first
+ * time it's seen, through a small hash table, and everything else is kept by
+ * slot, so a check never costs anything for the fighters that aren't in it,
+ * no matter how big the tier list is. One <code>FighterMatching</code> can
+ * be used for any number of checks, but only by one thread at a time.
+ * 
+ * @author Jordan Knapp
+ */
+class FighterMatching {
+	
+	//owner[slot] is the player the fighter is matched to, or NONE, or BANNED
+	private static final int NONE = -1;
+	private static final int BANNED = -2;
+	
+	//the fighter in each slot, where in the table it is, and the player
+	//it's matched to
+	private int[] slotIds;
+	private int[] tableIndexes;
+	private int[] owner;
+	private int numSlots;
+	
+	//seen[slot] == search means the fighter was already looked at while
+	//trying to match the current player
+	private int[] seen;
+	private int search;
+	
+	//the slot of each fighter in the current check, by its id. empty
+	//entries are -1, and a fighter is looked for starting at its id's hash,
+	//going forward until it or an empty entry is found
+	private int[] table;
+	
+	//the last check, by slot, which is kept until the next one so that
+	//canMatchWithout() can start from it
+	private int[][] candidates;
+	private int[] numCandidates;
+	private boolean[] included;
+	private int numPlayers;
+	private int[] matched;
+	
+	//where canMatchWithout() keeps the matching it has to put back
+	private int[] saved;
+	
+	/**
+	 * Creates a <code>FighterMatching</code>.
+	 */
+	FighterMatching() {
+		slotIds = new int[32];
+		tableIndexes = new int[32];
+		owner = new int[32];
+		seen = new int[32];
+		numSlots = 0;
+		search = 0;
+		
+		table = new int[64];
+		Arrays.fill(table, -1);
+		
+		candidates = new int[8][16];
+		numCandidates = new int[8];
+		included = new boolean[8];
+		numPlayers = 0;
+		matched = new int[8];
+		saved = new int[8];
+	}
+	
+	/**
+	 * Checks whether every player can be given a different fighter.
+	 * 
+	 * @param candidates	The ids of the fighters each player can get. A
+	 * 						player whose entry is <code>null</code> is left
+	 * 						out.
+	 * @param banned		The ids of fighters nobody can get, such as those
+	 * 						already in the matchup. This can be
+	 * 						<code>null</code> if there aren't any.
+	 * @param numBanned		The number of ids in <code>banned</code> to use.
+	 * @return				<code>true</code> if every player can be given a
+	 * 						different fighter.
+	 */
+	boolean canMatch(int[][] candidates, int[] banned, int numBanned) {
+		clear(candidates, numBanned);
+		
+		for(int at = 0; at < numBanned; at++) {
+			owner[slotOf(banned[at])] = BANNED;
+		}
+		
+		for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+			included[playerAt] = candidates[playerAt] != null;
+			numCandidates[playerAt] = 0;
+			
+			if(!included[playerAt]) {
+				continue;
+			}
+			
+			int[] ids = candidates[playerAt];
+			if(this.candidates[playerAt].length < ids.length) {
+				this.candidates[playerAt] = new int[ids.length];
+			}
+			
+			for(int id: ids) {
+				this.candidates[playerAt][numCandidates[playerAt]++] = slotOf(id);
+			}
+		}
+		
+		for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+			if(included[playerAt]) {
+				search++;
+				
+				if(!findFighter(playerAt)) {
+					return false;
+				}
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Checks whether every player could still be given a different fighter
+	 * if one more fighter were banned. This must only be called after a
+	 * call to <code>canMatch()</code> that returned <code>true</code>, and
+	 * it's much cheaper than calling <code>canMatch()</code> again: only the
+	 * player who was given the fighter needs a new one, and the rest of the
+	 * matching is put back afterwards.
+	 * 
+	 * @param fighter	The id of the fighter to ban.
+	 * @return			<code>true</code> if every player can still be given
+	 * 					a different fighter.
+	 */
+	boolean canMatchWithout(int fighter) {
+		int slot = findSlot(fighter);
+		
+		//a fighter that isn't in the check can't be matched to anyone
+		if(slot == -1 || owner[slot] < 0) {
+			return true;
+		}
+		
+		int player = owner[slot];
+		System.arraycopy(matched, 0, saved, 0, numPlayers);
+		
+		owner[slot] = BANNED;
+		matched[player] = NONE;
+		search++;
+		boolean canMatch = findFighter(player);
+		
+		for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+			if(matched[playerAt] != NONE) {
+				owner[matched[playerAt]] = NONE;
+			}
+		}
+		
+		System.arraycopy(saved, 0, matched, 0, numPlayers);
+		
+		for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+			if(matched[playerAt] != NONE) {
+				owner[matched[playerAt]] = playerAt;
+			}
+		}
+		
+		return canMatch;
+	}
+	
+	/**
+	 * @param player	A player.
+	 * @return			The id of the fighter the player was given by the last
+	 * 					successful call to <code>canMatch()</code>, or -1 if
+	 * 					they were left out.
+	 */
+	int getMatched(int player) {
+		return matched[player] == NONE ? -1 : slotIds[matched[player]];
+	}
+	
+	/**
+	 * Gets ready for a new check, by forgetting every slot. Only the entries
+	 * of the table that were used need to be emptied, and the table is made
+	 * bigger if the new check could fill more than half of it.
+	 */
+	private void clear(int[][] candidates, int numBanned) {
+		for(int slotAt = 0; slotAt < numSlots; slotAt++) {
+			table[tableIndexes[slotAt]] = -1;
+		}
+		
+		numSlots = 0;
+		numPlayers = candidates.length;
+		
+		int most = numBanned;
+		for(int[] idsAt: candidates) {
+			if(idsAt != null) {
+				most += idsAt.length;
+			}
+		}
+		
+		if(most * 2 > table.length) {
+			table = new int[Integer.highestOneBit(most * 2) * 2];
+			Arrays.fill(table, -1);
+		}
+		
+		if(most > slotIds.length) {
+			slotIds = new int[most];
+			tableIndexes = new int[most];
+			owner = new int[most];
+			seen = new int[most];
+		}
+		
+		if(this.candidates.length < numPlayers) {
+			this.candidates = Arrays.copyOf(this.candidates, numPlayers);
+			numCandidates = new int[numPlayers];
+			included = new boolean[numPlayers];
+			matched = new int[numPlayers];
+			saved = new int[numPlayers];
+			
+			for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+				if(this.candidates[playerAt] == null) {
+					this.candidates[playerAt] = new int[16];
+				}
+			}
+		}
+		
+		Arrays.fill(matched, 0, numPlayers, NONE);
+	}
+	
+	/**
+	 * @return	The slot of a fighter in the current check, giving it a new one
+	 * 			if it doesn't have one yet.
+	 */
+	private int slotOf(int id) {
+		int index = tableIndex(id);
+		
+		if(table[index] == -1) {
+			slotIds[numSlots] = id;
+			tableIndexes[numSlots] = index;
+			owner[numSlots] = NONE;
+			seen[numSlots] = 0;
+			table[index] = numSlots++;
+		}
+		
+		return table[index];
+	}
+	
+	/**
+	 * @return	The slot of a fighter in the current check, or -1 if it isn't
+	 * 			in it.
+	 */
+	private int findSlot(int id) {
+		return table[tableIndex(id)];
+	}
+	
+	/**
+	 * @return	The index in the table where a fighter's slot is, or the empty
+	 * 			entry where it would go.
+	 */
+	private int tableIndex(int id) {
+		int mask = table.length - 1;
+		int hash = id * 0x9E3779B9;
+		int index = (hash ^ (hash >>> 16)) & mask;
+		
+		while(table[index] != -1 && slotIds[table[index]] != id) {
+			index = (index + 1) & mask;
+		}
+		
+		return index;
+	}
+	
+	/**
+	 * Tries to give a player a fighter, moving other players to different
+	 * fighters if it has to.
+	 * 
+	 * @return	<code>true</code> if the player was given a fighter.
+	 */
+	private boolean findFighter(int player) {
+		for(int at = 0; at < numCandidates[player]; at++) {
+			int slot = candidates[player][at];
+			
+			if(seen[slot] == search || owner[slot] == BANNED) {
+				continue;
+			}
+			
+			seen[slot] = search;
+			
+			if(owner[slot] == NONE || findFighter(owner[slot])) {
+				owner[slot] = player;
+				matched[player] = slot;
+				return true;
+			}
+		}
+		
+		return false;
+	}
+
+}
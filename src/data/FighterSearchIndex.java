@@ -0,0 +1,641 @@
+package data;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The <code>FighterSearchIndex</code> class finds fighters from whatever a
+ * user types in, which won't always be a fighter's exact name. It can find
+ * a fighter from:
+ * <ul>
+ * 	<li>Its name or an alias, ignoring case, accents, spaces, and
+ * 		punctuation, so "Mr Game & Watch" finds "Mr. Game & Watch".</li>
+ * 	<li>The start of its name or alias, like "pac" for "Pac-Man".</li>
+ * 	<li>The start of any word in its name or alias, like "watch".</li>
+ * 	<li>Its name or alias, or the start of one, with a few typos.</li>
+ * </ul>
+ * Every name and alias is turned into a key by lowercasing it and keeping
+ * only its letters and digits. The keys are put in a trie, both whole and
+ * from the start of each word, and each node of the trie keeps every key
+ * that goes through it, so all of the fighters whose keys start with what
+ * was typed are found by going down the trie once. Each node keeps its keys
+ * in the order they'd be ranked in, so a short prefix that hundreds of
+ * fighters start with only has to look at the first few.
+ * <br><br>
+ * Typos are found with bigrams: each key is split into every pair of
+ * characters next to each other, and the keys that share enough bigrams
+ * with what was typed are checked with an edit distance. A key within
+ * <i>k</i> edits of what was typed can't have lost more than two bigrams
+ * per edit, or have any bigram moved by more than <i>k</i> places, so only
+ * the keys sharing enough bigrams in about the same places need to be
+ * checked, which is usually a small part of the roster. Bigrams are used
+ * instead of anything longer so that what was typed always has to share at
+ * least one, even when it's short and is allowed a lot of edits.
+ * <br><br>
+ * Results are ranked by how they matched: exact matches first, then keys
+ * that start with what was typed, then keys with a word that does, then
+ * typos, with the fewest edits first. Ties go to the shorter key, and then
+ * to the fighter whose name comes first alphabetically. A fighter only
+ * appears once, for its best match.
+ * <br><br>
+ * Fighters are identified by their ids, and are added as the
+ * <code>TierList</code> adds them. One <code>FighterSearchIndex</code> can
+ * only be used by one thread at a time.
+ * 
+ * @author Jordan Knapp
+ */
+class FighterSearchIndex {
+	
+	//how well a key matched. lower is better, and a typo's rank is TYPO
+	//plus the number of edits
+	private static final int EXACT = 0;
+	private static final int PREFIX = 1;
+	private static final int WORD_PREFIX = 2;
+	private static final int TYPO = 3;
+	
+	//the padding at the start of a key when splitting it into bigrams, so
+	//its first character is in as many bigrams as the rest
+	private static final char PAD = '\0';
+	
+	//the last place in a key a bigram's place is kept track of for
+	private static final int LAST_PLACE = 63;
+	
+	private String[] names;
+	
+	//every name and alias, by key number
+	private String[] keys;
+	private int[] keyFighters;
+	private int numKeys;
+	
+	//the trie. node 0 is the root, and each node's children are linked
+	//together through nextSibling
+	private char[] labels;
+	private int[] firstChild;
+	private int[] nextSibling;
+	private int numNodes;
+	
+	//the keys going through each node, as key * 2, plus 1 if the key
+	//starts at a word in the middle of a name. they're kept in the order
+	//they'd be ranked in: whole keys before words, then shortest first,
+	//then by the fighter's name
+	private int[][] nodeKeys;
+	private int[] numNodeKeys;
+	
+	//the keys each bigram is in, by bigram and where it is in the key
+	private HashMap<Long, int[]> bigramKeys;
+	
+	//kept between searches so that searching doesn't allocate much. a
+	//fighter's best match is only valid if its stamp is the current search
+	private int search;
+	private int[] stamps;
+	private long[] bestMatches;
+	private int[] matched;
+	private int numMatched;
+	
+	//the same for each time typos are looked for, which can be more than
+	//once a search
+	private int typoSearch;
+	private int[] sharedCounts;
+	private int[] sharedStamps;
+	private int[] lastBigrams;
+	private int[] previousRow;
+	private int[] currentRow;
+	
+	/**
+	 * Creates an empty <code>FighterSearchIndex</code>.
+	 */
+	FighterSearchIndex() {
+		names = new String[16];
+		
+		keys = new String[16];
+		keyFighters = new int[16];
+		numKeys = 0;
+		
+		labels = new char[64];
+		firstChild = new int[64];
+		nextSibling = new int[64];
+		nodeKeys = new int[64][];
+		numNodeKeys = new int[64];
+		numNodes = 0;
+		newNode(PAD);
+		
+		bigramKeys = new HashMap<Long, int[]>();
+		
+		search = 0;
+		typoSearch = 0;
+		stamps = new int[16];
+		bestMatches = new long[16];
+		matched = new int[16];
+		sharedCounts = new int[16];
+		sharedStamps = new int[16];
+		lastBigrams = new int[16];
+		previousRow = new int[16];
+		currentRow = new int[16];
+	}
+	
+	/**
+	 * Adds a fighter, so it can be found by its name. Ids must be given out
+	 * in order, starting from 0.
+	 * 
+	 * @param id	The fighter's id.
+	 * @param name	The fighter's name.
+	 */
+	void addFighter(int id, String name) {
+		if(id == names.length) {
+			names = Arrays.copyOf(names, id * 2);
+			stamps = Arrays.copyOf(stamps, id * 2);
+			bestMatches = Arrays.copyOf(bestMatches, id * 2);
+			matched = Arrays.copyOf(matched, id * 2);
+		}
+		
+		names[id] = name;
+		addKey(id, name);
+	}
+	
+	/**
+	 * Adds another name a fighter can be found by.
+	 * 
+	 * @param id	The fighter's id.
+	 * @param alias	The other name.
+	 */
+	void addAlias(int id, String alias) {
+		addKey(id, alias);
+	}
+	
+	/**
+	 * Finds the fighters that best match what was typed.
+	 * 
+	 * @param query	What was typed.
+	 * @param limit	The most fighters to find.
+	 * @return		The ids of the fighters found, best match first.
+	 */
+	int[] search(String query, int limit) {
+		String key = toKey(query, null);
+		
+		search++;
+		numMatched = 0;
+		
+		if(key.isEmpty() || limit <= 0) {
+			return new int[0];
+		}
+		
+		findPrefixes(key, limit);
+		
+		//typos always rank below prefixes, so there's no need to look for
+		//them if there are already enough prefixes. the same goes for typos
+		//with more edits, which are looked for with a looser filter that
+		//lets a lot more keys through to be checked
+		int mostEdits = key.length() <= 4 ? 1 : key.length() <= 8 ? 2 : 3;
+		
+		for(int maxEdits = 1; maxEdits <= mostEdits && numMatched < limit && key.length() >= 3; maxEdits++) {
+			findTypos(key, maxEdits);
+		}
+		
+		return best(limit);
+	}
+	
+	/**
+	 * Offers the keys starting with what was typed, either from its start
+	 * or from the start of a word, until enough fighters have been found.
+	 * The keys are gone through in the order they'd be ranked in, so any
+	 * key after that can't be better than the fighters already found.
+	 */
+	private void findPrefixes(String key, int limit) {
+		int node = 0;
+		
+		for(int at = 0; at < key.length() && node != -1; at++) {
+			node = findChild(node, key.charAt(at));
+		}
+		
+		if(node == -1) {
+			return;
+		}
+		
+		for(int at = 0; at < numNodeKeys[node] && numMatched < limit; at++) {
+			int keyAt = nodeKeys[node][at] >> 1;
+			boolean fromWord = (nodeKeys[node][at] & 1) != 0;
+			
+			int match = PREFIX;
+			if(fromWord) {
+				match = WORD_PREFIX;
+			}
+			else if(keys[keyAt].length() == key.length()) {
+				match = EXACT;
+			}
+			
+			offer(keyAt, match);
+		}
+	}
+	
+	/**
+	 * Offers every key that what was typed is at most the given number of
+	 * edits away from the start of.
+	 */
+	private void findTypos(String key, int maxEdits) {
+		typoSearch++;
+		
+		//what was typed has one bigram per character, and a key within
+		//that many edits of it loses at most two of them to each edit. the
+		//one that would end the key isn't used, since only the start of a
+		//key has to match
+		int needed = Math.max(1, key.length() - 2 * maxEdits);
+		
+		if(sharedCounts.length < numKeys) {
+			sharedCounts = new int[keys.length];
+			sharedStamps = new int[keys.length];
+			lastBigrams = new int[keys.length];
+		}
+		
+		String padded = PAD + key;
+		for(int at = 0; at < key.length(); at++) {
+			long bigram = bigramOf(padded, at);
+			
+			//each edit moves the rest of the key by at most one place, so
+			//the bigram can only be that many places away in the key
+			for(int place = Math.max(0, at - maxEdits); place <= at + maxEdits; place++) {
+				int[] inKeys = bigramKeys.get(placed(bigram, place));
+				if(inKeys == null) {
+					continue;
+				}
+				
+				//the first entry is the number of keys
+				for(int inKeyAt = 1; inKeyAt <= inKeys[0]; inKeyAt++) {
+					int keyAt = inKeys[inKeyAt];
+					
+					if(sharedStamps[keyAt] != typoSearch) {
+						sharedStamps[keyAt] = typoSearch;
+						sharedCounts[keyAt] = 0;
+						lastBigrams[keyAt] = -1;
+					}
+					
+					//a bigram of what was typed only counts once for each
+					//key, even if the key has it in more than one place
+					if(lastBigrams[keyAt] == at) {
+						continue;
+					}
+					
+					lastBigrams[keyAt] = at;
+					sharedCounts[keyAt]++;
+					
+					//checked when it first has enough, so it's only checked
+					//once, and not at all if its fighter already starts with
+					//what was typed, since a typo can't do better
+					if(sharedCounts[keyAt] == needed && !hasPrefix(keyFighters[keyAt])) {
+						int edits = prefixEdits(key, keys[keyAt], maxEdits);
+						
+						if(edits <= maxEdits) {
+							offer(keyAt, TYPO + edits);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Gets the fewest edits that turn what was typed into the start of a
+	 * key, using the Levenshtein distance. Only the part of the table within
+	 * <code>maxEdits</code> of its diagonal is filled in, since anything
+	 * further away already needs more edits than that, and it stops early
+	 * once every way of doing it does.
+	 * 
+	 * @return	The number of edits, or more than <code>maxEdits</code> if
+	 * 			there's no way to do it in that many.
+	 */
+	private int prefixEdits(String typed, String key, int maxEdits) {
+		//the start of the key that what was typed turns into can't be more
+		//than maxEdits longer than it
+		int length = Math.min(key.length(), typed.length() + maxEdits);
+		int tooMany = maxEdits + 1;
+		
+		if(previousRow.length <= length + 1) {
+			previousRow = new int[length * 2 + 2];
+			currentRow = new int[length * 2 + 2];
+		}
+		
+		//previousRow[j] is the edits between what's been gone through of
+		//what was typed and the first j characters of the key, or tooMany
+		//if it's more than maxEdits
+		for(int keyAt = 0; keyAt <= length; keyAt++) {
+			previousRow[keyAt] = Math.min(keyAt, tooMany);
+		}
+		
+		for(int typedAt = 1; typedAt <= typed.length(); typedAt++) {
+			int from = Math.max(1, typedAt - maxEdits);
+			int to = Math.min(length, typedAt + maxEdits);
+			
+			currentRow[from - 1] = from == 1 ? Math.min(typedAt, tooMany) : tooMany;
+			int rowMin = currentRow[from - 1];
+			
+			for(int keyAt = from; keyAt <= to; keyAt++) {
+				int substitute = previousRow[keyAt - 1] +
+						(typed.charAt(typedAt - 1) == key.charAt(keyAt - 1) ? 0 : 1);
+				int delete = previousRow[keyAt] + 1;
+				int insert = currentRow[keyAt - 1] + 1;
+				
+				currentRow[keyAt] = Math.min(tooMany, Math.min(substitute, Math.min(delete, insert)));
+				rowMin = Math.min(rowMin, currentRow[keyAt]);
+			}
+			
+			//the next row reads one past this row's part of the table
+			if(to < length) {
+				currentRow[to + 1] = tooMany;
+			}
+			
+			if(rowMin > maxEdits) {
+				return rowMin;
+			}
+			
+			int[] swap = previousRow;
+			previousRow = currentRow;
+			currentRow = swap;
+		}
+		
+		//all of what was typed has been gone through, and it can end
+		//anywhere in the key near its end
+		int edits = tooMany;
+		for(int keyAt = Math.max(0, typed.length() - maxEdits); keyAt <= length; keyAt++) {
+			edits = Math.min(edits, previousRow[keyAt]);
+		}
+		
+		return edits;
+	}
+	
+	/**
+	 * Keeps a key's match for its fighter, if it's better than the best one
+	 * found for the fighter so far.
+	 */
+	private void offer(int key, int match) {
+		int fighter = keyFighters[key];
+		long packed = ((long) match << 32) | keys[key].length();
+		
+		if(stamps[fighter] != search) {
+			stamps[fighter] = search;
+			bestMatches[fighter] = packed;
+			matched[numMatched++] = fighter;
+		}
+		else if(packed < bestMatches[fighter]) {
+			bestMatches[fighter] = packed;
+		}
+	}
+	
+	/**
+	 * @return	<code>true</code> if a key of the fighter has been found to
+	 * 			start with what was typed, or to have a word that does.
+	 */
+	private boolean hasPrefix(int fighter) {
+		return stamps[fighter] == search && (bestMatches[fighter] >> 32) < TYPO;
+	}
+	
+	/**
+	 * Picks out the best of the fighters found, without sorting all of them,
+	 * by keeping only the best <code>limit</code> in order as they're gone
+	 * through.
+	 */
+	private int[] best(int limit) {
+		int[] best = new int[Math.min(limit, numMatched)];
+		int numBest = 0;
+		
+		for(int at = 0; at < numMatched; at++) {
+			int fighter = matched[at];
+			
+			if(numBest == best.length && !isBetter(fighter, best[numBest - 1])) {
+				continue;
+			}
+			
+			int insertAt = Math.min(numBest, best.length - 1);
+			while(insertAt > 0 && isBetter(fighter, best[insertAt - 1])) {
+				best[insertAt] = best[insertAt - 1];
+				insertAt--;
+			}
+			
+			best[insertAt] = fighter;
+			numBest = Math.min(numBest + 1, best.length);
+		}
+		
+		return best;
+	}
+	
+	private boolean isBetter(int fighter, int other) {
+		if(bestMatches[fighter] != bestMatches[other]) {
+			return bestMatches[fighter] < bestMatches[other];
+		}
+		
+		int byName = names[fighter].compareToIgnoreCase(names[other]);
+		if(byName != 0) {
+			return byName < 0;
+		}
+		
+		return fighter < other;
+	}
+	
+	/**
+	 * Adds a key for a fighter to the trie, both whole and from the start of
+	 * each word, and to the bigrams.
+	 */
+	private void addKey(int id, String name) {
+		int[] wordStarts = new int[name.length() + 1];
+		String key = toKey(name, wordStarts);
+		
+		if(key.isEmpty()) {
+			return;
+		}
+		
+		if(numKeys == keys.length) {
+			keys = Arrays.copyOf(keys, numKeys * 2);
+			keyFighters = Arrays.copyOf(keyFighters, numKeys * 2);
+		}
+		
+		int keyNumber = numKeys++;
+		keys[keyNumber] = key;
+		keyFighters[keyNumber] = id;
+		
+		//the first entry is the number of word starts
+		for(int wordAt = 1; wordAt <= wordStarts[0]; wordAt++) {
+			int start = wordStarts[wordAt];
+			int node = 0;
+			
+			for(int at = start; at < key.length(); at++) {
+				int child = findChild(node, key.charAt(at));
+				
+				if(child == -1) {
+					child = newNode(key.charAt(at));
+					nextSibling[child] = firstChild[node];
+					firstChild[node] = child;
+				}
+				
+				node = child;
+				addNodeKey(node, keyNumber * 2 + (start == 0 ? 0 : 1));
+			}
+		}
+		
+		String padded = PAD + key;
+		for(int at = 0; at < key.length(); at++) {
+			long bigram = placed(bigramOf(padded, at), at);
+			int[] inKeys = bigramKeys.get(bigram);
+			
+			if(inKeys == null) {
+				inKeys = new int[4];
+				bigramKeys.put(bigram, inKeys);
+			}
+			
+			//a long key can have the same bigram twice past the last place
+			//that's kept track of, but it's only listed once
+			if(inKeys[0] > 0 && inKeys[inKeys[0]] == keyNumber) {
+				continue;
+			}
+			
+			if(inKeys[0] + 1 == inKeys.length) {
+				inKeys = Arrays.copyOf(inKeys, inKeys.length * 2);
+				bigramKeys.put(bigram, inKeys);
+			}
+			
+			inKeys[++inKeys[0]] = keyNumber;
+		}
+	}
+	
+	private void addNodeKey(int node, int entry) {
+		if(nodeKeys[node] == null) {
+			nodeKeys[node] = new int[2];
+		}
+		else if(numNodeKeys[node] == nodeKeys[node].length) {
+			nodeKeys[node] = Arrays.copyOf(nodeKeys[node], numNodeKeys[node] * 2);
+		}
+		
+		//finds where the key goes with a binary search
+		int low = 0;
+		int high = numNodeKeys[node];
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			
+			if(compareEntries(nodeKeys[node][middle], entry) < 0) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		
+		System.arraycopy(nodeKeys[node], low, nodeKeys[node], low + 1, numNodeKeys[node] - low);
+		nodeKeys[node][low] = entry;
+		numNodeKeys[node]++;
+	}
+	
+	/**
+	 * Compares two of a node's keys by the order they'd be ranked in.
+	 * 
+	 * @return	A negative number if the first key would be ranked first, or
+	 * 			a positive number if the second one would.
+	 */
+	private int compareEntries(int entry, int other) {
+		int comparison = Integer.compare(entry & 1, other & 1);
+		
+		if(comparison == 0) {
+			comparison = Integer.compare(keys[entry >> 1].length(), keys[other >> 1].length());
+		}
+		
+		int fighter = keyFighters[entry >> 1];
+		int otherFighter = keyFighters[other >> 1];
+		
+		if(comparison == 0) {
+			comparison = names[fighter].compareToIgnoreCase(names[otherFighter]);
+		}
+		
+		if(comparison == 0) {
+			comparison = Integer.compare(fighter, otherFighter);
+		}
+		
+		if(comparison == 0) {
+			comparison = Integer.compare(entry, other);
+		}
+		
+		return comparison;
+	}
+	
+	private int newNode(char label) {
+		if(numNodes == labels.length) {
+			labels = Arrays.copyOf(labels, numNodes * 2);
+			firstChild = Arrays.copyOf(firstChild, numNodes * 2);
+			nextSibling = Arrays.copyOf(nextSibling, numNodes * 2);
+			nodeKeys = Arrays.copyOf(nodeKeys, numNodes * 2);
+			numNodeKeys = Arrays.copyOf(numNodeKeys, numNodes * 2);
+		}
+		
+		labels[numNodes] = label;
+		firstChild[numNodes] = -1;
+		nextSibling[numNodes] = -1;
+		
+		return numNodes++;
+	}
+	
+	private int findChild(int node, char label) {
+		for(int child = firstChild[node]; child != -1; child = nextSibling[child]) {
+			if(labels[child] == label) {
+				return child;
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * @return	The two characters of a padded key starting at the given
+	 * 			index, packed into a <code>long</code>.
+	 */
+	private static long bigramOf(String padded, int at) {
+		return ((long) padded.charAt(at) << 16) | padded.charAt(at + 1);
+	}
+	
+	/**
+	 * @return	A bigram along with where it is in a key, since a key with a
+	 * 			typo still has most of its bigrams in about the same place.
+	 * 			Places past <code>LAST_PLACE</code> are all treated as being
+	 * 			at that place.
+	 */
+	private static long placed(long bigram, int place) {
+		return (bigram << 6) | Math.min(place, LAST_PLACE);
+	}
+	
+	/**
+	 * Turns a name into a key, by taking the accents off of its letters,
+	 * lowercasing it, and keeping only its letters and digits.
+	 * 
+	 * @param name			The name.
+	 * @param wordStarts	If not <code>null</code>, where in the key each
+	 * 						word starts is put here. The first entry is the
+	 * 						number of words, and the rest are their starts.
+	 * @return				The key.
+	 */
+	private static String toKey(String name, int[] wordStarts) {
+		//splitting an accented letter into the letter and its accent lets
+		//the accent be dropped, since it isn't a letter
+		String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+		StringBuilder key = new StringBuilder(decomposed.length());
+		boolean inWord = false;
+		int numWords = 0;
+		
+		for(int at = 0; at < decomposed.length(); at++) {
+			char charAt = decomposed.charAt(at);
+			
+			if(Character.isLetterOrDigit(charAt)) {
+				if(!inWord && wordStarts != null) {
+					wordStarts[++numWords] = key.length();
+				}
+				
+				key.append(Character.toLowerCase(charAt));
+				inWord = true;
+			}
+			else if(Character.getType(charAt) != Character.NON_SPACING_MARK) {
+				inWord = false;
+			}
+		}
+		
+		if(wordStarts != null) {
+			wordStarts[0] = numWords;
+		}
+		
+		return key.toString();
+	}
+
+}
@@ -0,0 +1,30 @@
+package data;
+
+/**
+ * A <code>GenerationListener</code> is told about the progress of
+ * <code>TierList.generateBattle()</code> while it tries to generate a
+ * battle, and can ask for it to stop. Since battles are usually generated
+ * on a background thread, these methods are called from that thread.
+ *
+ * @author Jordan Knapp
+ */
+public interface GenerationListener {
+	
+	/**
+	 * Called before each try at generating a battle.
+	 *
+	 * @param tryNumber	The number of the try that's starting, starting at 1.
+	 * @param maxTries	The number of tries that will be made at most.
+	 */
+	void tryStarted(int tryNumber, int maxTries);
+	
+	/**
+	 * Checked before each try at generating a battle. If it returns
+	 * <code>true</code>, no more tries are made.
+	 *
+	 * @return	<code>true</code> if generation should stop,
+	 * 			<code>false</code> if it should keep going.
+	 */
+	boolean isCancelled();
+
+}
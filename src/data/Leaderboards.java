@@ -0,0 +1,452 @@
+package data;
+
+import data.ComparableArray.CompareType;
+
+/**
+ * The <code>Leaderboards</code> class keeps the fighters in order for every
+ * way the sort button can sort them, so that sorting is just reading the
+ * fighters off in order. Without it, every sort made a
+ * <code>ComparableArray</code> for every fighter and sorted the whole
+ * roster, even though at most a few fighters' stats change between sorts.
+ * <br><br>
+ * Each order is kept in a <code>Board</code>, which is a treap: a binary
+ * search tree whose nodes are also kept in heap order by a priority, so it
+ * stays balanced on average. Each node also knows the size of its subtree,
+ * which is what lets a fighter's rank, or the fighter at a given rank, be
+ * found by going down the tree once. This class listens to the
+ * <code>StatsTable</code>, and whenever a fighter's stats change, the
+ * fighter is taken out of each board it's in and put back in its new place,
+ * which takes time proportional to the height of the tree.
+ * <br><br>
+ * The fighters are put in the same order as <code>ComparableArray</code>
+ * sorts them. Fighters that <code>ComparableArray</code> considers equal,
+ * such as two fighters with no battles, are kept in the order they appear
+ * in the tier list, which is where the stable sort used to leave them.
+ * <br><br>
+ * The boards are built the first time they're needed, and thrown out when a
+ * fighter is added, since that can move every fighter's place in the tier
+ * list.
+ * 
+ * @author Jordan Knapp
+ */
+class Leaderboards implements StatsListener {
+	
+	/**
+	 * The fighters in order for one <code>CompareType</code>. Fighters are
+	 * identified by their ids, which are also the nodes of the tree.
+	 */
+	static class Board {
+		
+		private static final int NONE = -1;
+		
+		private final CompareType compareType;
+		private final Fighter[] fighters;
+		private final int[] positions;
+		
+		//the stats each fighter was put in place with. a fighter has to be
+		//found with these to be taken out, so they're only changed while
+		//it's out of the tree
+		private final int[] wins;
+		private final int[] battles;
+		
+		private final int[] left;
+		private final int[] right;
+		private final int[] size;
+		private int root;
+		
+		//where split() leaves its two halves
+		private int splitLeft;
+		private int splitRight;
+		
+		private Board(CompareType compareType, Fighter[] fighters, int[] positions, int numFighters) {
+			this.compareType = compareType;
+			this.fighters = fighters;
+			this.positions = positions;
+			
+			wins = new int[numFighters];
+			battles = new int[numFighters];
+			
+			left = new int[numFighters];
+			right = new int[numFighters];
+			size = new int[numFighters];
+			root = NONE;
+		}
+		
+		/**
+		 * @return	The type of comparison the fighters are in order by.
+		 */
+		CompareType getCompareType() {
+			return compareType;
+		}
+		
+		/**
+		 * @return	The number of fighters on the board.
+		 */
+		int size() {
+			return sizeOf(root);
+		}
+		
+		/**
+		 * @param id	The id of a fighter on the board.
+		 * @return		The number of wins the fighter is in place with.
+		 */
+		int getWins(int id) {
+			return wins[id];
+		}
+		
+		/**
+		 * @param id	The id of a fighter on the board.
+		 * @return		The number of battles the fighter is in place with.
+		 */
+		int getBattles(int id) {
+			return battles[id];
+		}
+		
+		/**
+		 * @param id	The id of a fighter on the board.
+		 * @return		The number of fighters ahead of it, so the fighter in
+		 * 				first place has a rank of 0.
+		 */
+		int rankOf(int id) {
+			int rank = 0;
+			int node = root;
+			
+			while(node != id) {
+				if(compare(id, node) < 0) {
+					node = left[node];
+				}
+				else {
+					rank += sizeOf(left[node]) + 1;
+					node = right[node];
+				}
+			}
+			
+			return rank + sizeOf(left[id]);
+		}
+		
+		/**
+		 * @param rank	A rank, from 0 to <code>size() - 1</code>.
+		 * @return		The id of the fighter with that rank.
+		 */
+		int get(int rank) {
+			int node = root;
+			
+			while(rank != sizeOf(left[node])) {
+				if(rank < sizeOf(left[node])) {
+					node = left[node];
+				}
+				else {
+					rank -= sizeOf(left[node]) + 1;
+					node = right[node];
+				}
+			}
+			
+			return node;
+		}
+		
+		/**
+		 * Gets the ids of the fighters with a range of ranks, in order. Only
+		 * the parts of the tree in the range are gone through.
+		 * 
+		 * @param from	The first rank to get.
+		 * @param count	The number of fighters to get. There must be at least
+		 * 				this many from <code>from</code> on.
+		 * @return		The ids.
+		 */
+		int[] getIds(int from, int count) {
+			int[] ids = new int[count];
+			collect(root, 0, from, from + count, ids);
+			return ids;
+		}
+		
+		private void collect(int node, int offset, int from, int to, int[] ids) {
+			if(node == NONE) {
+				return;
+			}
+			
+			int rank = offset + sizeOf(left[node]);
+			
+			if(from < rank) {
+				collect(left[node], offset, from, to, ids);
+			}
+			
+			if(rank >= from && rank < to) {
+				ids[rank - from] = node;
+			}
+			
+			if(rank + 1 < to) {
+				collect(right[node], rank + 1, from, to, ids);
+			}
+		}
+		
+		/**
+		 * Puts a fighter on the board.
+		 * 
+		 * @param id		The id of the fighter, which isn't on the board.
+		 * @param wins		The fighter's number of wins.
+		 * @param battles	The fighter's number of battles.
+		 */
+		private void add(int id, int wins, int battles) {
+			this.wins[id] = wins;
+			this.battles[id] = battles;
+			
+			left[id] = NONE;
+			right[id] = NONE;
+			size[id] = 1;
+			
+			split(root, id);
+			int after = splitRight;
+			root = merge(merge(splitLeft, id), after);
+		}
+		
+		/**
+		 * Moves a fighter to its place for its new stats, if they've
+		 * changed.
+		 */
+		private void update(int id, int wins, int battles) {
+			if(this.wins[id] == wins && this.battles[id] == battles) {
+				return;
+			}
+			
+			root = remove(root, id);
+			add(id, wins, battles);
+		}
+		
+		/**
+		 * Splits a subtree into the fighters that come before the given
+		 * fighter, left in <code>splitLeft</code>, and the rest, left in
+		 * <code>splitRight</code>.
+		 */
+		private void split(int node, int id) {
+			if(node == NONE) {
+				splitLeft = NONE;
+				splitRight = NONE;
+				return;
+			}
+			
+			if(compare(node, id) < 0) {
+				split(right[node], id);
+				right[node] = splitLeft;
+				splitLeft = node;
+			}
+			else {
+				split(left[node], id);
+				left[node] = splitRight;
+				splitRight = node;
+			}
+			
+			size[node] = sizeOf(left[node]) + sizeOf(right[node]) + 1;
+		}
+		
+		/**
+		 * Joins two subtrees, where every fighter in the first comes before
+		 * every fighter in the second.
+		 * 
+		 * @return	The root of the joined tree.
+		 */
+		private int merge(int first, int second) {
+			if(first == NONE) {
+				return second;
+			}
+			
+			if(second == NONE) {
+				return first;
+			}
+			
+			if(priority(first) > priority(second)) {
+				right[first] = merge(right[first], second);
+				size[first] = sizeOf(left[first]) + sizeOf(right[first]) + 1;
+				return first;
+			}
+			
+			left[second] = merge(first, left[second]);
+			size[second] = sizeOf(left[second]) + sizeOf(right[second]) + 1;
+			return second;
+		}
+		
+		/**
+		 * Takes a fighter out of a subtree it's in.
+		 * 
+		 * @return	The root of the subtree without the fighter.
+		 */
+		private int remove(int node, int id) {
+			if(node == id) {
+				return merge(left[node], right[node]);
+			}
+			
+			if(compare(id, node) < 0) {
+				left[node] = remove(left[node], id);
+			}
+			else {
+				right[node] = remove(right[node], id);
+			}
+			
+			size[node]--;
+			return node;
+		}
+		
+		private int sizeOf(int node) {
+			return node == NONE ? 0 : size[node];
+		}
+		
+		/**
+		 * Gets a fighter's priority in the heap order. It only has to look
+		 * random, so it's worked out from the id instead of being stored,
+		 * which also means the same stats always give the same tree.
+		 */
+		private static int priority(int id) {
+			int hash = id * 0x9E3779B9;
+			hash ^= hash >>> 16;
+			hash *= 0x85EBCA6B;
+			return hash ^ (hash >>> 13);
+		}
+		
+		/**
+		 * Compares two fighters in the same way as
+		 * <code>ComparableArray.compareTo()</code>, but breaking any tie by
+		 * their place in the tier list.
+		 * 
+		 * @return	A negative number if the first fighter comes first, or a
+		 * 			positive number if the second one does.
+		 */
+		private int compare(int first, int second) {
+			int comparison;
+			
+			if(compareType == CompareType.TOTAL_BATTLES) {
+				comparison = -Integer.compare(battles[first], battles[second]);
+				
+				if(comparison == 0) {
+					comparison = -fighters[first].getName().compareTo(fighters[second].getName());
+				}
+			}
+			else if(battles[first] == 0 || battles[second] == 0) {
+				//fighters with no battles go last
+				comparison = Boolean.compare(battles[first] == 0, battles[second] == 0);
+			}
+			else {
+				comparison = -Double.compare(ComparableArray.winrate(wins[first], battles[first]),
+						ComparableArray.winrate(wins[second], battles[second]));
+				
+				if(comparison == 0) {
+					comparison = Integer.compare(battles[first], battles[second]);
+				}
+				
+				if(comparison == 0) {
+					comparison = -fighters[first].getName().compareTo(fighters[second].getName());
+				}
+			}
+			
+			if(comparison == 0) {
+				comparison = Integer.compare(positions[first], positions[second]);
+			}
+			
+			return comparison;
+		}
+	}
+	
+	private final StatsTable statsTable;
+	
+	//indexed by CompareType. null until they're built
+	private Board[] boards;
+	
+	/**
+	 * Creates a <code>Leaderboards</code> whose boards haven't been built.
+	 * 
+	 * @param statsTable	The table the fighters' stats are read from.
+	 */
+	Leaderboards(StatsTable statsTable) {
+		this.statsTable = statsTable;
+	}
+	
+	/**
+	 * @return	<code>true</code> if the boards have been built since the last
+	 * 			call to <code>clear()</code>.
+	 */
+	boolean isBuilt() {
+		return boards != null;
+	}
+	
+	/**
+	 * Throws out the boards, such as when a fighter is added.
+	 */
+	void clear() {
+		boards = null;
+	}
+	
+	/**
+	 * Builds every board.
+	 * 
+	 * @param fighters	The fighters, indexed by id.
+	 * @param order		The ids of every fighter, in the order they appear in
+	 * 					the tier list.
+	 */
+	void build(Fighter[] fighters, int[] order) {
+		int[] positions = new int[order.length];
+		for(int at = 0; at < order.length; at++) {
+			positions[order[at]] = at;
+		}
+		
+		CompareType[] types = CompareType.values();
+		boards = new Board[types.length];
+		
+		for(int typeAt = 0; typeAt < types.length; typeAt++) {
+			boards[typeAt] = new Board(types[typeAt], fighters, positions, order.length);
+			int player = playerOf(types[typeAt]);
+			
+			for(int id: order) {
+				if(player == -1) {
+					boards[typeAt].add(id, statsTable.getFighterWins(id), statsTable.getFighterBattles(id));
+				}
+				else {
+					boards[typeAt].add(id, statsTable.getWins(id, player), statsTable.getBattles(id, player));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @param compareType	The type of comparison to get the board of.
+	 * @return				The board, which must have been built.
+	 */
+	Board get(CompareType compareType) {
+		return boards[compareType.ordinal()];
+	}
+	
+	/**
+	 * Moves the fighter whose stats changed to its new place on the boards
+	 * for its overall stats, and on the board for the player.
+	 */
+	@Override
+	public void statsChanged(StatsTable table, int id, int player) {
+		if(boards == null) {
+			return;
+		}
+		
+		int wins = table.getFighterWins(id);
+		int battles = table.getFighterBattles(id);
+		
+		for(Board board: boards) {
+			int boardPlayer = playerOf(board.getCompareType());
+			
+			if(boardPlayer == -1) {
+				board.update(id, wins, battles);
+			}
+			else if(boardPlayer == player) {
+				board.update(id, table.getWins(id, player), table.getBattles(id, player));
+			}
+		}
+	}
+	
+	/**
+	 * @return	The player whose stats a type of comparison uses, or -1 if it
+	 * 			uses each fighter's overall stats.
+	 */
+	private static int playerOf(CompareType compareType) {
+		if(compareType == CompareType.FIGHTER_OVERALL_WINRATE || compareType == CompareType.TOTAL_BATTLES) {
+			return -1;
+		}
+		
+		return compareType.ordinal() - CompareType.P1_WINRATE.ordinal();
+	}
+
+}
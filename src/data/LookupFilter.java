@@ -0,0 +1,108 @@
+package data;
+
+import util.Util;
+
+/**
+ * <code>LookupFilter</code> decides which fighters are included in the
+ * lookups in <code>TierList</code>, such as <code>getTopFighters()</code>.
+ * Like <code>Settings</code>, it can't be changed once it's created. A
+ * fighter is included if it's in the right tier, and if it has been in
+ * enough battles, either overall or with one player.
+ * 
+ * @author Jordan Knapp
+ */
+public class LookupFilter {
+	
+	/**
+	 * A filter that includes every fighter.
+	 */
+	public static final LookupFilter NONE = new LookupFilter(0, -1, -1);
+	
+	private final int minBattles;
+	private final int player;
+	private final int tier;
+	
+	/**
+	 * Creates a filter with the given parameters.
+	 * 
+	 * @param minBattles	The fewest battles a fighter can have been in to
+	 * 						be included.
+	 * @param player		The player (from 0 to 7) whose battles with the
+	 * 						fighter are counted for <code>minBattles</code>,
+	 * 						or -1 to count the battles the lookup ranks the
+	 * 						fighter by.
+	 * @param tier			The tier (from 0 to 7, like the tier chances) that
+	 * 						fighters must be in, or -1 for any tier.
+	 * 
+	 * @throws IllegalArgumentException	Thrown if the player or tier is out of
+	 * 									range.
+	 */
+	public LookupFilter(int minBattles, int player, int tier) throws IllegalArgumentException {
+		if(player < -1 || player >= StatsTable.NUM_PLAYERS) {
+			throw new IllegalArgumentException("Player must be from -1 to " + (StatsTable.NUM_PLAYERS - 1) +
+					", but " + player + " was given.");
+		}
+		
+		if(tier < -1 || tier >= 8) {
+			throw new IllegalArgumentException("Tier must be from -1 to 7, but " + tier + " was given.");
+		}
+		
+		this.minBattles = minBattles;
+		this.player = player;
+		this.tier = tier;
+	}
+	
+	/**
+	 * @return	The fewest battles a fighter can have been in to be included.
+	 */
+	public int getMinBattles() {
+		return minBattles;
+	}
+	
+	/**
+	 * @return	The player whose battles are counted for the minimum, or -1
+	 * 			if it's the battles the lookup ranks by.
+	 */
+	public int getPlayer() {
+		return player;
+	}
+	
+	/**
+	 * @return	The tier fighters must be in, or -1 for any tier.
+	 */
+	public int getTier() {
+		return tier;
+	}
+	
+	/**
+	 * @return	<code>true</code> if every fighter is included, so a lookup
+	 * 			can skip straight to the rank it wants.
+	 */
+	boolean includesEverything() {
+		return minBattles <= 0 && tier == -1;
+	}
+	
+	/**
+	 * @param fighter	A fighter.
+	 * @param battles	The number of battles the lookup ranks the fighter by.
+	 * @return			<code>true</code> if the fighter is included.
+	 */
+	boolean includes(Fighter fighter, int battles) {
+		if(tier != -1 && Util.subTierToTier(fighter.getTier()) != tier) {
+			return false;
+		}
+		
+		if(player != -1) {
+			battles = fighter.getPlayerBattles(player);
+		}
+		
+		return battles >= minBattles;
+	}
+	
+	@Override
+	public String toString() {
+		return "min battles = " + minBattles + (player == -1 ? "" : " (P" + (player + 1) + ")") +
+				", tier = " + (tier == -1 ? "any" : tier);
+	}
+
+}
@@ -0,0 +1,25 @@
+package data;
+
+/**
+ * A <code>LookupListener</code> is given the fighters found by one of the
+ * lookups in <code>TierList</code>, such as <code>getTopFighters()</code>,
+ * one at a time and in order, so the results never have to be put in an
+ * array first.
+ *
+ * @author Jordan Knapp
+ */
+public interface LookupListener {
+	
+	/**
+	 * Called for each fighter found, in the order they were found.
+	 *
+	 * @param rank		The fighter's place among every fighter in the tier
+	 * 					list, starting at 1, whether or not the others were
+	 * 					filtered out.
+	 * @param fighter	The fighter.
+	 * @param wins		The number of wins the fighter was ranked by.
+	 * @param battles	The number of battles the fighter was ranked by.
+	 */
+	void fighterFound(int rank, Fighter fighter, int wins, int battles);
+
+}
@@ -0,0 +1,265 @@
+package data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+/**
+ * The <code>MappedStatsFile</code> keeps a live copy of the stats on disk
+ * while the program is running. The stats file (see <code>StatsFile</code>)
+ * is only written when the program closes, so if the program crashes, every
+ * result from that session would otherwise be lost.
+ * <br><br>
+ * The live file is memory-mapped, and is registered as a
+ * <code>StatsListener</code> on a <code>StatsTable</code>. Whenever a count
+ * changes, the new value is written directly into the mapped file, which
+ * costs about as much as writing to an array. Since the operating system
+ * owns the mapped pages, the values survive the program crashing even before
+ * they are forced to disk. To also survive the computer itself crashing, the
+ * file is forced to disk every <b><i><code>FORCE_EVERY_UPDATES</code></b></i>
+ * updates, or on the first update after <b><i><code>FORCE_INTERVAL_MS</code></b></i>
+ * milliseconds have passed since the last time it was forced.
+ * <br><br>
+ * The live file has a fixed layout, so every count has a fixed position:
+ * <ul>
+ * 	<li>A 20-byte header, consisting of the magic number "SSPL", the format
+ * 		version, the number of fighters, a flag that is 1 while the file is
+ * 		in use, and the offset at which the counts begin.</li>
+ * 	<li>A string table, consisting of each fighter's name, encoded as UTF-8
+ * 		and preceded by its length in bytes.</li>
+ * 	<li>The counts, as 4-byte integers. There are 16 for each fighter, in the
+ * 		order of the string table: P1 wins, P1 battles, P2 wins, P2 battles,
+ * 		and so on.</li>
+ * </ul>
+ * When the program closes normally, the in-use flag is cleared. If the flag
+ * is still set the next time a tier list is loaded, the last session did not
+ * close properly, and its counts are recovered from the live file.
+ *
+ * @author Jordan Knapp
+ */
+public class MappedStatsFile implements StatsListener {
+	
+	/**
+	 * The name of the live stats file.
+	 */
+	public static final String FILE_NAME = "smash stats.live";
+	
+	/**
+	 * The number of updates after which the file is forced to disk.
+	 */
+	public static final int FORCE_EVERY_UPDATES = 64;
+	
+	/**
+	 * The amount of time after which the next update forces the file to disk.
+	 */
+	public static final long FORCE_INTERVAL_MS = 2000;
+	
+	//"SSPL" -- Smash Stats, Picker Live
+	private static final int MAGIC = 0x5353504C;
+	private static final int VERSION = 1;
+	
+	private static final int HEADER_SIZE = 20;
+	private static final int IN_USE_OFFSET = 12;
+	private static final int NUM_COUNTS = 16;
+	
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private int countsOffset;
+	
+	private int updatesSinceForce;
+	private long lastForceTime;
+	
+	/**
+	 * Creates a live stats file for the given fighters, overwriting any that
+	 * exists already, and fills it with their current stats. The returned
+	 * object must be registered as a listener on the <code>StatsTable</code>
+	 * for it to be kept up to date.
+	 *
+	 * @param file	The file to create.
+	 * @param names	The names of the fighters, indexed by id.
+	 * @param table	The table containing the current stats for each fighter.
+	 * @return		The created <code>MappedStatsFile</code>.
+	 *
+	 * @throws IOException	Thrown if the file can't be created or mapped.
+	 */
+	public static MappedStatsFile create(File file, String[] names, StatsTable table) throws IOException {
+		byte[][] encodedNames = new byte[names.length][];
+		int namesSize = 0;
+		
+		for(int at = 0; at < names.length; at++) {
+			encodedNames[at] = names[at].getBytes(StandardCharsets.UTF_8);
+			namesSize += 4 + encodedNames[at].length;
+		}
+		
+		//keep the counts 4-byte aligned
+		int countsOffset = (HEADER_SIZE + namesSize + 3) & ~3;
+		int size = countsOffset + names.length * NUM_COUNTS * 4;
+		
+		//the file isn't truncated, since some platforms don't allow that while
+		//an old mapping may still be around. anything past the end of the
+		//layout is simply ignored
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(names.length);
+		buffer.putInt(0);
+		buffer.putInt(countsOffset);
+		
+		for(byte[] nameAt: encodedNames) {
+			buffer.putInt(nameAt.length);
+			buffer.put(nameAt);
+		}
+		
+		for(int idAt = 0; idAt < names.length; idAt++) {
+			for(int playerAt = 0; playerAt < 8; playerAt++) {
+				int offset = countsOffset + (idAt * NUM_COUNTS + playerAt * 2) * 4;
+				buffer.putInt(offset, table.getWins(idAt, playerAt));
+				buffer.putInt(offset + 4, table.getBattles(idAt, playerAt));
+			}
+		}
+		
+		//only mark the file as in use once it's all there, so a crash while
+		//creating it can't be mistaken for a session worth recovering
+		buffer.force();
+		buffer.putInt(IN_USE_OFFSET, 1);
+		buffer.force();
+		
+		return new MappedStatsFile(channel, buffer, countsOffset);
+	}
+	
+	/**
+	 * Reads the counts from a live stats file left behind by a session that
+	 * did not close properly.
+	 *
+	 * @param file	The live stats file.
+	 * @return		A <code>HashMap</code> mapping each fighter's name to its 16
+	 * 				counts, or <code>null</code> if the file doesn't exist, or
+	 * 				was closed properly.
+	 *
+	 * @throws IOException	Thrown if the file can't be read, or is not a valid
+	 * 						live stats file.
+	 */
+	public static HashMap<String, int[]> recover(File file) throws IOException {
+		if(!file.exists()) {
+			return null;
+		}
+		
+		ByteBuffer buffer;
+		
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if(channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file.getName() + " is not a live stats file.");
+			}
+			
+			buffer = ByteBuffer.allocate((int) channel.size());
+			while(buffer.hasRemaining() && channel.read(buffer) != -1) {
+				//keep reading until the whole file is in the buffer
+			}
+		}
+		
+		buffer.flip();
+		
+		if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			throw new IOException(file.getName() + " is not a live stats file.");
+		}
+		
+		int numFighters = buffer.getInt();
+		boolean inUse = buffer.getInt() == 1;
+		int countsOffset = buffer.getInt();
+		
+		if(!inUse) {
+			return null;
+		}
+		
+		try {
+			HashMap<String, int[]> stats = new HashMap<String, int[]>(numFighters * 2);
+			
+			for(int idAt = 0; idAt < numFighters; idAt++) {
+				int length = buffer.getInt();
+				String name = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+				buffer.position(buffer.position() + length);
+				
+				int[] counts = new int[NUM_COUNTS];
+				for(int countAt = 0; countAt < NUM_COUNTS; countAt++) {
+					counts[countAt] = buffer.getInt(countsOffset + (idAt * NUM_COUNTS + countAt) * 4);
+				}
+				
+				stats.put(name, counts);
+			}
+			
+			return stats;
+		} catch(RuntimeException e) {
+			throw new IOException(file.getName() + " is not a valid live stats file.", e);
+		}
+	}
+	
+	/**
+	 * Creates a <code>MappedStatsFile</code> around an already-mapped file.
+	 * Use <code>create()</code> to create one.
+	 *
+	 * @param channel		The open channel for the file.
+	 * @param buffer		The mapping of the file.
+	 * @param countsOffset	The offset at which the counts begin.
+	 */
+	private MappedStatsFile(FileChannel channel, MappedByteBuffer buffer, int countsOffset) {
+		this.channel = channel;
+		this.buffer = buffer;
+		this.countsOffset = countsOffset;
+		
+		updatesSinceForce = 0;
+		lastForceTime = System.currentTimeMillis();
+	}
+	
+	/**
+	 * Writes the new counts for the given fighter and player into the file,
+	 * and forces the file to disk if it's due.
+	 */
+	@Override
+	public void statsChanged(StatsTable table, int id, int player) {
+		if(buffer == null) {
+			return;
+		}
+		
+		int offset = countsOffset + (id * NUM_COUNTS + player * 2) * 4;
+		buffer.putInt(offset, table.getWins(id, player));
+		buffer.putInt(offset + 4, table.getBattles(id, player));
+		
+		updatesSinceForce++;
+		long now = System.currentTimeMillis();
+		
+		if(updatesSinceForce >= FORCE_EVERY_UPDATES || now - lastForceTime >= FORCE_INTERVAL_MS) {
+			buffer.force();
+			updatesSinceForce = 0;
+			lastForceTime = now;
+		}
+	}
+	
+	/**
+	 * Forces any remaining updates to disk, marks the file as closed properly,
+	 * and closes it. Should only be called once the stats have been saved to
+	 * the stats file, since the live file will not be recovered afterwards.
+	 *
+	 * @throws IOException	Thrown if the file can't be closed.
+	 */
+	public void close() throws IOException {
+		if(buffer == null) {
+			return;
+		}
+		
+		buffer.force();
+		buffer.putInt(IN_USE_OFFSET, 0);
+		buffer.force();
+		buffer = null;
+		
+		channel.close();
+	}
+
+}
@@ -1,5 +1,6 @@
 package data;
 
+import util.Logger;
 import util.Util;
 
 /**
@@ -278,7 +279,7 @@ public class Matchup {
 		}
 		
 		winnerSelected = true;
-		Util.log("Selected player " + (player + 1) + " as the winner.");
+		Logger.info("Selected player " + (player + 1) + " as the winner.");
 	}
 
 }
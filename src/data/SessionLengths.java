@@ -0,0 +1,239 @@
+package data;
+
+/**
+ * The results of a <code>SessionSimulator</code>: how many of the simulated
+ * sessions lasted each number of battles. Along with the usual summary
+ * numbers, it can give the length that a given fraction of sessions ended
+ * by, which is the number to plan around. If 5% of sessions ended by battle
+ * 30, then a night of 30 battles has about a 1 in 20 chance of running out
+ * of battles.
+ * <br><br>
+ * It also keeps how many of the fighters gotten in the simulated battles
+ * were from each tier, since changing the settings to make sessions last
+ * longer also changes how often each tier comes up.
+ * 
+ * @author Jordan Knapp
+ */
+public class SessionLengths {
+	
+	//the most rows in the histogram printed by toString()
+	private static final int HISTOGRAM_ROWS = 20;
+	private static final int HISTOGRAM_WIDTH = 40;
+	
+	private static final String[] TIER_NAMES = {"SS", "S", "A", "B", "C", "D", "E", "F"};
+	
+	private final int[] counts;
+	private final long[] tiers;
+	private final int numPlayers;
+	private final int numSessions;
+	
+	private final int shortest;
+	private final int longest;
+	private final double average;
+	
+	/**
+	 * Creates a <code>SessionLengths</code>.
+	 * 
+	 * @param counts		The number of sessions that lasted each number of
+	 * 						battles, i.e. <code>counts[10]</code> is the number
+	 * 						of sessions that lasted 10 battles.
+	 * @param tiers			The number of fighters gotten from each of the 8
+	 * 						tiers, from SS to F.
+	 * @param numPlayers	The number of players in the simulated sessions.
+	 */
+	public SessionLengths(int[] counts, long[] tiers, int numPlayers) {
+		this.counts = counts;
+		this.tiers = tiers;
+		this.numPlayers = numPlayers;
+		
+		int sessions = 0;
+		long battles = 0;
+		int first = -1;
+		int last = -1;
+		
+		for(int at = 0; at < counts.length; at++) {
+			if(counts[at] > 0) {
+				if(first == -1) {
+					first = at;
+				}
+				
+				last = at;
+			}
+			
+			sessions += counts[at];
+			battles += (long) counts[at] * at;
+		}
+		
+		numSessions = sessions;
+		shortest = first;
+		longest = last;
+		average = sessions == 0 ? 0 : (double) battles / sessions;
+	}
+	
+	/**
+	 * @return	The number of sessions simulated.
+	 */
+	public int getNumSessions() {
+		return numSessions;
+	}
+	
+	/**
+	 * @param length	A number of battles.
+	 * @return			The number of sessions that lasted exactly that many
+	 * 					battles.
+	 */
+	public int getCount(int length) {
+		return length < 0 || length >= counts.length ? 0 : counts[length];
+	}
+	
+	/**
+	 * @return	The fewest battles any session lasted, or -1 if no sessions
+	 * 			were simulated.
+	 */
+	public int getShortest() {
+		return shortest;
+	}
+	
+	/**
+	 * @return	The most battles any session lasted, or -1 if no sessions
+	 * 			were simulated.
+	 */
+	public int getLongest() {
+		return longest;
+	}
+	
+	/**
+	 * @return	The average number of battles a session lasted.
+	 */
+	public double getAverage() {
+		return average;
+	}
+	
+	/**
+	 * @param tier	A tier, from 0 (SS) to 7 (F).
+	 * @return		The fraction of the fighters gotten in every simulated
+	 * 				battle that were from that tier.
+	 */
+	public double getTierFraction(int tier) {
+		long total = 0;
+		for(int at = 0; at < tiers.length; at++) {
+			total += tiers[at];
+		}
+		
+		return total == 0 ? 0 : (double) tiers[tier] / total;
+	}
+	
+	/**
+	 * Gets the number of battles that at least the given fraction of
+	 * sessions ended by. For example, <code>getPercentile(0.05)</code> is
+	 * the length that the shortest 5% of sessions didn't go past.
+	 * 
+	 * @param fraction	The fraction of sessions, from 0 to 1.
+	 * @return			The length, or -1 if no sessions were simulated.
+	 */
+	public int getPercentile(double fraction) {
+		if(fraction < 0 || fraction > 1) {
+			throw new IllegalArgumentException("Fraction must be between 0 and 1, not " + fraction);
+		}
+		
+		if(numSessions == 0) {
+			return -1;
+		}
+		
+		//the number of sessions that have to have ended, at least one
+		long needed = Math.max(1, (long) Math.ceil(fraction * numSessions));
+		long seen = 0;
+		
+		for(int at = 0; at < counts.length; at++) {
+			seen += counts[at];
+			
+			if(seen >= needed) {
+				return at;
+			}
+		}
+		
+		return longest;
+	}
+	
+	/**
+	 * @return	A summary of the session lengths, followed by a histogram of
+	 * 			them, meant to be shown in a fixed-width font.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder retString = new StringBuilder();
+		
+		retString.append("Simulated " + numSessions + " sessions with " + numPlayers + " players.\n");
+		
+		if(numSessions == 0) {
+			return retString.toString();
+		}
+		
+		retString.append("Shortest: " + shortest + " battles, longest: " + longest +
+				", average: " + String.format("%.1f", average) + "\n");
+		retString.append("1% of sessions ended by battle " + getPercentile(0.01) + ", 5% by " +
+				getPercentile(0.05) + ", 10% by " + getPercentile(0.1) + ",\n");
+		retString.append("50% by " + getPercentile(0.5) + ", and 90% by " + getPercentile(0.9) + ".\n");
+		
+		retString.append("Fighters by tier:");
+		for(int tierAt = 0; tierAt < TIER_NAMES.length; tierAt++) {
+			if(tiers[tierAt] > 0) {
+				retString.append(" " + TIER_NAMES[tierAt] + " " +
+						String.format("%.0f", getTierFraction(tierAt) * 100) + "%");
+			}
+		}
+		retString.append("\n");
+		
+		if(getCount(SessionSimulator.MAX_SESSION_LENGTH) > 0) {
+			retString.append(getCount(SessionSimulator.MAX_SESSION_LENGTH) + " sessions were stopped after " +
+					SessionSimulator.MAX_SESSION_LENGTH + " battles without running out.\n");
+		}
+		
+		retString.append("\n");
+		
+		//group lengths together so there aren't too many rows
+		int bucketSize = (longest - shortest) / HISTOGRAM_ROWS + 1;
+		
+		int mostInBucket = 0;
+		for(int start = shortest; start <= longest; start += bucketSize) {
+			mostInBucket = Math.max(mostInBucket, bucketCount(start, bucketSize));
+		}
+		
+		int labelWidth = Integer.toString(longest).length();
+		if(bucketSize > 1) {
+			labelWidth = labelWidth * 2 + 1;
+		}
+		
+		for(int start = shortest; start <= longest; start += bucketSize) {
+			int end = Math.min(start + bucketSize - 1, longest);
+			int inBucket = bucketCount(start, bucketSize);
+			
+			String label = bucketSize == 1 ? Integer.toString(start) : start + "-" + end;
+			retString.append(String.format("%" + labelWidth + "s | ", label));
+			
+			int barLength = (int) Math.round((double) inBucket * HISTOGRAM_WIDTH / mostInBucket);
+			for(int at = 0; at < barLength; at++) {
+				retString.append('#');
+			}
+			
+			retString.append(" " + inBucket + "\n");
+		}
+		
+		return retString.toString();
+	}
+	
+	/**
+	 * @return	The number of sessions with a length from <code>start</code>,
+	 * 			for <code>size</code> lengths.
+	 */
+	private int bucketCount(int start, int size) {
+		int total = 0;
+		
+		for(int at = start; at < start + size; at++) {
+			total += getCount(at);
+		}
+		
+		return total;
+	}
+
+}
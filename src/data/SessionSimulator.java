@@ -0,0 +1,186 @@
+package data;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import exception.NoValidFightersException;
+import util.RandomSource;
+import util.Util;
+
+/**
+ * The <code>SessionSimulator</code> estimates how many battles a session
+ * can last before a battle can't be generated any more, by simulating a
+ * large number of sessions with a tier list and settings. A session ends
+ * when a player has no valid fighters left, or when every try at
+ * generating a battle fails, exactly as it would in the program.
+ * <br><br>
+ * Sessions are simulated in parallel, on the common fork-join pool. The
+ * sessions are split in half over and over until each task only has a few
+ * left, and each task simulates its sessions one after another on its own
+ * copy of the tier list, since a <code>TierList</code> can only generate
+ * one battle at a time. Every task counts the session lengths it sees, and
+ * how many fighters were gotten from each tier, and the counts are added
+ * together as the tasks finish.
+ * <br><br>
+ * Each task also gets its own random source, split off its parent task's
+ * before anything is forked, so no two threads share one. Since the
+ * sessions are always split up the same way, simulating with a tier list
+ * whose random source has the same seed always gives the same results, no
+ * matter how many threads there are.
+ * <br><br>
+ * Simulated sessions start from an empty "Cannot Get" queue and don't set
+ * any winners, so they don't affect each other, and the tier list that is
+ * simulated isn't changed at all.
+ * 
+ * @author Jordan Knapp
+ */
+public class SessionSimulator {
+	
+	/**
+	 * The longest a simulated session can be. A session that reaches this
+	 * length is stopped, since if players have favorites, a session may
+	 * never run out of battles.
+	 */
+	public static final int MAX_SESSION_LENGTH = 10000;
+	
+	//the most sessions a single task simulates, rather than splitting them
+	//up. a session is usually a few hundred microseconds
+	private static final int SESSIONS_PER_TASK = 16;
+	
+	private final TierList tierList;
+	private final Settings settings;
+	private final RandomSource random;
+	
+	/**
+	 * Creates a <code>SessionSimulator</code>.
+	 * 
+	 * @param tierList	The tier list to simulate sessions with. It is copied
+	 * 					as it is when <code>simulate()</code> is called.
+	 * @param settings	The settings to generate battles with.
+	 */
+	public SessionSimulator(TierList tierList, Settings settings) {
+		this.tierList = tierList;
+		this.settings = settings;
+		
+		random = tierList.splitRandom();
+	}
+	
+	/**
+	 * Simulates sessions, and waits for them all to finish.
+	 * 
+	 * @param numSessions	The number of sessions to simulate.
+	 * @return				The number of battles each session lasted.
+	 */
+	public SessionLengths simulate(int numSessions) {
+		if(numSessions <= 0) {
+			throw new IllegalArgumentException("Number of sessions must be positive, not " + numSessions);
+		}
+		
+		Tally tally = ForkJoinPool.commonPool().invoke(new SimulateTask(0, numSessions, random.split()));
+		
+		return new SessionLengths(tally.lengths, tally.tiers, settings.getNumPlayers());
+	}
+	
+	/**
+	 * Simulates one session on a tier list, starting from a new session.
+	 * 
+	 * @param copy		The tier list to simulate on. Its "Cannot Get"
+	 * 					queues are changed.
+	 * @param settings	The settings to generate battles with.
+	 * @param tiers		The number of fighters gotten from each of the 8
+	 * 					tiers, which is added to.
+	 * @return			The number of battles generated before one couldn't
+	 * 					be, up to <b><i><code>MAX_SESSION_LENGTH</code></b></i>.
+	 */
+	static int simulateSession(TierList copy, Settings settings, long[] tiers) {
+		copy.newSession();
+		
+		int length = 0;
+		while(length < MAX_SESSION_LENGTH) {
+			Matchup matchup;
+			try {
+				matchup = copy.generateBattle(settings, false, TierList.MAX_TRIES, null);
+			} catch(NoValidFightersException e) {
+				matchup = null;
+			}
+			
+			if(matchup == null) {
+				break;
+			}
+			
+			for(int playerAt = 0; playerAt < matchup.size(); playerAt++) {
+				tiers[Util.subTierToTier(matchup.getFighter(playerAt).getTier())]++;
+			}
+			
+			length++;
+		}
+		
+		return length;
+	}
+	
+	/**
+	 * The counts kept by a task: how many sessions lasted each number of
+	 * battles, and how many fighters were gotten from each tier.
+	 */
+	private static class Tally {
+		
+		private final int[] lengths = new int[MAX_SESSION_LENGTH + 1];
+		private final long[] tiers = new long[8];
+		
+		private void add(Tally other) {
+			for(int at = 0; at < lengths.length; at++) {
+				lengths[at] += other.lengths[at];
+			}
+			
+			for(int at = 0; at < tiers.length; at++) {
+				tiers[at] += other.tiers[at];
+			}
+		}
+	}
+	
+	/**
+	 * Simulates a range of sessions, splitting the range in half if there
+	 * are too many to simulate at once.
+	 */
+	private class SimulateTask extends RecursiveTask<Tally> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final int from;
+		private final int to;
+		private final RandomSource random;
+		
+		private SimulateTask(int from, int to, RandomSource random) {
+			this.from = from;
+			this.to = to;
+			this.random = random;
+		}
+		
+		@Override
+		protected Tally compute() {
+			if(to - from > SESSIONS_PER_TASK) {
+				int middle = (from + to) >>> 1;
+				
+				SimulateTask first = new SimulateTask(from, middle, random.split());
+				SimulateTask second = new SimulateTask(middle, to, random);
+				first.fork();
+				
+				Tally tally = second.compute();
+				tally.add(first.join());
+				
+				return tally;
+			}
+			
+			Tally tally = new Tally();
+			TierList copy = tierList.copy();
+			copy.setRandom(random);
+			
+			for(int at = from; at < to; at++) {
+				tally.lengths[simulateSession(copy, settings, tally.tiers)]++;
+			}
+			
+			return tally;
+		}
+	}
+
+}
@@ -1,14 +1,24 @@
 package data;
 
+import java.util.Arrays;
+
 /**
  * <code>Settings</code> provides a read-only interface for transmitting
- * the settings of the program. It is intended to be a short-lived object,
- * created and quickly passed before being discarded after the contents are
- * accessed. For example, <code>TierList</code> returns one after loading a
- * file, so <code>MainWindow</code> can change the UI to react to the
- * settings loaded in a file. And <code>MainWindow</code> passes one to
- * <code>TierList</code> so it knows what settings to use when generating a
- * battle.
+ * the settings of the program. For example, <code>TierList</code> returns
+ * one after loading a file, so <code>MainWindow</code> can change the UI to
+ * react to the settings loaded in a file. And <code>MainWindow</code>
+ * passes one to <code>TierList</code> so it knows what settings to use when
+ * generating a battle.
+ * <br><br>
+ * A <code>Settings</code> can't be changed once it's created, since the
+ * arrays it's given are copied. <code>MainWindow</code> only makes a new one
+ * when a setting actually changes, and passes the same one for every battle
+ * until then, so the <code>TierList</code> can tell its cached weights are
+ * still good just by checking that it got the same object. Since the same
+ * object is used for so many battles, the things the <code>TierList</code>
+ * looks up for every fighter, like the chance of each of the 24 sub-tiers
+ * and whether a sub-tier can be put in the "Cannot Get" queue, are worked
+ * out once here, when it's created.
  * 
  * @author Jordan Knapp
  */
@@ -23,6 +33,11 @@ public class Settings {
 	private boolean allowSInCannotGet;
 	private boolean allowSSInCannotGet;
 	
+	//worked out from the above when this is created
+	private int[] subTierChances;
+	private boolean[] allowedInCannotGet;
+	private int tiersTurnedOn;
+	
 	/**
 	 * Creates a settings with the given parameters.
 	 * 
@@ -52,12 +67,35 @@ public class Settings {
 			int cannotGetSize, boolean allowSInCannotGet, boolean allowSSInCannotGet) {
 		this.numPlayers = numPlayers;
 		
-		this.tierChances = tierChances;
-		this.bumpChances = bumpChances;
+		this.tierChances = tierChances.clone();
+		this.bumpChances = bumpChances.clone();
 		
 		this.cannotGetSize = cannotGetSize;
 		this.allowSInCannotGet = allowSInCannotGet;
 		this.allowSSInCannotGet = allowSSInCannotGet;
+		
+		subTierChances = new int[TierList.NUM_TIERS];
+		allowedInCannotGet = new boolean[TierList.NUM_TIERS];
+		tiersTurnedOn = 0;
+		
+		for(int subTierAt = 0; subTierAt < TierList.NUM_TIERS; subTierAt++) {
+			//every tier is split into three sub-tiers
+			subTierChances[subTierAt] = getTierChance(subTierAt / 3);
+			
+			if(subTierChances[subTierAt] != 0) {
+				tiersTurnedOn |= 1 << subTierAt;
+			}
+			
+			if(subTierAt < 3) {
+				allowedInCannotGet[subTierAt] = allowSSInCannotGet;
+			}
+			else if(subTierAt <= 5) {
+				allowedInCannotGet[subTierAt] = allowSInCannotGet;
+			}
+			else {
+				allowedInCannotGet[subTierAt] = true;
+			}
+		}
 	}
 	
 	/**
@@ -83,6 +121,24 @@ public class Settings {
 		}
 	}
 	
+	/**
+	 * @param subTier	The sub-tier (from 0 to 23) to get the chance of.
+	 * @return			The chance of getting the tier the sub-tier is in,
+	 * 					just like <code>getTierChance()</code>, but without
+	 * 					having to convert the sub-tier first.
+	 */
+	public int getSubTierChance(int subTier) {
+		return subTierChances[subTier];
+	}
+	
+	/**
+	 * @return	The sub-tiers whose chance isn't 0, as a bit mask, with bit
+	 * 			<code>n</code> set if sub-tier <code>n</code> is turned on.
+	 */
+	public int getTiersTurnedOn() {
+		return tiersTurnedOn;
+	}
+	
 	/**
 	 * @param bumpAmount	The number of tiers to bump (from 0 to 2) to get
 	 * 						the chance of.
@@ -123,5 +179,78 @@ public class Settings {
 	public boolean ssAllowedInCannotGet() {
 		return allowSSInCannotGet;
 	}
+	
+	/**
+	 * @param subTier	A sub-tier, from 0 to 23.
+	 * @return			<code>true</code> if fighters in the sub-tier are
+	 * 					allowed in the "Cannot Get" queue, <code>false</code>
+	 * 					if they are not.
+	 */
+	public boolean allowedInCannotGet(int subTier) {
+		return allowedInCannotGet[subTier];
+	}
+	
+	/**
+	 * @param other	Another <code>Settings</code>.
+	 * @return		<code>true</code> if both have the same tier chances and
+	 * 				bump chances, which are all that a fighter's weight
+	 * 				depends on.
+	 */
+	public boolean hasSameChances(Settings other) {
+		return Arrays.equals(tierChances, other.tierChances) &&
+				Arrays.equals(bumpChances, other.bumpChances);
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		if(!(other instanceof Settings)) {
+			return false;
+		}
+		
+		Settings settings = (Settings) other;
+		return numPlayers == settings.numPlayers && hasSameChances(settings) &&
+				cannotGetSize == settings.cannotGetSize &&
+				allowSInCannotGet == settings.allowSInCannotGet &&
+				allowSSInCannotGet == settings.allowSSInCannotGet;
+	}
+	
+	@Override
+	public int hashCode() {
+		int hash = numPlayers;
+		hash = 31 * hash + Arrays.hashCode(tierChances);
+		hash = 31 * hash + Arrays.hashCode(bumpChances);
+		hash = 31 * hash + cannotGetSize;
+		hash = 31 * hash + (allowSInCannotGet ? 1 : 0);
+		return 31 * hash + (allowSSInCannotGet ? 1 : 0);
+	}
+	
+	/**
+	 * @return	These settings in the format used by tier list files, one
+	 * 			setting per line, so they can be pasted into one.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder retString = new StringBuilder();
+		
+		retString.append("players = " + numPlayers + "\n");
+		
+		retString.append("tier chances = ");
+		for(int at = 0; at < tierChances.length; at++) {
+			retString.append((at > 0 ? ", " : "") + tierChances[at]);
+		}
+		retString.append("\n");
+		
+		retString.append("bump chances = ");
+		for(int at = 0; at < bumpChances.length; at++) {
+			retString.append((at > 0 ? ", " : "") + bumpChances[at]);
+		}
+		retString.append("\n");
+		
+		retString.append("cannot get size = " + cannotGetSize + "\n");
+		retString.append("allow ss in cannot get = " + allowSSInCannotGet + "\n");
+		retString.append("allow s in cannot get = " + allowSInCannotGet + "\n");
+		
+		return retString.toString();
+	}
 
 }
@@ -0,0 +1,363 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import util.RandomSource;
+import util.Util;
+
+/**
+ * The <code>SettingsOptimizer</code> searches for tier chances, bump chances,
+ * and "Cannot Get" buffer sizes that make sessions last longer, without
+ * changing the feel of the battles too much. Every candidate is judged on
+ * two things, using a <code>SessionSimulator</code>:
+ * <ul>
+ * 	<li>The average number of battles a session lasts with it.</li>
+ * 	<li>Its tier fidelity: how closely the tiers of the fighters it gives
+ * 		out match what the starting settings give out. This is 1 minus the
+ * 		total variation distance between the two, so 1 means the tiers come
+ * 		up exactly as often as before.</li>
+ * </ul>
+ * Usually, neither can be improved without making the other worse, so the
+ * result is the Pareto front: every candidate that no other candidate beats
+ * on both. It's up to the user to pick one, although
+ * <code>recommend()</code> picks the one with the longest sessions among
+ * those that are faithful enough.
+ * <br><br>
+ * The search starts from the starting settings with every "Cannot Get"
+ * buffer size. Each round after that, new candidates are made by changing
+ * random members of the front a little: moving some chance from one tier to
+ * another that has fighters in it, moving some bump chance around, or
+ * changing the buffer size. Candidates are evaluated one at a time, and the
+ * sessions for each are simulated in parallel on every core.
+ * 
+ * @author Jordan Knapp
+ */
+public class SettingsOptimizer {
+	
+	/**
+	 * The number of rounds of new candidates used if none is given.
+	 */
+	public static final int DEFAULT_ROUNDS = 5;
+	
+	/**
+	 * The number of new candidates in each round used if none is given.
+	 */
+	public static final int DEFAULT_CANDIDATES = 40;
+	
+	/**
+	 * The number of sessions simulated for each candidate if none is given.
+	 */
+	public static final int DEFAULT_SESSIONS = 200;
+	
+	/**
+	 * The tier fidelity used by <code>recommend()</code> if none is given.
+	 */
+	public static final double DEFAULT_MIN_FIDELITY = 0.95;
+	
+	//chances are moved around in steps of this many points
+	private static final int STEP = 5;
+	
+	//the starting settings are simulated this many times more than the
+	//candidates, since every candidate is compared with them
+	private static final int BASELINE_MULTIPLIER = 5;
+	
+	/**
+	 * A set of settings that has been tried, and how it did.
+	 */
+	public static class Candidate {
+		
+		private final Settings settings;
+		private final SessionLengths lengths;
+		private final double fidelity;
+		
+		private Candidate(Settings settings, SessionLengths lengths, double fidelity) {
+			this.settings = settings;
+			this.lengths = lengths;
+			this.fidelity = fidelity;
+		}
+		
+		/**
+		 * @return	The settings.
+		 */
+		public Settings getSettings() {
+			return settings;
+		}
+		
+		/**
+		 * @return	How long the simulated sessions lasted.
+		 */
+		public SessionLengths getLengths() {
+			return lengths;
+		}
+		
+		/**
+		 * @return	The tier fidelity, from 0 to 1.
+		 */
+		public double getFidelity() {
+			return fidelity;
+		}
+		
+		/**
+		 * @param other	Another candidate.
+		 * @return		<code>true</code> if this candidate is at least as good
+		 * 				as the other on both counts, and better on one.
+		 */
+		public boolean dominates(Candidate other) {
+			double average = lengths.getAverage();
+			double otherAverage = other.lengths.getAverage();
+			
+			return average >= otherAverage && fidelity >= other.fidelity &&
+					(average > otherAverage || fidelity > other.fidelity);
+		}
+		
+		/**
+		 * @return	A one-line summary of the candidate.
+		 */
+		@Override
+		public String toString() {
+			return String.format("average %.1f battles, 5%% end by %d, fidelity %.1f%%, " +
+					"tier chances %s, bump chances %s, cannot get size %d", lengths.getAverage(),
+					lengths.getPercentile(0.05), fidelity * 100, Arrays.toString(chancesOf(settings, true)),
+					Arrays.toString(chancesOf(settings, false)), settings.getCannotGetSize());
+		}
+	}
+	
+	private final TierList tierList;
+	private final Settings start;
+	
+	//which of the 8 tiers have any fighters in them. chance is only ever
+	//moved to those tiers
+	private final boolean[] tierHasFighters;
+	
+	private double[] baselineTiers;
+	
+	//split off the tier list's, so a search with the same seed always
+	//tries the same candidates
+	private final RandomSource random;
+	
+	/**
+	 * Creates a <code>SettingsOptimizer</code>.
+	 * 
+	 * @param tierList	The tier list to simulate sessions with. It isn't
+	 * 					changed.
+	 * @param start		The settings to start from, which tier fidelity is
+	 * 					measured against. The number of players and whether
+	 * 					S and SS tiers are allowed in the "Cannot Get" buffer
+	 * 					are never changed.
+	 */
+	public SettingsOptimizer(TierList tierList, Settings start) {
+		this.tierList = tierList;
+		this.start = start;
+		
+		random = tierList.splitRandom();
+		
+		tierHasFighters = new boolean[8];
+		for(int tierAt = 0; tierAt < 24; tierAt++) {
+			if(tierList.getTierSize(tierAt) > 0) {
+				tierHasFighters[Util.subTierToTier(tierAt)] = true;
+			}
+		}
+	}
+	
+	/**
+	 * Searches for the best settings.
+	 * 
+	 * @param rounds		The number of rounds of new candidates.
+	 * @param candidates	The number of new candidates in each round.
+	 * @param sessions		The number of sessions to simulate for each
+	 * 						candidate.
+	 * @return				The Pareto front, from the longest sessions to the
+	 * 						highest tier fidelity.
+	 */
+	public List<Candidate> optimize(int rounds, int candidates, int sessions) {
+		SessionLengths baseline = new SessionSimulator(tierList, start).simulate(sessions * BASELINE_MULTIPLIER);
+		
+		baselineTiers = new double[8];
+		for(int tierAt = 0; tierAt < 8; tierAt++) {
+			baselineTiers[tierAt] = baseline.getTierFraction(tierAt);
+		}
+		
+		//settings that have already been tried, so they aren't tried again
+		Set<String> tried = new HashSet<String>();
+		List<Candidate> front = new ArrayList<Candidate>();
+		
+		for(int sizeAt = 0; sizeAt <= Util.CANNOT_GET_MAX; sizeAt++) {
+			Settings settings = new Settings(start.getNumPlayers(), chancesOf(start, true),
+					chancesOf(start, false), sizeAt, start.sAllowedInCannotGet(), start.ssAllowedInCannotGet());
+			
+			if(tried.add(settings.toString())) {
+				addToFront(front, evaluate(settings, sessions));
+			}
+		}
+		
+		for(int roundAt = 0; roundAt < rounds; roundAt++) {
+			List<Candidate> parents = new ArrayList<Candidate>(front);
+			
+			for(int at = 0; at < candidates; at++) {
+				Settings parent = parents.get(random.nextInt(parents.size())).getSettings();
+				Settings settings = mutate(parent);
+				
+				if(tried.add(settings.toString())) {
+					addToFront(front, evaluate(settings, sessions));
+				}
+			}
+		}
+		
+		Collections.sort(front, new Comparator<Candidate>() {
+			public int compare(Candidate o1, Candidate o2) {
+				return Double.compare(o2.getLengths().getAverage(), o1.getLengths().getAverage());
+			}
+		});
+		
+		return front;
+	}
+	
+	/**
+	 * Picks the candidate with the longest sessions among those that are
+	 * faithful enough to the starting settings. If none are, the most
+	 * faithful candidate is picked.
+	 * 
+	 * @param front			The Pareto front, from <code>optimize()</code>.
+	 * @param minFidelity	The lowest tier fidelity to accept, from 0 to 1.
+	 * @return				The recommended candidate.
+	 */
+	public static Candidate recommend(List<Candidate> front, double minFidelity) {
+		Candidate best = null;
+		
+		for(Candidate candidateAt: front) {
+			if(candidateAt.getFidelity() >= minFidelity &&
+					(best == null || candidateAt.getLengths().getAverage() > best.getLengths().getAverage())) {
+				best = candidateAt;
+			}
+		}
+		
+		if(best != null) {
+			return best;
+		}
+		
+		for(Candidate candidateAt: front) {
+			if(best == null || candidateAt.getFidelity() > best.getFidelity()) {
+				best = candidateAt;
+			}
+		}
+		
+		return best;
+	}
+	
+	/**
+	 * Simulates sessions with a set of settings, and works out its tier
+	 * fidelity.
+	 */
+	private Candidate evaluate(Settings settings, int sessions) {
+		SessionLengths lengths = new SessionSimulator(tierList, settings).simulate(sessions);
+		
+		double distance = 0;
+		for(int tierAt = 0; tierAt < 8; tierAt++) {
+			distance += Math.abs(lengths.getTierFraction(tierAt) - baselineTiers[tierAt]);
+		}
+		
+		return new Candidate(settings, lengths, 1 - distance / 2);
+	}
+	
+	/**
+	 * Adds a candidate to the front, unless something on the front beats it,
+	 * and removes anything on the front that it beats.
+	 */
+	private static void addToFront(List<Candidate> front, Candidate candidate) {
+		for(Candidate candidateAt: front) {
+			if(candidateAt.dominates(candidate)) {
+				return;
+			}
+		}
+		
+		for(int at = front.size() - 1; at >= 0; at--) {
+			if(candidate.dominates(front.get(at))) {
+				front.remove(at);
+			}
+		}
+		
+		front.add(candidate);
+	}
+	
+	/**
+	 * Makes a slightly different copy of a set of settings. At least one of
+	 * the tier chances, bump chances, or "Cannot Get" buffer size is changed.
+	 */
+	private Settings mutate(Settings parent) {
+		int[] tierChances = chancesOf(parent, true);
+		int[] bumpChances = chancesOf(parent, false);
+		int cannotGetSize = parent.getCannotGetSize();
+		
+		boolean changed = false;
+		while(!changed) {
+			if(random.nextBoolean()) {
+				changed |= moveChance(tierChances, tierHasFighters, random.nextInt(1, 4), random);
+			}
+			
+			if(random.nextInt(4) == 0) {
+				boolean[] everyBump = {true, true, true};
+				changed |= moveChance(bumpChances, everyBump, 1, random);
+			}
+			
+			if(random.nextInt(3) == 0) {
+				int newSize = cannotGetSize + (random.nextBoolean() ? 1 : -1);
+				
+				if(newSize >= 0 && newSize <= Util.CANNOT_GET_MAX) {
+					cannotGetSize = newSize;
+					changed = true;
+				}
+			}
+		}
+		
+		return new Settings(parent.getNumPlayers(), tierChances, bumpChances, cannotGetSize,
+				parent.sAllowedInCannotGet(), parent.ssAllowedInCannotGet());
+	}
+	
+	/**
+	 * Moves <b><i><code>STEP</code></b></i> points of chance from one entry
+	 * to another, a number of times, keeping the total the same.
+	 * 
+	 * @param chances	The chances to change.
+	 * @param allowed	Which entries can be given chance.
+	 * @param moves		The number of times to move chance.
+	 * @param random	The source of randomness to use.
+	 * @return			<code>true</code> if anything was moved.
+	 */
+	private static boolean moveChance(int[] chances, boolean[] allowed, int moves, RandomSource random) {
+		boolean moved = false;
+		
+		for(int at = 0; at < moves; at++) {
+			int from = random.nextInt(chances.length);
+			int to = random.nextInt(chances.length);
+			
+			if(from != to && allowed[to] && chances[from] >= STEP) {
+				chances[from] -= STEP;
+				chances[to] += STEP;
+				moved = true;
+			}
+		}
+		
+		return moved;
+	}
+	
+	/**
+	 * @return	A copy of the tier chances or the bump chances in a set of
+	 * 			settings.
+	 */
+	private static int[] chancesOf(Settings settings, boolean tier) {
+		int[] chances = new int[tier ? 8 : 3];
+		
+		for(int at = 0; at < chances.length; at++) {
+			chances[at] = tier ? settings.getTierChance(at) : settings.getBumpChance(at);
+		}
+		
+		return chances;
+	}
+
+}
@@ -0,0 +1,455 @@
+package data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import util.Logger;
+
+/**
+ * The <code>StatsFile</code> class reads and writes the stats file. Before
+ * this class existed, stats were stored in <code>smash stats.sel</code> by
+ * serializing a <code>HashMap</code> with Java's <code>ObjectOutputStream</code>,
+ * which stored every count as a <code>double</code> and was slow to read
+ * back in once the file got large.
+ * <br><br>
+ * Stats are now stored in <code>smash stats.dat</code>, which has the
+ * following layout:
+ * <ul>
+ * 	<li>A header, consisting of the magic number "SSPS", the format version,
+ * 		and the number of fighters in the file, each as a 4-byte integer,
+ * 		followed by the position in the battle journal (see
+ * 		<code>BattleJournal</code>) up to which the stats include every
+ * 		battle, as an 8-byte integer.</li>
+ * 	<li>A string table, consisting of each fighter's name, encoded as UTF-8
+ * 		and preceded by its length in bytes.</li>
+ * 	<li>The counts, consisting of 16 values for each fighter in the same
+ * 		order as the string table: P1 wins, P1 battles, P2 wins, P2 battles,
+ * 		and so on.</li>
+ * 	<li>A 4-byte CRC32 checksum of everything before it.</li>
+ * </ul>
+ * All lengths and counts are stored as unsigned variable-length integers, 7
+ * bits per byte, so a count under 128 only takes a single byte.
+ * <br><br>
+ * If there is no <code>smash stats.dat</code> file but there is a
+ * <code>smash stats.sel</code> file, the old file is read and converted to
+ * the new format the first time stats are loaded. The old file is left
+ * alone.
+ *
+ * @author Jordan Knapp
+ */
+public final class StatsFile {
+	
+	/**
+	 * The name of the stats file.
+	 */
+	public static final String FILE_NAME = "smash stats.dat";
+	
+	/**
+	 * The name of the stats file used by older versions, which is imported if
+	 * there is no file in the current format.
+	 */
+	public static final String LEGACY_FILE_NAME = "smash stats.sel";
+	
+	//"SSPS" -- Smash Stats, Picker Stats
+	private static final int MAGIC = 0x53535053;
+	private static final int VERSION = 1;
+	
+	private static final int HEADER_SIZE = 20;
+	private static final int NUM_COUNTS = 16;
+	
+	//the last stats file that was read or written, so loading another tier
+	//list doesn't read and decode the same file again if it hasn't changed
+	//since then
+	private static File cachedFile;
+	private static long cachedModified;
+	private static long cachedLength;
+	private static HashMap<String, int[]> cachedStats;
+	
+	/**
+	 * Private constructor to prevent instantiating the <code>StatsFile</code>
+	 * class.
+	 */
+	private StatsFile() {
+		throw new UnsupportedOperationException("Cannot instantiate StatsFile class");
+	}
+	
+	/**
+	 * Loads the stats in the given directory. If the directory has a stats
+	 * file in the current format, it is read. Otherwise, if it has a legacy
+	 * <code>.sel</code> file, that is read and immediately written back out
+	 * in the current format.
+	 *
+	 * @param directory	The directory to look for stats files in.
+	 * @return			A <code>HashMap</code> mapping each fighter's name to
+	 * 					its 16 counts, or <code>null</code> if there is no
+	 * 					stats file at all.
+	 *
+	 * @throws IOException				Thrown if there are errors reading
+	 * 									either file, or writing the imported
+	 * 									file.
+	 * @throws ClassNotFoundException	Thrown if the legacy file does not
+	 * 									contain a valid <code>HashMap</code>.
+	 */
+	public static HashMap<String, int[]> load(File directory) throws IOException, ClassNotFoundException {
+		File statsFile = new File(directory, FILE_NAME);
+		
+		if(statsFile.exists()) {
+			return read(statsFile);
+		}
+		
+		File legacyFile = new File(directory, LEGACY_FILE_NAME);
+		
+		if(!legacyFile.exists()) {
+			return null;
+		}
+		
+		HashMap<String, int[]> stats = readLegacy(legacyFile);
+		write(statsFile, stats);
+		Logger.info("Imported stats for " + stats.size() + " fighters from " + LEGACY_FILE_NAME +
+				" into " + FILE_NAME + ".");
+		
+		return stats;
+	}
+	
+	/**
+	 * Reads a stats file in the current format. If the same file was the last
+	 * one read or written, and its size and modification time haven't
+	 * changed since then, the stats from that time are used instead of
+	 * reading it again.
+	 *
+	 * @param file	The file to read.
+	 * @return		A <code>HashMap</code> mapping each fighter's name to its
+	 * 				16 counts. The caller is free to modify it.
+	 *
+	 * @throws IOException	Thrown if the file can't be read, or if it is not
+	 * 						a valid stats file.
+	 */
+	public static synchronized HashMap<String, int[]> read(File file) throws IOException {
+		File absoluteFile = file.getAbsoluteFile();
+		
+		if(absoluteFile.equals(cachedFile) && absoluteFile.lastModified() == cachedModified &&
+				absoluteFile.length() == cachedLength) {
+			return copyOf(cachedStats);
+		}
+		
+		HashMap<String, int[]> stats = readFile(file);
+		cache(absoluteFile, stats);
+		
+		return stats;
+	}
+	
+	/**
+	 * Reads and decodes a stats file in the current format.
+	 *
+	 * @param file	The file to read.
+	 * @return		A <code>HashMap</code> mapping each fighter's name to its
+	 * 				16 counts.
+	 *
+	 * @throws IOException	Thrown if the file can't be read, or if it is not
+	 * 						a valid stats file.
+	 */
+	private static HashMap<String, int[]> readFile(File file) throws IOException {
+		ByteBuffer buffer;
+		
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file.getName() + " is too large to be a stats file.");
+			}
+			
+			buffer = ByteBuffer.allocate((int) channel.size());
+			while(buffer.hasRemaining()) {
+				if(channel.read(buffer) == -1) {
+					throw new IOException("Unexpected end of " + file.getName() + ".");
+				}
+			}
+		}
+		
+		buffer.flip();
+		
+		if(buffer.remaining() < HEADER_SIZE + 4) {
+			throw new IOException(file.getName() + " is too short to be a stats file.");
+		}
+		
+		//check the checksum before trusting anything else in the file
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.limit() - 4);
+		if((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)) {
+			throw new IOException(file.getName() + " is corrupted -- its checksum does not match.");
+		}
+		
+		if(buffer.getInt() != MAGIC) {
+			throw new IOException(file.getName() + " is not a stats file.");
+		}
+		
+		int version = buffer.getInt();
+		if(version != VERSION) {
+			throw new IOException(file.getName() + " has version " + version +
+					", but only version " + VERSION + " is supported.");
+		}
+		
+		int numFighters = buffer.getInt();
+		buffer.limit(buffer.limit() - 4);
+		
+		try {
+			//the journal position is read separately by readJournalPosition()
+			buffer.getLong();
+			
+			String[] names = new String[numFighters];
+			for(int at = 0; at < numFighters; at++) {
+				int length = readVarint(buffer);
+				names[at] = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+				buffer.position(buffer.position() + length);
+			}
+			
+			HashMap<String, int[]> stats = new HashMap<String, int[]>(numFighters * 2);
+			for(int at = 0; at < numFighters; at++) {
+				int[] counts = new int[NUM_COUNTS];
+				
+				for(int countAt = 0; countAt < NUM_COUNTS; countAt++) {
+					counts[countAt] = readVarint(buffer);
+				}
+				
+				stats.put(names[at], counts);
+			}
+			
+			return stats;
+		} catch(RuntimeException e) {
+			//out of bounds reads and the like mean the file was cut short
+			throw new IOException(file.getName() + " is not a valid stats file.", e);
+		}
+	}
+	
+	/**
+	 * Reads the position in the battle journal that the stats in a stats
+	 * file are up to date with. Every record before that position is already
+	 * included in the stats. The file should already have been checked with
+	 * <code>read()</code>.
+	 *
+	 * @param file	The stats file.
+	 * @return		The journal position, or 0 if the file doesn't exist.
+	 *
+	 * @throws IOException	Thrown if the file can't be read.
+	 */
+	public static long readJournalPosition(File file) throws IOException {
+		if(!file.exists()) {
+			return 0;
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+		
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			while(buffer.hasRemaining() && channel.read(buffer) != -1) {
+				//keep reading until the whole header is in the buffer
+			}
+		}
+		
+		buffer.flip();
+		
+		if(buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			return 0;
+		}
+		
+		buffer.getInt();
+		return buffer.getLong();
+	}
+	
+	/**
+	 * Writes the given stats to a file in the current format, with no
+	 * journal position.
+	 *
+	 * @param file	The file to write.
+	 * @param stats	A <code>Map</code> from each fighter's name to its 16
+	 * 				counts.
+	 *
+	 * @throws IOException	Thrown if there are errors writing the file.
+	 */
+	public static void write(File file, Map<String, int[]> stats) throws IOException {
+		write(file, stats, 0);
+	}
+	
+	/**
+	 * Writes the given stats to a file in the current format. The data is
+	 * written to a temporary file first, which then replaces the given file,
+	 * so the stats file is never left half-written.
+	 *
+	 * @param file				The file to write.
+	 * @param stats				A <code>Map</code> from each fighter's name to
+	 * 							its 16 counts.
+	 * @param journalPosition	The position in the battle journal that these
+	 * 							stats are up to date with.
+	 *
+	 * @throws IOException	Thrown if there are errors writing the file.
+	 */
+	public static synchronized void write(File file, Map<String, int[]> stats, long journalPosition) throws IOException {
+		//every name takes at most 5 bytes for its length plus its UTF-8 bytes,
+		//and every count takes at most 5 bytes
+		byte[][] names = new byte[stats.size()][];
+		int[][] counts = new int[stats.size()][];
+		int maxSize = HEADER_SIZE + 4;
+		
+		int indexAt = 0;
+		for(Map.Entry<String, int[]> entryAt: stats.entrySet()) {
+			names[indexAt] = entryAt.getKey().getBytes(StandardCharsets.UTF_8);
+			counts[indexAt] = entryAt.getValue();
+			maxSize += 5 + names[indexAt].length + NUM_COUNTS * 5;
+			indexAt++;
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(maxSize);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(names.length);
+		buffer.putLong(journalPosition);
+		
+		for(byte[] nameAt: names) {
+			writeVarint(buffer, nameAt.length);
+			buffer.put(nameAt);
+		}
+		
+		for(int[] countsAt: counts) {
+			for(int countAt = 0; countAt < NUM_COUNTS; countAt++) {
+				writeVarint(buffer, countsAt[countAt]);
+			}
+		}
+		
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.putInt((int) crc.getValue());
+		buffer.flip();
+		
+		File tempFile = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+		try(FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			
+			channel.force(true);
+		}
+		
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		cache(file.getAbsoluteFile(), stats);
+	}
+	
+	/**
+	 * Remembers the stats in the given file, along with its current size and
+	 * modification time.
+	 *
+	 * @param file	The file, as an absolute path.
+	 * @param stats	The stats that are in the file.
+	 */
+	private static void cache(File file, Map<String, int[]> stats) {
+		cachedFile = file;
+		cachedModified = file.lastModified();
+		cachedLength = file.length();
+		cachedStats = copyOf(stats);
+	}
+	
+	/**
+	 * @param stats	A <code>Map</code> from each fighter's name to its 16
+	 * 				counts.
+	 * @return		A copy of the map, with a copy of each array of counts.
+	 */
+	private static HashMap<String, int[]> copyOf(Map<String, int[]> stats) {
+		HashMap<String, int[]> copy = new HashMap<String, int[]>(stats.size() * 2);
+		
+		for(Map.Entry<String, int[]> entryAt: stats.entrySet()) {
+			copy.put(entryAt.getKey(), entryAt.getValue().clone());
+		}
+		
+		return copy;
+	}
+	
+	/**
+	 * Reads a legacy <code>.sel</code> stats file, which contains a serialized
+	 * <code>HashMap</code> from names to arrays of 16 <code>double</code>s.
+	 *
+	 * @param file	The file to read.
+	 * @return		A <code>HashMap</code> mapping each fighter's name to its
+	 * 				16 counts.
+	 *
+	 * @throws IOException				Thrown if there are errors reading the
+	 * 									file.
+	 * @throws ClassNotFoundException	Thrown if the file does not contain a
+	 * 									valid <code>HashMap</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	public static HashMap<String, int[]> readLegacy(File file) throws IOException, ClassNotFoundException {
+		HashMap<String, double[]> legacyStats;
+		
+		try(ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
+			legacyStats = (HashMap<String, double[]>) ois.readObject();
+		}
+		
+		HashMap<String, int[]> stats = new HashMap<String, int[]>(legacyStats.size() * 2);
+		for(Map.Entry<String, double[]> entryAt: legacyStats.entrySet()) {
+			int[] counts = new int[NUM_COUNTS];
+			
+			for(int at = 0; at < NUM_COUNTS; at++) {
+				counts[at] = (int) entryAt.getValue()[at];
+			}
+			
+			stats.put(entryAt.getKey(), counts);
+		}
+		
+		return stats;
+	}
+	
+	/**
+	 * Writes a non-negative integer using 7 bits per byte, with the high bit
+	 * of each byte set if more bytes follow.
+	 *
+	 * @param buffer	The buffer to write to.
+	 * @param value		The value to write.
+	 *
+	 * @throws IllegalArgumentException	Thrown if the value is negative.
+	 */
+	private static void writeVarint(ByteBuffer buffer, int value) throws IllegalArgumentException {
+		if(value < 0) {
+			throw new IllegalArgumentException("Cannot write negative value " + value + " to stats file.");
+		}
+		
+		while(value >= 0x80) {
+			buffer.put((byte) (value | 0x80));
+			value >>>= 7;
+		}
+		
+		buffer.put((byte) value);
+	}
+	
+	/**
+	 * Reads an integer written by <code>writeVarint()</code>.
+	 *
+	 * @param buffer	The buffer to read from.
+	 * @return			The value that was read.
+	 *
+	 * @throws IllegalStateException	Thrown if the value is longer than
+	 * 									any valid integer.
+	 */
+	private static int readVarint(ByteBuffer buffer) throws IllegalStateException {
+		int value = 0;
+		
+		for(int shift = 0; shift < 35; shift += 7) {
+			byte at = buffer.get();
+			value |= (at & 0x7F) << shift;
+			
+			if((at & 0x80) == 0) {
+				return value;
+			}
+		}
+		
+		throw new IllegalStateException("Malformed variable-length integer in stats file.");
+	}
+
+}
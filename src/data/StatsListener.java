@@ -0,0 +1,21 @@
+package data;
+
+/**
+ * A <code>StatsListener</code> is notified by a <code>StatsTable</code>
+ * whenever one of its counts changes, i.e. when a win or loss is recorded or
+ * removed.
+ *
+ * @author Jordan Knapp
+ */
+public interface StatsListener {
+	
+	/**
+	 * Called after the stats for a fighter and player have changed.
+	 *
+	 * @param table		The table whose stats changed.
+	 * @param id		The id of the fighter whose stats changed.
+	 * @param player	The player whose stats changed.
+	 */
+	void statsChanged(StatsTable table, int id, int player);
+
+}
@@ -0,0 +1,250 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The <code>StatsTable</code> holds the stats data for every fighter in a
+ * <code>TierList</code>. Rather than each <code>Fighter</code> keeping its own
+ * arrays of wins and battles, the counts for every fighter are stored next to
+ * each other in one array per metric. The count for a given fighter and
+ * player is at index <code>(id * 8) + player</code>, where <code>id</code> is
+ * the fighter's id.
+ * <br><br>
+ * The table also keeps running totals for each fighter and each player, which
+ * are updated whenever a result is recorded or removed. This means that a
+ * fighter's overall winrate, or a player's winrate across all fighters, can
+ * be read directly instead of being added up across the whole roster.
+ * <br><br>
+ * Anything that needs to know when stats change, such as the file that stats
+ * are saved to, can be registered as a <code>StatsListener</code>.
+ *
+ * @author Jordan Knapp
+ */
+public class StatsTable {
+	
+	/**
+	 * The number of players that stats are tracked for.
+	 */
+	public static final int NUM_PLAYERS = 8;
+	
+	private int numFighters;
+	
+	//indexed by (id * NUM_PLAYERS) + player
+	private int[] wins;
+	private int[] battles;
+	
+	//running totals, indexed by id and player respectively
+	private int[] fighterWins;
+	private int[] fighterBattles;
+	private int[] playerWins;
+	private int[] playerBattles;
+	
+	private List<StatsListener> listeners;
+	
+	/**
+	 * Creates an empty <code>StatsTable</code>.
+	 */
+	public StatsTable() {
+		numFighters = 0;
+		
+		wins = new int[16 * NUM_PLAYERS];
+		battles = new int[16 * NUM_PLAYERS];
+		
+		fighterWins = new int[16];
+		fighterBattles = new int[16];
+		playerWins = new int[NUM_PLAYERS];
+		playerBattles = new int[NUM_PLAYERS];
+		
+		listeners = new ArrayList<StatsListener>();
+	}
+	
+	/**
+	 * Registers a listener to be notified whenever a count changes.
+	 *
+	 * @param listener	The listener to add.
+	 */
+	public void addListener(StatsListener listener) {
+		listeners.add(listener);
+	}
+	
+	/**
+	 * Removes a listener, so it is no longer notified of changes.
+	 *
+	 * @param listener	The listener to remove.
+	 */
+	public void removeListener(StatsListener listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * Adds a fighter to the table with the given starting stats. Ids must be
+	 * given out in order, starting from 0.
+	 *
+	 * @param id				The id of the fighter being added.
+	 * @param initialWins		The number of wins each player has with this
+	 * 							fighter. Should have 8 values.
+	 * @param initialBattles	The number of battles each player has with this
+	 * 							fighter. Should have 8 values.
+	 *
+	 * @throws IllegalArgumentException	Thrown if the id is not the next id in
+	 * 									the sequence.
+	 */
+	public void addFighter(int id, int[] initialWins, int[] initialBattles) throws IllegalArgumentException {
+		if(id != numFighters) {
+			throw new IllegalArgumentException("Expected fighter with id " + numFighters +
+					", but got id " + id + ".");
+		}
+		
+		if(id == fighterWins.length) {
+			wins = Arrays.copyOf(wins, wins.length * 2);
+			battles = Arrays.copyOf(battles, battles.length * 2);
+			fighterWins = Arrays.copyOf(fighterWins, fighterWins.length * 2);
+			fighterBattles = Arrays.copyOf(fighterBattles, fighterBattles.length * 2);
+		}
+		
+		for(int playerAt = 0; playerAt < NUM_PLAYERS; playerAt++) {
+			int index = id * NUM_PLAYERS + playerAt;
+			
+			wins[index] = initialWins[playerAt];
+			battles[index] = initialBattles[playerAt];
+			
+			fighterWins[id] += initialWins[playerAt];
+			fighterBattles[id] += initialBattles[playerAt];
+			playerWins[playerAt] += initialWins[playerAt];
+			playerBattles[playerAt] += initialBattles[playerAt];
+		}
+		
+		numFighters++;
+	}
+	
+	/**
+	 * @return	The number of fighters in the table.
+	 */
+	public int numFighters() {
+		return numFighters;
+	}
+	
+	/**
+	 * @param id		The id of the fighter.
+	 * @param player	The player.
+	 * @return			The number of wins that player has with that fighter.
+	 */
+	public int getWins(int id, int player) {
+		return wins[id * NUM_PLAYERS + player];
+	}
+	
+	/**
+	 * @param id		The id of the fighter.
+	 * @param player	The player.
+	 * @return			The number of battles that player has with that
+	 * 					fighter.
+	 */
+	public int getBattles(int id, int player) {
+		return battles[id * NUM_PLAYERS + player];
+	}
+	
+	/**
+	 * @param id	The id of the fighter.
+	 * @return		The number of wins that fighter has across all players.
+	 */
+	public int getFighterWins(int id) {
+		return fighterWins[id];
+	}
+	
+	/**
+	 * @param id	The id of the fighter.
+	 * @return		The number of battles that fighter has across all players.
+	 */
+	public int getFighterBattles(int id) {
+		return fighterBattles[id];
+	}
+	
+	/**
+	 * @param player	The player.
+	 * @return			The number of wins that player has across all fighters.
+	 */
+	public int getPlayerWins(int player) {
+		return playerWins[player];
+	}
+	
+	/**
+	 * @param player	The player.
+	 * @return			The number of battles that player has across all
+	 * 					fighters.
+	 */
+	public int getPlayerBattles(int player) {
+		return playerBattles[player];
+	}
+	
+	/**
+	 * Records a win for the given player with the given fighter, incrementing
+	 * both the win and battle counts.
+	 *
+	 * @param id		The id of the fighter.
+	 * @param player	The player who won.
+	 */
+	public void recordWin(int id, int player) {
+		adjust(id, player, 1, 1);
+	}
+	
+	/**
+	 * Records a loss for the given player with the given fighter, incrementing
+	 * only the battle count.
+	 *
+	 * @param id		The id of the fighter.
+	 * @param player	The player who lost.
+	 */
+	public void recordLoss(int id, int player) {
+		adjust(id, player, 0, 1);
+	}
+	
+	/**
+	 * Removes a win for the given player with the given fighter, decrementing
+	 * both the win and battle counts.
+	 *
+	 * @param id		The id of the fighter.
+	 * @param player	The player whose win is being removed.
+	 */
+	public void removeWin(int id, int player) {
+		adjust(id, player, -1, -1);
+	}
+	
+	/**
+	 * Removes a loss for the given player with the given fighter,
+	 * decrementing only the battle count.
+	 *
+	 * @param id		The id of the fighter.
+	 * @param player	The player whose loss is being removed.
+	 */
+	public void removeLoss(int id, int player) {
+		adjust(id, player, 0, -1);
+	}
+	
+	/**
+	 * Changes the counts for the given fighter and player, along with the
+	 * running totals, and then notifies any listeners.
+	 *
+	 * @param id			The id of the fighter.
+	 * @param player		The player.
+	 * @param winDelta		The amount to change the win count by.
+	 * @param battleDelta	The amount to change the battle count by.
+	 */
+	private void adjust(int id, int player, int winDelta, int battleDelta) {
+		int index = id * NUM_PLAYERS + player;
+		
+		wins[index] += winDelta;
+		battles[index] += battleDelta;
+		
+		fighterWins[id] += winDelta;
+		fighterBattles[id] += battleDelta;
+		playerWins[player] += winDelta;
+		playerBattles[player] += battleDelta;
+		
+		for(int at = 0; at < listeners.size(); at++) {
+			listeners.get(at).statsChanged(this, id, player);
+		}
+	}
+
+}
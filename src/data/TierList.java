@@ -1,21 +1,16 @@
 package data;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
 
 import exception.BooleanSettingParseException;
 import exception.BooleanSettingParseException.BooleanSetting;
@@ -25,6 +20,9 @@ import exception.ListSettingParseException;
 import exception.ListSettingParseException.ListSetting;
 import exception.NoValidFightersException;
 import exception.TierListParseException;
+import util.LogLevel;
+import util.Logger;
+import util.RandomSource;
 import util.Util;
 
 /**
@@ -39,6 +37,11 @@ import util.Util;
  * Additionally, the <code>TierList</code> is responsible for generating
  * battles. It will internally keep track of the "Cannot Get" system and
  * use the settings data it contains to generate a battle.
+ * <br><br>
+ * Battles are generated on a background thread, so every public method is
+ * synchronized. Anything that changes the tier list, or reads more than
+ * one piece of it at a time, sees it either before or after a battle is
+ * generated, never partway through.
  * 
  * @author Jordan Knapp
  */
@@ -48,69 +51,157 @@ public class TierList {
 	 * The number of tiers -- we use tiers SS through F, each subdivided 
 	 * into three subtiers, so there are 24 total.
 	 */
-	private static final int NUM_TIERS = 24;
+	static final int NUM_TIERS = 24;
+	
+	/**
+	 * The number of times to try generating a battle before giving up, when
+	 * a try fails because a player has no fighters in the chosen tier range.
+	 * Only tiers whose range has a different fighter for every player are
+	 * chosen, and no fighter a later player needs is taken, so this
+	 * shouldn't happen at all.
+	 */
+	public static final int MAX_TRIES = 100;
+	
+	/**
+	 * The number of times to draw the fighter that decides the tier range
+	 * before working out exactly which fighters can. See
+	 * <code>pickDecider()</code>.
+	 */
+	private static final int DECIDER_DRAWS = 8;
 	
 	//Tier list data, including a variety of ways to access the tier list
-	//itself, either by tier or by name. Names are stored in a set to
-	//ensure uniqueness. There is also a HashMap, which maps lowercase names
-	//to the fighter object. this should make it easy to locate a fighter
-	//by name.
+	//itself, either by tier, by id, or by name. every fighter is given a
+	//dense id when it's added, which is its index into the fighters array.
+	//each tier is an array of the ids of the fighters in it, in the order
+	//they were added. Names are stored in a set to ensure uniqueness. There
+	//is also a HashMap, which maps lowercase names to the fighter object.
+	//this should make it easy to locate a fighter by name.
+	
+	private Fighter[] fighters;
+	private int numFighters;
+	
+	private int[][] tierMembers;
+	private int[] tierSizes;
 	
-	private List<List<Fighter>> tierList;
 	private Set<String> fighterNames;
 	private HashMap<String, Fighter> lowercaseNames;
 	
-	private List<Set<Fighter>> exclusionList;
-	private List<Set<Fighter>> favoriteList;
+	//other names fighters can be found by, from the tier list file, and an
+	//index of every name and alias for searches that aren't exact
+	private HashMap<String, Fighter> lowercaseAliases;
+	private FighterSearchIndex searchIndex;
+	
+	//exclusion and favorite lists are kept as a set of fighter ids for
+	//each player
+	private BitSet[] exclusions;
+	private BitSet[] favorites;
+	
+	private CannotGetQueue cannotGet;
+	private List<CannotGetQueue> individualCannotGet;
+	
+	//tracks which fighters each player can currently get, so generating a
+	//battle doesn't have to check every fighter against every queue
+	private EligibilityIndex eligibility;
+	
+	//the fighters each player could get in each tier range, weighted, and
+	//only rebuilt when the player's eligibility or stats change
+	private CandidateWindows candidateWindows;
+	
+	//which tier ranges each player can decide the range with. there's only
+	//one, which is reset for every battle
+	private TierWindows tierWindows;
+	
+	//the fighters in order for every way they can be sorted, kept up to
+	//date as stats change so sorting doesn't have to sort anything
+	private Leaderboards leaderboards;
+	
+	//stats for every fighter, stored by id. also keeps running totals, so
+	//the number of battles per player doesn't need to be recalculated every
+	//time a battle is generated
+	private StatsTable statsTable;
 	
-	private Queue<Fighter> cannotGet;
-	private List<Queue<Fighter>> individualCannotGet;
+	//keeps a copy of the stats on disk as they change, in case the program
+	//doesn't get to save them when it closes. null until a file is loaded
+	private MappedStatsFile liveStats;
 	
-	private int[] numBattlesPerPlayer;
+	//records every battle, swap, and winner, so a session that doesn't close
+	//properly can be replayed. null until a file is loaded, or if the
+	//journal can't be written to
+	private BattleJournal journal;
 	
-	private HashMap<String, double[]> stats;
+	//copies made to simulate sessions don't log anything, so simulating
+	//thousands of sessions doesn't bury the real log
+	private boolean logging;
+	
+	//where every random pick comes from. seeded, so a session can be
+	//generated again exactly, and only used while synchronized
+	private RandomSource random;
+	
+	private HashMap<String, int[]> stats;
 	
 	/**
 	 * Constructs an empty <code>TierList</code> with the following default
 	 * parameters:
 	 * <ul>
 	 * 	<li>The tier list itself will be empty. The internal data structures
-	 * 		will consist of a <code>List</code> containing <b><i><code>NUM_TIERS</code></b></i>
-	 * 		empty <code>List</code>s of <code>Fighter</code>s, while the
-	 * 		<code>fighterNames</code> set and <code>lowercaseNames</code>
+	 * 		will consist of an empty array of <code>Fighter</code>s and
+	 * 		<b><i><code>NUM_TIERS</code></b></i> empty arrays of fighter ids,
+	 * 		while the <code>fighterNames</code> set and <code>lowercaseNames</code>
 	 * 		map will also be empty.</li>
 	 *	<li>The exclusion and favorites lists will be initialized with empty
-	 *		lists for all 8 players.</li>
+	 *		sets for all 8 players.</li>
 	 *	<li>The global cannot get queue will be empty, while the individual
 	 *		cannot get queue will be initialized to empty for all 8 players.</li>
 	 * </ul>
 	 */
 	public TierList() {
-		tierList = new ArrayList<List<Fighter>>();
+		fighters = new Fighter[16];
+		numFighters = 0;
+		
+		tierMembers = new int[NUM_TIERS][];
+		tierSizes = new int[NUM_TIERS];
+		
 		fighterNames = new HashSet<String>();
 		lowercaseNames = new HashMap<String, Fighter>();
 		
-		exclusionList = new ArrayList<Set<Fighter>>();
-		favoriteList = new ArrayList<Set<Fighter>>();
+		lowercaseAliases = new HashMap<String, Fighter>();
+		searchIndex = new FighterSearchIndex();
 		
-		cannotGet = new ArrayDeque<Fighter>();
-		individualCannotGet = new ArrayList<Queue<Fighter>>();
+		exclusions = new BitSet[8];
+		favorites = new BitSet[8];
+		
+		cannotGet = new CannotGetQueue();
+		individualCannotGet = new ArrayList<CannotGetQueue>();
+		
+		eligibility = new EligibilityIndex(NUM_TIERS, 8);
+		
+		random = new RandomSource();
 		
 		//initialize a tier array for every tier
 		for(int at = 0; at < NUM_TIERS; at++) {
-			tierList.add(new ArrayList<Fighter>());
+			tierMembers[at] = new int[4];
 		}
 		
 		//initialize an exclusion/favorite set for every player, and an
 		//entry in the individual cannot get
 		for(int at = 0; at < 8; at++) {
-			exclusionList.add(new HashSet<Fighter>());
-			favoriteList.add(new HashSet<Fighter>());
+			exclusions[at] = new BitSet();
+			favorites[at] = new BitSet();
 			
-			individualCannotGet.add(new ArrayDeque<Fighter>());
+			individualCannotGet.add(new CannotGetQueue());
 		}
 		
-		numBattlesPerPlayer = new int[] {0, 0, 0, 0, 0, 0, 0, 0};
+		statsTable = new StatsTable();
+		
+		candidateWindows = new CandidateWindows(8);
+		statsTable.addListener(candidateWindows);
+		
+		tierWindows = new TierWindows(8);
+		
+		leaderboards = new Leaderboards(statsTable);
+		statsTable.addListener(leaderboards);
+		
+		logging = true;
 	}
 	
 	/**
@@ -125,11 +216,40 @@ public class TierList {
 	 * @throws TierListParseException	Thrown if there are any issues
 	 * 									parsing the tier list, such as
 	 * 									invalid settings values.
-	 * @throws ClassNotFoundException	Thrown if the stats file loaded does
-	 * 									not contain a valid <code>HashMap</code>
+	 * @throws ClassNotFoundException	Thrown if a legacy stats file is
+	 * 									being imported, and it does not
+	 * 									contain a valid <code>HashMap</code>
 	 * 									object.
 	 */
-	public Settings loadFile(File file) throws FileNotFoundException, IOException, TierListParseException, ClassNotFoundException {
+	public synchronized Settings loadFile(File file) throws FileNotFoundException, IOException, TierListParseException, ClassNotFoundException {
+		return loadFile(file, true);
+	}
+	
+	/**
+	 * Construct a <code>TierList</code> using data from the given file,
+	 * optionally without recording anything. When not recording, the stats
+	 * file is only read, to weight the fighters, and nothing is recovered
+	 * from a session that didn't close properly. No live stats file or
+	 * journal is kept, so battles and winners only change the stats in
+	 * memory, and <code>saveStats()</code> should not be called. This is
+	 * how battles are generated in batch mode.
+	 * 
+	 * @param file		The <code>File</code> from which to load data.
+	 * @param recording	Whether the session should be recorded, as in
+	 * 					<code>loadFile(File)</code>.
+	 * 
+	 * @throws FileNotFoundException	Thrown if the file given does not exist.
+	 * @throws IOException				Thrown if there are errors while
+	 * 									loading the file, such as duplicate
+	 * 									fighters.
+	 * @throws TierListParseException	Thrown if there are any issues
+	 * 									parsing the tier list, such as
+	 * 									invalid settings values.
+	 * @throws ClassNotFoundException	Thrown if a legacy stats file is
+	 * 									being read, and it does not contain a
+	 * 									valid <code>HashMap</code> object.
+	 */
+	public synchronized Settings loadFile(File file, boolean recording) throws FileNotFoundException, IOException, TierListParseException, ClassNotFoundException {
 		//settings variables that will be used to instantiate the Settings
 		//object returned by this method, initialized with default values
 		int numPlayers = 2;
@@ -139,8 +259,55 @@ public class TierList {
 		boolean allowSInCannotGet = false;
 		boolean allowSSInCannotGet = true;
 		
-		//try to load stats file first
-		stats = loadStats();
+		//try to load stats file first. if we're not recording, a legacy file
+		//is read without being imported
+		if(recording) {
+			stats = StatsFile.load(new File("."));
+		}
+		else if(new File(StatsFile.FILE_NAME).exists()) {
+			stats = StatsFile.read(new File(StatsFile.FILE_NAME));
+		}
+		else if(new File(StatsFile.LEGACY_FILE_NAME).exists()) {
+			stats = StatsFile.readLegacy(new File(StatsFile.LEGACY_FILE_NAME));
+		}
+		
+		if(stats == null) {
+			stats = new HashMap<String, int[]>();
+		}
+		
+		//anything in the journal past the point the stats file is up to date
+		//with belongs to a session that didn't close properly. replay it on
+		//a copy of the stats, so it can be compared with the live stats file
+		List<BattleJournal.Entry> journalTail = recording ? readJournalTail() :
+				new ArrayList<BattleJournal.Entry>();
+		HashMap<String, int[]> replayed = null;
+		if(!journalTail.isEmpty()) {
+			replayed = new HashMap<String, int[]>(stats.size() * 2);
+			for(String nameAt: stats.keySet()) {
+				replayed.put(nameAt, stats.get(nameAt).clone());
+			}
+			
+			BattleJournal.replayStats(journalTail, replayed);
+		}
+		
+		//if the last session didn't close properly, its results are also in
+		//the live stats file, and they're newer than what's in the stats file
+		HashMap<String, int[]> recovered = recording ?
+				MappedStatsFile.recover(new File(MappedStatsFile.FILE_NAME)) : null;
+		
+		//both can only fall behind, by whatever hadn't been written to disk
+		//yet, so use whichever one has more battles in it
+		if(replayed != null && (recovered == null ||
+				totalBattles(replayed, recovered.keySet()) >= totalBattles(recovered, recovered.keySet()))) {
+			stats = replayed;
+			Logger.info("Replayed " + journalTail.size() + " journal entries from a session " +
+					"that did not close properly.");
+		}
+		else if(recovered != null) {
+			stats.putAll(recovered);
+			Logger.info("Recovered stats for " + recovered.size() + " fighters from a session " +
+					"that did not close properly.");
+		}
 		
 		//file structure is as follows:
 		//
@@ -169,238 +336,147 @@ public class TierList {
 		//mid f				22
 		//lower f			23
 		
-		BufferedReader in = new BufferedReader(new FileReader(file));
-		
-		//read the first line and keep reading while lines exist
-		String lineAt = in.readLine();
-		int lineNumber = 0;
-		while(lineAt != null) {
-			//increment current line number
-			lineNumber++;
-			
-			//scroll through the chars in the read line. if one is an equals,
-			//then check for which tier/setting it is
-			String next = "";
-			boolean foundEqual = false;
-			for(char at: lineAt.toCharArray()) {
-				next += at;
-				
-				if(at == '=') {
-					foundEqual = true;
-					break;
-				}
-			}
-			
-			//if we didn't find an equals sign at this point, we can skip the line
-			if(!foundEqual) {
-				lineAt = in.readLine();
-				continue;
-			}
-			
-			//remove space before equals sign and make sure it's all lowercase
-			next = next.substring(0, next.length() - 2);
-			next = next.toLowerCase();
-			int posInLine = next.length() + 1;
+		//the parser reads the whole file up front, and then gives us each
+		//line that has an equals sign in it
+		TierListParser parser = new TierListParser(file);
+		
+		while(parser.next()) {
+			String key = parser.getKey();
 			
 			//if we're parsing exclusion lists, get the second character of
-			//the string, that's going to be the player number. be sure to
+			//the key, that's going to be the player number. be sure to
 			//subtract 1 to get the proper index
-			if(next.contains("exclude")) {
-				readExclude(Character.getNumericValue(next.charAt(1)) - 1, posInLine, lineAt);
+			if(key.contains("exclude")) {
+				readExclude(readPlayer(parser), parser);
 			}
 			//same thing for favorite lists
-			else if(next.contains("favorite")) {
-				readFavorite(Character.getNumericValue(next.charAt(1)) - 1, posInLine, lineAt);
+			else if(key.contains("favorite")) {
+				readFavorite(readPlayer(parser), parser);
+			}
+			//a fighter, followed by the other names it can be found by
+			else if(key.equals("aliases")) {
+				readAliases(parser);
 			}
 			//if this is a valid tier, process it
-			else if(Util.stringToTier(next) != -1) {
-				readTier(Util.stringToTier(next), posInLine, lineAt);
+			else if(Util.stringToTier(key) != -1) {
+				readTier(Util.stringToTier(key), parser);
 			}
 			//otherwise, we can assume that we're reading settings. we want
 			//to do all that in this method, because we have these settings
 			//variables and we want to return a Settings object
 			else {
 				//some basic setup used for all settings
-				String toRead = lineAt.substring(posInLine + 2).toLowerCase();
-				String[] currentLine = toRead.split(",\\s*");
+				String toRead = parser.getValue().toLowerCase();
+				int lineNumber = parser.getLineNumber();
+				int column = parser.getValueColumn();
 				
 				//check for each setting. basically, for each settings, we're
 				//setting up an error message to be thrown in case the input
 				//is invalid, then we parse the given value, make sure it's
 				//valid, and then we're good to go
-				if(next.equals("cannot get size")) {
+				if(key.equals("cannot get size")) {
 					try {
 						cannotGetSize = Integer.parseInt(toRead);
 					} catch(NumberFormatException e) {
-						in.close();
-						throw new IntegerSettingParseException(toRead, lineNumber,
+						throw new IntegerSettingParseException(toRead, lineNumber, column,
 								0, Util.CANNOT_GET_MAX, IntegerSetting.CANNOT_GET_SIZE, e);
 					}
 					
 					if(cannotGetSize < 0 || cannotGetSize > Util.CANNOT_GET_MAX) {
-						in.close();
-						throw new IntegerSettingParseException(toRead, lineNumber,
+						throw new IntegerSettingParseException(toRead, lineNumber, column,
 								0, Util.CANNOT_GET_MAX, IntegerSetting.CANNOT_GET_SIZE);
 					}
 				}
-				else if(next.equals("allow ss in cannot get")) {
-					try {
-						if(toRead.equals("true")) {
-							allowSSInCannotGet = true;
-						}
-						else if(toRead.equals("false")) {
-							allowSSInCannotGet = false;
-						}
-						else if(Integer.parseInt(toRead) == 1) {
-							allowSSInCannotGet = true;
-						}
-						else if(Integer.parseInt(toRead) == 0) {
-							allowSSInCannotGet = false;
-						}
-						else {
-							in.close();
-							throw new BooleanSettingParseException(toRead, lineNumber,
-									BooleanSetting.ALLOW_SS);
-						}
-					} catch(NumberFormatException e) {
-						in.close();
-						throw new BooleanSettingParseException(toRead, lineNumber,
-								BooleanSetting.ALLOW_SS, e);
-					}
+				else if(key.equals("allow ss in cannot get")) {
+					allowSSInCannotGet = readBoolean(parser, BooleanSetting.ALLOW_SS);
 				}
-				else if(next.equals("allow s in cannot get")) {					
-					try {
-						if(toRead.equals("true")) {
-							allowSInCannotGet = true;
-						}
-						else if(toRead.equals("false")) {
-							allowSInCannotGet = false;
-						}
-						else if(Integer.parseInt(toRead) == 1) {
-							allowSInCannotGet = true;
-						}
-						else if(Integer.parseInt(toRead) == 0) {
-							allowSInCannotGet = false;
-						}
-						else {
-							in.close();
-							throw new BooleanSettingParseException(toRead, lineNumber,
-									BooleanSetting.ALLOW_S);
-						}
-					} catch(NumberFormatException e) {
-						in.close();
-						throw new BooleanSettingParseException(toRead, lineNumber,
-								BooleanSetting.ALLOW_S, e);
-					}
+				else if(key.equals("allow s in cannot get")) {
+					allowSInCannotGet = readBoolean(parser, BooleanSetting.ALLOW_S);
 				}
-				else if(next.equals("players")) {					
+				else if(key.equals("players")) {
 					try {
 						numPlayers = Integer.parseInt(toRead);
 					} catch(NumberFormatException e) {
-						in.close();
-						throw new IntegerSettingParseException(toRead, lineNumber,
+						throw new IntegerSettingParseException(toRead, lineNumber, column,
 								0, 8, IntegerSetting.NUM_PLAYERS, e);
 					}
 					
 					if(numPlayers < 2 || numPlayers > 8) {
-						in.close();
-						throw new IntegerSettingParseException(toRead, lineNumber,
+						throw new IntegerSettingParseException(toRead, lineNumber, column,
 								0, 8, IntegerSetting.NUM_PLAYERS);
 					}
 				}
-				else if(next.equals("tier chances")) {				
-					if(currentLine.length != 8) {
-						in.close();
-						throw new ListSettingParseException(Arrays.toString(currentLine),
-								lineNumber, 8, ListSetting.TIER_CHANCES);
-					}
-					
-					try {
-						for(int at = 0; at < 8; at++) {
-							tierChances[at] = Integer.parseInt(currentLine[at]);
-							
-							if(tierChances[at] < 0 || tierChances[at] > 100) {
-								in.close();
-								throw new ListSettingParseException(Arrays.toString(currentLine),
-										lineNumber, 8, ListSetting.TIER_CHANCES);
-							}
-						}
-					} catch(NumberFormatException e) {
-						in.close();
-						throw new ListSettingParseException(Arrays.toString(currentLine),
-								lineNumber, 8, ListSetting.TIER_CHANCES, e);
-					}
+				else if(key.equals("tier chances")) {
+					readChances(parser, tierChances, ListSetting.TIER_CHANCES);
 				}
-				else if(next.equals("bump chances")) {					
-					if(currentLine.length != 3) {
-						in.close();
-						throw new ListSettingParseException(Arrays.toString(currentLine),
-								lineNumber, 8, ListSetting.BUMP_CHANCES);
-					}
-					
-					try {
-						for(int at = 0; at < 3; at++) {
-							bumpChances[at] = Integer.parseInt(currentLine[at]);
-							
-							if(tierChances[at] < 0 || tierChances[at] > 100) {
-								in.close();
-								throw new ListSettingParseException(Arrays.toString(currentLine),
-										lineNumber, 8, ListSetting.TIER_CHANCES);
-							}
-						}
-					} catch(NumberFormatException e) {
-						in.close();
-						throw new ListSettingParseException(Arrays.toString(currentLine),
-								lineNumber, 8, ListSetting.BUMP_CHANCES, e);
-					}
+				else if(key.equals("bump chances")) {
+					readChances(parser, bumpChances, ListSetting.BUMP_CHANCES);
 				}
 			}
-			
-			lineAt = in.readLine();
 		}
 		
-		in.close();
+		Settings settings = new Settings(numPlayers, tierChances, bumpChances,
+				cannotGetSize, allowSInCannotGet, allowSSInCannotGet);
 		
-		//we want to fill out the number of battles per player. we keep it in
-		//an array as part of the TierList class so it doesn't need to be
-		//recalculated every time a battle is generated
-		for(List<Fighter> tierAt: tierList) {
-			for(Fighter fighterAt: tierAt) {
-				for(int playerAt = 0; playerAt < 8; playerAt++) {
-					numBattlesPerPlayer[playerAt] += fighterAt.getPlayerBattles(playerAt);
-				}
+		if(!recording) {
+			return settings;
+		}
+		
+		//now that every fighter has been added, start keeping the live stats
+		//file up to date. if that doesn't work, we can still go on, the stats
+		//just won't be saved until the program closes
+		String[] names = new String[numFighters];
+		for(int idAt = 0; idAt < numFighters; idAt++) {
+			names[idAt] = fighters[idAt].getName();
+		}
+		
+		try {
+			liveStats = MappedStatsFile.create(new File(MappedStatsFile.FILE_NAME), names, statsTable);
+			statsTable.addListener(liveStats);
+		} catch(IOException e) {
+			Logger.error(e);
+			Logger.warning("Could not create the live stats file, so stats will only be " +
+					"saved when the program closes.");
+		}
+		
+		//pick the unfinished session back up where it left off, including
+		//its cannot get queues. otherwise, this is a new session
+		if(!journalTail.isEmpty()) {
+			replayCannotGet(journalTail);
+		}
+		
+		try {
+			journal = BattleJournal.open(new File(BattleJournal.FILE_NAME),
+					StatsFile.readJournalPosition(new File(StatsFile.FILE_NAME)));
+			
+			if(journalTail.isEmpty()) {
+				journal.recordSession();
 			}
+		} catch(IOException e) {
+			journalFailed(e);
 		}
 		
-		return new Settings(numPlayers, tierChances, bumpChances,
-				cannotGetSize, allowSInCannotGet, allowSSInCannotGet);
+		//logged so the battles from here on can be generated again, by
+		//loading the same files with the smash.seed property set to it
+		random = RandomSource.fromProperty();
+		Logger.info("Generating battles with the seed " + random.getSeed() + ".");
+		
+		return settings;
 	}
 	
 	/**
-	 * Reads the given line and creates <code>Fighter</code> objects to add
-	 * to the specified tier in the tier list.
+	 * Reads the fighters in the parser's current line and creates
+	 * <code>Fighter</code> objects to add to the specified tier in the tier
+	 * list.
 	 * 
 	 * @param tier		The tier index being added to.
-	 * @param startAt	The index at which data begins in <code>line</code>.
-	 * 					The name of the tier (i.e. "Upper Double S = ") will
-	 * 					be given before the relevant data, so this value
-	 * 					allows us to skip that information.
-	 * @param line		The full line read from the file.
-	 */
-	private void readTier(int tier, int startAt, String line) {
-		//converts the comma-separated line into an array of strings. first
-		//we get the substring from character index 2, to skip over the
-		//equals and space. then we split on commas with optional spaces,
-		//giving us an array
-		String[] currentLine = line.substring(startAt + 2).split(",\\s*");
-		
+	 * @param parser	The parser, positioned at the line for this tier.
+	 */
+	private void readTier(int tier, TierListParser parser) {
 		//go through the fighters and add them. duplicates will be ignored
-		//automatically by addFighter()
-		for(String fighterAt: currentLine) {
-			//skip blank ones
-			if(fighterAt.equals("")) {
-				continue;
-			}
+		//automatically by addFighter(). the parser already skips blank ones
+		for(int itemAt = 0; itemAt < parser.numItems(); itemAt++) {
+			String fighterAt = parser.getItem(itemAt);
 			
 			//if we have no stats file loaded or this fighter isn't present
 			//in the stats data, create a fighter with no stats data
@@ -417,130 +493,250 @@ public class TierList {
 	}
 	
 	/**
-	 * Reads the given line and inserts the fighters into the specified
-	 * player's exclusion list.
+	 * Reads the fighters in the parser's current line and inserts them into
+	 * the specified player's exclusion list.
 	 * 
 	 * @param player		The player having their exclusion list set.
-	 * @param startAt		The index at which data beings in <code>line</code>.
-	 * 						See javadoc for <code>readTier()</code> for full
-	 * 						explanation.
-	 * @param line			The full line read from the file.
+	 * @param parser		The parser, positioned at the line for this
+	 * 						exclusion list.
 	 * 
 	 * @throws IOException	Thrown if a read fighter was not found in the
 	 * 						tier list.
 	 */
-	private void readExclude(int player, int startAt, String line) throws IOException {
-		String[] currentLine = line.substring(startAt + 2).split(",\\s*");
-		
-		for(String fighterAt: currentLine) {
-			//skip blank ones
-			if(fighterAt.equals("")) {
-				continue;
-			}
+	private void readExclude(int player, TierListParser parser) throws IOException {
+		for(int itemAt = 0; itemAt < parser.numItems(); itemAt++) {
+			Fighter toAdd = findListedFighter(parser, itemAt, player, "exclusion");
 			
-			Fighter toAdd = getFighter(fighterAt);
-			
-			if(toAdd == null) {
-				throw new IOException("Fighter with name " + fighterAt +
-						" was added to player " + (player + 1) + "'s " +
-						"exclusion list, but no fighter with that name " +
-						"was defined beforehand.");
+			if(!exclusions[player].get(toAdd.getId())) {
+				exclusions[player].set(toAdd.getId());
+				eligibility.block(player, toAdd);
 			}
-			
-			exclusionList.get(player).add(toAdd);
 		}
 	}
 	
 	/**
-	 * Reads the given line and inserts the fighters into the specified
-	 * player's favorite list.
+	 * Reads the fighters in the parser's current line and inserts them into
+	 * the specified player's favorite list.
 	 * 
 	 * @param player		The player having their favorite list set.
-	 * @param startAt		The index at which data beings in <code>line</code>.
-	 * 						See javadoc for <code>readTier()</code> for full
-	 * 						explanation.
-	 * @param line			The full line read from the file.
+	 * @param parser		The parser, positioned at the line for this
+	 * 						favorite list.
 	 * 
 	 * @throws IOException	Thrown if a read fighter was not found in the
 	 * 						tier list.
 	 */
-	private void readFavorite(int player, int startAt, String line) throws IOException {
-		String[] currentLine = line.substring(startAt + 2).split(",\\s*");
+	private void readFavorite(int player, TierListParser parser) throws IOException {
+		for(int itemAt = 0; itemAt < parser.numItems(); itemAt++) {
+			favorites[player].set(findListedFighter(parser, itemAt, player, "favorite").getId());
+		}
+	}
+	
+	/**
+	 * Reads the fighter in the parser's current line, followed by the
+	 * aliases to give it.
+	 * 
+	 * @param parser		The parser, positioned at the line for the
+	 * 						aliases.
+	 * 
+	 * @throws IOException	Thrown if the fighter was not found in the tier
+	 * 						list, or an alias is already the name or alias
+	 * 						of a fighter.
+	 */
+	private void readAliases(TierListParser parser) throws IOException {
+		if(parser.numItems() == 0) {
+			return;
+		}
 		
-		for(String fighterAt: currentLine) {
-			//skip blank ones
-			if(fighterAt.equals("")) {
-				continue;
+		Fighter fighter = getFighter(parser.getItem(0));
+		
+		if(fighter == null) {
+			throw new IOException("Line " + parser.getLineNumber() + ", column " +
+					parser.getItemColumn(0) + ": Aliases were given for " + parser.getItem(0) +
+					", but no fighter with that name was defined beforehand.");
+		}
+		
+		for(int itemAt = 1; itemAt < parser.numItems(); itemAt++) {
+			if(!addAlias(fighter, parser.getItem(itemAt))) {
+				throw new IOException("Line " + parser.getLineNumber() + ", column " +
+						parser.getItemColumn(itemAt) + ": " + parser.getItem(itemAt) +
+						" was given as an alias for " + fighter.getName() + ", but it's " +
+						"already the name or alias of a fighter.");
 			}
-			
-			Fighter toAdd = getFighter(fighterAt);
-			
-			if(toAdd == null) {
-				throw new IOException("Fighter with name " + fighterAt +
-						" was added to player " + (player + 1) + "'s " +
-						"favorite list, but no fighter with that name " +
-						"was defined beforehand.");
+		}
+	}
+	
+	/**
+	 * Looks up a fighter named in an exclusion or favorite list.
+	 * 
+	 * @param parser	The parser, positioned at the line for the list.
+	 * @param itemAt	The index of the fighter in the list.
+	 * @param player	The player whose list it is.
+	 * @param listName	The name of the list, used in the error message.
+	 * @return			The <code>Fighter</code> with that name.
+	 * 
+	 * @throws IOException	Thrown if the fighter was not found in the tier
+	 * 						list.
+	 */
+	private Fighter findListedFighter(TierListParser parser, int itemAt, int player, String listName) throws IOException {
+		String fighterAt = parser.getItem(itemAt);
+		Fighter found = getFighter(fighterAt);
+		
+		if(found == null) {
+			throw new IOException("Line " + parser.getLineNumber() + ", column " +
+					parser.getItemColumn(itemAt) + ": Fighter with name " + fighterAt +
+					" was added to player " + (player + 1) + "'s " + listName +
+					" list, but no fighter with that name was defined beforehand.");
+		}
+		
+		return found;
+	}
+	
+	/**
+	 * Reads the player number from the key of an exclusion or favorite list,
+	 * i.e. the 2 in "p2 exclude".
+	 * 
+	 * @param parser	The parser, positioned at the line for the list.
+	 * @return			The index of the player.
+	 * 
+	 * @throws IOException	Thrown if the key doesn't have a player number
+	 * 						between 1 and 8.
+	 */
+	private int readPlayer(TierListParser parser) throws IOException {
+		String key = parser.getKey();
+		int player = key.length() > 1 ? Character.getNumericValue(key.charAt(1)) - 1 : -1;
+		
+		if(player < 0 || player >= 8) {
+			throw new IOException("Line " + parser.getLineNumber() + ", column " +
+					parser.getKeyColumn() + ": \"" + key + "\" does not start with a " +
+					"player number between 1 and 8, such as \"p1\".");
+		}
+		
+		return player;
+	}
+	
+	/**
+	 * Reads a boolean setting from the parser's current line. The value can
+	 * be "true", "false", "1", or "0".
+	 * 
+	 * @param parser	The parser, positioned at the line for the setting.
+	 * @param setting	Which setting is being read, used in the error
+	 * 					message.
+	 * @return			The value of the setting.
+	 * 
+	 * @throws BooleanSettingParseException	Thrown if the value is not one
+	 * 										of the values listed above.
+	 */
+	private boolean readBoolean(TierListParser parser, BooleanSetting setting) throws BooleanSettingParseException {
+		String toRead = parser.getValue().toLowerCase();
+		
+		if(toRead.equals("true") || toRead.equals("1")) {
+			return true;
+		}
+		else if(toRead.equals("false") || toRead.equals("0")) {
+			return false;
+		}
+		
+		throw new BooleanSettingParseException(toRead, parser.getLineNumber(),
+				parser.getValueColumn(), setting);
+	}
+	
+	/**
+	 * Reads a list of chances from the parser's current line into the given
+	 * array. There must be exactly as many values as the array has room
+	 * for, and each must be between 0 and 100.
+	 * 
+	 * @param parser	The parser, positioned at the line for the setting.
+	 * @param chances	The array to read the values into.
+	 * @param setting	Which setting is being read, used in the error
+	 * 					message.
+	 * 
+	 * @throws ListSettingParseException	Thrown if there are the wrong
+	 * 										number of values, or any value is
+	 * 										not a number between 0 and 100.
+	 */
+	private void readChances(TierListParser parser, int[] chances, ListSetting setting) throws ListSettingParseException {
+		if(parser.numItems() != chances.length) {
+			throw new ListSettingParseException(parser.itemsToString(), parser.getLineNumber(),
+					parser.getValueColumn(), chances.length, setting);
+		}
+		
+		for(int at = 0; at < chances.length; at++) {
+			try {
+				chances[at] = Integer.parseInt(parser.getItem(at));
+			} catch(NumberFormatException e) {
+				throw new ListSettingParseException(parser.itemsToString(), parser.getLineNumber(),
+						parser.getItemColumn(at), chances.length, setting, e);
 			}
 			
-			favoriteList.get(player).add(toAdd);
+			if(chances[at] < 0 || chances[at] > 100) {
+				throw new ListSettingParseException(parser.itemsToString(), parser.getLineNumber(),
+						parser.getItemColumn(at), chances.length, setting);
+			}
 		}
 	}
 	
 	/**
 	 * Adds the specified <code>Fighter</code> to the tier list, if a fighter
-	 * with the same name doesn't already exist in the tier list.
+	 * with the same name doesn't already exist in the tier list. The fighter
+	 * is given the next available id.
 	 * 
 	 * @param toAdd	The <code>Fighter</code> to add.
 	 * @return		<code>true</code> if the fighter is added successfully,
 	 * 				<code>false</code> if it is not (i.e. a fighter with the
 	 * 				same name is already in the tier list).
 	 */
-	public boolean addFighter(Fighter toAdd) {
+	public synchronized boolean addFighter(Fighter toAdd) {
 		if(contains(toAdd)) {
 			return false;
 		}
 		
-		tierList.get(toAdd.getTier()).add(toAdd);
+		int id = numFighters;
+		toAdd.setId(id);
+		toAdd.attach(statsTable);
+		
+		if(id == fighters.length) {
+			fighters = Arrays.copyOf(fighters, id * 2);
+		}
+		
+		fighters[id] = toAdd;
+		numFighters++;
+		
+		int tier = toAdd.getTier();
+		if(tierSizes[tier] == tierMembers[tier].length) {
+			tierMembers[tier] = Arrays.copyOf(tierMembers[tier], tierSizes[tier] * 2);
+		}
+		
+		tierMembers[tier][tierSizes[tier]++] = id;
+		
 		fighterNames.add(toAdd.getName());
 		lowercaseNames.put(toAdd.getName().toLowerCase(), toAdd);
+		searchIndex.addFighter(id, toAdd.getName());
+		eligibility.addFighter(toAdd);
+		
+		//the new fighter's stats count towards its players' totals, which
+		//every fighter's weight depends on
+		candidateWindows.clear();
+		
+		//the new fighter may come before others in the tier list, which is
+		//what ties on the leaderboards are broken by
+		leaderboards.clear();
 		
 		return true;
 	}
 	
 	/**
-	 * Attemps to load a file called "smash stats.sel" and store its data in
-	 * a <code>HashMap</code> object that maps <code>String</code>s to an
-	 * array of doubles.
-	 * 
-	 * @return	The <code>HashMap</code> containing loaded stats data.
-	 * 			<code>null</code> will be returned if the file is not found.
-	 * 
-	 * @throws IOException				Thrown if there are errors loading
-	 * 									the file.
-	 * @throws ClassNotFoundException	Thrown if the file does not contain
-	 * 									a valid <code>HashMap</code> file.
+	 * @return	The number of fighters in the tier list.
 	 */
-	@SuppressWarnings("unchecked")
-	private HashMap<String, double[]> loadStats() throws IOException, ClassNotFoundException {
-		File statsFile = new File("smash stats.sel");
-		
-		//do nothing if the file doesn't exist
-		if(!statsFile.exists()) {
-			return null;
-		}
-		
-		ObjectInputStream ois = new ObjectInputStream(new FileInputStream(statsFile));
-		HashMap<String, double[]> stats = (HashMap<String, double[]>) ois.readObject();
-		ois.close();
-		
-		return stats;
+	public synchronized int numFighters() {
+		return numFighters;
 	}
 	
 	/**
-	 * @return	The number of fighters in the tier list.
+	 * @param tier	A tier, from 0 (upper double s) to 23 (lower f).
+	 * @return		The number of fighters in that tier.
 	 */
-	public int numFighters() {
-		return fighterNames.size();
+	public synchronized int getTierSize(int tier) {
+		return tierSizes[tier];
 	}
 	
 	/**
@@ -550,7 +746,7 @@ public class TierList {
 	 * @return			<code>true</code> if the tier list contains that
 	 * 					fighter, <code>false</code> if it does not.
 	 */
-	public boolean contains(Fighter toCheck) {
+	public synchronized boolean contains(Fighter toCheck) {
 		return contains(toCheck.getName());
 	}
 	
@@ -562,20 +758,70 @@ public class TierList {
 	 * 						fighter with that name, <code>false</code> if it
 	 * 						does not.
 	 */
-	public boolean contains(String nameToCheck) {
+	public synchronized boolean contains(String nameToCheck) {
 		return fighterNames.contains(nameToCheck);
 	}
 	
 	/**
-	 * Returns the <code>Fighter</code> object with the given name.
+	 * Returns the <code>Fighter</code> object with the given name, or with
+	 * the given alias. Case is ignored.
 	 * 
 	 * @param name	The name of the fighter to return.
 	 * @return		The <code>Fighter</code> object with the given name, or
 	 * 				<code>null</code> if no fighter with that name is in the
 	 * 				tier list.
 	 */
-	public Fighter getFighter(String name) {
-		return lowercaseNames.get(name.toLowerCase());
+	public synchronized Fighter getFighter(String name) {
+		Fighter found = lowercaseNames.get(name.toLowerCase());
+		
+		if(found == null) {
+			found = lowercaseAliases.get(name.toLowerCase());
+		}
+		
+		return found;
+	}
+	
+	/**
+	 * Gives a fighter another name it can be found by, with
+	 * <code>getFighter()</code> or <code>searchFighters()</code>.
+	 * 
+	 * @param fighter	The fighter, which must be in this tier list.
+	 * @param alias		The other name.
+	 * @return			<code>true</code> if the alias was added,
+	 * 					<code>false</code> if it's already the name or alias
+	 * 					of a fighter.
+	 */
+	public synchronized boolean addAlias(Fighter fighter, String alias) {
+		String lowercase = alias.toLowerCase();
+		
+		if(lowercaseNames.containsKey(lowercase) || lowercaseAliases.containsKey(lowercase)) {
+			return false;
+		}
+		
+		lowercaseAliases.put(lowercase, fighter);
+		searchIndex.addAlias(fighter.getId(), alias);
+		
+		return true;
+	}
+	
+	/**
+	 * Finds the fighters whose names or aliases best match what was typed,
+	 * even if it's only the start of one, or has a few typos. See
+	 * <code>FighterSearchIndex</code> for how they're ranked.
+	 * 
+	 * @param query	What was typed.
+	 * @param limit	The most fighters to find.
+	 * @return		The fighters found, with the best match first.
+	 */
+	public synchronized List<Fighter> searchFighters(String query, int limit) {
+		int[] ids = searchIndex.search(query, limit);
+		
+		List<Fighter> found = new ArrayList<Fighter>(ids.length);
+		for(int id: ids) {
+			found.add(fighters[id]);
+		}
+		
+		return found;
 	}
 	
 	/**
@@ -584,7 +830,7 @@ public class TierList {
 	 * lists.
 	 */
 	@Override
-	public String toString() {
+	public synchronized String toString() {
 		//allocate 1000 characters (will probably end up needing more, but
 		//we'll stave off reallocating for a while)
 		StringBuffer retString = new StringBuffer(1000);
@@ -593,200 +839,1074 @@ public class TierList {
 			String tierAt = Util.tierToString(at);
 			
 			if(at == 0 || at == 2) {
-				retString.append(tierAt + ":\t" + tierList.get(at) + "\n");
+				retString.append(tierAt + ":\t" + namesOf(tierMembers[at], tierSizes[at]) + "\n");
 			}
 			else {
-				retString.append(tierAt + ":\t\t" + tierList.get(at) + "\n");
+				retString.append(tierAt + ":\t\t" + namesOf(tierMembers[at], tierSizes[at]) + "\n");
 			}
 		}
 		
 		for(int at = 0; at < 8; at++) {
-			retString.append("Player " + (at + 1) + " exclude:\t" + exclusionList.get(at) + "\n");
+			retString.append("Player " + (at + 1) + " exclude:\t" + namesOf(exclusions[at]) + "\n");
 		}
 		
 		for(int at = 0; at < 8; at++) {
-			retString.append("Player " + (at + 1) + " favorite:\t" + favoriteList.get(at) + "\n");
+			retString.append("Player " + (at + 1) + " favorite:\t" + namesOf(favorites[at]) + "\n");
 		}
 		
 		return retString.toString();
 	}
 	
 	/**
-	 * Generates a matchup using the given settings data. A <code>Matchup</code>
-	 * containing the fighters for each player will be returned.
+	 * Gets the names of the fighters with the given ids, formatted the same
+	 * way a <code>List</code> of those fighters would be printed.
+	 * 
+	 * @param ids		An array of fighter ids.
+	 * @param length	The number of ids in the array that are in use.
+	 * @return			The names of the fighters, i.e. "[Link, Zelda]".
+	 */
+	private String namesOf(int[] ids, int length) {
+		StringBuilder retString = new StringBuilder("[");
+		
+		for(int at = 0; at < length; at++) {
+			if(at > 0) {
+				retString.append(", ");
+			}
+			
+			retString.append(fighters[ids[at]].getName());
+		}
+		
+		return retString.append("]").toString();
+	}
+	
+	/**
+	 * Gets the names of the fighters in the given set of ids, formatted the
+	 * same way a <code>List</code> of those fighters would be printed.
+	 * 
+	 * @param ids	A set of fighter ids.
+	 * @return		The names of the fighters, i.e. "[Link, Zelda]".
+	 */
+	private String namesOf(BitSet ids) {
+		int[] asArray = ids.stream().toArray();
+		return namesOf(asArray, asArray.length);
+	}
+	
+	/**
+	 * Tries to generate a matchup up to <code>maxTries</code> times. The
+	 * tier range is only ever chosen from those in which every player can be
+	 * given a different valid fighter, and each fighter is picked so that the
+	 * players after it still can be, so the first try should always work.
+	 * Further tries are only a safety net. The listener is told before each
+	 * try starts, and can stop generation between tries, or
+	 * after a try has picked a matchup but before that matchup changes
+	 * anything. Either way, stopping leaves the tier list as it was.
 	 * 
 	 * @param settings	The <code>Settings</code> object containing the
 	 * 					settings to use when generating this battle.
 	 * @param skipping	Whether or not this battle is being generated as a
-	 * 					result of skipping the previous one. Will result in
-	 * 					the last battle's results being removed from the
-	 * 					"Cannot Get" system if true.
+	 * 					result of skipping the previous one.
+	 * @param maxTries	The maximum number of tries to make.
+	 * @param listener	The <code>GenerationListener</code> to report
+	 * 					progress to, or <code>null</code> if there isn't one.
 	 * @return			A <code>Matchup</code> representing the generated
-	 * 					battle.
+	 * 					battle, or <code>null</code> if every try failed or
+	 * 					the listener stopped generation.
 	 * 
 	 * @throws NoValidFightersException	Thrown if a player does not have any
-	 * 									valid fighters, meaning a battle
-	 * 									cannot be generated.
+	 * 									valid fighters at all, or no tier
+	 * 									range has a different valid fighter
+	 * 									for every player, meaning no number
+	 * 									of tries will generate a battle.
 	 */
-	public Matchup generateBattle(Settings settings, boolean skipping) throws NoValidFightersException {
-		//initialize an empty matchup
-		Matchup matchup = new Matchup(settings.getNumPlayers());
-		
-		//first, generate the list of valid fighters for each player
-		ArrayList<List<Fighter>> playerValidCharacters = new ArrayList<List<Fighter>>();
-		for(int playerAt = 0; playerAt < settings.getNumPlayers(); playerAt++) {
-			playerValidCharacters.add(getValidCharacters(playerAt, settings));
-			
-			if(playerValidCharacters.get(playerAt).size() == 0) {
-				throw new NoValidFightersException(playerAt, false);
-			}
-		}
-		
-		//pick a player at random, and then pick a fighter at random from
-		//that player. also get the tier and add it to the matchup
-		int playerToPick = ThreadLocalRandom.current().nextInt(0, settings.getNumPlayers());
-		int numFightersForPlayer = playerValidCharacters.get(playerToPick).size();
-		Fighter chosen = playerValidCharacters.get(playerToPick).get(ThreadLocalRandom.current().nextInt(0, numFightersForPlayer));
-		int tier = chosen.getTier();
-		matchup.addFighter(playerToPick, chosen);
+	public synchronized Matchup generateBattle(Settings settings, boolean skipping, int maxTries,
+			GenerationListener listener) throws NoValidFightersException {
+		//nothing changes until a battle is committed, so every try can pick
+		//from the same valid sets. they're only found once the first try
+		//has started
+		List<WeightedSampler<Fighter>> validSets = null;
+		TierWindows windows = null;
 		
-		Util.log("Picked a fighter at random from player " + (playerToPick + 1));
-		Util.log("That player has " + numFightersForPlayer + " in their valid set.");
-		Util.log("Chose " + chosen + ", so the tier is " + Util.tierToString(tier));
-		
-		//okay, so it's still entirely possible to choose a fighter from a
-		//tier that has no valid fighters for a player. in that case, i
-		//think we just return null and try again, honestly.
-		for(int playerAt = 0; playerAt < settings.getNumPlayers(); playerAt++) {
-			if(playerAt == playerToPick) {
-				continue;
+		for(int tries = 1; tries <= maxTries; tries++) {
+			if(listener != null) {
+				if(listener.isCancelled()) {
+					Logger.info("Battle generation was cancelled before try " + tries + ".");
+					return null;
+				}
+				
+				listener.tryStarted(tries, maxTries);
 			}
 			
-			//basically, we're going to include all fighters in the possible
-			//range of tiers. this means we'll need to apply some weighting
-			//based on the bump chances
-			int tier2 = tier - 1;
-			int tier3 = tier - 2;
-			
-			//if we're at the upper end of the tier list, bump down instead
-			//of bumping up. or bump up and down if it's mid double s
-			if(tier == 0) {
-				tier2 = 1;
-				tier3 = 2;
-			}
-			else if(tier == 1) {
-				tier2 = 0;
-				tier3 = 2;
+			if(debugging()) {
+				Logger.debug("======= Try " + tries + " =======");
 			}
 			
-			ArrayList<Fighter> inTierOptions = new ArrayList<Fighter>();
-			int countTier1 = 0;
-			int countTier2 = 0;
-			int countTier3 = 0;
-			
-			for(Fighter fighterAt: playerValidCharacters.get(playerAt)) {
-				//skip if it's already been gotten by another player
-				if(matchup.contains(fighterAt)) {
-					continue;
+			try {
+				if(validSets == null) {
+					validSets = getValidSets(settings);
+					windows = findTierWindows(settings);
 				}
 				
-				int tierOfChar = fighterAt.getTier();
+				Matchup matchup = pickBattle(settings, validSets, windows);
 				
-				//we need to re-include some kind of weighting for the
-				//number of times a player has gotten a fighter. do nothing
-				//if we'd be dividing by zero
-				int timesToAdd = tierOfChar;
-				if(numBattlesPerPlayer[playerAt] != 0) {
-					timesToAdd *= 1 - (fighterAt.getPlayerBattles(playerAt) / numBattlesPerPlayer[playerAt]);
+				//one last check, since picking can take a while. nothing
+				//has changed until the matchup is committed
+				if(listener != null && listener.isCancelled()) {
+					Logger.info("Battle generation was cancelled during try " + tries + ".");
+					return null;
 				}
 				
-				//and now weight based on bump chances. this is also where
-				//we skip any fighter that's not in the tier range
-				if(tierOfChar == tier) {
-					timesToAdd += settings.getBumpChance(0);
-					countTier1 += timesToAdd;
+				commitBattle(matchup, settings, skipping);
+				return matchup;
+			} catch(NoValidFightersException e) {
+				if(debugging()) {
+					Logger.debug(String.valueOf(e));
 				}
-				else if(tierOfChar == tier2) {
-					timesToAdd += settings.getBumpChance(1);
-					countTier2 += timesToAdd;
-				}
-				else if(tierOfChar == tier3) {
-					timesToAdd += settings.getBumpChance(2);
-					countTier3 += timesToAdd;
+				
+				//depending on whether this happened before or after
+				//generating a tier tells us whether we can continue
+				if(!e.tierRangeSelected()) {
+					throw e;
 				}
-				else {
-					timesToAdd = 0;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Generates a matchup using the given settings data. A <code>Matchup</code>
+	 * containing the fighters for each player will be returned.
+	 * 
+	 * @param settings	The <code>Settings</code> object containing the
+	 * 					settings to use when generating this battle.
+	 * @param skipping	Whether or not this battle is being generated as a
+	 * 					result of skipping the previous one. Will result in
+	 * 					the last battle's results being removed from the
+	 * 					"Cannot Get" system if true.
+	 * @return			A <code>Matchup</code> representing the generated
+	 * 					battle.
+	 * 
+	 * @throws NoValidFightersException	Thrown if a player does not have any
+	 * 									valid fighters, or no tier range has
+	 * 									a different valid fighter for every
+	 * 									player, meaning a battle cannot be
+	 * 									generated.
+	 */
+	public synchronized Matchup generateBattle(Settings settings, boolean skipping) throws NoValidFightersException {
+		List<WeightedSampler<Fighter>> validSets = getValidSets(settings);
+		Matchup matchup = pickBattle(settings, validSets, findTierWindows(settings));
+		commitBattle(matchup, settings, skipping);
+		
+		return matchup;
+	}
+	
+	/**
+	 * Generates the set of valid fighters for each player. See
+	 * <code>getValidCharacters()</code>.
+	 * 
+	 * @param settings	The <code>Settings</code> object containing the
+	 * 					settings to use when generating this battle.
+	 * @return			Each player's valid fighters, in order.
+	 * 
+	 * @throws NoValidFightersException	Thrown if a player does not have any
+	 * 									valid fighters, meaning a battle
+	 * 									cannot be generated.
+	 */
+	private List<WeightedSampler<Fighter>> getValidSets(Settings settings) throws NoValidFightersException {
+		ArrayList<WeightedSampler<Fighter>> playerValidCharacters = new ArrayList<WeightedSampler<Fighter>>();
+		for(int playerAt = 0; playerAt < settings.getNumPlayers(); playerAt++) {
+			playerValidCharacters.add(getValidCharacters(playerAt, settings));
+			
+			if(playerValidCharacters.get(playerAt).size() == 0) {
+				throw new NoValidFightersException(playerAt, false);
+			}
+		}
+		
+		return playerValidCharacters;
+	}
+	
+	/**
+	 * Works out exactly which fighters each player could decide the tier
+	 * range with, meaning every other player can be given a different
+	 * fighter in that range, by checking every tier that still needs it.
+	 * See <code>TierWindows</code>.
+	 * 
+	 * @param settings	The <code>Settings</code> object containing the
+	 * 					settings to use when generating this battle.
+	 * @param validSets	Each player's valid fighters, from
+	 * 					<code>getValidSets()</code>.
+	 * @param windows	The tier ranges, from <code>findTierWindows()</code>.
+	 * 					How much of each player's valid set they can decide
+	 * 					the range with is stored in them.
+	 * 
+	 * @throws NoValidFightersException	Thrown if no player has any fighters
+	 * 									left to decide the range with,
+	 * 									meaning no valid matchup is left.
+	 */
+	private void findPickableWeights(Settings settings, List<WeightedSampler<Fighter>> validSets,
+			TierWindows windows) throws NoValidFightersException {
+		checkMatchings(windows, settings);
+		
+		boolean anyPickable = false;
+		for(int playerAt = 0; playerAt < settings.getNumPlayers(); playerAt++) {
+			WeightedSampler<Fighter> validForPlayer = validSets.get(playerAt);
+			
+			//usually every fighter the player has is pickable, so there's no
+			//need to add anything up
+			int pickableWeight = 0;
+			if(windows.allPickable(playerAt)) {
+				pickableWeight = validForPlayer.getTotalWeight();
+			}
+			else {
+				for(int indexAt = 0; indexAt < validForPlayer.size(); indexAt++) {
+					if(windows.isPickable(validForPlayer.get(indexAt), playerAt)) {
+						pickableWeight += validForPlayer.getWeight(indexAt);
+					}
+				}
+			}
+			
+			if(debugging() && pickableWeight < validForPlayer.getTotalWeight()) {
+				Logger.debug("Player " + (playerAt + 1) + " can only decide the tier with " +
+						pickableWeight + " of the " + validForPlayer.getTotalWeight() + " in their " +
+						"valid set, since everyone else can't be given different fighters in the " +
+						"range of the rest.");
+			}
+			
+			windows.setPickableWeight(playerAt, pickableWeight);
+			anyPickable |= pickableWeight > 0;
+		}
+		
+		if(!anyPickable) {
+			throw new NoValidFightersException(windows.explainInfeasible());
+		}
+	}
+	
+	/**
+	 * Determines whether a battle can still be generated with the given
+	 * settings, given the current "Cannot Get" queues and exclusions, without
+	 * generating one. If this returns <code>false</code>, generating a battle
+	 * will throw a <code>NoValidFightersException</code>. Nothing is changed.
+	 * 
+	 * @param settings	The <code>Settings</code> object containing the
+	 * 					settings a battle would be generated with.
+	 * @return			<code>true</code> if at least one valid matchup is
+	 * 					left.
+	 */
+	public synchronized boolean canGenerateBattle(Settings settings) {
+		for(int playerAt = 0; playerAt < settings.getNumPlayers(); playerAt++) {
+			if(eligibility.numEligible(playerAt) == 0) {
+				return false;
+			}
+		}
+		
+		TierWindows windows = findTierWindows(settings);
+		checkMatchings(windows, settings);
+		
+		return windows.anyPickable();
+	}
+	
+	/**
+	 * Counts the fighters each player can get at each place in each tier
+	 * range, and works out from that which tiers each player can decide the
+	 * range with. The tiers that need checking with a
+	 * <code>FighterMatching</code> aren't checked yet. See
+	 * <code>TierWindows</code>.
+	 * 
+	 * @param settings	The <code>Settings</code> object containing the
+	 * 					settings to use when generating this battle.
+	 * @return			The tier ranges. They're only good until the next call.
+	 */
+	private TierWindows findTierWindows(Settings settings) {
+		int numPlayers = settings.getNumPlayers();
+		TierWindows windows = tierWindows;
+		windows.reset(numPlayers);
+		candidateWindows.useSettings(settings);
+		
+		//the valid sets are every eligible fighter in a tier that's turned
+		//on, so this can go by tier. with a bump chance above 0, any
+		//fighter can be gotten in that place, so only when it's 0 do the
+		//fighters need to be looked at. the tiers that are turned on, and
+		//that each player has valid fighters in, are kept as bit masks,
+		//like in TierWindows
+		int tiersOn = settings.getTiersTurnedOn();
+		
+		for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+			int validTiers = 0;
+			
+			for(int tiersLeft = tiersOn; tiersLeft != 0; tiersLeft &= tiersLeft - 1) {
+				int tierAt = Integer.numberOfTrailingZeros(tiersLeft);
+				BitSet eligibleInTier = eligibility.getEligible(playerAt, tierAt);
+				int numEligible = eligibleInTier.cardinality();
+				
+				if(numEligible == 0) {
+					continue;
+				}
+				
+				validTiers |= 1 << tierAt;
+				
+				for(int placeAt = 0; placeAt < 3; placeAt++) {
+					int count = numEligible;
+					
+					if(settings.getBumpChance(placeAt) == 0) {
+						count = 0;
+						
+						for(int idAt = eligibleInTier.nextSetBit(0); idAt >= 0;
+								idAt = eligibleInTier.nextSetBit(idAt + 1)) {
+							if(windowWeight(fighters[idAt], playerAt, placeAt, settings) > 0) {
+								count++;
+							}
+						}
+					}
+					
+					windows.count(playerAt, placeAt, tierAt, count);
+				}
+			}
+			
+			windows.setValidTiers(playerAt, validTiers);
+		}
+		
+		windows.findFeasible();
+		
+		return windows;
+	}
+	
+	/**
+	 * Checks every tier where some other player doesn't have a fighter per
+	 * player in range, and that hasn't been checked yet, to see whether
+	 * everyone else can still be given a different fighter. If they can't,
+	 * the tier is ruled out. If they can only as long as the player deciding
+	 * the tier doesn't take a certain fighter, that fighter is marked as
+	 * unsafe. See <code>FighterMatching</code>.
+	 * 
+	 * @param windows	The tier ranges, from <code>findTierWindows()</code>.
+	 * @param settings	The <code>Settings</code> object containing the
+	 * 					settings to use when generating this battle.
+	 */
+	private void checkMatchings(TierWindows windows, Settings settings) {
+		int numPlayers = settings.getNumPlayers();
+		int[] toCheck = new int[numPlayers];
+		int anyToCheck = 0;
+		
+		for(int pickerAt = 0; pickerAt < numPlayers; pickerAt++) {
+			toCheck[pickerAt] = windows.getUnchecked(pickerAt);
+			anyToCheck |= toCheck[pickerAt];
+		}
+		
+		//a player's ids in a range are the same whoever is deciding it, so
+		//go by tier and only get them once
+		int[][] ids = new int[numPlayers][];
+		int[][] others = new int[numPlayers][];
+		
+		for(; anyToCheck != 0; anyToCheck &= anyToCheck - 1) {
+			int tierAt = Integer.numberOfTrailingZeros(anyToCheck);
+			Arrays.fill(ids, null);
+			
+			for(int pickerAt = 0; pickerAt < numPlayers; pickerAt++) {
+				if((toCheck[pickerAt] >>> tierAt & 1) == 0) {
+					continue;
+				}
+				
+				for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+					if(playerAt != pickerAt && ids[playerAt] == null) {
+						ids[playerAt] = matchingIds(playerAt, tierAt, settings);
+					}
+					
+					others[playerAt] = playerAt == pickerAt ? null : ids[playerAt];
 				}
 				
-				for(int at = 0; at < timesToAdd; at++) {
-					inTierOptions.add(fighterAt);
+				checkMatching(windows, others, pickerAt, tierAt);
+			}
+		}
+	}
+	
+	/**
+	 * Checks whether everyone but the player deciding a tier can be given
+	 * a different fighter in its range, and rules out the tier or marks
+	 * fighters as unsafe if they can't. Either way, the tier is marked as
+	 * checked. See <code>checkMatchings()</code>.
+	 * 
+	 * @param windows	The tier ranges.
+	 * @param others	The ids each other player can get in the range, with
+	 * 					<code>null</code> for the player deciding it.
+	 * @param picker	The player deciding the tier.
+	 * @param tier		The tier.
+	 */
+	private void checkMatching(TierWindows windows, int[][] others, int picker, int tier) {
+		windows.markChecked(picker, tier);
+		
+		FighterMatching matching = windows.getMatching();
+		if(!matching.canMatch(others, null, 0)) {
+			windows.ruleOut(picker, tier);
+			
+			if(debugging()) {
+				Logger.debug("Player " + (picker + 1) + " can't decide the tier with " +
+						Util.tierToString(tier) + ", since the others only have the same few " +
+						"fighters in its range.");
+			}
+			
+			return;
+		}
+		
+		//the picker can take any fighter the others weren't given, so only
+		//those need to be checked again
+		BitSet eligibleInTier = eligibility.getEligible(picker, tier);
+		int numUnsafe = 0;
+		
+		for(int playerAt = 0; playerAt < others.length; playerAt++) {
+			int taken = matching.getMatched(playerAt);
+			
+			if(taken >= 0 && eligibleInTier.get(taken) && !matching.canMatchWithout(taken)) {
+				windows.markUnsafe(picker, taken);
+				numUnsafe++;
+			}
+		}
+		
+		if(numUnsafe > 0 && numUnsafe == eligibleInTier.cardinality()) {
+			windows.ruleOut(picker, tier);
+		}
+	}
+	
+	/**
+	 * Checks whether a player can decide the tier range with a fighter,
+	 * checking the fighter's tier with a <code>FighterMatching</code> first
+	 * if that hasn't been done and needs to be.
+	 * 
+	 * @param windows	The tier ranges.
+	 * @param fighter	The fighter.
+	 * @param picker	The player.
+	 * @param settings	The <code>Settings</code> object containing the
+	 * 					settings to use when generating this battle.
+	 * @return			<code>true</code> if the player can decide the tier
+	 * 					with the fighter.
+	 */
+	private boolean isPickable(TierWindows windows, Fighter fighter, int picker, Settings settings) {
+		int tier = fighter.getTier();
+		
+		if((windows.getUnchecked(picker) >>> tier & 1) != 0) {
+			int[][] others = new int[settings.getNumPlayers()][];
+			
+			for(int playerAt = 0; playerAt < others.length; playerAt++) {
+				if(playerAt != picker) {
+					others[playerAt] = matchingIds(playerAt, tier, settings);
 				}
 			}
 			
-			if(inTierOptions.size() == 0) {
+			checkMatching(windows, others, picker, tier);
+		}
+		
+		return windows.isPickable(fighter, picker);
+	}
+	
+	/**
+	 * Gets the ids of the fighters a player can get in a tier range, for
+	 * checking with a <code>FighterMatching</code>. Only the first
+	 * <code>2 * numPlayers - 1</code> are needed, since a player with that
+	 * many can always be given one, no matter what the others take and
+	 * which fighters are already in the matchup.
+	 * 
+	 * @param player	The player.
+	 * @param tier		The tier whose range to look in.
+	 * @param settings	The <code>Settings</code> object containing the
+	 * 					settings to use when generating this battle.
+	 * @return			The ids.
+	 */
+	private int[] matchingIds(int player, int tier, Settings settings) {
+		int max = 2 * settings.getNumPlayers() - 1;
+		
+		CandidateWindows.Window candidates = candidateWindows.getCurrent(player, tier, eligibility);
+		if(candidates != null) {
+			return candidates.getMatchingIds(max);
+		}
+		
+		//most ranges that are checked are never drawn from, so there's no
+		//point weighing every fighter in one. the range would start with
+		//the same fighters, since every fighter with a window weight above
+		//0 goes in it. as when counting, that's every fighter if the bump
+		//chance isn't 0
+		int[] ids = new int[max];
+		int numIds = 0;
+		
+		int[] window = TierWindows.getWindow(tier);
+		int lowest = Math.min(window[0], Math.min(window[1], window[2]));
+		
+		for(int tierAt = lowest; tierAt < lowest + 3 && numIds < max; tierAt++) {
+			if(settings.getSubTierChance(tierAt) == 0) {
+				continue;
+			}
+			
+			int place = tierAt == window[0] ? 0 : tierAt == window[1] ? 1 : 2;
+			boolean bumpOn = settings.getBumpChance(place) > 0;
+			BitSet eligibleInTier = eligibility.getEligible(player, tierAt);
+			
+			for(int idAt = eligibleInTier.nextSetBit(0); idAt >= 0 && numIds < max; idAt = eligibleInTier.nextSetBit(idAt + 1)) {
+				if(bumpOn || windowWeight(fighters[idAt], player, place, settings) > 0) {
+					ids[numIds++] = idAt;
+				}
+			}
+		}
+		
+		return numIds == max ? ids : Arrays.copyOf(ids, numIds);
+	}
+	
+	/**
+	 * Gets the fighters a player could get in a tier range, along with their
+	 * weights, building them again first if the player's eligibility or
+	 * stats have changed since they were last built. See
+	 * <code>CandidateWindows</code>.
+	 * 
+	 * @param player	The player.
+	 * @param tier		The tier whose range to get.
+	 * @param settings	The <code>Settings</code> object containing the
+	 * 					settings to use when generating this battle.
+	 * @return			The fighters in the range.
+	 */
+	private CandidateWindows.Window getCandidates(int player, int tier, Settings settings) {
+		CandidateWindows.Window candidates = candidateWindows.getCurrent(player, tier, eligibility);
+		if(candidates != null) {
+			return candidates;
+		}
+		
+		candidates = candidateWindows.rebuild(player, tier, eligibility);
+		
+		//a range is always three tiers in a row. they're gone through in
+		//order, like the valid sets, so a fighter's chance doesn't depend
+		//on where in the range it is
+		int[] window = TierWindows.getWindow(tier);
+		int lowest = Math.min(window[0], Math.min(window[1], window[2]));
+		
+		for(int tierAt = lowest; tierAt < lowest + 3; tierAt++) {
+			int tierChance = settings.getSubTierChance(tierAt);
+			if(tierChance == 0) {
+				continue;
+			}
+			
+			int place = tierAt == window[0] ? 0 : tierAt == window[1] ? 1 : 2;
+			BitSet eligibleInTier = eligibility.getEligible(player, tierAt);
+			
+			for(int idAt = eligibleInTier.nextSetBit(0); idAt >= 0; idAt = eligibleInTier.nextSetBit(idAt + 1)) {
+				//a fighter's weight in its valid set is multiplied by its
+				//weight within the tier range
+				int weight = windowWeight(fighters[idAt], player, place, settings);
+				
+				if(weight > 0) {
+					candidates.add(idAt, place, weight * validWeight(fighters[idAt], player, tierChance));
+				}
+			}
+		}
+		
+		return candidates;
+	}
+	
+	/**
+	 * Checks whether, if a player takes a fighter, the players after them
+	 * can still be given different fighters in the tier range.
+	 * 
+	 * @param matchup	The fighters picked so far.
+	 * @param taking	The fighter the player would take.
+	 * @param player	The player.
+	 * @param tier		The tier of the tier range.
+	 * @param windows	The tier ranges.
+	 * @param settings	The <code>Settings</code> object containing the
+	 * 					settings to use when generating this battle.
+	 * @return			<code>true</code> if they can.
+	 */
+	private boolean leavesRoom(Matchup matchup, Fighter taking, int player, int tier, TierWindows windows,
+			Settings settings) {
+		int numPlayers = settings.getNumPlayers();
+		int[][] later = new int[numPlayers][];
+		int[] banned = new int[numPlayers];
+		int numBanned = 0;
+		
+		for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+			Fighter fighterAt = matchup.getFighter(playerAt);
+			
+			if(fighterAt != null) {
+				banned[numBanned++] = fighterAt.getId();
+			}
+			else if(playerAt > player) {
+				later[playerAt] = matchingIds(playerAt, tier, settings);
+			}
+		}
+		
+		banned[numBanned++] = taking.getId();
+		return windows.getMatching().canMatch(later, banned, numBanned);
+	}
+	
+	/**
+	 * Gets the weight a fighter has for a player within a tier range, based
+	 * on its tier, how often the player has gotten it, and the bump chance
+	 * for its place in the range. This is multiplied by the fighter's weight
+	 * in the player's valid set when the fighter is picked.
+	 * 
+	 * @param fighter	The fighter.
+	 * @param player	The player.
+	 * @param place		The fighter's place in the tier range: 0 if it's in
+	 * 					the chosen tier, or 1 or 2 if it's bumped that many
+	 * 					tiers from it.
+	 * @param settings	The settings to use when generating this battle.
+	 * @return			The weight, which is 0 if the fighter can't be
+	 * 					gotten there.
+	 */
+	private int windowWeight(Fighter fighter, int player, int place, Settings settings) {
+		//we need to re-include some kind of weighting for the number of
+		//times a player has gotten a fighter. do nothing if we'd be dividing
+		//by zero
+		int weight = fighter.getTier();
+		if(statsTable.getPlayerBattles(player) != 0) {
+			weight *= 1 - (fighter.getPlayerBattles(player) / statsTable.getPlayerBattles(player));
+		}
+		
+		return weight + settings.getBumpChance(place);
+	}
+	
+	/**
+	 * Picks the fighters for a matchup, without changing anything. See
+	 * <code>generateBattle()</code>.
+	 * 
+	 * @param settings				The <code>Settings</code> object
+	 * 								containing the settings to use when
+	 * 								generating this battle.
+	 * @param playerValidCharacters	Each player's valid fighters, from
+	 * 								<code>getValidSets()</code>. They are not
+	 * 								changed, so they can be used for another
+	 * 								try.
+	 * @param windows				Which tiers each player can decide the
+	 * 								tier range with, from
+	 * 								<code>findTierWindows()</code>.
+	 * @return						A <code>Matchup</code> with a fighter for
+	 * 								every player.
+	 * 
+	 * @throws NoValidFightersException	Thrown if no player has any fighters
+	 * 									left to decide the range with, or if
+	 * 									a player does not have any fighters
+	 * 									in the chosen tier range.
+	 */
+	private Matchup pickBattle(Settings settings, List<WeightedSampler<Fighter>> playerValidCharacters,
+			TierWindows windows) throws NoValidFightersException {
+		//initialize an empty matchup
+		Matchup matchup = new Matchup(settings.getNumPlayers());
+		
+		//pick a player at random, and then pick a fighter at random from
+		//that player. also get the tier and add it to the matchup. only
+		//fighters whose tier range works for everyone are picked, and each
+		//player is as likely to pick as they would be if we picked from
+		//their whole valid set and tried again until the range worked
+		int playerToPick = pickDecider(matchup, settings, playerValidCharacters, windows);
+		Fighter chosen = matchup.getFighter(playerToPick);
+		int tier = chosen.getTier();
+		
+		if(debugging()) {
+			Logger.debug("Picked a fighter at random from player " + (playerToPick + 1));
+			Logger.debug("Chose " + chosen + ", so the tier is " + Util.tierToString(tier));
+		}
+		
+		//the deciding fighter was only picked if everyone else can be given
+		//a different fighter in its range. usually everyone has enough that
+		//they can't get in each other's way, but if someone doesn't, each
+		//pick has to leave them something. see TierWindows
+		boolean crowded = false;
+		for(int playerAt = 0; playerAt < settings.getNumPlayers(); playerAt++) {
+			crowded |= playerAt != playerToPick && !windows.hasRoom(playerAt, tier);
+		}
+		
+		//the ids of the fighters picked so far, which nobody else can get,
+		//followed by any this player was kept from taking
+		int[] skip = new int[settings.getNumPlayers()];
+		skip[0] = chosen.getId();
+		int numTaken = 1;
+		
+		for(int playerAt = 0; playerAt < settings.getNumPlayers(); playerAt++) {
+			if(playerAt == playerToPick) {
+				continue;
+			}
+			
+			//everyone else gets a fighter from the tier range. their
+			//fighters there are already weighted by the bump chances, and
+			//are only gathered again when something about them changes. at
+			//the upper end of the tier list, the range bumps down instead
+			CandidateWindows.Window options = getCandidates(playerAt, tier, settings);
+			
+			if(debugging()) {
+				logOptions(playerAt, options, skip, numTaken);
+			}
+			
+			int numSkip = numTaken;
+			int id = options.draw(random, skip, numSkip);
+			
+			while(id >= 0 && crowded && !leavesRoom(matchup, fighters[id], playerAt, tier, windows, settings)) {
+				if(debugging()) {
+					Logger.debug("  " + fighters[id] + " is needed by a later player, so picking again.");
+				}
+				
+				if(numSkip == skip.length) {
+					skip = Arrays.copyOf(skip, numSkip * 2);
+				}
+				
+				skip[numSkip++] = id;
+				id = options.draw(random, skip, numSkip);
+			}
+			
+			if(id < 0) {
 				throw new NoValidFightersException(playerAt, true);
 			}
 			
-			Util.log("Player " + (playerAt + 1) + " has " + inTierOptions.size() +
-					" options within tier range.");
-			Util.log("  Of them, " + countTier1 + " are original tier, " +
-					countTier2 + " bump once, and " + countTier3 + " bump twice.");
+			matchup.addFighter(playerAt, fighters[id]);
+			skip[numTaken++] = id;
+		}
+		
+		if(debugging()) {
+			Logger.debug("===== Successfully generated battle! =====");
+		}
+		
+		return matchup;
+	}
+	
+	/**
+	 * Logs how much weight a player has in the tier range, and how much of it
+	 * is from each place in the range.
+	 * 
+	 * @param player	The player.
+	 * @param options	The fighters the player could get in the range.
+	 * @param taken		The ids of the fighters already in the matchup.
+	 * @param numTaken	The number of ids in <code>taken</code> to use.
+	 */
+	private void logOptions(int player, CandidateWindows.Window options, int[] taken, int numTaken) {
+		int[] countByPlace = new int[3];
+		
+		outer:
+		for(int at = 0; at < options.size(); at++) {
+			for(int takenAt = 0; takenAt < numTaken; takenAt++) {
+				if(taken[takenAt] == options.getId(at)) {
+					continue outer;
+				}
+			}
+			
+			countByPlace[options.getPlace(at)] += options.getWeight(at);
+		}
+		
+		Logger.debug("Player " + (player + 1) + " has " + (countByPlace[0] + countByPlace[1] +
+				countByPlace[2]) + " options within tier range.");
+		Logger.debug("  Of them, " + countByPlace[0] + " are original tier, " +
+				countByPlace[1] + " bump once, and " + countByPlace[2] + " bump twice.");
+	}
+	
+	/**
+	 * Picks the player whose fighter decides the tier range, and that
+	 * fighter, and adds it to the matchup. Only fighters that leave everyone
+	 * else a different fighter in their tier range are picked.
+	 * <br><br>
+	 * Usually nearly every fighter works, so a player is drawn at random,
+	 * then a fighter from their valid set, and that's done again if the
+	 * fighter doesn't work. Only the tiers that are drawn have to be checked,
+	 * and every fighter that works gets the same chance as with
+	 * <code>choosePicker()</code> and <code>pickDecidingFighter()</code>.
+	 * Those are only used if <code>DECIDER_DRAWS</code> draws in a row don't
+	 * work, since then few fighters do, and it's quicker to find them all.
+	 * 
+	 * @param matchup	The matchup to add the fighter to.
+	 * @param settings	The <code>Settings</code> object containing the
+	 * 					settings to use when generating this battle.
+	 * @param validSets	Each player's valid fighters.
+	 * @param windows	The tier ranges, from <code>findTierWindows()</code>.
+	 * @return			The player whose fighter was picked.
+	 * 
+	 * @throws NoValidFightersException	Thrown if no player has any fighters
+	 * 									left to decide the range with,
+	 * 									meaning no valid matchup is left.
+	 */
+	private int pickDecider(Matchup matchup, Settings settings, List<WeightedSampler<Fighter>> validSets,
+			TierWindows windows) throws NoValidFightersException {
+		for(int drawAt = 0; drawAt < DECIDER_DRAWS; drawAt++) {
+			int player = random.nextInt(validSets.size());
+			Fighter drawn = validSets.get(player).sample(random);
+			
+			if(isPickable(windows, drawn, player, settings)) {
+				matchup.addFighter(player, drawn);
+				return player;
+			}
+			
+			if(debugging()) {
+				Logger.debug("Drew " + drawn + " for player " + (player + 1) + ", but everyone else " +
+						"can't be given different fighters in its range.");
+			}
+		}
+		
+		findPickableWeights(settings, validSets, windows);
+		
+		int player = choosePicker(validSets, windows);
+		matchup.addFighter(player, pickDecidingFighter(validSets.get(player), player, windows));
+		
+		if(debugging()) {
+			Logger.debug("Player " + (player + 1) + " has " + windows.getPickableWeight(player) +
+					" in their valid set that work for everyone.");
+		}
+		
+		return player;
+	}
+	
+	/**
+	 * Chooses the player whose fighter decides the tier range. Each player's
+	 * chance is the fraction of their valid set they can decide the range
+	 * with, so a player who can pick from all of it is as likely as ever to
+	 * be chosen, and one who can't pick anything is never chosen.
+	 * 
+	 * @param validSets	Each player's valid fighters.
+	 * @param windows	Which tiers each player can decide the tier range
+	 * 					with. At least one player must have some.
+	 * @return			The chosen player.
+	 */
+	private int choosePicker(List<WeightedSampler<Fighter>> validSets, TierWindows windows) {
+		double[] shares = new double[validSets.size()];
+		double totalShare = 0;
+		
+		for(int playerAt = 0; playerAt < shares.length; playerAt++) {
+			shares[playerAt] = (double) windows.getPickableWeight(playerAt) /
+					validSets.get(playerAt).getTotalWeight();
+			totalShare += shares[playerAt];
+		}
+		
+		double pick = random.nextDouble() * totalShare;
+		int lastWithShare = 0;
+		
+		for(int playerAt = 0; playerAt < shares.length; playerAt++) {
+			if(shares[playerAt] > 0) {
+				pick -= shares[playerAt];
+				lastWithShare = playerAt;
+				
+				if(pick < 0) {
+					return playerAt;
+				}
+			}
+		}
+		
+		//only reached through rounding
+		return lastWithShare;
+	}
+	
+	/**
+	 * Picks the fighter that decides the tier range from a player's valid
+	 * set, leaving out any fighter that wouldn't leave everyone else a
+	 * different fighter in its tier range.
+	 * 
+	 * @param validForPlayer	The player's valid fighters.
+	 * @param player			The player.
+	 * @param windows			Which tiers the player can decide the tier
+	 * 							range with.
+	 * @return					The picked fighter.
+	 */
+	private Fighter pickDecidingFighter(WeightedSampler<Fighter> validForPlayer, int player, TierWindows windows) {
+		//usually every fighter works, and they can all be drawn from
+		int pickableWeight = windows.getPickableWeight(player);
+		if(pickableWeight == validForPlayer.getTotalWeight()) {
+			return validForPlayer.sample(random);
+		}
+		
+		//otherwise, walk through the weights of the ones that do, rather than
+		//copying them into a sampler of their own
+		int pick = random.nextInt(pickableWeight);
+		Fighter last = null;
+		
+		for(int indexAt = 0; indexAt < validForPlayer.size(); indexAt++) {
+			Fighter fighterAt = validForPlayer.get(indexAt);
 			
-			numFightersForPlayer = inTierOptions.size();
-			chosen = inTierOptions.get(ThreadLocalRandom.current().nextInt(0, numFightersForPlayer));
-			matchup.addFighter(playerAt, chosen);
+			if(windows.isPickable(fighterAt, player)) {
+				pick -= validForPlayer.getWeight(indexAt);
+				last = fighterAt;
+				
+				if(pick < 0) {
+					return fighterAt;
+				}
+			}
 		}
 		
-		Util.log("===== Successfully generated battle! =====");
+		//can't happen, since the weights add up to the pickable weight
+		return last;
+	}
+	
+	/**
+	 * Puts a picked matchup into effect, by updating the "Cannot Get"
+	 * queues and recording it in the journal.
+	 * 
+	 * @param matchup	The matchup that was picked.
+	 * @param settings	The <code>Settings</code> used to pick it.
+	 * @param skipping	Whether or not it was generated by skipping the
+	 * 					previous battle.
+	 */
+	private void commitBattle(Matchup matchup, Settings settings, boolean skipping) {
+		applyToCannotGet(matchup, settings, skipping);
 		
+		if(journal != null) {
+			try {
+				journal.recordBattle(matchup, settings, skipping);
+			} catch(IOException e) {
+				journalFailed(e);
+			}
+		}
+	}
+	
+	/**
+	 * Updates the "Cannot Get" queues after a battle has been generated.
+	 * The oldest fighters in the global queue are removed if it is full,
+	 * and then each fighter in the battle is added to the global queue and
+	 * to the individual queue of the player who got it, unless the settings
+	 * or that player's favorites list say otherwise.
+	 * 
+	 * @param matchup	The battle that was generated.
+	 * @param settings	The <code>Settings</code> used to generate it.
+	 * @param skipping	Whether or not the battle was generated by skipping
+	 * 					the previous one, in which case the previous battle's
+	 * 					fighters are removed from the individual queues.
+	 */
+	private void applyToCannotGet(Matchup matchup, Settings settings, boolean skipping) {
 		//remove from cannot get queue first
-		Util.log("The max size of the cannot get buffer is " + settings.getCannotGetSize());
-		Util.log("There are " + cannotGet.size() + " fighters in it, and " +
-				settings.getNumPlayers() + " players.");
+		if(debugging()) {
+			Logger.debug("The max size of the cannot get buffer is " + settings.getCannotGetSize());
+			Logger.debug("There are " + cannotGet.size() + " fighters in it, and " +
+					settings.getNumPlayers() + " players.");
+		}
 		
 		if(cannotGet.size() >= (settings.getCannotGetSize() * settings.getNumPlayers())) {
-			Util.log("Removing from cannot get...");
+			if(debugging()) {
+				Logger.debug("Removing from cannot get...");
+			}
 			
 			for(int at = 0; at < settings.getNumPlayers(); at++) {
-				cannotGet.poll();
+				Fighter removed = cannotGet.poll();
+				
+				if(removed != null) {
+					eligibility.unblockAll(removed);
+				}
 			}
 		}
 		
 		//then add to queue
 		for(int playerAt = 0; playerAt < settings.getNumPlayers(); playerAt++) {
 			Fighter fighterAt = matchup.getFighter(playerAt);
-			tier = fighterAt.getTier();
+			int tier = fighterAt.getTier();
 			
 			if(skipping) {
-				individualCannotGet.get(playerAt).poll();
-			}
-			
-			//assume that we will add, and change to false based on whether
-			//the fighter is S or SS tier and those tiers are not allowed in
-			boolean add = true;
-			if(tier < 3 && !settings.ssAllowedInCannotGet()) {
-				add = false;
-			}
-			else if(tier >= 3 && tier <= 5 && !settings.sAllowedInCannotGet()) {
-				add = false;
+				Fighter removed = individualCannotGet.get(playerAt).poll();
+				
+				if(removed != null) {
+					eligibility.unblock(playerAt, removed);
+				}
 			}
 			
-			if(add) {
+			//S and SS tier fighters are only added if those tiers are allowed
+			if(settings.allowedInCannotGet(tier)) {
 				cannotGet.add(fighterAt);
+				eligibility.blockAll(fighterAt);
 			}
 			
 			//if the gotten character is a favorite, don't add it to the
 			//individual cannot get
-			if(!favoriteList.get(playerAt).contains(fighterAt)) {
+			if(!favorites[playerAt].get(fighterAt.getId())) {
 				individualCannotGet.get(playerAt).add(fighterAt);
+				eligibility.block(playerAt, fighterAt);
 			}
 			
-			Util.log("Player " + (playerAt + 1) + " cannot get " + individualCannotGet.get(playerAt));
+			if(debugging()) {
+				Logger.debug("Player " + (playerAt + 1) + " cannot get " + individualCannotGet.get(playerAt));
+			}
 		}
 		
-		Util.log("Nobody can get " + cannotGet);
+		if(debugging()) {
+			Logger.debug("Nobody can get " + cannotGet);
+		}
+	}
+	
+	/**
+	 * Starts a new session, emptying the global and individual "Cannot Get"
+	 * queues so every fighter can be gotten again, apart from those on a
+	 * player's exclusion list. Stats are kept.
+	 */
+	public synchronized void newSession() {
+		while(!cannotGet.isEmpty()) {
+			eligibility.unblockAll(cannotGet.poll());
+		}
 		
-		return matchup;
+		for(int playerAt = 0; playerAt < individualCannotGet.size(); playerAt++) {
+			CannotGetQueue queue = individualCannotGet.get(playerAt);
+			
+			while(!queue.isEmpty()) {
+				eligibility.unblock(playerAt, queue.poll());
+			}
+		}
+		
+		if(journal != null) {
+			try {
+				journal.recordSession();
+			} catch(IOException e) {
+				journalFailed(e);
+			}
+		}
+		
+		if(logging) {
+			Logger.info("Started a new session.");
+		}
+	}
+	
+	/**
+	 * Sets where the random picks made while generating battles come from.
+	 * 
+	 * @param random	The new source. It shouldn't be used by anything else.
+	 */
+	public synchronized void setRandom(RandomSource random) {
+		this.random = random;
+	}
+	
+	/**
+	 * Splits a new source off the one this tier list generates battles
+	 * with. See <code>RandomSource.split()</code>.
+	 * 
+	 * @return	The new source.
+	 */
+	public synchronized RandomSource splitRandom() {
+		return random.split();
+	}
+	
+	/**
+	 * Creates a copy of this tier list, with the same fighters, aliases,
+	 * stats, and exclusion and favorite lists, as it would be at the start
+	 * of a new session. The copy has no journal or live stats file, and
+	 * doesn't log anything, so it can be used to simulate sessions without
+	 * affecting anything else. Changes to the copy don't affect this tier
+	 * list, or the other way around. The copy has its own random source with
+	 * a random seed, which can be replaced with <code>setRandom()</code>.
+	 * 
+	 * @return	The copy.
+	 */
+	public synchronized TierList copy() {
+		TierList copy = new TierList();
+		copy.logging = false;
+		
+		for(int idAt = 0; idAt < numFighters; idAt++) {
+			int[] fighterStats = new int[16];
+			
+			for(int playerAt = 0; playerAt < 8; playerAt++) {
+				fighterStats[playerAt * 2] = statsTable.getWins(idAt, playerAt);
+				fighterStats[playerAt * 2 + 1] = statsTable.getBattles(idAt, playerAt);
+			}
+			
+			copy.addFighter(new Fighter(fighters[idAt].getName(), fighters[idAt].getTier(), fighterStats));
+		}
+		
+		//ids are given out in the same order, so they match up
+		for(int playerAt = 0; playerAt < 8; playerAt++) {
+			for(int idAt = exclusions[playerAt].nextSetBit(0); idAt >= 0;
+					idAt = exclusions[playerAt].nextSetBit(idAt + 1)) {
+				copy.exclusions[playerAt].set(idAt);
+				copy.eligibility.block(playerAt, copy.fighters[idAt]);
+			}
+			
+			copy.favorites[playerAt].or(favorites[playerAt]);
+		}
+		
+		for(Map.Entry<String, Fighter> aliasAt: lowercaseAliases.entrySet()) {
+			copy.addAlias(copy.fighters[aliasAt.getValue().getId()], aliasAt.getKey());
+		}
+		
+		return copy;
 	}
 	
 	/**
@@ -798,73 +1918,78 @@ public class TierList {
 	 * the chance of getting the tier of that fighter. So if Link is in a
 	 * tier that has a 25% chance of being gotten, and player 1 has gotten
 	 * link in 1 out of the 10 battles he's participated in, then Link will
-	 * appear in the list 22 times.
+	 * have a weight of 22.
 	 * 
 	 * @param player	The player whose valid fighter set is being generated.
 	 * @param settings	The <code>Settings</code> object being used to
 	 * 					generate this battle. Needed to get the tier chances,
 	 * 					which is used to weight the likelihood of getting a
 	 * 					particular fighter.
-	 * @return			A <code>List</code> containing the fighters that this
-	 * 					player can get, weighted by the chance of getting that
-	 * 					fighter's tier and the number of times the player has
-	 * 					already gotten that fighter.
+	 * @return			A <code>WeightedSampler</code> containing the fighters
+	 * 					that this player can get, weighted by the chance of
+	 * 					getting that fighter's tier and the number of times
+	 * 					the player has already gotten that fighter.
 	 */
-	private List<Fighter> getValidCharacters(int player, Settings settings) {
-		ArrayList<Fighter> initialValidChars = new ArrayList<Fighter>();
-		ArrayList<Fighter> finalValidChars = new ArrayList<Fighter>();
+	//package-private so the benchmarks can time it on its own
+	WeightedSampler<Fighter> getValidCharacters(int player, Settings settings) {
+		WeightedSampler<Fighter> validChars = new WeightedSampler<Fighter>(eligibility.numEligible(player));
 		
-		//loop through all the fighters
+		//loop through the fighters this player can get. the eligibility
+		//index already leaves out anything in the cannot get queue, the
+		//individual cannot get queue, or the player's exclusion list
 		for(int tierAt = 0; tierAt < NUM_TIERS; tierAt++) {
 			//ignore any tier that's turned off
-			if(settings.getTierChance(Util.subTierToTier(tierAt)) == 0) {
+			int tierChance = settings.getSubTierChance(tierAt);
+			if(tierChance == 0) {
 				continue;
 			}
 			
-			for(Fighter fighterAt: tierList.get(tierAt)) {
-				//if the cannot get queue, individual cannot get queue, and
-				//the player's exclusion list don't contain this fighter, add it
-				if(!cannotGet.contains(fighterAt) &&
-						!individualCannotGet.get(player).contains(fighterAt) &&
-						!exclusionList.get(player).contains(fighterAt)) {
-					initialValidChars.add(fighterAt);
-				}
+			BitSet eligibleInTier = eligibility.getEligible(player, tierAt);
+			for(int idAt = eligibleInTier.nextSetBit(0); idAt >= 0; idAt = eligibleInTier.nextSetBit(idAt + 1)) {
+				Fighter fighterAt = fighters[idAt];
+				validChars.add(fighterAt, validWeight(fighterAt, player, tierChance));
 			}
 		}
 		
-		Util.log("Found " + initialValidChars.size() + " fighters for player " + (player + 1));
+		if(debugging()) {
+			Logger.debug("Found " + validChars.size() + " fighters for player " + (player + 1));
+		}
 		
+		return validChars;
+	}
+	
+	/**
+	 * Gets a fighter's weight in a player's valid set. See
+	 * <code>getValidCharacters()</code>.
+	 * 
+	 * @param fighter		The fighter.
+	 * @param player		The player.
+	 * @param tierChance	The chance of getting the fighter's tier.
+	 * @return				The weight, which is at least 1.
+	 */
+	private int validWeight(Fighter fighter, int player, int tierChance) {
 		//now is where the fun happens. we want to essentially create a
-		//multiplier for each fighter based on some conditions.
-		for(Fighter fighterAt: initialValidChars) {
-			//start with the chance of getting the tier of that fighter
-			int toAppear = settings.getTierChance(Util.subTierToTier(fighterAt.getTier()));
-			
-			//multiply toAppear by the ratio of times this player has gotten
-			//this fighter to the total battles they've participated in.
-			//well, inverse of the ratio. if a player has gotten Link in 10
-			//of 100 battles, multiply ratio by .9 -- if we multiply by .1,
-			//then getting the fighter more actually increases chances.
-			//of course, we do nothing if we'd be dividing by zero
-			if(numBattlesPerPlayer[player] != 0) {
-				double ratio = 1 - ((double) fighterAt.getPlayerBattles(player) / numBattlesPerPlayer[player]);
-				toAppear *= ratio;
-			}
-			
-			//if it's below 0, normalize to 1
-			if(toAppear <= 0) {
-				toAppear = 1;
-			}
-			
-			//then add it that number of times. we use a new arraylist here
-			//because otherwise we'd be modifying the arraylist while
-			//iterating over it
-			for(int at = 0; at < toAppear; at++) {
-				finalValidChars.add(fighterAt);
-			}
+		//multiplier for each fighter based on some conditions. start
+		//with the chance of getting the tier of that fighter
+		int toAppear = tierChance;
+		
+		//multiply toAppear by the ratio of times this player has gotten
+		//this fighter to the total battles they've participated in.
+		//well, inverse of the ratio. if a player has gotten Link in 10
+		//of 100 battles, multiply ratio by .9 -- if we multiply by .1,
+		//then getting the fighter more actually increases chances.
+		//of course, we do nothing if we'd be dividing by zero
+		if(statsTable.getPlayerBattles(player) != 0) {
+			double ratio = 1 - ((double) fighter.getPlayerBattles(player) / statsTable.getPlayerBattles(player));
+			toAppear *= ratio;
+		}
+		
+		//if it's below 0, normalize to 1
+		if(toAppear <= 0) {
+			toAppear = 1;
 		}
 		
-		return finalValidChars;
+		return toAppear;
 	}
 	
 	/**
@@ -875,46 +2000,273 @@ public class TierList {
 	 * @param player2	The second player to swap.
 	 * @param fighter2	The fighter that the second given player got.
 	 */
-	public void swapFighters(int player1, Fighter fighter1, int player2, Fighter fighter2) {
+	public synchronized void swapFighters(int player1, Fighter fighter1, int player2, Fighter fighter2) {
+		applySwap(player1, fighter1, player2, fighter2);
+		
+		if(journal != null) {
+			try {
+				journal.recordSwap(player1, player2);
+			} catch(IOException e) {
+				journalFailed(e);
+			}
+		}
+	}
+	
+	/**
+	 * Swaps the specified fighters and players in the cannot get queues,
+	 * without recording the swap in the journal.
+	 * 
+	 * @param player1	The first player to swap.
+	 * @param fighter1	The fighter that that the first given player got.
+	 * @param player2	The second player to swap.
+	 * @param fighter2	The fighter that the second given player got.
+	 */
+	private void applySwap(int player1, Fighter fighter1, int player2, Fighter fighter2) {
 		//remove the fighters if they're present. they may not be because
 		//of favorites lists and all that
-		individualCannotGet.get(player1).remove(fighter1);
-		individualCannotGet.get(player2).remove(fighter2);
+		if(individualCannotGet.get(player1).remove(fighter1)) {
+			eligibility.unblock(player1, fighter1);
+		}
+		
+		if(individualCannotGet.get(player2).remove(fighter2)) {
+			eligibility.unblock(player2, fighter2);
+		}
 		
 		//and add those fighters to the other player's cannot get, as long as
 		//they aren't in that player's favorites. also don't add if they're
 		//already there, which is allowed
-		if(!favoriteList.get(player1).contains(fighter2) && !individualCannotGet.get(player1).contains(fighter2)) {
+		if(!favorites[player1].get(fighter2.getId()) && !individualCannotGet.get(player1).contains(fighter2)) {
 			individualCannotGet.get(player1).add(fighter2);
+			eligibility.block(player1, fighter2);
 		}
 		
-		if(!favoriteList.get(player2).contains(fighter1) && !individualCannotGet.get(player2).contains(fighter1)) {
+		if(!favorites[player2].get(fighter1.getId()) && !individualCannotGet.get(player2).contains(fighter1)) {
 			individualCannotGet.get(player2).add(fighter1);
+			eligibility.block(player2, fighter1);
 		}
 		
-		Util.log("Swapped player " + (player1 + 1) + " and " + (player2 + 1) + ".");
-		Util.log("Now, player " + (player1 + 1) + " cannot get " + individualCannotGet.get(player1));
-		Util.log("And player " + (player2 + 1) + " cannot get " + individualCannotGet.get(player2));
+		Logger.info("Swapped player " + (player1 + 1) + " and " + (player2 + 1) + ".");
+		
+		if(debugging()) {
+			Logger.debug("Now, player " + (player1 + 1) + " cannot get " + individualCannotGet.get(player1));
+			Logger.debug("And player " + (player2 + 1) + " cannot get " + individualCannotGet.get(player2));
+		}
 	}
 	
 	/**
-	 * @return	A <code>HashMap</code> object containing the stats data, so
-	 * 			it can be saved in an <code>.sel</code> file.
+	 * Sets the winner of the given battle, and records it in the journal.
+	 * The battle must be the last one that was generated, since the journal
+	 * applies winners to the last battle. If a winner was already set, it
+	 * is replaced, as described in <code>Matchup.setWinner()</code>.
+	 * 
+	 * @param matchup	The last battle that was generated.
+	 * @param player	The player who won.
+	 * 
+	 * @throws IndexOutOfBoundsException	Thrown if the given player is
+	 * 										less than 0 or greater than the
+	 * 										number of players in the battle.
 	 */
-	public HashMap<String, double[]> getStatsMap() {
-		HashMap<String, double[]> retMap = new HashMap<String, double[]>();
+	public synchronized void setWinner(Matchup matchup, int player) throws IndexOutOfBoundsException {
+		matchup.setWinner(player);
 		
-		for(int at = 0; at < NUM_TIERS; at++) {
-			for(Fighter fighterAt: tierList.get(at)) {
-				double[] stats = new double[16];
+		if(journal != null) {
+			try {
+				journal.recordWinner(player);
+			} catch(IOException e) {
+				journalFailed(e);
+			}
+		}
+	}
+	
+	/**
+	 * Reads the part of the journal that the stats file is not up to date
+	 * with. If the journal can't be read, the problem is logged and nothing
+	 * is replayed.
+	 * 
+	 * @return	The records past the position stored in the stats file.
+	 */
+	private List<BattleJournal.Entry> readJournalTail() {
+		try {
+			long position = StatsFile.readJournalPosition(new File(StatsFile.FILE_NAME));
+			return BattleJournal.read(new File(BattleJournal.FILE_NAME), position);
+		} catch(IOException e) {
+			Logger.error(e);
+			Logger.warning("Could not read the journal, so nothing will be replayed from it.");
+			return new ArrayList<BattleJournal.Entry>();
+		}
+	}
+	
+	/**
+	 * Rebuilds the "Cannot Get" queues by replaying every battle and swap in
+	 * the given records since the start of the last session in them. Battles
+	 * containing fighters that aren't in this tier list are left out.
+	 * 
+	 * @param entries	The records to replay.
+	 */
+	private void replayCannotGet(List<BattleJournal.Entry> entries) {
+		int start = 0;
+		for(int at = 0; at < entries.size(); at++) {
+			if(entries.get(at).getType() == BattleJournal.SESSION) {
+				start = at;
+			}
+		}
+		
+		Matchup current = null;
+		for(BattleJournal.Entry entryAt: entries.subList(start, entries.size())) {
+			if(entryAt.getType() == BattleJournal.BATTLE) {
+				String[] names = entryAt.getFighters();
+				current = new Matchup(names.length);
 				
-				for(int playerAt = 0; playerAt < 8; playerAt++) {
-					stats[playerAt * 2] = fighterAt.getPlayerWins(playerAt);
-					stats[playerAt * 2 + 1] = fighterAt.getPlayerBattles(playerAt);
+				for(int playerAt = 0; playerAt < names.length && current != null; playerAt++) {
+					Fighter fighterAt = getFighter(names[playerAt]);
+					
+					if(fighterAt == null) {
+						current = null;
+					}
+					else {
+						current.addFighter(playerAt, fighterAt);
+					}
+				}
+				
+				if(current != null) {
+					applyToCannotGet(current, entryAt.getSettings(), entryAt.isSkipping());
 				}
+			}
+			else if(entryAt.getType() == BattleJournal.SWAP && current != null) {
+				int player1 = entryAt.getPlayer1();
+				int player2 = entryAt.getPlayer2();
 				
-				retMap.put(fighterAt.getName(), stats);
+				applySwap(player1, current.getFighter(player1), player2, current.getFighter(player2));
+				current.swapFighters(player1, player2);
+			}
+		}
+	}
+	
+	/**
+	 * Adds up the battles in a map of stats, for only the given fighters.
+	 * 
+	 * @param stats	A <code>Map</code> from each fighter's name to its 16
+	 * 				counts.
+	 * @param names	The fighters to count the battles of.
+	 * @return		The total number of battles for those fighters, across
+	 * 				all players.
+	 */
+	private static long totalBattles(Map<String, int[]> stats, Set<String> names) {
+		long total = 0;
+		
+		for(String nameAt: names) {
+			int[] counts = stats.get(nameAt);
+			
+			if(counts != null) {
+				for(int playerAt = 0; playerAt < 8; playerAt++) {
+					total += counts[playerAt * 2 + 1];
+				}
+			}
+		}
+		
+		return total;
+	}
+	
+	/**
+	 * @return	Whether the steps of generating a battle should be logged.
+	 */
+	private boolean debugging() {
+		return logging && Logger.isEnabled(LogLevel.DEBUG);
+	}
+	
+	/**
+	 * Stops writing to the journal after it fails, so the same error isn't
+	 * hit again on every battle.
+	 * 
+	 * @param e	The error that occurred.
+	 */
+	private void journalFailed(IOException e) {
+		Logger.error(e);
+		Logger.warning("Could not write to the journal, so the rest of this session " +
+				"won't be recorded in it.");
+		
+		//it may have failed to open in the first place
+		if(journal != null) {
+			try {
+				journal.close();
+			} catch(IOException e1) {
+				//already failed, there's nothing more to do about it
+			}
+		}
+		
+		journal = null;
+	}
+	
+	/**
+	 * Saves the stats data to the stats file, along with how much of the
+	 * journal it includes, and then closes the live stats file and starts
+	 * the journal over, since they will no longer be needed to recover
+	 * anything.
+	 * Should be called when the program closes, or before another tier list
+	 * is loaded in its place.
+	 * 
+	 * @throws IOException	Thrown if there are errors writing the stats
+	 * 						file or closing the live stats file.
+	 */
+	public synchronized void saveStats() throws IOException {
+		File journalFile = new File(BattleJournal.FILE_NAME);
+		long journalPosition;
+		
+		if(journal != null) {
+			try {
+				journal.commit();
+				journalPosition = journal.position();
+			} finally {
+				journal.close();
+				journal = null;
+			}
+		}
+		else {
+			//if the journal isn't open, everything that made it into the file
+			//is already in these stats
+			try {
+				journalPosition = BattleJournal.end(journalFile);
+			} catch(IOException e) {
+				//it can't be read back either, so it only needs to be
+				//replaced
+				journalPosition = journalFile.length();
+			}
+		}
+		
+		StatsFile.write(new File(StatsFile.FILE_NAME), getStatsMap(), journalPosition);
+		
+		//everything in the journal is in the stats file now, so it doesn't
+		//need to be kept around, or read through the next time this loads
+		try {
+			BattleJournal.reset(journalFile, journalPosition);
+		} catch(IOException e) {
+			Logger.error(e);
+			Logger.warning("Could not start the journal over, so it will keep growing.");
+		}
+		
+		if(liveStats != null) {
+			statsTable.removeListener(liveStats);
+			liveStats.close();
+			liveStats = null;
+		}
+	}
+	
+	/**
+	 * @return	A <code>HashMap</code> object containing the stats data, so
+	 * 			it can be saved using <code>StatsFile</code>.
+	 */
+	public synchronized HashMap<String, int[]> getStatsMap() {
+		HashMap<String, int[]> retMap = new HashMap<String, int[]>(numFighters * 2);
+		
+		for(int idAt = 0; idAt < numFighters; idAt++) {
+			int[] stats = new int[16];
+			
+			for(int playerAt = 0; playerAt < 8; playerAt++) {
+				stats[playerAt * 2] = statsTable.getWins(idAt, playerAt);
+				stats[playerAt * 2 + 1] = statsTable.getBattles(idAt, playerAt);
 			}
+			
+			retMap.put(fighters[idAt].getName(), stats);
 		}
 		
 		return retMap;
@@ -923,7 +2275,8 @@ public class TierList {
 	/**
 	 * Gets the results of a lookup, stored in an array of
 	 * <code>ComparableArray</code>s. The array is sorted based on the
-	 * lookup type.
+	 * lookup type. Nothing actually needs to be sorted, since the fighters
+	 * are kept in order by a <code>Leaderboards</code>.
 	 * 
 	 * @param lookupType	The type of lookup being done. Based off the
 	 * 						dropdown in <code>MainWindow</code>.
@@ -931,49 +2284,219 @@ public class TierList {
 	 * 						one for each fighter in the tier list. The array
 	 * 						is sorted based on the lookup type.
 	 */
-	public ComparableArray[] getLookupResults(int lookupType) {
-		ComparableArray[] results = new ComparableArray[numFighters()];
+	public synchronized ComparableArray[] getLookupResults(int lookupType) {
+		Leaderboards.Board board = getLeaderboard(lookupType);
+		int[] ids = board.getIds(0, board.size());
 		
-		int indexAt = 0;
-		for(int at = 0; at < NUM_TIERS; at++) {
-			for(Fighter fighterAt: tierList.get(at)) {
-				results[indexAt] = new ComparableArray(fighterAt, lookupType);
-				indexAt++;
-			}
+		ComparableArray[] results = new ComparableArray[ids.length];
+		for(int at = 0; at < ids.length; at++) {
+			results[at] = new ComparableArray(fighters[ids[at]], board.getCompareType());
 		}
 		
-		Arrays.sort(results);
 		return results;
 	}
 	
 	/**
-	 * Gets the data for the second lookup type, each player's winrate.
-	 * Each player's total number of wins and battles across all fighters
-	 * are added up.
+	 * Gets the results of a lookup as one string, with one numbered line per
+	 * fighter, in the same order as <code>getLookupResults()</code>. This is
+	 * what <code>MainWindow</code> shows when sorting.
 	 * 
-	 * @return	A <code>String</code> containing the data described above.
+	 * @param lookupType	The type of lookup being done. Based off the
+	 * 						dropdown in <code>MainWindow</code>.
+	 * @return				A <code>String</code> containing the results.
 	 */
-	public String getPlayerWinrateString() {
-		StringBuffer retString = new StringBuffer(175);
+	public synchronized String getLookupString(int lookupType) {
+		Leaderboards.Board board = getLeaderboard(lookupType);
+		int[] ids = board.getIds(0, board.size());
 		
-		int[] playerBattles = new int[8];
-		int[] playerWins = new int[8];
+		StringBuilder retString = new StringBuilder(ids.length * 32);
+		for(int at = 0; at < ids.length; at++) {
+			retString.append(at + 1).append(". ");
+			retString.append(ComparableArray.toString(fighters[ids[at]], board.getCompareType(),
+					board.getWins(ids[at]), board.getBattles(ids[at])));
+			retString.append("\n");
+		}
 		
-		for(int tierAt = 0; tierAt < NUM_TIERS; tierAt++) {
-			for(Fighter fighterAt: tierList.get(tierAt)) {
-				for(int playerAt = 0; playerAt < 8; playerAt++) {
-					playerBattles[playerAt] += fighterAt.getPlayerBattles(playerAt);
-					playerWins[playerAt] += fighterAt.getPlayerWins(playerAt);
+		return retString.toString();
+	}
+	
+	/**
+	 * Gets where a fighter places in a lookup, without getting the rest of
+	 * the results.
+	 * 
+	 * @param fighter		The fighter, which must be in this tier list.
+	 * @param lookupType	The type of lookup being done. Based off the
+	 * 						dropdown in <code>MainWindow</code>.
+	 * @return				The fighter's place in the results, starting
+	 * 						from 1.
+	 */
+	public synchronized int getRank(Fighter fighter, int lookupType) {
+		return getLeaderboard(lookupType).rankOf(fighter.getId()) + 1;
+	}
+	
+	/**
+	 * Finds the fighters at the top of a lookup, in order, and gives them to
+	 * the listener one at a time. Only the fighters up to the last one found
+	 * are looked at, so this is much cheaper than getting every result.
+	 * 
+	 * @param lookupType	The type of lookup being done. Based off the
+	 * 						dropdown in <code>MainWindow</code>.
+	 * @param count			The most fighters to find.
+	 * @param filter		Which fighters to include.
+	 * @param listener		What to give the fighters to. It's called before
+	 * 						this returns, on the same thread.
+	 * @return				The number of fighters found.
+	 * 
+	 * @throws IllegalArgumentException	Thrown if the count is negative.
+	 */
+	public synchronized int getTopFighters(int lookupType, int count, LookupFilter filter,
+			LookupListener listener) throws IllegalArgumentException {
+		return lookup(lookupType, 0, count, false, filter, listener);
+	}
+	
+	/**
+	 * Finds the fighters at the bottom of a lookup, starting from the very
+	 * last, and gives them to the listener one at a time. See
+	 * <code>getTopFighters()</code>.
+	 * 
+	 * @param lookupType	The type of lookup being done. Based off the
+	 * 						dropdown in <code>MainWindow</code>.
+	 * @param count			The most fighters to find.
+	 * @param filter		Which fighters to include.
+	 * @param listener		What to give the fighters to.
+	 * @return				The number of fighters found.
+	 * 
+	 * @throws IllegalArgumentException	Thrown if the count is negative.
+	 */
+	public synchronized int getBottomFighters(int lookupType, int count, LookupFilter filter,
+			LookupListener listener) throws IllegalArgumentException {
+		return lookup(lookupType, 0, count, true, filter, listener);
+	}
+	
+	/**
+	 * Finds one page of the results of a lookup, in order, and gives them to
+	 * the listener one at a time. See <code>getTopFighters()</code>.
+	 * 
+	 * @param lookupType	The type of lookup being done. Based off the
+	 * 						dropdown in <code>MainWindow</code>.
+	 * @param page			The page to find, starting at 0.
+	 * @param pageSize		The number of fighters on each page.
+	 * @param filter		Which fighters to include. Pages are made up of
+	 * 						only the fighters that are included.
+	 * @param listener		What to give the fighters to.
+	 * @return				The number of fighters found, which is less than
+	 * 						<code>pageSize</code> on the last page.
+	 * 
+	 * @throws IllegalArgumentException	Thrown if the page or page size is
+	 * 									negative.
+	 */
+	public synchronized int getFighterPage(int lookupType, int page, int pageSize, LookupFilter filter,
+			LookupListener listener) throws IllegalArgumentException {
+		if(page < 0) {
+			throw new IllegalArgumentException("Page cannot be negative, but " + page + " was given.");
+		}
+		
+		return lookup(lookupType, (long) page * pageSize, pageSize, false, filter, listener);
+	}
+	
+	/**
+	 * Goes through a leaderboard in order, from the top or the bottom,
+	 * giving the fighters the filter includes to the listener.
+	 * 
+	 * @param skip			The number of included fighters to skip first.
+	 * @param count			The most fighters to give to the listener.
+	 * @param fromBottom	<code>true</code> to start from the last fighter.
+	 * @return				The number of fighters given to the listener.
+	 */
+	private int lookup(int lookupType, long skip, int count, boolean fromBottom, LookupFilter filter,
+			LookupListener listener) throws IllegalArgumentException {
+		if(count < 0) {
+			throw new IllegalArgumentException("Cannot find a negative number of fighters, but " +
+					count + " was given.");
+		}
+		
+		if(debugging()) {
+			Logger.debug("Looking up " + count + " fighters after skipping " + skip + ", from the " +
+					(fromBottom ? "bottom" : "top") + ", with " + filter);
+		}
+		
+		Leaderboards.Board board = getLeaderboard(lookupType);
+		int size = board.size();
+		int found = 0;
+		int at = 0;
+		
+		//when every fighter is included, the ones being skipped don't need
+		//to be looked at
+		if(filter.includesEverything()) {
+			at = (int) Math.min(skip, size);
+			skip = 0;
+		}
+		
+		for(; at < size && found < count; at++) {
+			int rank = fromBottom ? size - 1 - at : at;
+			int id = board.get(rank);
+			
+			if(!filter.includes(fighters[id], board.getBattles(id))) {
+				continue;
+			}
+			
+			if(skip > 0) {
+				skip--;
+				continue;
+			}
+			
+			listener.fighterFound(rank + 1, fighters[id], board.getWins(id), board.getBattles(id));
+			found++;
+		}
+		
+		return found;
+	}
+	
+	/**
+	 * Gets the leaderboard for a lookup, building every leaderboard first if
+	 * they haven't been built since a fighter was last added.
+	 * 
+	 * @param lookupType	The type of lookup being done. Based off the
+	 * 						dropdown in <code>MainWindow</code>.
+	 * @return				The leaderboard.
+	 */
+	private Leaderboards.Board getLeaderboard(int lookupType) {
+		if(!leaderboards.isBuilt()) {
+			int[] order = new int[numFighters];
+			
+			int indexAt = 0;
+			for(int at = 0; at < NUM_TIERS; at++) {
+				for(int memberAt = 0; memberAt < tierSizes[at]; memberAt++) {
+					order[indexAt] = tierMembers[at][memberAt];
+					indexAt++;
 				}
 			}
+			
+			leaderboards.build(fighters, order);
 		}
 		
+		return leaderboards.get(ComparableArray.toCompareType(lookupType));
+	}
+	
+	/**
+	 * Gets the data for the second lookup type, each player's winrate.
+	 * Each player's total number of wins and battles across all fighters
+	 * are read from the running totals in the <code>StatsTable</code>.
+	 * 
+	 * @return	A <code>String</code> containing the data described above.
+	 */
+	public synchronized String getPlayerWinrateString() {
+		StringBuffer retString = new StringBuffer(175);
+		
 		retString.append("Players' Overall Winrate:\n");
 		
 		for(int playerAt = 0; playerAt < 8; playerAt++) {
+			int playerWins = statsTable.getPlayerWins(playerAt);
+			int playerBattles = statsTable.getPlayerBattles(playerAt);
+			
 			retString.append("P" + (playerAt + 1) + " W% - " +
-					Util.printDouble(((float) playerWins[playerAt] / playerBattles[playerAt]) * 100) + "% (" +
-					playerWins[playerAt] + "/" + playerBattles[playerAt] + ")\n");
+					Util.printDouble(((float) playerWins / playerBattles) * 100) + "% (" +
+					playerWins + "/" + playerBattles + ")\n");
 		}
 		
 		return retString.toString();
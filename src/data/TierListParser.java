@@ -0,0 +1,334 @@
+package data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * The <code>TierListParser</code> splits a tier list file into its
+ * "key = value" lines. The whole file is read into memory once, and then
+ * scanned a character at a time, so no regular expressions are used and no
+ * strings are built up one character at a time. Lines without an equals
+ * sign, such as comments, are skipped.
+ * <br><br>
+ * The parser is used like an iterator: <code>next()</code> moves to the next
+ * line with an equals sign, and the other methods give the key and value of
+ * that line. The key is lowercase, with any surrounding whitespace removed.
+ * The value can be read as a whole, or as a comma-separated list of items,
+ * each with any surrounding whitespace removed. Blank items are skipped.
+ * Line and column numbers both start at 1, so they can be used in error
+ * messages as they are.
+ * 
+ * @author Jordan Knapp
+ */
+public class TierListParser {
+	
+	private char[] text;
+	private int length;
+	
+	//the position in the text at which the next line starts
+	private int position;
+	
+	//the current line
+	private int lineNumber;
+	private int lineStart;
+	private int keyStart;
+	private String key;
+	private int valueStart;
+	private int valueEnd;
+	
+	//the start and end of each item in the current line's value. these are
+	//only filled in if the value is read as a list
+	private int[] itemStarts;
+	private int[] itemEnds;
+	private int numItems;
+	private boolean itemsFound;
+	
+	//reused to lowercase each key
+	private char[] keyBuffer;
+	
+	/**
+	 * Creates a <code>TierListParser</code> for the given file, and reads it
+	 * into memory.
+	 * 
+	 * @param file	The tier list file.
+	 * 
+	 * @throws FileNotFoundException	Thrown if the file does not exist.
+	 * @throws IOException				Thrown if the file can't be read.
+	 */
+	public TierListParser(File file) throws FileNotFoundException, IOException {
+		this(new InputStreamReader(new FileInputStream(file)));
+	}
+	
+	/**
+	 * Creates a <code>TierListParser</code> that reads everything from the
+	 * given <code>Reader</code>, and then closes it.
+	 * 
+	 * @param in	The <code>Reader</code> to read the tier list from.
+	 * 
+	 * @throws IOException	Thrown if the tier list can't be read.
+	 */
+	public TierListParser(Reader in) throws IOException {
+		text = new char[8192];
+		length = 0;
+		
+		try {
+			int read = in.read(text, 0, text.length);
+			while(read != -1) {
+				length += read;
+				
+				if(length == text.length) {
+					text = Arrays.copyOf(text, text.length * 2);
+				}
+				
+				read = in.read(text, length, text.length - length);
+			}
+		} finally {
+			in.close();
+		}
+		
+		position = 0;
+		lineNumber = 0;
+		
+		itemStarts = new int[16];
+		itemEnds = new int[16];
+		keyBuffer = new char[32];
+	}
+	
+	/**
+	 * Moves to the next line that has an equals sign in it.
+	 * 
+	 * @return	<code>true</code> if there is another such line,
+	 * 			<code>false</code> if the end of the file has been reached.
+	 */
+	public boolean next() {
+		while(position < length) {
+			lineNumber++;
+			lineStart = position;
+			
+			//find the end of the line and the first equals sign in it
+			int lineEnd = position;
+			int equals = -1;
+			while(lineEnd < length && text[lineEnd] != '\n' && text[lineEnd] != '\r') {
+				if(equals == -1 && text[lineEnd] == '=') {
+					equals = lineEnd;
+				}
+				
+				lineEnd++;
+			}
+			
+			//move past the line break, which may be \r\n
+			position = lineEnd;
+			if(position < length && text[position] == '\r') {
+				position++;
+			}
+			if(position < length && text[position] == '\n') {
+				position++;
+			}
+			
+			if(equals == -1) {
+				continue;
+			}
+			
+			keyStart = skipWhitespace(lineStart, equals);
+			int keyEnd = trimWhitespace(keyStart, equals);
+			key = lowercase(keyStart, keyEnd);
+			
+			valueStart = skipWhitespace(equals + 1, lineEnd);
+			valueEnd = trimWhitespace(valueStart, lineEnd);
+			itemsFound = false;
+			
+			return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * @return	The key of the current line, i.e. the part before the equals
+	 * 			sign, in lowercase.
+	 */
+	public String getKey() {
+		return key;
+	}
+	
+	/**
+	 * @return	The column at which the key of the current line starts.
+	 */
+	public int getKeyColumn() {
+		return keyStart - lineStart + 1;
+	}
+	
+	/**
+	 * @return	The line number of the current line.
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+	
+	/**
+	 * @return	The value of the current line, i.e. the part after the
+	 * 			equals sign, as it appears in the file.
+	 */
+	public String getValue() {
+		return new String(text, valueStart, valueEnd - valueStart);
+	}
+	
+	/**
+	 * @return	The column at which the value of the current line starts.
+	 */
+	public int getValueColumn() {
+		return valueStart - lineStart + 1;
+	}
+	
+	/**
+	 * @return	The number of items in the value of the current line, when it
+	 * 			is read as a comma-separated list.
+	 */
+	public int numItems() {
+		findItems();
+		return numItems;
+	}
+	
+	/**
+	 * @param index	The index of the item.
+	 * @return		That item in the value of the current line.
+	 * 
+	 * @throws IndexOutOfBoundsException	Thrown if there is no item with
+	 * 										that index.
+	 */
+	public String getItem(int index) throws IndexOutOfBoundsException {
+		checkItem(index);
+		return new String(text, itemStarts[index], itemEnds[index] - itemStarts[index]);
+	}
+	
+	/**
+	 * @param index	The index of the item.
+	 * @return		The column at which that item starts.
+	 * 
+	 * @throws IndexOutOfBoundsException	Thrown if there is no item with
+	 * 										that index.
+	 */
+	public int getItemColumn(int index) throws IndexOutOfBoundsException {
+		checkItem(index);
+		return itemStarts[index] - lineStart + 1;
+	}
+	
+	/**
+	 * @return	The items in the value of the current line, formatted the
+	 * 			same way an array of them would be printed by
+	 * 			<code>Arrays.toString()</code>. Used in error messages.
+	 */
+	public String itemsToString() {
+		findItems();
+		
+		StringBuilder retString = new StringBuilder(valueEnd - valueStart + 2);
+		retString.append('[');
+		
+		for(int at = 0; at < numItems; at++) {
+			if(at > 0) {
+				retString.append(", ");
+			}
+			
+			retString.append(text, itemStarts[at], itemEnds[at] - itemStarts[at]);
+		}
+		
+		return retString.append(']').toString();
+	}
+	
+	/**
+	 * Throws an exception if there is no item with the given index.
+	 */
+	private void checkItem(int index) throws IndexOutOfBoundsException {
+		findItems();
+		
+		if(index < 0 || index >= numItems) {
+			throw new IndexOutOfBoundsException("Line " + lineNumber + " has " + numItems +
+					" items, but item " + index + " was requested.");
+		}
+	}
+	
+	/**
+	 * Splits the value of the current line on commas, if that hasn't been
+	 * done already.
+	 */
+	private void findItems() {
+		if(itemsFound) {
+			return;
+		}
+		
+		numItems = 0;
+		int start = valueStart;
+		
+		while(start <= valueEnd) {
+			int end = start;
+			while(end < valueEnd && text[end] != ',') {
+				end++;
+			}
+			
+			int itemStart = skipWhitespace(start, end);
+			int itemEnd = trimWhitespace(itemStart, end);
+			
+			if(itemEnd > itemStart) {
+				if(numItems == itemStarts.length) {
+					itemStarts = Arrays.copyOf(itemStarts, numItems * 2);
+					itemEnds = Arrays.copyOf(itemEnds, numItems * 2);
+				}
+				
+				itemStarts[numItems] = itemStart;
+				itemEnds[numItems] = itemEnd;
+				numItems++;
+			}
+			
+			start = end + 1;
+		}
+		
+		itemsFound = true;
+	}
+	
+	/**
+	 * @return	The position of the first character at or after
+	 * 			<code>start</code> that isn't whitespace, or <code>end</code>
+	 * 			if there isn't one.
+	 */
+	private int skipWhitespace(int start, int end) {
+		while(start < end && Character.isWhitespace(text[start])) {
+			start++;
+		}
+		
+		return start;
+	}
+	
+	/**
+	 * @return	The position just after the last character before
+	 * 			<code>end</code> that isn't whitespace, or <code>start</code>
+	 * 			if there isn't one.
+	 */
+	private int trimWhitespace(int start, int end) {
+		while(end > start && Character.isWhitespace(text[end - 1])) {
+			end--;
+		}
+		
+		return end;
+	}
+	
+	/**
+	 * @return	The given part of the text as a lowercase <code>String</code>.
+	 */
+	private String lowercase(int start, int end) {
+		if(end - start > keyBuffer.length) {
+			keyBuffer = new char[end - start];
+		}
+		
+		for(int at = start; at < end; at++) {
+			keyBuffer[at - start] = Character.toLowerCase(text[at]);
+		}
+		
+		return new String(keyBuffer, 0, end - start);
+	}
+
+}
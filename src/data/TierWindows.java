@@ -0,0 +1,498 @@
+package data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The <code>TierWindows</code> class works out which tiers a battle can be
+ * built around, before any fighter is picked. When a battle is generated,
+ * one player's fighter decides the tier, and every other player gets a
+ * fighter from that tier's window: the tier itself, or one or two tiers
+ * above it if they get bumped. The windows for the top two tiers are the
+ * two tiers below them instead, i.e. upper double s tier has a window of
+ * upper double s, mid double s, and lower double s.
+ * <br><br>
+ * Generation used to pick the first fighter without looking at the window,
+ * then give up and try again if some other player had nothing in it. With
+ * a small or mostly used up tier list, that could take dozens of tries, and
+ * 100 failed tries didn't say why. Instead, the <code>TierList</code> tells
+ * this class how many fighters each player can get from each tier at each
+ * place in a window, and this class works out which windows each player can
+ * fill. A tier is <i>feasible</i> for a player picking the first fighter
+ * when every other player can be given a different fighter from its
+ * window, and only fighters from feasible tiers are picked.
+ * <br><br>
+ * Usually, every other player has at least as many fighters in a window as
+ * there are players, and then they can always be given different ones.
+ * Failing that, one player with few fighters is fine as long as the rest
+ * have more, which can be told from the counts alone. Only when that fails
+ * too does the <code>TierList</code> check with a
+ * <code>FighterMatching</code>, and rule out the tier, or the fighters in it
+ * that the others can't do without, if it has to. Those checks are the
+ * expensive part, so a tier is only checked once a fighter from it is
+ * drawn, unless so few fighters work that every tier has to be checked.
+ * <br><br>
+ * This is worked out for every battle, so sets of tiers are kept as bit
+ * masks, with bit <code>n</code> standing for tier <code>n</code>. There are
+ * only 24 tiers, so each set fits in an <code>int</code>. The
+ * <code>TierList</code> keeps one <code>TierWindows</code> and resets it for
+ * each battle, so working it out doesn't allocate anything, and nothing in
+ * it depends on the number of fighters.
+ * 
+ * @author Jordan Knapp
+ */
+class TierWindows {
+	
+	//WINDOWS[tier] is the tier itself, then the tier a player bumped once
+	//gets, then the tier a player bumped twice gets
+	private static final int[][] WINDOWS = new int[TierList.NUM_TIERS][];
+	
+	static {
+		for(int tierAt = 0; tierAt < TierList.NUM_TIERS; tierAt++) {
+			if(tierAt == 0) {
+				WINDOWS[tierAt] = new int[] {0, 1, 2};
+			}
+			else if(tierAt == 1) {
+				WINDOWS[tierAt] = new int[] {1, 0, 2};
+			}
+			else {
+				WINDOWS[tierAt] = new int[] {tierAt, tierAt - 1, tierAt - 2};
+			}
+		}
+	}
+	
+	//every tier
+	private static final int ALL_TIERS = (1 << TierList.NUM_TIERS) - 1;
+	
+	private int numPlayers;
+	
+	//placeCounts[(player * 3 + place) * NUM_TIERS + tier] is the number of
+	//fighters in that tier the player can get at that place in a window,
+	//and reaches[player * 3 + place] is the tiers where that isn't 0
+	private final int[] placeCounts;
+	private final int[] reaches;
+	
+	//the tiers each player has valid fighters in
+	private final int[] validTiers;
+	
+	//canFill[player] is the tiers whose window the player can get anything
+	//in, and hasRoom[player] is the tiers whose window they have at least
+	//one fighter per player in. feasible[player] is the tiers whose window
+	//everyone but the player can be given different fighters from. all of
+	//them are only filled in by findFeasible()
+	private final int[] canFill;
+	private final int[] hasRoom;
+	private final int[] feasible;
+	
+	//windowCounts[player * NUM_TIERS + tier] is the number of fighters the
+	//player can get in the tier's window, for the tiers in canFill[player]
+	private final int[] windowCounts;
+	
+	//fighters a player can't decide the tier with, even though their tier
+	//is feasible, because the others need them. hasUnsafe[player] is false
+	//if there aren't any, in which case their set may be null or out of
+	//date
+	private final BitSet[] unsafe;
+	private final boolean[] hasUnsafe;
+	
+	//the tiers each player can decide the range with that still have to be
+	//checked with the matching. foundUnchecked[player] is false until
+	//they've been worked out
+	private final int[] unchecked;
+	private final boolean[] foundUnchecked;
+	
+	//the total weight of each player's valid fighters that they can decide
+	//the tier with
+	private final int[] pickableWeight;
+	
+	//the matching used to check the windows that need it. the fighters
+	//each player can get from each window come from the TierList
+	private final FighterMatching matching;
+	
+	//used by othersHaveRoom() to sort the other players' counts
+	private final int[] counts;
+	
+	/**
+	 * Creates a <code>TierWindows</code> with room for the given number of
+	 * players. It must be reset before it's used.
+	 * 
+	 * @param maxPlayers	The most players it will be used for.
+	 */
+	TierWindows(int maxPlayers) {
+		placeCounts = new int[maxPlayers * 3 * TierList.NUM_TIERS];
+		reaches = new int[maxPlayers * 3];
+		validTiers = new int[maxPlayers];
+		windowCounts = new int[maxPlayers * TierList.NUM_TIERS];
+		canFill = new int[maxPlayers];
+		hasRoom = new int[maxPlayers];
+		feasible = new int[maxPlayers];
+		unsafe = new BitSet[maxPlayers];
+		hasUnsafe = new boolean[maxPlayers];
+		unchecked = new int[maxPlayers];
+		foundUnchecked = new boolean[maxPlayers];
+		pickableWeight = new int[maxPlayers];
+		counts = new int[maxPlayers];
+		
+		matching = new FighterMatching();
+	}
+	
+	/**
+	 * Empties this <code>TierWindows</code> so no player can fill any window,
+	 * ready to work out the windows for a new battle.
+	 * 
+	 * @param numPlayers	The number of players.
+	 */
+	void reset(int numPlayers) {
+		this.numPlayers = numPlayers;
+		
+		Arrays.fill(placeCounts, 0, numPlayers * 3 * TierList.NUM_TIERS, 0);
+		Arrays.fill(reaches, 0, numPlayers * 3, 0);
+		Arrays.fill(hasRoom, 0, numPlayers, 0);
+		Arrays.fill(hasUnsafe, 0, numPlayers, false);
+		Arrays.fill(foundUnchecked, 0, numPlayers, false);
+		
+		//the rest are always set before they're read
+	}
+	
+	/**
+	 * @param tier	A tier.
+	 * @return		The tiers in the window around that tier: the tier itself,
+	 * 				the tier a player bumped once gets, and the tier a player
+	 * 				bumped twice gets. This array must not be changed.
+	 */
+	static int[] getWindow(int tier) {
+		return WINDOWS[tier];
+	}
+	
+	/**
+	 * Notes how many fighters a player has in a tier that can be gotten at a
+	 * certain place in a window, meaning their weight there isn't 0.
+	 * 
+	 * @param player	The player.
+	 * @param place		0 for the tier of the window itself, 1 for a bump of
+	 * 					one tier, or 2 for a bump of two tiers.
+	 * @param tier		The tier of the fighters.
+	 * @param count		The number of fighters.
+	 */
+	void count(int player, int place, int tier, int count) {
+		placeCounts[(player * 3 + place) * TierList.NUM_TIERS + tier] = count;
+		
+		if(count > 0) {
+			reaches[player * 3 + place] |= 1 << tier;
+		}
+	}
+	
+	/**
+	 * @param player	The player.
+	 * @param tiers		The tiers the player has valid fighters in, as a bit
+	 * 					mask.
+	 */
+	void setValidTiers(int player, int tiers) {
+		validTiers[player] = tiers;
+	}
+	
+	/**
+	 * Works out which windows each player can fill, and from that, which
+	 * tiers are feasible for each player, as long as the other players don't
+	 * get in each other's way. This must be called after every call to
+	 * <code>count()</code>, and before any of the methods below.
+	 */
+	void findFeasible() {
+		//the tiers whose window everyone can fill
+		int everyoneCanFill = ALL_TIERS;
+		
+		for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+			int inTier = reaches[playerAt * 3];
+			int bumpedOnce = reaches[playerAt * 3 + 1];
+			int bumpedTwice = reaches[playerAt * 3 + 2];
+			
+			//a window can be filled from the tier itself, from one tier
+			//above it, or from two tiers above it, except that the top two
+			//windows look down instead. see WINDOWS
+			int fillable = inTier |
+					(bumpedOnce << 1) | (bumpedOnce >>> 1 & 1) |
+					(bumpedTwice << 2) | (bumpedTwice >>> 1 & 2) | (bumpedTwice >>> 2 & 1);
+			
+			canFill[playerAt] = fillable & ALL_TIERS;
+			everyoneCanFill &= canFill[playerAt];
+			
+			//only windows that can be filled can have room, so there's no
+			//need to count the rest
+			for(int tiersLeft = canFill[playerAt]; tiersLeft != 0; tiersLeft &= tiersLeft - 1) {
+				int tierAt = Integer.numberOfTrailingZeros(tiersLeft);
+				
+				int count = countInWindow(playerAt, tierAt);
+				windowCounts[playerAt * TierList.NUM_TIERS + tierAt] = count;
+				
+				if(count >= numPlayers) {
+					hasRoom[playerAt] |= 1 << tierAt;
+				}
+			}
+		}
+		
+		//a tier is also feasible for the one player who can't fill it, if
+		//everyone else can, since they'd be the one deciding the tier
+		for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+			feasible[playerAt] = everyoneCanFill | othersCan(canFill, playerAt);
+		}
+	}
+	
+	/**
+	 * @param player	A player.
+	 * @param tier		A tier.
+	 * @return			The number of fighters the player can get in that
+	 * 					tier's window.
+	 */
+	private int countInWindow(int player, int tier) {
+		int[] window = WINDOWS[tier];
+		int count = 0;
+		
+		for(int placeAt = 0; placeAt < 3; placeAt++) {
+			count += placeCounts[(player * 3 + placeAt) * TierList.NUM_TIERS + window[placeAt]];
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * @param player	A player.
+	 * @param tier		A tier.
+	 * @return			<code>true</code> if the player has at least one
+	 * 					fighter per player in the tier's window, so they can
+	 * 					be given one no matter what anyone else gets.
+	 */
+	boolean hasRoom(int player, int tier) {
+		return (hasRoom[player] >>> tier & 1) != 0;
+	}
+	
+	/**
+	 * @param picker	The player whose fighter would decide the tier.
+	 * @return			The tiers whose window the other players can always
+	 * 					be given different fighters from, no matter which
+	 * 					fighter the picker takes, as a bit mask.
+	 */
+	int othersHaveRoom(int picker) {
+		int room = othersCan(hasRoom, picker);
+		
+		//a player can be short on room as long as the others aren't. if
+		//the others are given fighters from the fewest options to the
+		//most, the one with the i-th fewest only has the i before them and
+		//the picker's fighter to worry about
+		int shortOnRoom = othersCan(canFill, picker) & ~room;
+		
+		for(; shortOnRoom != 0; shortOnRoom &= shortOnRoom - 1) {
+			int tierAt = Integer.numberOfTrailingZeros(shortOnRoom);
+			int numOthers = 0;
+			
+			for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+				if(playerAt != picker) {
+					counts[numOthers++] = windowCounts[playerAt * TierList.NUM_TIERS + tierAt];
+				}
+			}
+			
+			//there are only ever a few, so an insertion sort is quickest
+			for(int at = 1; at < numOthers; at++) {
+				int count = counts[at];
+				int before = at - 1;
+				
+				for(; before >= 0 && counts[before] > count; before--) {
+					counts[before + 1] = counts[before];
+				}
+				
+				counts[before + 1] = count;
+			}
+			
+			boolean enough = true;
+			for(int at = 0; at < numOthers && enough; at++) {
+				enough = counts[at] >= at + 2;
+			}
+			
+			if(enough) {
+				room |= 1 << tierAt;
+			}
+		}
+		
+		return room;
+	}
+	
+	/**
+	 * @return	The tiers that are in the mask of every player but the given
+	 * 			one.
+	 */
+	private int othersCan(int[] masks, int player) {
+		int others = ALL_TIERS;
+		
+		for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+			if(playerAt != player) {
+				others &= masks[playerAt];
+			}
+		}
+		
+		return others;
+	}
+	
+	/**
+	 * @param picker	A player.
+	 * @return			The tiers that are feasible for the player and that
+	 * 					they have valid fighters in, as a bit mask.
+	 */
+	int getPickableTiers(int picker) {
+		return feasible[picker] & validTiers[picker];
+	}
+	
+	/**
+	 * @param picker	A player.
+	 * @return			The tiers the player can decide the range with that
+	 * 					haven't been checked with the matching yet, but need
+	 * 					to be, as a bit mask. Until a tier is checked, the
+	 * 					player may not really be able to decide the range with
+	 * 					its fighters.
+	 */
+	int getUnchecked(int picker) {
+		if(!foundUnchecked[picker]) {
+			unchecked[picker] = getPickableTiers(picker) & ~othersHaveRoom(picker);
+			foundUnchecked[picker] = true;
+		}
+		
+		return unchecked[picker];
+	}
+	
+	/**
+	 * Notes that a tier has been checked with the matching for a player, so
+	 * whether they can decide the range with its fighters is final.
+	 * 
+	 * @param picker	The player.
+	 * @param tier		The tier.
+	 */
+	void markChecked(int picker, int tier) {
+		unchecked[picker] &= ~(1 << tier);
+	}
+	
+	/**
+	 * Makes a tier infeasible for a player, because the other players can't
+	 * all be given different fighters from its window.
+	 * 
+	 * @param picker	The player.
+	 * @param tier		The tier.
+	 */
+	void ruleOut(int picker, int tier) {
+		feasible[picker] &= ~(1 << tier);
+	}
+	
+	/**
+	 * Notes that a player can't decide the tier with a fighter, because if
+	 * they got it, the other players couldn't all be given different
+	 * fighters.
+	 * 
+	 * @param picker	The player.
+	 * @param fighter	The fighter's id.
+	 */
+	void markUnsafe(int picker, int fighter) {
+		if(unsafe[picker] == null) {
+			unsafe[picker] = new BitSet();
+		}
+		else if(!hasUnsafe[picker]) {
+			unsafe[picker].clear();
+		}
+		
+		unsafe[picker].set(fighter);
+		hasUnsafe[picker] = true;
+	}
+	
+	/**
+	 * @param fighter	A fighter.
+	 * @param picker	The player whose fighter would decide the tier.
+	 * @return			<code>true</code> if the player can decide the tier
+	 * 					with that fighter. This is only final once the
+	 * 					fighter's tier has been checked, if it needed to be.
+	 * 					See <code>getUnchecked()</code>.
+	 */
+	boolean isPickable(Fighter fighter, int picker) {
+		return (feasible[picker] >>> fighter.getTier() & 1) != 0 &&
+				(!hasUnsafe[picker] || !unsafe[picker].get(fighter.getId()));
+	}
+	
+	/**
+	 * @param picker	A player.
+	 * @return			<code>true</code> if the player can decide the tier
+	 * 					with any of their valid fighters. Every tier must
+	 * 					have been checked first.
+	 */
+	boolean allPickable(int picker) {
+		return (validTiers[picker] & ~feasible[picker]) == 0 && !hasUnsafe[picker];
+	}
+	
+	/**
+	 * @param player	A player.
+	 * @param weight	The total weight of the player's valid fighters that
+	 * 					they can decide the tier with.
+	 */
+	void setPickableWeight(int player, int weight) {
+		pickableWeight[player] = weight;
+	}
+	
+	/**
+	 * @param player	A player.
+	 * @return			The total weight of the player's valid fighters that
+	 * 					they can decide the tier with.
+	 */
+	int getPickableWeight(int player) {
+		return pickableWeight[player];
+	}
+	
+	/**
+	 * @return	<code>true</code> if any player can decide the tier with any
+	 * 			fighter, meaning a battle can be generated. Every tier must
+	 * 			have been checked first.
+	 */
+	boolean anyPickable() {
+		for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+			if(getPickableTiers(playerAt) != 0) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * @return	The matching to check candidates with. There's only one, and
+	 * 			it's kept along with the rest.
+	 */
+	FighterMatching getMatching() {
+		return matching;
+	}
+	
+	/**
+	 * Explains why no tier is feasible. If there's a tier whose window
+	 * everyone has fighters in, the problem is that they're the same few
+	 * fighters. Otherwise, the player who can fill the fewest windows is
+	 * named, since they're the one holding everyone else back.
+	 * 
+	 * @return	The explanation.
+	 */
+	String explainInfeasible() {
+		int everyoneCanFill = othersCan(canFill, -1);
+		if(everyoneCanFill != 0) {
+			return "No tier range has a different valid fighter for every player. The players " +
+					"only have the same few fighters left.";
+		}
+		
+		int worstPlayer = 0;
+		int worstCount = Integer.MAX_VALUE;
+		
+		for(int playerAt = 0; playerAt < numPlayers; playerAt++) {
+			int count = Integer.bitCount(canFill[playerAt]);
+			
+			if(count < worstCount) {
+				worstPlayer = playerAt;
+				worstCount = count;
+			}
+		}
+		
+		return "No tier range has valid fighters for every player. Player " + (worstPlayer + 1) +
+				" can only get fighters in the range of " + worstCount + " of the " +
+				TierList.NUM_TIERS + " tiers.";
+	}
+
+}
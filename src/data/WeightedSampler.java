@@ -0,0 +1,151 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * The <code>WeightedSampler</code> class allows an item to be drawn at random
+ * from a collection in which every item has its own integer weight. An item
+ * with a weight of 20 is twice as likely to be drawn as an item with a
+ * weight of 10.
+ * <br><br>
+ * Before this class existed, weighting was done by adding a fighter to a
+ * list once for every point of weight it had, and then picking a random
+ * index of that list. That works, but with large tier lists and many
+ * players it means tens of thousands of list insertions for every battle.
+ * The <code>WeightedSampler</code> only stores each item once, along with
+ * its weight, and draws an item by walking through the weights until a
+ * random number falls inside one. That takes time proportional to the
+ * number of items rather than the total weight, and since a new sampler is
+ * built for every battle and usually only drawn from once, nothing that
+ * would make later draws faster is worth building. The probability of
+ * drawing each item is exactly the same as it would be with the old
+ * expanded list.
+ *
+ * @author Jordan Knapp
+ *
+ * @param <T>	The type of item being drawn.
+ */
+public class WeightedSampler<T> {
+	
+	private List<T> items;
+	private int[] weights;
+	private int totalWeight;
+	
+	/**
+	 * Creates an empty <code>WeightedSampler</code>.
+	 */
+	public WeightedSampler() {
+		this(16);
+	}
+	
+	/**
+	 * Creates an empty <code>WeightedSampler</code> with room for the given
+	 * number of items before any reallocation is needed.
+	 *
+	 * @param expectedSize	The number of items expected to be added.
+	 */
+	public WeightedSampler(int expectedSize) {
+		items = new ArrayList<T>(expectedSize);
+		weights = new int[Math.max(expectedSize, 1)];
+		totalWeight = 0;
+	}
+	
+	/**
+	 * Adds an item with the given weight. Items with a weight of 0 can be
+	 * added, but will never be drawn.
+	 *
+	 * @param item		The item to add.
+	 * @param weight	The weight of the item.
+	 *
+	 * @throws IllegalArgumentException	Thrown if the weight is negative.
+	 * @throws ArithmeticException		Thrown if the total weight of all the
+	 * 									items no longer fits in an
+	 * 									<code>int</code>.
+	 */
+	public void add(T item, int weight) throws IllegalArgumentException, ArithmeticException {
+		if(weight < 0) {
+			throw new IllegalArgumentException("Weight of " + item + " cannot be negative, " +
+					"but " + weight + " was given.");
+		}
+		
+		if(items.size() == weights.length) {
+			weights = Arrays.copyOf(weights, weights.length * 2);
+		}
+		
+		weights[items.size()] = weight;
+		items.add(item);
+		totalWeight = Math.addExact(totalWeight, weight);
+	}
+	
+	/**
+	 * @return	The number of items that have been added, regardless of
+	 * 			their weight.
+	 */
+	public int size() {
+		return items.size();
+	}
+	
+	/**
+	 * @return	The sum of the weights of every item. This is equal to the
+	 * 			size the list would have had if every item were added once
+	 * 			for each point of its weight.
+	 */
+	public int getTotalWeight() {
+		return totalWeight;
+	}
+	
+	/**
+	 * @param index	The index of the item to get, in the order it was added.
+	 * @return		The item at that index.
+	 */
+	public T get(int index) {
+		return items.get(index);
+	}
+	
+	/**
+	 * @param index	The index of the item whose weight will be returned, in
+	 * 				the order it was added.
+	 * @return		The weight of the item at that index.
+	 */
+	public int getWeight(int index) {
+		if(index < 0 || index >= items.size()) {
+			throw new IndexOutOfBoundsException("Index " + index + " is invalid for a " +
+					"WeightedSampler with " + items.size() + " items.");
+		}
+		
+		return weights[index];
+	}
+	
+	/**
+	 * Draws a random item, with each item's chance of being drawn being
+	 * its weight divided by the total weight.
+	 *
+	 * @param random	The source of randomness to use.
+	 * @return			The drawn item.
+	 *
+	 * @throws IllegalStateException	Thrown if there is nothing to draw,
+	 * 									i.e. the total weight is 0.
+	 */
+	public T sample(RandomGenerator random) throws IllegalStateException {
+		if(totalWeight == 0) {
+			throw new IllegalStateException("Cannot draw from a WeightedSampler with no weight.");
+		}
+		
+		int pick = random.nextInt(totalWeight);
+		
+		for(int at = 0; at < items.size(); at++) {
+			pick -= weights[at];
+			
+			if(pick < 0) {
+				return items.get(at);
+			}
+		}
+		
+		//can't happen, since the weights add up to the total
+		throw new IllegalStateException("Weights do not add up to " + totalWeight + ".");
+	}
+
+}
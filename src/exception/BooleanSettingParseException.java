@@ -23,6 +23,8 @@ public class BooleanSettingParseException extends TierListParseException {
 	 * @param badVal		The invalid value that caused the exception.
 	 * @param lineNumber	The line number of the tier list file that the
 	 * 						code exception occurred on.
+	 * @param column		The column of the tier list file that the
+	 * 						invalid value starts at.
 	 * @param setting		An enum representing the setting that was being
 	 * 						read when the exception was thrown. Used when
 	 * 						creating the error message.
@@ -30,9 +32,9 @@ public class BooleanSettingParseException extends TierListParseException {
 	 * 						exception being thrown, such as a
 	 * 						<code>NumberFormatException</code>.
 	 */
-	public BooleanSettingParseException(String badVal, int lineNumber,
+	public BooleanSettingParseException(String badVal, int lineNumber, int column,
 			BooleanSetting setting, Throwable cause) {
-		super(constructErrorMessage(badVal, lineNumber, setting), cause);
+		super(constructErrorMessage(badVal, lineNumber, column, setting), cause);
 	}
 	
 	/**
@@ -42,6 +44,8 @@ public class BooleanSettingParseException extends TierListParseException {
 	 * @param badVal		The invalid value that caused the exception.
 	 * @param lineNumber	The line number of the tier list file that the
 	 * 						code exception occurred on.
+	 * @param column		The column of the tier list file that the
+	 * 						invalid value starts at.
 	 * @param setting		An enum representing the setting that was being
 	 * 						read when the exception was thrown. Used when
 	 * 						creating the error message.
@@ -49,16 +53,17 @@ public class BooleanSettingParseException extends TierListParseException {
 	 * 						exception being thrown, such as a
 	 * 						<code>NumberFormatException</code>.
 	 */
-	public BooleanSettingParseException(String badVal, int lineNumber,
+	public BooleanSettingParseException(String badVal, int lineNumber, int column,
 			BooleanSetting setting) {
-		super(constructErrorMessage(badVal, lineNumber, setting));
+		super(constructErrorMessage(badVal, lineNumber, column, setting));
 	}
 	
 	/**
 	 * Constructs the proper error message based on the values passed into
 	 * the constructor. The error message will have the following format:
 	 * <br><br>
-	 * "Line <code>{line number}</code>: "<code>{invalid value}</code> is
+	 * "Line <code>{line number}</code>, column <code>{column}</code>:
+	 * "<code>{invalid value}</code> is
 	 * invalid for setting "<code>{setting text based on BooleanSetting
 	 * value}</code>" -- a boolean value ("true"/"false" or "0"/"1") is
 	 * required."
@@ -67,12 +72,13 @@ public class BooleanSettingParseException extends TierListParseException {
 	 * 						constructor, i.e. the value that caused the
 	 * 						exception.
 	 * @param lineNumber	The line number that the exception occurred on.
+	 * @param column		The column that the invalid value starts at.
 	 * @param setting		The <code>setting</code> value from the
 	 * 						constructor, i.e. which boolean setting it was
 	 * 						that was being parsed when the exception occurred.
 	 * @return				A string with the format described above.
 	 */
-	private static String constructErrorMessage(String badVal, int lineNumber, BooleanSetting setting) {
+	private static String constructErrorMessage(String badVal, int lineNumber, int column, BooleanSetting setting) {
 		String settingText;
 		
 		switch(setting) {
@@ -86,7 +92,7 @@ public class BooleanSettingParseException extends TierListParseException {
 			settingText = "UNRECOGNIZED SETTING";
 		}
 		
-		return "Line " + lineNumber + ": \"" + badVal +
+		return "Line " + lineNumber + ", column " + column + ": \"" + badVal +
 				"\" is invalid for setting \"" + settingText +
 				"\" -- a boolean value (\"true\"/\"false\" or \"0\"/\"1\") is required.";
 	}
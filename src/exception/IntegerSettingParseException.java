@@ -24,6 +24,8 @@ public class IntegerSettingParseException extends TierListParseException {
 	 * @param badVal		The invalid value that caused the exception.
 	 * @param lineNumber	The line number of the tier list file that the
 	 * 						code exception occurred on.
+	 * @param column		The column of the tier list file that the
+	 * 						invalid value starts at.
 	 * @param minVal		The correct minimum value for this setting.
 	 * @param maxVal		The correct maximum value for this setting.
 	 * @param setting		An enum representing the setting that was being
@@ -33,9 +35,9 @@ public class IntegerSettingParseException extends TierListParseException {
 	 * 						exception being thrown, such as a
 	 * 						<code>NumberFormatException</code>.
 	 */
-	public IntegerSettingParseException(String badVal, int lineNumber,
+	public IntegerSettingParseException(String badVal, int lineNumber, int column,
 			int minVal, int maxVal, IntegerSetting setting, Throwable cause) {
-		super(constructErrorMessage(badVal, lineNumber, minVal, maxVal, setting), cause);
+		super(constructErrorMessage(badVal, lineNumber, column, minVal, maxVal, setting), cause);
 	}
 	
 	/**
@@ -45,22 +47,25 @@ public class IntegerSettingParseException extends TierListParseException {
 	 * @param badVal		The invalid value that caused the exception.
 	 * @param lineNumber	The line number of the tier list file that the
 	 * 						code exception occurred on.
+	 * @param column		The column of the tier list file that the
+	 * 						invalid value starts at.
 	 * @param minVal		The correct minimum value for this setting.
 	 * @param maxVal		The correct maximum value for this setting.
 	 * @param setting		An enum representing the setting that was being
 	 * 						read when the exception was thrown. Used when
 	 * 						creating the error message.
 	 */
-	public IntegerSettingParseException(String badVal, int lineNumber,
+	public IntegerSettingParseException(String badVal, int lineNumber, int column,
 			int minVal, int maxVal, IntegerSetting setting) {
-		super(constructErrorMessage(badVal, lineNumber, minVal, maxVal, setting));
+		super(constructErrorMessage(badVal, lineNumber, column, minVal, maxVal, setting));
 	}
 	
 	/**
 	 * Constructs the proper error message based on the values passed into
 	 * the constructor. The error message will have the following format:
 	 * <br><br>
-	 * "Line <code>{line number}</code>: "<code>{invalid value}</code> is
+	 * "Line <code>{line number}</code>, column <code>{column}</code>:
+	 * "<code>{invalid value}</code> is
 	 * invalid for setting "<code>{setting text based on IntegerSetting
 	 * value}</code>" -- a number between <code>{minimum value}</code> and
 	 * <code>{maximum value{</code> is required."
@@ -69,6 +74,7 @@ public class IntegerSettingParseException extends TierListParseException {
 	 * 						constructor, i.e. the value that caused the
 	 * 						exception.
 	 * @param lineNumber	The line number that the exception occurred on.
+	 * @param column		The column that the invalid value starts at.
 	 * @param minVal		The minimum value for this integer setting.
 	 * @param maxVal		The maximum value for this integer setting.
 	 * @param setting		The <code>setting</code> value from the
@@ -76,7 +82,7 @@ public class IntegerSettingParseException extends TierListParseException {
 	 * 						that was being parsed when the exception occurred.
 	 * @return				A string with the format described above.
 	 */
-	private static String constructErrorMessage(String badVal, int lineNumber,
+	private static String constructErrorMessage(String badVal, int lineNumber, int column,
 			int minVal, int maxVal, IntegerSetting setting) {
 		String settingText;
 		
@@ -91,7 +97,7 @@ public class IntegerSettingParseException extends TierListParseException {
 			settingText = "UNRECOGNIZED SETTING";
 		}
 		
-		return "Line " + lineNumber + ": \"" + badVal +
+		return "Line " + lineNumber + ", column " + column + ": \"" + badVal +
 				"\" is invalid for setting \"" + settingText +
 				"\" -- a number between " + minVal + " and " + maxVal +
 				" is required.";
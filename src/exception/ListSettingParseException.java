@@ -24,6 +24,8 @@ public class ListSettingParseException extends TierListParseException {
 	 * @param badVal		The invalid value(s) that caused the exception.
 	 * @param lineNumber	The line number of the tier list file that the
 	 * 						code exception occurred on.
+	 * @param column		The column of the tier list file that the
+	 * 						invalid value starts at.
 	 * @param numVals		The correct number of values that are supposed
 	 * 						to be given.
 	 * @param setting		An enum representing the setting that was being
@@ -33,9 +35,9 @@ public class ListSettingParseException extends TierListParseException {
 	 * 						exception being thrown, such as a
 	 * 						<code>NumberFormatException</code>.
 	 */
-	public ListSettingParseException(String badVal, int lineNumber, int numVals,
+	public ListSettingParseException(String badVal, int lineNumber, int column, int numVals,
 			ListSetting setting, Throwable cause) {
-		super(constructErrorMessage(badVal, lineNumber, numVals, setting), cause);
+		super(constructErrorMessage(badVal, lineNumber, column, numVals, setting), cause);
 	}
 	
 	/**
@@ -45,22 +47,25 @@ public class ListSettingParseException extends TierListParseException {
 	 * @param badVal		The invalid value(s) that caused the exception.
 	 * @param lineNumber	The line number of the tier list file that the
 	 * 						code exception occurred on.
+	 * @param column		The column of the tier list file that the
+	 * 						invalid value starts at.
 	 * @param numVals		The correct number of values that are supposed
 	 * 						to be given.
 	 * @param setting		An enum representing the setting that was being
 	 * 						read when the exception was thrown. Used when
 	 * 						creating the error message.
 	 */
-	public ListSettingParseException(String badVal, int lineNumber, int numVals,
+	public ListSettingParseException(String badVal, int lineNumber, int column, int numVals,
 			ListSetting setting) {
-		super(constructErrorMessage(badVal, lineNumber, numVals, setting));
+		super(constructErrorMessage(badVal, lineNumber, column, numVals, setting));
 	}
 	
 	/**
 	 * Constructs the proper error message based on the values passed into
 	 * the constructor. The error message will have the following format:
 	 * <br><br>
-	 * "Line <code>{line number}</code>: "<code>{invalid value}</code> is
+	 * "Line <code>{line number}</code>, column <code>{column}</code>:
+	 * "<code>{invalid value}</code> is
 	 * invalid for setting "<code>{setting text based on ListSetting
 	 * value}</code>" -- a list of <code>{correct number of values}</code>
 	 * comma-separated numbers is required. Those numbers must be positive
@@ -70,13 +75,14 @@ public class ListSettingParseException extends TierListParseException {
 	 * 						constructor, i.e. the value that caused the
 	 * 						exception.
 	 * @param lineNumber	The line number that the exception occurred on.
+	 * @param column		The column that the invalid value starts at.
 	 * @param numVals		The correct number of values to have in the list.
 	 * @param setting		The <code>setting</code> value from the
 	 * 						constructor, i.e. which list setting it was that
 	 * 						was being parsed when the exception occurred.
 	 * @return				A string with the format described above.
 	 */
-	private static String constructErrorMessage(String badVal, int lineNumber,
+	private static String constructErrorMessage(String badVal, int lineNumber, int column,
 			int numVals, ListSetting setting) {
 		String settingText;
 		switch(setting) {
@@ -90,7 +96,7 @@ public class ListSettingParseException extends TierListParseException {
 			settingText = "UNRECOGNIZED SETTING";
 		}
 		
-		return "Line " + lineNumber + ": \"" + badVal +
+		return "Line " + lineNumber + ", column " + column + ": \"" + badVal +
 				"\" is invalid for setting \"" + settingText +
 				"\" -- a list of " + numVals + " comma-separated numbers " +
 				"is required. Those numbers must be positive integers " +
@@ -8,6 +8,11 @@ package exception;
  * been selected, in which case another attempt can be made to generate a
  * battle. This distinction is made via the <code>tierRangeSelected</code>
  * variable.
+ * <br><br>
+ * It can also be thrown before a tier is selected when every player has
+ * fighters, but no tier range has fighters for every player at once. That
+ * can't be fixed by trying again either, so <code>tierRangeSelected</code>
+ * is <code>false</code>.
  * 
  * @author Jordan Knapp
  *
@@ -47,11 +52,27 @@ public class NoValidFightersException extends Exception {
 	 * 								initial valid set for each player.
 	 */
 	public NoValidFightersException(int player, boolean tierRangeSelected) {
-		super(constructErrorMessage(player, tierRangeSelected));
+		//once a tier range is selected, this is thrown on every failed try
+		//and only caught by the retry loop, so don't fill in a stack trace
+		super(constructErrorMessage(player, tierRangeSelected), null, true, !tierRangeSelected);
 		
 		this.tierRangeSelected = tierRangeSelected;
 	}
 	
+	/**
+	 * Constructs a <code>NoValidFightersException</code> that happened
+	 * before a tier range was selected, with a message explaining why.
+	 * 
+	 * @param message	The explanation of why no battle can be generated.
+	 */
+	public NoValidFightersException(String message) {
+		//this is how most sessions end, and the message says everything a
+		//stack trace would
+		super(message, null, true, false);
+		
+		this.tierRangeSelected = false;
+	}
+	
 	/**
 	 * Constructs the proper error message based on the values passed into
 	 * the constructor. The error message will have the following format:
@@ -1,18 +1,51 @@
 package ui;
 
 import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.FlowLayout;
 import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.ArrayList;
+import java.util.List;
 
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JPanel;
+import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
-import util.Util;
+import util.LogLevel;
+import util.LogRecord;
+import util.LogSink;
+import util.Logger;
 
 /**
- * A class responsible for holding the window that contains the
- * <i><code>debug</code></i> field in the <code>Util</code> class. Simply allows
- * debug information to be read when the program is being run outside of an IDE.
+ * A class responsible for holding the window that shows the messages logged
+ * through the <code>Logger</code>. Simply allows debug information to be read
+ * when the program is being run outside of an IDE.
+ * <br><br>
+ * Debug messages are only logged while the <code>DebugWindow</code> is
+ * showing, since they describe every step of generating a battle, and there's
+ * no point building them when nobody is going to read them.
+ * <br><br>
+ * Messages are kept in a <code>LogListModel</code>, which only holds the
+ * last <b><i><code>MAX_LINES</code></b></i> lines, and are shown in a
+ * <code>JList</code> in which every row has the same height, so only the
+ * rows that are actually on screen are ever laid out or painted. The lines
+ * shown can be filtered by level and by battle number.
  * 
  * @author Jordan Knapp
  */
@@ -20,8 +53,34 @@ public class DebugWindow extends JFrame {
 	
 	private static final long serialVersionUID = 1L;
 	
+	/**
+	 * The most lines the <code>DebugWindow</code> will keep. Once there are
+	 * this many, the oldest are thrown away as new ones come in.
+	 */
+	public static final int MAX_LINES = 50000;
+	
+	//the width of a row, in characters. longer lines are cut off
+	private static final int ROW_CHARACTERS = 240;
+	
 	private JPanel panel;
 	
+	private LogListModel model;
+	private JList<String> list;
+	private JScrollPane scrollPane;
+	
+	private JComboBox<LogLevel> levelBox;
+	private JTextField battleField;
+	
+	//lines logged but not yet added to the model. they're collected on the
+	//logger's thread, and added in one go on the Swing thread
+	private final List<String> pendingLines = new ArrayList<String>();
+	private final List<LogLevel> pendingLevels = new ArrayList<LogLevel>();
+	private final List<Integer> pendingBattles = new ArrayList<Integer>();
+	private boolean updateScheduled = false;
+	
+	//the logger's level before the window was shown, so it can be put back
+	private LogLevel levelBeforeShown;
+	
 	/**
 	 * Constructs a <code>DebugWindow</code> with the specified parameters.
 	 * Because the class extends <code>JFrame</code>, it is up to the caller
@@ -38,8 +97,8 @@ public class DebugWindow extends JFrame {
 	 * be placed exactly below the parent window.
 	 * <br><br>
 	 * Logging info to the <code>DebugWindow</code> is done via the
-	 * <code>Util</code> class' <code>log()</code> and <code>error()</code>
-	 * methods.
+	 * <code>Logger</code> class. Every message logged after the
+	 * <code>DebugWindow</code> is created will be shown in it.
 	 * 
 	 * @param parentWidth	The width of the parent window creating this
 	 * 						<code>DebugWindow</code>.
@@ -58,12 +117,216 @@ public class DebugWindow extends JFrame {
 		panel = new JPanel();
 		panel.setLayout(new BorderLayout());
 		
-		Util.debug.setEditable(false);
-		Util.debug.setFont(new Font("Monospaced", Font.PLAIN, Util.debug.getFont().getSize()));
-		panel.add(Util.debug);
+		model = new LogListModel(MAX_LINES);
+		list = new JList<String>(model);
+		list.setFont(new Font("Monospaced", Font.PLAIN, list.getFont().getSize()));
+		list.setCellRenderer(new LevelCellRenderer());
+		
+		//with a fixed row size, the list never has to measure every row
+		FontMetrics metrics = list.getFontMetrics(list.getFont());
+		list.setFixedCellHeight(metrics.getHeight() + 2);
+		list.setFixedCellWidth(metrics.charWidth('m') * ROW_CHARACTERS);
 		
-		JScrollPane scrollPane = new JScrollPane(panel);
+		scrollPane = new JScrollPane(list);
 		scrollPane.getVerticalScrollBar().setUnitIncrement(16);
-		add(scrollPane);
+		panel.add(scrollPane, BorderLayout.CENTER);
+		panel.add(createFilterPanel(), BorderLayout.NORTH);
+		
+		add(panel);
+		
+		Logger.addSink(new LogSink() {
+			public void write(LogRecord record, String line) {
+				addPending(record, line);
+			}
+			
+			public void flush() {
+				scheduleUpdate();
+			}
+		});
+		
+		addComponentListener(new ComponentAdapter() {
+			public void componentShown(ComponentEvent e) {
+				levelBeforeShown = Logger.getLevel();
+				Logger.setLevel(LogLevel.DEBUG);
+			}
+			
+			public void componentHidden(ComponentEvent e) {
+				if(levelBeforeShown != null) {
+					Logger.setLevel(levelBeforeShown);
+					levelBeforeShown = null;
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Creates the panel at the top of the window, with the controls for
+	 * filtering which lines are shown.
+	 */
+	private JPanel createFilterPanel() {
+		JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+		
+		levelBox = new JComboBox<LogLevel>(LogLevel.values());
+		levelBox.setSelectedItem(LogLevel.DEBUG);
+		levelBox.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				applyFilter();
+			}
+		});
+		
+		//filter as the battle number is typed
+		battleField = new JTextField(5);
+		battleField.getDocument().addDocumentListener(new DocumentListener() {
+			public void insertUpdate(DocumentEvent e) {
+				applyFilter();
+			}
+			
+			public void removeUpdate(DocumentEvent e) {
+				applyFilter();
+			}
+			
+			public void changedUpdate(DocumentEvent e) {
+				applyFilter();
+			}
+		});
+		
+		JButton clearButton = new JButton("Clear");
+		clearButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				model.clear();
+			}
+		});
+		
+		filterPanel.add(new JLabel("Show:"));
+		filterPanel.add(levelBox);
+		filterPanel.add(new JLabel("Battle:"));
+		filterPanel.add(battleField);
+		filterPanel.add(clearButton);
+		
+		return filterPanel;
+	}
+	
+	/**
+	 * Filters the lines by the level and battle number that are entered. If
+	 * the battle number is blank or isn't a number, lines from every battle
+	 * are shown.
+	 */
+	private void applyFilter() {
+		int battle = LogListModel.ANY_BATTLE;
+		
+		String battleText = battleField.getText().trim();
+		if(!battleText.isEmpty()) {
+			try {
+				battle = Integer.parseInt(battleText);
+			} catch(NumberFormatException e) {
+				battle = LogListModel.ANY_BATTLE;
+			}
+		}
+		
+		model.setFilter((LogLevel) levelBox.getSelectedItem(), battle);
+	}
+	
+	/**
+	 * Called on the logger's thread. Adds a message to the lines waiting to
+	 * be shown, splitting it into one line per row. If more lines are waiting
+	 * than the window will keep, the oldest are thrown away.
+	 */
+	private void addPending(LogRecord record, String line) {
+		synchronized(pendingLines) {
+			int start = 0;
+			int newline = line.indexOf('\n');
+			
+			while(newline != -1) {
+				pendingLines.add(line.substring(start, newline));
+				pendingLevels.add(record.getLevel());
+				pendingBattles.add(record.getBattle());
+				
+				start = newline + 1;
+				newline = line.indexOf('\n', start);
+			}
+			
+			pendingLines.add(start == 0 ? line : line.substring(start));
+			pendingLevels.add(record.getLevel());
+			pendingBattles.add(record.getBattle());
+			
+			if(pendingLines.size() > MAX_LINES * 2) {
+				int excess = pendingLines.size() - MAX_LINES;
+				pendingLines.subList(0, excess).clear();
+				pendingLevels.subList(0, excess).clear();
+				pendingBattles.subList(0, excess).clear();
+			}
+		}
+	}
+	
+	/**
+	 * Called on the logger's thread after a batch of messages. Makes sure
+	 * the waiting lines will be added on the Swing thread, unless that's
+	 * already going to happen.
+	 */
+	private void scheduleUpdate() {
+		synchronized(pendingLines) {
+			if(updateScheduled || pendingLines.isEmpty()) {
+				return;
+			}
+			
+			updateScheduled = true;
+		}
+		
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				List<String> lines;
+				List<LogLevel> levels;
+				List<Integer> battles;
+				
+				synchronized(pendingLines) {
+					lines = new ArrayList<String>(pendingLines);
+					levels = new ArrayList<LogLevel>(pendingLevels);
+					battles = new ArrayList<Integer>(pendingBattles);
+					
+					pendingLines.clear();
+					pendingLevels.clear();
+					pendingBattles.clear();
+					updateScheduled = false;
+				}
+				
+				//keep following new lines, unless the user has scrolled up
+				JScrollBar scrollBar = scrollPane.getVerticalScrollBar();
+				boolean atBottom = scrollBar.getValue() + scrollBar.getVisibleAmount() >=
+						scrollBar.getMaximum() - list.getFixedCellHeight();
+				
+				model.addAll(lines, levels, battles);
+				
+				if(atBottom && model.getSize() > 0) {
+					list.ensureIndexIsVisible(model.getSize() - 1);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Renders each line in a color based on its level.
+	 */
+	private class LevelCellRenderer extends DefaultListCellRenderer {
+		
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+				boolean isSelected, boolean cellHasFocus) {
+			super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+			
+			if(!isSelected) {
+				LogLevel level = model.getLevelAt(index);
+				
+				if(level == LogLevel.ERROR) {
+					setForeground(Color.RED);
+				}
+				else if(level == LogLevel.WARNING) {
+					setForeground(new Color(176, 96, 0));
+				}
+			}
+			
+			return this;
+		}
 	}
 }
@@ -0,0 +1,346 @@
+package ui;
+
+import java.util.List;
+
+import javax.swing.AbstractListModel;
+
+import util.LogLevel;
+
+/**
+ * The <code>LogListModel</code> holds the lines shown in the
+ * <code>DebugWindow</code>. It holds at most a fixed number of lines; once
+ * it is full, the oldest line is thrown away whenever a new one is added, so
+ * a long session can't use up more and more memory.
+ * <br><br>
+ * The lines are kept in a ring buffer, along with the level and battle
+ * number of each line in parallel arrays. Every line ever added has a
+ * sequence number, which never changes, and line <code>n</code> lives in
+ * slot <code>n % capacity</code> for as long as it's kept.
+ * <br><br>
+ * The model can be filtered to only show lines at or above a level, and
+ * optionally only the lines from one battle. While a filter is set, the
+ * model keeps the sequence numbers of the lines that match it, in order, in
+ * another ring buffer. Lines are never copied when the filter changes: if
+ * the new filter only shows a subset of what the old one did, the matches
+ * are narrowed down in place, and otherwise the levels and battles are
+ * scanned to find them again. New lines are checked against the filter as
+ * they are added.
+ * <br><br>
+ * Like any Swing model, a <code>LogListModel</code> must only be used on the
+ * Swing thread.
+ * 
+ * @author Jordan Knapp
+ */
+public class LogListModel extends AbstractListModel<String> {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The battle number to filter by to show lines from every battle.
+	 */
+	public static final int ANY_BATTLE = -1;
+	
+	private final int capacity;
+	
+	private final String[] lines;
+	private final LogLevel[] levels;
+	private final int[] battles;
+	
+	//the sequence number of the oldest line kept, and of the next line added
+	private long first;
+	private long next;
+	
+	//the current filter. if it lets everything through, matches isn't used
+	private LogLevel minLevel;
+	private int battle;
+	private boolean filtering;
+	
+	//the sequence numbers of the lines that match the filter, oldest first
+	private final long[] matches;
+	private int matchStart;
+	private int matchCount;
+	
+	/**
+	 * Creates an empty <code>LogListModel</code> with no filter.
+	 * 
+	 * @param capacity	The most lines it will hold.
+	 */
+	public LogListModel(int capacity) {
+		if(capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive, not " + capacity);
+		}
+		
+		this.capacity = capacity;
+		
+		lines = new String[capacity];
+		levels = new LogLevel[capacity];
+		battles = new int[capacity];
+		
+		first = 0;
+		next = 0;
+		
+		minLevel = LogLevel.DEBUG;
+		battle = ANY_BATTLE;
+		filtering = false;
+		
+		matches = new long[capacity];
+		matchStart = 0;
+		matchCount = 0;
+	}
+	
+	/**
+	 * @return	The number of lines that are shown, i.e. that match the
+	 * 			filter.
+	 */
+	@Override
+	public int getSize() {
+		return filtering ? matchCount : (int) (next - first);
+	}
+	
+	/**
+	 * @param index	The index of a line that is shown.
+	 * @return		That line.
+	 */
+	@Override
+	public String getElementAt(int index) {
+		return lines[slotAt(index)];
+	}
+	
+	/**
+	 * @param index	The index of a line that is shown.
+	 * @return		The level that line was logged at.
+	 */
+	public LogLevel getLevelAt(int index) {
+		return levels[slotAt(index)];
+	}
+	
+	/**
+	 * @param index	The index of a line that is shown.
+	 * @return		The number of the battle that line was logged during, or
+	 * 				0 if it wasn't logged during a battle.
+	 */
+	public int getBattleAt(int index) {
+		return battles[slotAt(index)];
+	}
+	
+	/**
+	 * @return	The total number of lines that are kept, whether or not they
+	 * 			match the filter.
+	 */
+	public int getLineCount() {
+		return (int) (next - first);
+	}
+	
+	/**
+	 * @return	The most lines that will be kept.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * Adds lines to the end of the log, throwing away the oldest lines if
+	 * there isn't room for them. Listeners are told about all of the lines
+	 * at once.
+	 * 
+	 * @param newLines		The lines to add.
+	 * @param newLevels		The level of each line.
+	 * @param newBattles	The battle number of each line.
+	 */
+	public void addAll(List<String> newLines, List<LogLevel> newLevels, List<Integer> newBattles) {
+		int oldSize = getSize();
+		int removed = 0;
+		
+		for(int at = 0; at < newLines.size(); at++) {
+			if(next - first == capacity) {
+				if(evictOldest()) {
+					removed++;
+				}
+			}
+			
+			int slot = (int) (next % capacity);
+			lines[slot] = newLines.get(at);
+			levels[slot] = newLevels.get(at);
+			battles[slot] = newBattles.get(at);
+			
+			if(filtering && matches(slot)) {
+				matches[(matchStart + matchCount) % capacity] = next;
+				matchCount++;
+			}
+			
+			next++;
+		}
+		
+		int newSize = getSize();
+		
+		if(removed > oldSize) {
+			//some of the new lines were thrown away too, so just say that
+			//everything changed
+			fireContentsChanged(this, 0, Math.max(oldSize, newSize) - 1);
+			
+			if(oldSize > newSize) {
+				fireIntervalRemoved(this, newSize, oldSize - 1);
+			}
+			else if(newSize > oldSize) {
+				fireIntervalAdded(this, oldSize, newSize - 1);
+			}
+			
+			return;
+		}
+		
+		if(removed > 0) {
+			fireIntervalRemoved(this, 0, removed - 1);
+		}
+		
+		if(newSize > oldSize - removed) {
+			fireIntervalAdded(this, oldSize - removed, newSize - 1);
+		}
+	}
+	
+	/**
+	 * Throws away every line.
+	 */
+	public void clear() {
+		int oldSize = getSize();
+		
+		for(int at = 0; at < capacity; at++) {
+			lines[at] = null;
+		}
+		
+		first = next;
+		matchStart = 0;
+		matchCount = 0;
+		
+		if(oldSize > 0) {
+			fireIntervalRemoved(this, 0, oldSize - 1);
+		}
+	}
+	
+	/**
+	 * @return	The lowest level of line that is shown.
+	 */
+	public LogLevel getMinLevel() {
+		return minLevel;
+	}
+	
+	/**
+	 * @return	The battle whose lines are shown, or
+	 * 			<b><i><code>ANY_BATTLE</code></b></i> if lines from every
+	 * 			battle are shown.
+	 */
+	public int getBattle() {
+		return battle;
+	}
+	
+	/**
+	 * Changes which lines are shown.
+	 * 
+	 * @param newMinLevel	The lowest level of line to show.
+	 * @param newBattle		The battle to show the lines of, or
+	 * 						<b><i><code>ANY_BATTLE</code></b></i> to show lines
+	 * 						from every battle.
+	 */
+	public void setFilter(LogLevel newMinLevel, int newBattle) {
+		if(newMinLevel == null) {
+			throw new NullPointerException("Level cannot be null");
+		}
+		
+		if(newMinLevel == minLevel && newBattle == battle) {
+			return;
+		}
+		
+		//if every line that matches the new filter also matches the old one,
+		//the matches we already have only need narrowing down
+		boolean narrowing = filtering && newMinLevel.compareTo(minLevel) >= 0 &&
+				(battle == ANY_BATTLE || newBattle == battle);
+		
+		int oldSize = getSize();
+		
+		minLevel = newMinLevel;
+		battle = newBattle;
+		filtering = minLevel != LogLevel.DEBUG || battle != ANY_BATTLE;
+		
+		if(narrowing) {
+			int kept = 0;
+			
+			for(int at = 0; at < matchCount; at++) {
+				long sequence = matches[(matchStart + at) % capacity];
+				
+				if(matches((int) (sequence % capacity))) {
+					matches[(matchStart + kept) % capacity] = sequence;
+					kept++;
+				}
+			}
+			
+			matchCount = kept;
+		}
+		else if(filtering) {
+			matchStart = 0;
+			matchCount = 0;
+			
+			for(long sequence = first; sequence < next; sequence++) {
+				if(matches((int) (sequence % capacity))) {
+					matches[matchCount] = sequence;
+					matchCount++;
+				}
+			}
+		}
+		
+		int newSize = getSize();
+		
+		if(oldSize > newSize) {
+			fireIntervalRemoved(this, newSize, oldSize - 1);
+		}
+		if(newSize > 0) {
+			fireContentsChanged(this, 0, newSize - 1);
+		}
+		if(newSize > oldSize) {
+			fireIntervalAdded(this, oldSize, newSize - 1);
+		}
+	}
+	
+	/**
+	 * Throws away the oldest line.
+	 * 
+	 * @return	<code>true</code> if it was being shown, <code>false</code>
+	 * 			if it was filtered out.
+	 */
+	private boolean evictOldest() {
+		lines[(int) (first % capacity)] = null;
+		
+		boolean shown = !filtering;
+		if(filtering && matchCount > 0 && matches[matchStart] == first) {
+			matchStart = (matchStart + 1) % capacity;
+			matchCount--;
+			shown = true;
+		}
+		
+		first++;
+		return shown;
+	}
+	
+	/**
+	 * @return	Whether the line in the given slot matches the filter.
+	 */
+	private boolean matches(int slot) {
+		if(levels[slot].compareTo(minLevel) < 0) {
+			return false;
+		}
+		
+		return battle == ANY_BATTLE || battles[slot] == battle;
+	}
+	
+	/**
+	 * @return	The slot of the line that is shown at the given index.
+	 */
+	private int slotAt(int index) {
+		if(index < 0 || index >= getSize()) {
+			throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for " + getSize() +
+					" lines.");
+		}
+		
+		long sequence = filtering ? matches[(matchStart + index) % capacity] : first + index;
+		return (int) (sequence % capacity);
+	}
+
+}
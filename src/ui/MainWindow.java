@@ -2,22 +2,24 @@ package ui;
 
 import java.awt.BorderLayout;
 import java.awt.Dimension;
+import java.awt.Font;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Image;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.ItemEvent;
+import java.awt.event.ItemListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.imageio.ImageIO;
 import javax.swing.BorderFactory;
@@ -35,17 +37,22 @@ import javax.swing.JScrollPane;
 import javax.swing.JSpinner;
 import javax.swing.JTextArea;
 import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
-import data.ComparableArray;
 import data.Fighter;
+import data.GenerationListener;
 import data.Matchup;
+import data.SessionLengths;
+import data.SessionSimulator;
 import data.Settings;
 import data.TierList;
 import exception.NoValidFightersException;
 import exception.TierListParseException;
-import util.Util;
+import util.Logger;
 
 public class MainWindow {
 	
@@ -81,6 +88,7 @@ public class MainWindow {
 	private JButton loadButton;
 	private JButton skipButton;
 	private JButton debugButton;
+	private JButton simulateButton;
 	
 	//switchPanel components
 	private JCheckBox player1Box;
@@ -148,8 +156,21 @@ public class MainWindow {
 	private int[] tierChances;
 	private int[] bumpChances;
 	
+	//the settings battles are generated with. see updateSettings()
+	private Settings currentSettings;
+	
 	private DebugWindow dbw;
 	
+	//the background task generating a battle, or null if there isn't one
+	private SwingWorker<Matchup, Integer> generator;
+	private volatile boolean generationCancelled;
+	
+	//the number of sessions simulated when the "Simulate" button is hit
+	private static final int SIMULATED_SESSIONS = 2000;
+	
+	//the number of other fighters suggested when a search isn't exact
+	private static final int SEARCH_SUGGESTIONS = 4;
+	
 	/**
 	 * The <code>MainWindow</code> makes up the primary UI of the Smash
 	 * Character Picker. This constructor will initialize everything in the
@@ -318,6 +339,13 @@ public class MainWindow {
 				
 				Settings settings = null;
 				
+				//save the stats from the current tier list first, since the
+				//new one will load them from the stats file. if that fails,
+				//the new one will recover them from the live stats file
+				if(fileLoaded) {
+					saveStats();
+				}
+				
 				try {
 					tierList = new TierList();
 					settings = tierList.loadFile(fileChooser.getSelectedFile());
@@ -325,7 +353,7 @@ public class MainWindow {
 				} catch(FileNotFoundException e1) {
 					results.setText("File " + fileChooser.getSelectedFile().getName() +
 							" not found!");
-					Util.error(e1);
+					Logger.error(e1);
 					
 					tierList = null;
 					fileLoaded = false;
@@ -333,7 +361,7 @@ public class MainWindow {
 					results.setText("IOException when reading " +
 							fileChooser.getSelectedFile().getName() + "!\n" +
 							"See the debug log for details.");
-					Util.error(e1);
+					Logger.error(e1);
 					
 					tierList = null;
 					fileLoaded = false;
@@ -341,14 +369,14 @@ public class MainWindow {
 					results.setText("TierListParseException when reading " +
 							fileChooser.getSelectedFile().getName() + "!\n" +
 							"See the debug log for details.");
-					Util.error(e1);
+					Logger.error(e1);
 					
 					tierList = null;
 					fileLoaded = false;
 				} catch(ClassNotFoundException e1) {
 					results.setText("ClassNotFoundException when reading " +
 							"stats data!\nSee the debug log for details.");
-					Util.error(e1);
+					Logger.error(e1);
 					
 					tierList = null;
 					fileLoaded = false;
@@ -356,7 +384,7 @@ public class MainWindow {
 				
 				//if file was loaded, update the UI
 				if(fileLoaded) {
-					Util.log("The following data was loaded as the tier list:\n" + tierList.toString());
+					Logger.debug(() -> "The following data was loaded as the tier list:\n" + tierList.toString());
 					
 					cannotGetSizeSpinner.setValue(settings.getCannotGetSize());
 					allowSSInCannotGet.setSelected(settings.ssAllowedInCannotGet());
@@ -386,6 +414,14 @@ public class MainWindow {
 			}
 		});
 		
+		simulateButton = new JButton("Simulate");
+		simulateButton.setToolTipText("Estimate how many battles a session will last with the current settings");
+		simulateButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				simulateSessions();
+			}
+		});
+		
 		numPlayersLabel = new JLabel("Number of players: ");
 		SpinnerNumberModel model = new SpinnerNumberModel(2, 2, 8, 1);
 		numPlayersSpinner = new JSpinner(model);
@@ -404,10 +440,12 @@ public class MainWindow {
 		gc.gridx = 3;
 		bottomPanel.add(debugButton, gc);
 		gc.gridx = 4;
+		bottomPanel.add(simulateButton, gc);
+		gc.gridx = 5;
 		gc.weightx = .03;
 		gc.fill = GridBagConstraints.NONE;
 		bottomPanel.add(numPlayersLabel, gc);
-		gc.gridx = 5;
+		gc.gridx = 6;
 		gc.weightx = .05;
 		bottomPanel.add(numPlayersSpinner, gc);
 		
@@ -577,6 +615,8 @@ public class MainWindow {
 					bumpChances[1] = (int) bump1Spinner.getValue();
 					bumpChances[2] = (int) bump2Spinner.getValue();
 				}
+				
+				updateSettings();
 			}
 		});
 		
@@ -654,6 +694,25 @@ public class MainWindow {
 		allowSSInCannotGet = new JCheckBox("Allow SS tiers in \"Cannot Get\" buffer");
 		allowSInCannotGet = new JCheckBox("Allow S tiers in \"Cannot Get\" buffer");
 		
+		//unlike the tier and bump chances, these settings don't have to be
+		//applied, so the settings are updated as soon as they change
+		ChangeListener spinnerListener = new ChangeListener() {
+			public void stateChanged(ChangeEvent e) {
+				updateSettings();
+			}
+		};
+		
+		ItemListener checkBoxListener = new ItemListener() {
+			public void itemStateChanged(ItemEvent e) {
+				updateSettings();
+			}
+		};
+		
+		numPlayersSpinner.addChangeListener(spinnerListener);
+		cannotGetSizeSpinner.addChangeListener(spinnerListener);
+		allowSSInCannotGet.addItemListener(checkBoxListener);
+		allowSInCannotGet.addItemListener(checkBoxListener);
+		
 		//add components to cannotGetPanel
 		gc.gridwidth = 1;
 		gc.gridheight = 1;
@@ -711,7 +770,7 @@ public class MainWindow {
 				Matchup last = previousMatchups.get(previousMatchups.size() - 1);
 				
 				try {
-					last.setWinner((int) winnerSpinner.getValue() - 1);
+					tierList.setWinner(last, (int) winnerSpinner.getValue() - 1);
 				} catch(IndexOutOfBoundsException e1) {
 					JOptionPane.showMessageDialog(null, "There are not that many " +
 							"players in this battle.", "Smash Character Picker",
@@ -735,12 +794,33 @@ public class MainWindow {
 				
 				Fighter fighter = tierList.getFighter(toSearch);
 				
-				if(fighter == null) {
+				if(fighter != null) {
+					statsOutput.setText(fighter.getStatsData());
+					return;
+				}
+				
+				//if there's no fighter with exactly that name, show the
+				//closest match, and suggest the next closest
+				List<Fighter> found = tierList.searchFighters(toSearch, SEARCH_SUGGESTIONS + 1);
+				
+				if(found.isEmpty()) {
 					statsOutput.setText("Fighter " + toSearch + " not found!");
 					return;
 				}
 				
-				statsOutput.setText(fighter.getStatsData());
+				StringBuilder output = new StringBuilder();
+				output.append("Closest match to \"" + toSearch + "\":\n");
+				output.append(found.get(0).getStatsData());
+				
+				if(found.size() > 1) {
+					output.append("\n\nDid you mean: ");
+					
+					for(int at = 1; at < found.size(); at++) {
+						output.append((at > 1 ? ", " : "") + found.get(at).getName());
+					}
+				}
+				
+				statsOutput.setText(output.toString());
 			}
 		});
 		
@@ -767,13 +847,8 @@ public class MainWindow {
 					return;
 				}
 				
-				ComparableArray[] lookupResult = tierList.getLookupResults(choiceVal);
-				
-				statsOutput.setText("Sorted by " + options[choiceVal] + ":\n");
-				for(int at = 0; at < lookupResult.length; at++)
-				{
-					statsOutput.append((at + 1) + ". " + lookupResult[at] + "\n");
-				}
+				statsOutput.setText("Sorted by " + options[choiceVal] + ":\n" +
+						tierList.getLookupString(choiceVal));
 			}
 		});
 		
@@ -861,7 +936,7 @@ public class MainWindow {
 		
 		dbw = new DebugWindow(frame.getWidth(), frame.getHeight(), frame.getX(), frame.getY());
 		
-		Util.log("Finished initializing MainWindow UI");
+		Logger.info("Finished initializing MainWindow UI");
 		
 		fileLoaded = false;
 		numBattles = 0;
@@ -870,6 +945,7 @@ public class MainWindow {
 		
 		tierChances = new int[] {10, 20, 25, 25, 20, 0, 0, 0};
 		bumpChances = new int[] {50, 25, 25};
+		updateSettings();
 		
 		frame.setVisible(true);
 		
@@ -888,7 +964,7 @@ public class MainWindow {
 			} catch(FileNotFoundException e1) {
 				results.setText("File " + tierListMaybe.getName() +
 						" not found!");
-				Util.error(e1);
+				Logger.error(e1);
 				
 				tierList = null;
 				fileLoaded = false;
@@ -896,7 +972,7 @@ public class MainWindow {
 				results.setText("IOException when reading " +
 						tierListMaybe.getName() + "!\n" +
 						"See the debug log for details.");
-				Util.error(e1);
+				Logger.error(e1);
 				
 				tierList = null;
 				fileLoaded = false;
@@ -904,7 +980,7 @@ public class MainWindow {
 				results.setText("TierListParseException when reading " +
 						tierListMaybe.getName() + "!\n" +
 						"See the debug log for details.");
-				Util.error(e1);
+				Logger.error(e1);
 				
 				tierList = null;
 				fileLoaded = false;
@@ -912,7 +988,7 @@ public class MainWindow {
 			
 			//if file was loaded, update the UI
 			if(fileLoaded) {
-				Util.log("The following data was loaded as the tier list:\n" + tierList.toString());
+				Logger.debug(() -> "The following data was loaded as the tier list:\n" + tierList.toString());
 				
 				cannotGetSizeSpinner.setValue(settings.getCannotGetSize());
 				allowSSInCannotGet.setSelected(settings.ssAllowedInCannotGet());
@@ -941,6 +1017,12 @@ public class MainWindow {
 	 * text field. Debug info and any potential errors will be printed to
 	 * the debug log.
 	 * <br><br>
+	 * The battle is generated on a background thread, so the window stays
+	 * responsive while it works. While it does, the generate button turns
+	 * into a cancel button, and the progress is shown in the main text
+	 * field. Calling this method while a battle is being generated cancels
+	 * it.
+	 * <br><br>
 	 * A running log of all <code>Matchups</code> is kept, to prevent the
 	 * same battle from being generated twice.
 	 * 
@@ -951,6 +1033,15 @@ public class MainWindow {
 	 * 					"Cannot Get" queue system if a battle is skipped.
 	 */
 	private void generateBattle(boolean skipping) {
+		if(generator != null) {
+			//the worker checks this between tries, and finishes normally.
+			//it isn't interrupted, since that would close the journal's
+			//file channel
+			generationCancelled = true;
+			generateButton.setEnabled(false);
+			return;
+		}
+		
 		if(!fileLoaded) {
 			JOptionPane.showMessageDialog(null, "You must load a tier " +
 					"list first!", "Smash Character Picker",
@@ -968,54 +1059,198 @@ public class MainWindow {
 			return;
 		}
 		
-		double startTime = System.currentTimeMillis();
+		final double startTime = System.currentTimeMillis();
 		
 		if(!skipping) {
 			numBattles++;
-			Util.log("========== BEGINNING GENERATION OF BATTLE " + numBattles + " ==========");
+			Logger.setBattle(numBattles);
+			Logger.info("========== BEGINNING GENERATION OF BATTLE " + numBattles + " ==========");
 		}
 		else {
-			Util.log("========== RESULT FOR BATTLE " + numBattles + " SKIPPED, GENERATING AGAIN ==========");
+			Logger.info("========== RESULT FOR BATTLE " + numBattles + " SKIPPED, GENERATING AGAIN ==========");
 		}
 		
-		Matchup result = null;
-		Settings settings = new Settings((int) numPlayersSpinner.getValue(),
+		final Settings settings = getCurrentSettings();
+		final TierList generatingFrom = tierList;
+		
+		generator = new SwingWorker<Matchup, Integer>() {
+			protected Matchup doInBackground() throws Exception {
+				return generatingFrom.generateBattle(settings, skipping, TierList.MAX_TRIES,
+						new GenerationListener() {
+					public void tryStarted(int tryNumber, int maxTries) {
+						publish(tryNumber);
+					}
+					
+					public boolean isCancelled() {
+						return generationCancelled;
+					}
+				});
+			}
+			
+			protected void process(List<Integer> tries) {
+				results.setText("Generating battle... (try " + tries.get(tries.size() - 1) +
+						" of " + TierList.MAX_TRIES + ")");
+			}
+			
+			protected void done() {
+				generator = null;
+				setGenerating(false);
+				showBattle(this, skipping, startTime);
+			}
+		};
+		
+		generationCancelled = false;
+		setGenerating(true);
+		generator.execute();
+	}
+	
+	/**
+	 * @return	A <code>Settings</code> object with the settings currently
+	 * 			shown in the window, and the tier and bump chances that were
+	 * 			last applied. The same object is returned until one of them
+	 * 			changes.
+	 */
+	private Settings getCurrentSettings() {
+		return currentSettings;
+	}
+	
+	/**
+	 * Makes a new <code>Settings</code> object from what's shown in the
+	 * window, to be used for every battle from now on. This is called when
+	 * the tier and bump chances are applied, or one of the other settings
+	 * changes, such as when a file is loaded. If nothing has actually
+	 * changed, the old object is kept, so the <code>TierList</code> knows it
+	 * doesn't have to work anything out again.
+	 */
+	private void updateSettings() {
+		Settings shown = new Settings((int) numPlayersSpinner.getValue(),
 				tierChances, bumpChances,
 				(int) cannotGetSizeSpinner.getValue(),
 				allowSInCannotGet.isSelected(), allowSSInCannotGet.isSelected());
-		int tries = 0;
 		
-		do {
-			tries++;
-			Util.log("======= Try " + tries + " =======");
+		if(!shown.equals(currentSettings)) {
+			currentSettings = shown;
+			Logger.debug(() -> "Now using these settings:\n" + shown);
+		}
+	}
+	
+	/**
+	 * Simulates a number of sessions with the loaded tier list and the
+	 * current settings on a background thread, and then shows how many
+	 * battles they lasted, so the "Cannot Get" buffer can be sized before a
+	 * session starts. The current session isn't affected.
+	 */
+	private void simulateSessions() {
+		if(!fileLoaded) {
+			JOptionPane.showMessageDialog(null, "You must load a tier " +
+					"list first!", "Smash Character Picker",
+					JOptionPane.WARNING_MESSAGE);
 			
-			try {
-				result = tierList.generateBattle(settings, skipping);
-			} catch(NoValidFightersException e) {
-				Util.error(e);
+			return;
+		}
+		
+		final SessionSimulator simulator = new SessionSimulator(tierList, getCurrentSettings());
+		
+		simulateButton.setEnabled(false);
+		simulateButton.setText("Simulating...");
+		Logger.info("Simulating " + SIMULATED_SESSIONS + " sessions...");
+		
+		new SwingWorker<SessionLengths, Void>() {
+			protected SessionLengths doInBackground() throws Exception {
+				return simulator.simulate(SIMULATED_SESSIONS);
+			}
+			
+			protected void done() {
+				simulateButton.setEnabled(true);
+				simulateButton.setText("Simulate");
 				
-				//depending on whether this happened before or after
-				//generating a tier tells us whether we can continue
-				if(!e.tierRangeSelected()) {
-					Util.log("With no valid fighters for a player, battle " +
-							"generation must halt.");
-					
+				SessionLengths lengths;
+				try {
+					lengths = get();
+				} catch(InterruptedException | ExecutionException e) {
+					Logger.error(e);
+					JOptionPane.showMessageDialog(null, "Error while simulating sessions! " +
+							"See the debug log for details.", "Smash Character Picker",
+							JOptionPane.ERROR_MESSAGE);
 					return;
 				}
+				
+				Logger.info("Sessions last " + String.format("%.1f", lengths.getAverage()) +
+						" battles on average.");
+				
+				JTextArea report = new JTextArea(lengths.toString());
+				report.setEditable(false);
+				report.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+				
+				JOptionPane.showMessageDialog(null, report, "Smash Character Picker",
+						JOptionPane.INFORMATION_MESSAGE);
+			}
+		}.execute();
+	}
+	
+	/**
+	 * Shows the result of generating a battle, once the background thread
+	 * is done. Called on the Swing thread.
+	 * 
+	 * @param finished	The <code>SwingWorker</code> that generated the
+	 * 					battle.
+	 * @param skipping	Whether or not the previous battle was skipped.
+	 * @param startTime	The time at which generation started.
+	 */
+	private void showBattle(SwingWorker<Matchup, Integer> finished, boolean skipping, double startTime) {
+		Logger.debug("========== End battle generation process ==========");
+		
+		Matchup result = null;
+		
+		try {
+			result = finished.get();
+		} catch(InterruptedException e) {
+			Logger.error(e);
+			return;
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof NoValidFightersException) {
+				Logger.warning(e.getCause().getMessage());
+				Logger.warning("With no valid fighters for a player, battle " +
+						"generation must halt.");
+				results.setText("No battle can be generated.\n" + e.getCause().getMessage());
 			}
-		} while(result == null && !previousMatchups.contains(result) && tries < 100);
+			else {
+				results.setText("Error while generating battle!\n" +
+						"See the debug log for details.");
+				Logger.error(e);
+			}
+			
+			return;
+		}
 		
-		Util.log("========== End battle generation process ==========");
+		//if the battle was cancelled, it never happened, so it doesn't count.
+		//if it finished before the cancel was noticed, it's shown as normal
+		if(result == null && generationCancelled) {
+			if(!skipping) {
+				numBattles--;
+			}
+			
+			results.setText("Battle generation cancelled.");
+			return;
+		}
 		
 		String resultString;
-		if(tries == 100 || result == null) {
-			resultString = "No valid battles found after 100 tries.";
+		if(result == null) {
+			resultString = "No valid battles found after " + TierList.MAX_TRIES + " tries.";
 			statsOutput.setText("");
 		}
 		else {
 			previousMatchups.add(result);
 			resultString = "Battle #" + numBattles + ":\n" + result.toString();
 			statsOutput.setText(result.getStatsOutput());
+			
+			//say so now, rather than when the next battle fails to generate
+			if(!tierList.canGenerateBattle(getCurrentSettings())) {
+				Logger.warning("No valid matchup is left with the current settings, so no " +
+						"further battle can be generated.");
+				resultString += "\n\nThis is the last battle that can be generated with " +
+						"these settings.";
+			}
 		}
 		
 		results.setText(resultString);
@@ -1035,9 +1270,56 @@ public class MainWindow {
 		}
 		
 		double delta = System.currentTimeMillis() - startTime;
-		Util.log("Generation of this battle took " + delta + "ms.");
+		Logger.info("Generation of this battle took " + delta + "ms.");
+	}
+	
+	/**
+	 * Updates the buttons for whether or not a battle is being generated.
+	 * While one is, the generate button becomes a cancel button, and
+	 * anything that would change the tier list or the last battle is
+	 * disabled.
+	 * 
+	 * @param generating	Whether or not a battle is being generated.
+	 */
+	private void setGenerating(boolean generating) {
+		generateButton.setText(generating ? "Cancel" : "Generate");
+		generateButton.setEnabled(true);
+		skipButton.setEnabled(!generating);
+		loadButton.setEnabled(!generating);
+		pickWinnerButton.setEnabled(!generating);
+		
+		if(generating) {
+			switchButton.setEnabled(false);
+		}
+		else {
+			switchButton.setEnabled(numBattles > 0);
+		}
 	}
 
+	/**
+	 * Saves the stats of the current tier list. If there's a problem, an
+	 * error message is shown. The results of this session won't be lost in
+	 * that case, since they're still in the live stats file, and will be
+	 * recovered the next time a tier list is loaded.
+	 * 
+	 * @return	<code>true</code> if the stats were saved, <code>false</code>
+	 * 			if they were not.
+	 */
+	private boolean saveStats() {
+		try {
+			tierList.saveStats();
+		} catch(IOException e1) {
+			JOptionPane.showMessageDialog(null, "IOException when " +
+					"saving stats!", "Smash Character Picker",
+					JOptionPane.ERROR_MESSAGE);
+			
+			Logger.error(e1);
+			return false;
+		}
+		
+		return true;
+	}
+	
 	/**
 	 * The <code>SwitchActionListener</code> acts as an <code>ActionListener</code>
 	 * for all of the switch checkboxes. It will manipulate values in the
@@ -1095,13 +1377,13 @@ public class MainWindow {
 				switchVals[0] = player;
 				indexSet = 0;
 				
-				Util.log("Selected player " + player + " in index " + indexSet + " to switch.");
+				Logger.debug("Selected player " + player + " in index " + indexSet + " to switch.");
 			}
 			else {
 				switchVals[1] = player;
 				indexSet = 1;
 				
-				Util.log("Selected player " + player + " in index " + indexSet + " to switch.");
+				Logger.debug("Selected player " + player + " in index " + indexSet + " to switch.");
 			}
 		}
 	}
@@ -1115,30 +1397,11 @@ public class MainWindow {
 				return;
 			}
 			
-			File statsFile = new File("smash stats.sel");
+			//the stats can't be saved until the battle being generated is
+			//finished, so stop it from trying again
+			generationCancelled = true;
 			
-			if(!statsFile.exists()) {
-				try {
-					statsFile.createNewFile();
-				} catch (IOException e1) {
-					JOptionPane.showMessageDialog(null, "IOException when " +
-							"saving stats! Could not create stats file.",
-							"Smash Character Picker", JOptionPane.ERROR_MESSAGE);
-					
-					Util.error(e1);
-					return;
-				}
-			}
-			
-			try {
-				ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(statsFile));
-				oos.writeObject(tierList.getStatsMap());
-				oos.close();
-			} catch(IOException e1) {
-				JOptionPane.showMessageDialog(null, "IOException when " +
-						"saving stats!", "Smash Character Picker",
-						JOptionPane.ERROR_MESSAGE);
-			}
+			saveStats();
 		}
 
 		public void windowClosed(WindowEvent e) {
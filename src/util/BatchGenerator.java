@@ -0,0 +1,646 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import data.Fighter;
+import data.Matchup;
+import data.SessionSimulator;
+import data.Settings;
+import data.SettingsOptimizer;
+import data.TierList;
+import exception.NoValidFightersException;
+
+/**
+ * The <code>BatchGenerator</code> generates battles without the window, so a
+ * whole night of battles can be planned ahead of time. It loads a tier list,
+ * along with the settings in it, generates the requested number of battles,
+ * and writes them one per line, either as CSV or as JSON, to standard output
+ * or to a file. It is started through <code>Driver</code> with the
+ * <code>--batch</code> argument, i.e.
+ * <br><br>
+ * <code>java -jar picker.jar --batch "tier list.txt" -n 1000 --format json</code>
+ * <br><br>
+ * Nothing is recorded: the stats file is read, so fighters are weighted the
+ * same way they would be in the window, but no stats, journal, or live stats
+ * file is written. When a player runs out of fighters, a new session is
+ * started, emptying the "Cannot Get" queues, so any number of battles can be
+ * generated. Each line says which session its battle belongs to.
+ * <br><br>
+ * Winners can optionally be simulated, either completely at random or
+ * favoring the fighters in higher tiers. Simulated wins are counted in the
+ * stats in memory, so they affect the weighting of later battles, just like
+ * real ones would.
+ * <br><br>
+ * Instead of generating battles, batch mode can also simulate a number of
+ * sessions with <code>--simulate</code>, and print how many battles they
+ * lasted. See <code>SessionSimulator</code>. Or, with
+ * <code>--optimize</code>, it can search for settings that make sessions
+ * last longer, and write the best ones out in the format used by tier list
+ * files. See <code>SettingsOptimizer</code>.
+ * <br><br>
+ * Every run uses a seed for its random picks, which is printed to standard
+ * error when it's done. Running again with the same tier list, stats file,
+ * and <code>--seed</code> gives exactly the same output.
+ * <br><br>
+ * Messages are logged to standard error, and only warnings and errors are
+ * shown unless the <code>smash.log.level</code> system property says
+ * otherwise. No Swing or AWT classes are used, so this works on a machine
+ * without a display.
+ * 
+ * @author Jordan Knapp
+ */
+public class BatchGenerator {
+	
+	/**
+	 * The ways battles can be written.
+	 */
+	public enum Format {
+		CSV, JSON
+	}
+	
+	/**
+	 * The ways winners can be simulated.
+	 */
+	public enum Winners {
+		/**
+		 * No winner is set.
+		 */
+		NONE,
+		
+		/**
+		 * Every player is equally likely to win.
+		 */
+		RANDOM,
+		
+		/**
+		 * A player's chance of winning depends on the tier of their fighter,
+		 * so a fighter in upper double s tier is 24 times as likely to win as
+		 * one in lower f tier.
+		 */
+		TIER
+	}
+	
+	private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+	
+	private static final String USAGE = "Usage: --batch <tier list file> [-n <battles>] [--format csv|json] " +
+			"[--winners none|random|tier] [--output <file>] [--seed <seed>]\n" +
+			"       --batch <tier list file> --simulate <sessions> [--seed <seed>]\n" +
+			"       --batch <tier list file> --optimize [--rounds <rounds>] [--candidates <candidates>] " +
+			"[--sessions <sessions>] [--min-fidelity <0 to 1>] [--output <file>] [--seed <seed>]";
+	
+	private final File tierListFile;
+	private final long numBattles;
+	private final Format format;
+	private final Winners winners;
+	private final RandomSource random;
+	
+	//each fighter's name, quoted and escaped for the format, by id
+	private String[] encodedNames;
+	
+	/**
+	 * Creates a <code>BatchGenerator</code>.
+	 * 
+	 * @param tierListFile	The tier list to load.
+	 * @param numBattles	The number of battles to generate.
+	 * @param format		How to write the battles.
+	 * @param winners		How to simulate winners, if at all.
+	 * @param random		Where the random picks come from, for both the
+	 * 						battles and the winners.
+	 */
+	public BatchGenerator(File tierListFile, long numBattles, Format format, Winners winners,
+			RandomSource random) {
+		if(numBattles < 0) {
+			throw new IllegalArgumentException("Number of battles cannot be negative, not " + numBattles);
+		}
+		
+		this.tierListFile = tierListFile;
+		this.numBattles = numBattles;
+		this.format = format;
+		this.winners = winners;
+		this.random = random;
+	}
+	
+	/**
+	 * Runs batch mode with the given command line arguments, not including
+	 * <code>--batch</code>, and exits when it is done.
+	 * 
+	 * @param args	The command line arguments.
+	 */
+	public static void main(String[] args) {
+		System.exit(run(args));
+	}
+	
+	/**
+	 * Runs batch mode with the given command line arguments, not including
+	 * <code>--batch</code>.
+	 * 
+	 * @param args	The command line arguments.
+	 * @return		The exit code: 0 if every battle was written, 1 if not, or
+	 * 				2 if the arguments were invalid.
+	 */
+	public static int run(String[] args) {
+		//messages go to standard error, so they don't get mixed in with the
+		//battles. per-battle info messages would slow things down a lot, so
+		//only show warnings unless asked
+		Logger.getConsoleSink().setErrorOnly(true);
+		if(System.getProperty("smash.log.level") == null) {
+			Logger.setLevel(LogLevel.WARNING);
+		}
+		
+		String fileName = null;
+		String outputName = null;
+		long numBattles = 100;
+		Format format = Format.CSV;
+		Winners winners = Winners.NONE;
+		int numSessions = 0;
+		boolean optimizing = false;
+		int rounds = SettingsOptimizer.DEFAULT_ROUNDS;
+		int candidates = SettingsOptimizer.DEFAULT_CANDIDATES;
+		int sessionsPerCandidate = SettingsOptimizer.DEFAULT_SESSIONS;
+		double minFidelity = SettingsOptimizer.DEFAULT_MIN_FIDELITY;
+		RandomSource random = null;
+		
+		try {
+			for(int at = 0; at < args.length; at++) {
+				String arg = args[at];
+				
+				if(arg.equals("-n") || arg.equals("--battles")) {
+					numBattles = numberValueOf(args, ++at, arg, 0, Long.MAX_VALUE);
+				}
+				else if(arg.equals("--format")) {
+					format = valueOf(Format.class, args, ++at, arg);
+				}
+				else if(arg.equals("--winners")) {
+					winners = valueOf(Winners.class, args, ++at, arg);
+				}
+				else if(arg.equals("--simulate")) {
+					numSessions = (int) numberValueOf(args, ++at, arg, 1, Integer.MAX_VALUE);
+				}
+				else if(arg.equals("--optimize")) {
+					optimizing = true;
+				}
+				else if(arg.equals("--rounds")) {
+					rounds = (int) numberValueOf(args, ++at, arg, 0, Integer.MAX_VALUE);
+				}
+				else if(arg.equals("--candidates")) {
+					candidates = (int) numberValueOf(args, ++at, arg, 1, Integer.MAX_VALUE);
+				}
+				else if(arg.equals("--sessions")) {
+					sessionsPerCandidate = (int) numberValueOf(args, ++at, arg, 1, Integer.MAX_VALUE);
+				}
+				else if(arg.equals("--min-fidelity")) {
+					String value = valueOf(args, ++at, arg);
+					
+					try {
+						minFidelity = Double.parseDouble(value);
+					} catch(NumberFormatException e) {
+						minFidelity = -1;
+					}
+					
+					if(!(minFidelity >= 0 && minFidelity <= 1)) {
+						throw new IllegalArgumentException(value + " is not a valid value for " + arg + ".");
+					}
+				}
+				else if(arg.equals("--seed")) {
+					random = new RandomSource(numberValueOf(args, ++at, arg, Long.MIN_VALUE, Long.MAX_VALUE));
+				}
+				else if(arg.equals("-o") || arg.equals("--output")) {
+					outputName = valueOf(args, ++at, arg);
+				}
+				else if(arg.startsWith("-")) {
+					throw new IllegalArgumentException("Unknown option " + arg + ".");
+				}
+				else if(fileName == null) {
+					fileName = arg;
+				}
+				else {
+					throw new IllegalArgumentException("Only one tier list file can be given.");
+				}
+			}
+			
+			if(fileName == null) {
+				throw new IllegalArgumentException("No tier list file was given.");
+			}
+		} catch(IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			return 2;
+		}
+		
+		if(random == null) {
+			random = new RandomSource();
+		}
+		
+		if(numSessions > 0) {
+			return simulate(new File(fileName), numSessions, random);
+		}
+		
+		if(optimizing) {
+			return optimize(new File(fileName), rounds, candidates, sessionsPerCandidate, minFidelity,
+					outputName, random);
+		}
+		
+		BatchGenerator generator = new BatchGenerator(new File(fileName), numBattles, format, winners,
+				random);
+		
+		try {
+			long start = System.nanoTime();
+			long written;
+			
+			if(outputName == null) {
+				written = generator.generate(System.out);
+			}
+			else {
+				try(OutputStream out = new FileOutputStream(outputName)) {
+					written = generator.generate(out);
+				}
+			}
+			
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.err.println(String.format("Generated %d battles in %.2f seconds (%.0f per second), " +
+					"with the seed %d.", written, seconds, written / seconds, random.getSeed()));
+			
+			return written == numBattles ? 0 : 1;
+		} catch(Exception e) {
+			Logger.error(e);
+			Logger.flush();
+			return 1;
+		}
+	}
+	
+	/**
+	 * Simulates sessions with a tier list and its settings, and prints how
+	 * long they lasted.
+	 * 
+	 * @param tierListFile	The tier list to load.
+	 * @param numSessions	The number of sessions to simulate.
+	 * @param random		Where the random picks come from.
+	 * @return				The exit code: 0 if the sessions were simulated, or
+	 * 						1 if the tier list couldn't be loaded.
+	 */
+	private static int simulate(File tierListFile, int numSessions, RandomSource random) {
+		try {
+			TierList tierList = new TierList();
+			Settings settings = tierList.loadFile(tierListFile, false);
+			tierList.setRandom(random);
+			
+			long start = System.nanoTime();
+			System.out.print(new SessionSimulator(tierList, settings).simulate(numSessions));
+			System.out.flush();
+			
+			System.err.println(String.format("Simulated %d sessions in %.2f seconds, with the seed %d.",
+					numSessions, (System.nanoTime() - start) / 1e9, random.getSeed()));
+			
+			return 0;
+		} catch(Exception e) {
+			Logger.error(e);
+			Logger.flush();
+			return 1;
+		}
+	}
+	
+	/**
+	 * Searches for settings that make sessions last longer with a tier list.
+	 * The Pareto front is printed to standard error, and the recommended
+	 * settings are written to standard output or a file, in the format used
+	 * by tier list files.
+	 * 
+	 * @param tierListFile	The tier list to load. The settings in it are
+	 * 						the ones to start from.
+	 * @param rounds		The number of rounds of new candidates.
+	 * @param candidates	The number of new candidates in each round.
+	 * @param sessions		The number of sessions to simulate for each
+	 * 						candidate.
+	 * @param minFidelity	The lowest tier fidelity to recommend.
+	 * @param outputName	The file to write the recommended settings to, or
+	 * 						<code>null</code> to write them to standard output.
+	 * @param random		Where the random picks come from.
+	 * @return				The exit code: 0 if the settings were written, or 1
+	 * 						if not.
+	 */
+	private static int optimize(File tierListFile, int rounds, int candidates, int sessions,
+			double minFidelity, String outputName, RandomSource random) {
+		try {
+			TierList tierList = new TierList();
+			Settings settings = tierList.loadFile(tierListFile, false);
+			tierList.setRandom(random);
+			
+			long start = System.nanoTime();
+			List<SettingsOptimizer.Candidate> front =
+					new SettingsOptimizer(tierList, settings).optimize(rounds, candidates, sessions);
+			
+			System.err.println(String.format("Searched for settings in %.2f seconds, with the seed %d. " +
+					"These are the best:", (System.nanoTime() - start) / 1e9, random.getSeed()));
+			for(SettingsOptimizer.Candidate candidateAt: front) {
+				System.err.println("  " + candidateAt);
+			}
+			
+			SettingsOptimizer.Candidate best = SettingsOptimizer.recommend(front, minFidelity);
+			String block = String.format("# sessions last %.1f battles on average, with %.1f%% tier " +
+					"fidelity%n", best.getLengths().getAverage(), best.getFidelity() * 100) +
+					best.getSettings();
+			
+			if(outputName == null) {
+				System.out.print(block);
+				System.out.flush();
+			}
+			else {
+				Files.write(new File(outputName).toPath(), block.getBytes(StandardCharsets.UTF_8));
+			}
+			
+			return 0;
+		} catch(Exception e) {
+			Logger.error(e);
+			Logger.flush();
+			return 1;
+		}
+	}
+	
+	/**
+	 * @return	The argument after an option, as a whole number.
+	 * 
+	 * @throws IllegalArgumentException	Thrown if the option is the last
+	 * 									argument, or the value isn't a whole
+	 * 									number from <code>min</code> to
+	 * 									<code>max</code>.
+	 */
+	private static long numberValueOf(String[] args, int at, String option, long min, long max)
+			throws IllegalArgumentException {
+		String value = valueOf(args, at, option);
+		
+		try {
+			long number = Long.parseLong(value);
+			
+			if(number >= min && number <= max) {
+				return number;
+			}
+		} catch(NumberFormatException e) {
+			//fall through to the error below
+		}
+		
+		throw new IllegalArgumentException(value + " is not a valid value for " + option + ".");
+	}
+	
+	/**
+	 * @return	The argument after an option, which is that option's value.
+	 * 
+	 * @throws IllegalArgumentException	Thrown if the option is the last
+	 * 									argument.
+	 */
+	private static String valueOf(String[] args, int at, String option) throws IllegalArgumentException {
+		if(at >= args.length) {
+			throw new IllegalArgumentException(option + " needs a value.");
+		}
+		
+		return args[at];
+	}
+	
+	/**
+	 * @return	The argument after an option, as one of the values of an enum.
+	 * 
+	 * @throws IllegalArgumentException	Thrown if the option is the last
+	 * 									argument, or the value isn't one of
+	 * 									the enum's.
+	 */
+	private static <E extends Enum<E>> E valueOf(Class<E> type, String[] args, int at, String option)
+			throws IllegalArgumentException {
+		String value = valueOf(args, at, option);
+		
+		try {
+			return Enum.valueOf(type, value.toUpperCase());
+		} catch(IllegalArgumentException e) {
+			throw new IllegalArgumentException(value + " is not a valid value for " + option + ".");
+		}
+	}
+	
+	/**
+	 * Loads the tier list and generates the battles, writing them to the
+	 * given stream as they are generated. The stream is flushed, but not
+	 * closed.
+	 * 
+	 * @param out	The stream to write the battles to.
+	 * @return		The number of battles written. This is fewer than were
+	 * 				asked for only if a battle couldn't be generated even at
+	 * 				the start of a session, which is logged as an error.
+	 * 
+	 * @throws Exception	Thrown if the tier list can't be loaded, or the
+	 * 						battles can't be written.
+	 */
+	public long generate(OutputStream out) throws Exception {
+		TierList tierList = new TierList();
+		Settings settings = tierList.loadFile(tierListFile, false);
+		
+		//the winners are picked from their own source, so simulating them
+		//doesn't change which fighters are picked, other than through stats
+		tierList.setRandom(random.split());
+		
+		encodedNames = new String[tierList.numFighters()];
+		
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+				OUTPUT_BUFFER_SIZE);
+		StringBuilder line = new StringBuilder(128);
+		
+		if(format == Format.CSV) {
+			line.append("battle,session");
+			for(int playerAt = 1; playerAt <= settings.getNumPlayers(); playerAt++) {
+				line.append(",player ").append(playerAt);
+			}
+			line.append(",winner\n");
+			
+			writer.append(line);
+		}
+		
+		int session = 1;
+		long battlesInSession = 0;
+		long written = 0;
+		
+		while(written < numBattles) {
+			Logger.setBattle((int) Math.min(written + 1, Integer.MAX_VALUE));
+			
+			Matchup matchup;
+			try {
+				matchup = tierList.generateBattle(settings, false, TierList.MAX_TRIES, null);
+			} catch(NoValidFightersException e) {
+				matchup = null;
+			}
+			
+			//out of battles for this session, so start another. if that
+			//doesn't help, nothing will
+			if(matchup == null) {
+				if(battlesInSession == 0) {
+					Logger.error("Could not generate a battle even at the start of a session, so only " +
+							written + " battles were generated. Check the tier list's settings.");
+					break;
+				}
+				
+				tierList.newSession();
+				session++;
+				battlesInSession = 0;
+				continue;
+			}
+			
+			int winner = pickWinner(matchup);
+			if(winner >= 0) {
+				tierList.setWinner(matchup, winner);
+			}
+			
+			written++;
+			battlesInSession++;
+			
+			line.setLength(0);
+			if(format == Format.CSV) {
+				appendCsv(line, written, session, matchup, winner);
+			}
+			else {
+				appendJson(line, written, session, matchup, winner);
+			}
+			
+			writer.append(line);
+		}
+		
+		writer.flush();
+		Logger.setBattle(0);
+		
+		return written;
+	}
+	
+	/**
+	 * @return	The player who won the given battle, according to how winners
+	 * 			are being simulated, or -1 if they aren't.
+	 */
+	private int pickWinner(Matchup matchup) {
+		if(winners == Winners.NONE) {
+			return -1;
+		}
+		
+		if(winners == Winners.RANDOM) {
+			return random.nextInt(matchup.size());
+		}
+		
+		//higher tiers have lower numbers, so flip them around to get weights
+		int totalWeight = 0;
+		for(int playerAt = 0; playerAt < matchup.size(); playerAt++) {
+			totalWeight += 24 - matchup.getFighter(playerAt).getTier();
+		}
+		
+		int pick = random.nextInt(totalWeight);
+		for(int playerAt = 0; playerAt < matchup.size(); playerAt++) {
+			pick -= 24 - matchup.getFighter(playerAt).getTier();
+			
+			if(pick < 0) {
+				return playerAt;
+			}
+		}
+		
+		return matchup.size() - 1;
+	}
+	
+	/**
+	 * Appends a battle as a line of CSV, i.e.
+	 * <code>12,1,Mario,"Banjo, Kazooie",2</code>. The winner is left empty if
+	 * there isn't one.
+	 */
+	private void appendCsv(StringBuilder line, long battle, int session, Matchup matchup, int winner) {
+		line.append(battle).append(',').append(session);
+		
+		for(int playerAt = 0; playerAt < matchup.size(); playerAt++) {
+			line.append(',').append(encodedName(matchup.getFighter(playerAt)));
+		}
+		
+		line.append(',');
+		if(winner >= 0) {
+			line.append(winner + 1);
+		}
+		
+		line.append('\n');
+	}
+	
+	/**
+	 * Appends a battle as a line of JSON, i.e.
+	 * <code>{"battle":12,"session":1,"fighters":["Mario","Link"],"winner":2}</code>.
+	 * The winner is <code>null</code> if there isn't one.
+	 */
+	private void appendJson(StringBuilder line, long battle, int session, Matchup matchup, int winner) {
+		line.append("{\"battle\":").append(battle);
+		line.append(",\"session\":").append(session);
+		line.append(",\"fighters\":[");
+		
+		for(int playerAt = 0; playerAt < matchup.size(); playerAt++) {
+			if(playerAt > 0) {
+				line.append(',');
+			}
+			
+			line.append(encodedName(matchup.getFighter(playerAt)));
+		}
+		
+		line.append("],\"winner\":");
+		if(winner >= 0) {
+			line.append(winner + 1);
+		}
+		else {
+			line.append("null");
+		}
+		
+		line.append("}\n");
+	}
+	
+	/**
+	 * @return	The fighter's name, quoted and escaped for the format. Names
+	 * 			are only encoded the first time they're needed.
+	 */
+	private String encodedName(Fighter fighter) {
+		String encoded = encodedNames[fighter.getId()];
+		
+		if(encoded == null) {
+			encoded = format == Format.CSV ? csvEscape(fighter.getName()) : jsonEscape(fighter.getName());
+			encodedNames[fighter.getId()] = encoded;
+		}
+		
+		return encoded;
+	}
+	
+	/**
+	 * @return	The text as a CSV field. It's only quoted if it has to be.
+	 */
+	private static String csvEscape(String text) {
+		if(text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+			return text;
+		}
+		
+		return "\"" + text.replace("\"", "\"\"") + "\"";
+	}
+	
+	/**
+	 * @return	The text as a quoted JSON string.
+	 */
+	private static String jsonEscape(String text) {
+		StringBuilder escaped = new StringBuilder(text.length() + 2);
+		escaped.append('"');
+		
+		for(int at = 0; at < text.length(); at++) {
+			char charAt = text.charAt(at);
+			
+			if(charAt == '"' || charAt == '\\') {
+				escaped.append('\\').append(charAt);
+			}
+			else if(charAt < ' ') {
+				escaped.append(String.format("\\u%04x", (int) charAt));
+			}
+			else {
+				escaped.append(charAt);
+			}
+		}
+		
+		escaped.append('"');
+		return escaped.toString();
+	}
+
+}
@@ -0,0 +1,52 @@
+package util;
+
+/**
+ * A <code>LogSink</code> that prints messages to the console. Errors go to
+ * standard error, and everything else goes to standard output, unless it is
+ * told to send everything to standard error, as batch mode does so that
+ * messages don't end up mixed in with the battles. Each batch of messages is
+ * printed in one go, rather than a line at a time.
+ * 
+ * @author Jordan Knapp
+ */
+public class ConsoleLogSink implements LogSink {
+	
+	private final StringBuilder out = new StringBuilder();
+	private final StringBuilder err = new StringBuilder();
+	
+	private volatile boolean errorOnly = false;
+	
+	/**
+	 * @param errorOnly	Whether every message should go to standard error,
+	 * 					rather than only errors.
+	 */
+	public void setErrorOnly(boolean errorOnly) {
+		this.errorOnly = errorOnly;
+	}
+	
+	@Override
+	public void write(LogRecord record, String line) {
+		if(errorOnly || record.getLevel() == LogLevel.ERROR) {
+			err.append(line).append(System.lineSeparator());
+		}
+		else {
+			out.append(line).append(System.lineSeparator());
+		}
+	}
+	
+	@Override
+	public void flush() {
+		if(out.length() > 0) {
+			System.out.print(out);
+			System.out.flush();
+			out.setLength(0);
+		}
+		
+		if(err.length() > 0) {
+			System.err.print(err);
+			System.err.flush();
+			err.setLength(0);
+		}
+	}
+
+}
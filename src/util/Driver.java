@@ -1,5 +1,7 @@
 package util;
 
+import java.util.Arrays;
+
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 
@@ -8,6 +10,13 @@ import ui.MainWindow;
 public class Driver {
 
 	public static void main(String[] args) {
+		//batch mode runs without a window. this has to be checked before
+		//anything touches Swing, so no AWT classes get loaded
+		if(args.length > 0 && args[0].equals("--batch")) {
+			BatchGenerator.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		
 		SwingUtilities.invokeLater(new Runnable() {
 			public void run() {
 				try {
@@ -0,0 +1,288 @@
+package util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A <code>LogSink</code> that writes messages to a log file, so they can be
+ * read after the program has closed. When the file gets too big, it is
+ * rotated: "smash picker.log" becomes "smash picker.log.1", any
+ * "smash picker.log.1" becomes "smash picker.log.2", and so on, up to a set
+ * number of old files, and a new "smash picker.log" is started.
+ * <br><br>
+ * Lines are encoded as UTF-8 straight into a buffer, which is only written
+ * to the file through a <code>FileChannel</code> when it fills up, or at the
+ * end of each batch of messages from the <code>Logger</code>. While a battle
+ * is being generated, a batch is usually many lines, so the file is written
+ * far less often than once per line. The file is never forced to disk during
+ * play, but once written, the lines are safe even if the program crashes.
+ * <br><br>
+ * If the file can't be written, the error is printed to standard error and
+ * the sink stops writing, rather than getting in the way of the program.
+ * 
+ * @author Jordan Knapp
+ */
+public class FileLogSink implements LogSink, Closeable {
+	
+	/**
+	 * The name of the log file used if no name is given.
+	 */
+	public static final String DEFAULT_FILE_NAME = "smash picker.log";
+	
+	/**
+	 * The size at which the log file is rotated if no size is given, in
+	 * bytes.
+	 */
+	public static final long DEFAULT_MAX_SIZE = 1024 * 1024;
+	
+	/**
+	 * The number of old log files kept if no number is given.
+	 */
+	public static final int DEFAULT_MAX_FILES = 5;
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private static final char[] LINE_SEPARATOR = System.lineSeparator().toCharArray();
+	
+	private final File file;
+	private final long maxSize;
+	private final int maxFiles;
+	
+	private FileChannel channel;
+	private final ByteBuffer buffer;
+	private final CharsetEncoder encoder;
+	
+	//the size of the file, not counting what's still in the buffer
+	private long fileSize;
+	
+	/**
+	 * Creates a <code>FileLogSink</code> and opens the log file, adding to
+	 * the end of it if it exists already.
+	 * 
+	 * @param file		The log file.
+	 * @param maxSize	The size at which the log file is rotated, in bytes.
+	 * @param maxFiles	The number of old log files to keep. If this is 0, the
+	 * 					log file is simply started over when it gets too big.
+	 * 
+	 * @throws IOException	Thrown if the log file can't be opened.
+	 */
+	public FileLogSink(File file, long maxSize, int maxFiles) throws IOException {
+		if(maxSize <= 0) {
+			throw new IllegalArgumentException("Max size must be positive, not " + maxSize);
+		}
+		if(maxFiles < 0) {
+			throw new IllegalArgumentException("Max files cannot be negative, not " + maxFiles);
+		}
+		
+		this.file = file;
+		this.maxSize = maxSize;
+		this.maxFiles = maxFiles;
+		
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		encoder = StandardCharsets.UTF_8.newEncoder();
+		
+		open();
+	}
+	
+	/**
+	 * Creates a <code>FileLogSink</code> based on the
+	 * <code>smash.log.file</code>, <code>smash.log.maxSize</code> and
+	 * <code>smash.log.maxFiles</code> system properties, if the first of them
+	 * is set. If it is set to "true", the default file name is used.
+	 * 
+	 * @return	The sink, or <code>null</code> if the properties don't ask for
+	 * 			one, or the log file can't be opened.
+	 */
+	public static FileLogSink fromProperties() {
+		String fileName = System.getProperty("smash.log.file");
+		if(fileName == null || fileName.trim().isEmpty() || fileName.equalsIgnoreCase("false")) {
+			return null;
+		}
+		
+		if(fileName.equalsIgnoreCase("true")) {
+			fileName = DEFAULT_FILE_NAME;
+		}
+		
+		try {
+			long maxSize = Long.parseLong(System.getProperty("smash.log.maxSize", "" + DEFAULT_MAX_SIZE));
+			int maxFiles = Integer.parseInt(System.getProperty("smash.log.maxFiles", "" + DEFAULT_MAX_FILES));
+			
+			return new FileLogSink(new File(fileName), maxSize, maxFiles);
+		} catch(IOException | IllegalArgumentException e) {
+			System.err.println("Could not start logging to " + fileName + ": " + e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Encodes a line into the buffer, rotating the log file first if the
+	 * line would make it too big.
+	 */
+	@Override
+	public synchronized void write(LogRecord record, String line) {
+		if(channel == null) {
+			return;
+		}
+		
+		try {
+			//a rough size is good enough to decide whether to rotate
+			long lineSize = line.length() + LINE_SEPARATOR.length;
+			long size = fileSize + buffer.position();
+			if(size > 0 && size + lineSize > maxSize) {
+				rotate();
+			}
+			
+			encode(CharBuffer.wrap(line));
+			encode(CharBuffer.wrap(LINE_SEPARATOR));
+		} catch(IOException e) {
+			failed(e);
+		}
+	}
+	
+	/**
+	 * Writes the buffer to the file, at the end of a batch.
+	 */
+	@Override
+	public synchronized void flush() {
+		if(channel == null) {
+			return;
+		}
+		
+		try {
+			writeBuffer();
+		} catch(IOException e) {
+			failed(e);
+		}
+	}
+	
+	/**
+	 * Writes anything left in the buffer, forces the file to disk, and
+	 * closes it. Nothing more will be written afterwards.
+	 * 
+	 * @throws IOException	Thrown if the file can't be written or closed.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if(channel == null) {
+			return;
+		}
+		
+		try {
+			writeBuffer();
+			channel.force(false);
+		} finally {
+			channel.close();
+			channel = null;
+		}
+	}
+	
+	/**
+	 * @return	The log file.
+	 */
+	public File getFile() {
+		return file;
+	}
+	
+	/**
+	 * Encodes characters into the buffer, writing the buffer to the file
+	 * whenever it fills up.
+	 */
+	private void encode(CharBuffer chars) throws IOException {
+		while(true) {
+			CoderResult result = encoder.encode(chars, buffer, true);
+			
+			if(result.isOverflow()) {
+				writeBuffer();
+			}
+			else if(result.isUnderflow()) {
+				encoder.reset();
+				return;
+			}
+			else {
+				//unencodable characters shouldn't happen with UTF-8, but skip
+				//them rather than getting stuck
+				chars.position(chars.position() + result.length());
+			}
+		}
+	}
+	
+	/**
+	 * Writes everything in the buffer to the file.
+	 */
+	private void writeBuffer() throws IOException {
+		buffer.flip();
+		
+		while(buffer.hasRemaining()) {
+			fileSize += channel.write(buffer);
+		}
+		
+		buffer.clear();
+	}
+	
+	/**
+	 * Writes out the buffer, closes the log file, shifts each old log file
+	 * up by one, dropping the oldest, and starts a new log file.
+	 */
+	private void rotate() throws IOException {
+		writeBuffer();
+		channel.close();
+		channel = null;
+		
+		if(maxFiles > 0) {
+			for(int at = maxFiles - 1; at >= 1; at--) {
+				File older = new File(file.getPath() + "." + at);
+				
+				if(older.exists()) {
+					Files.move(older.toPath(), new File(file.getPath() + "." + (at + 1)).toPath(),
+							StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			
+			Files.move(file.toPath(), new File(file.getPath() + ".1").toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+		else {
+			Files.delete(file.toPath());
+		}
+		
+		open();
+	}
+	
+	/**
+	 * Opens the log file for appending.
+	 */
+	private void open() throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		fileSize = channel.size();
+	}
+	
+	/**
+	 * Stops writing after the log file couldn't be written.
+	 */
+	private void failed(IOException e) {
+		System.err.println("Could not write to " + file.getName() + ", so nothing more will be logged to it: " + e);
+		
+		try {
+			if(channel != null) {
+				channel.close();
+			}
+		} catch(IOException e1) {
+			//nothing more can be done
+		}
+		
+		channel = null;
+		buffer.clear();
+	}
+
+}
@@ -0,0 +1,140 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed-size ring buffer that any number of threads can add
+ * <code>LogRecord</code>s to without locking, and that a single thread takes
+ * them back out of, in order. Used by the <code>Logger</code>.
+ * <br><br>
+ * Each slot has a sequence number next to it, which says whether the slot
+ * is free to be claimed for a given position, or holds the record for that
+ * position and can be taken. A thread adding a record claims the next
+ * position with a compare-and-set, fills the slot, and then publishes it by
+ * updating its sequence number. If the buffer is full, the record is not
+ * added, rather than waiting for room, so logging can never hold up the
+ * thread doing it.
+ * 
+ * @author Jordan Knapp
+ */
+final class LogBuffer {
+	
+	private final AtomicReferenceArray<LogRecord> slots;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	
+	//the next position to be claimed by a thread adding a record
+	private final AtomicLong tail;
+	
+	//the next position to be taken. only the taking thread changes this
+	private volatile long head;
+	
+	/**
+	 * Creates an empty <code>LogBuffer</code>.
+	 * 
+	 * @param capacity	The number of records it can hold. Must be a power of
+	 * 					two.
+	 * 
+	 * @throws IllegalArgumentException	Thrown if the capacity is not a power
+	 * 									of two.
+	 */
+	LogBuffer(int capacity) throws IllegalArgumentException {
+		if(capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two, not " + capacity);
+		}
+		
+		slots = new AtomicReferenceArray<LogRecord>(capacity);
+		sequences = new AtomicLongArray(capacity);
+		mask = capacity - 1;
+		
+		for(int at = 0; at < capacity; at++) {
+			sequences.set(at, at);
+		}
+		
+		tail = new AtomicLong();
+		head = 0;
+	}
+	
+	/**
+	 * Adds a record to the buffer, if there is room. Can be called from any
+	 * thread.
+	 * 
+	 * @param record	The record to add.
+	 * @return			<code>true</code> if it was added, <code>false</code> if
+	 * 					the buffer was full.
+	 */
+	boolean offer(LogRecord record) {
+		long position = tail.get();
+		
+		while(true) {
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - position;
+			
+			if(difference == 0) {
+				//the slot is free for this position, so try to claim it
+				if(tail.compareAndSet(position, position + 1)) {
+					break;
+				}
+				
+				position = tail.get();
+			}
+			else if(difference < 0) {
+				//the slot still holds a record from one lap ago
+				return false;
+			}
+			else {
+				//another thread claimed this position first
+				position = tail.get();
+			}
+		}
+		
+		int index = (int) position & mask;
+		slots.set(index, record);
+		sequences.set(index, position + 1);
+		
+		return true;
+	}
+	
+	/**
+	 * Takes the oldest record out of the buffer. Must only be called from one
+	 * thread.
+	 * 
+	 * @return	The oldest record, or <code>null</code> if the buffer is empty,
+	 * 			or the next record has been claimed but not filled in yet.
+	 */
+	LogRecord poll() {
+		long position = head;
+		int index = (int) position & mask;
+		
+		if(sequences.get(index) != position + 1) {
+			return null;
+		}
+		
+		LogRecord record = slots.get(index);
+		slots.set(index, null);
+		
+		//free the slot for the position one lap from now
+		sequences.set(index, position + mask + 1);
+		head = position + 1;
+		
+		return record;
+	}
+	
+	/**
+	 * @return	The number of records that have been claimed so far, whether
+	 * 			or not they have been taken out yet.
+	 */
+	long claimed() {
+		return tail.get();
+	}
+	
+	/**
+	 * @return	The number of records that have been taken out so far.
+	 */
+	long taken() {
+		return head;
+	}
+
+}
@@ -0,0 +1,68 @@
+package util;
+
+/**
+ * The levels that a message can be logged at through the <code>Logger</code>,
+ * from least to most important. Only messages at or above the
+ * <code>Logger</code>'s current level are kept.
+ * 
+ * @author Jordan Knapp
+ */
+public enum LogLevel {
+	
+	/**
+	 * Details of how each battle is generated. There are a lot of these, so
+	 * they are only kept while someone is looking at them.
+	 */
+	DEBUG("DEBUG"),
+	
+	/**
+	 * Things the user might want to know about, such as a battle being
+	 * generated or a file being loaded.
+	 */
+	INFO("INFO"),
+	
+	/**
+	 * Something went wrong, but the program can carry on as normal.
+	 */
+	WARNING("WARN"),
+	
+	/**
+	 * Something went wrong.
+	 */
+	ERROR("ERROR");
+	
+	private final String label;
+	
+	private LogLevel(String label) {
+		this.label = label;
+	}
+	
+	/**
+	 * @return	The label that is printed in front of messages at this level.
+	 */
+	public String getLabel() {
+		return label;
+	}
+	
+	/**
+	 * Converts the name of a level, in any case, to a <code>LogLevel</code>.
+	 * 
+	 * @param name	The name of the level, i.e. "debug" or "error".
+	 * @return		That level, or <code>null</code> if there is no level with
+	 * 				that name.
+	 */
+	public static LogLevel fromString(String name) {
+		if(name == null) {
+			return null;
+		}
+		
+		for(LogLevel levelAt: values()) {
+			if(levelAt.name().equalsIgnoreCase(name.trim()) || levelAt.label.equalsIgnoreCase(name.trim())) {
+				return levelAt;
+			}
+		}
+		
+		return null;
+	}
+
+}
@@ -0,0 +1,68 @@
+package util;
+
+/**
+ * A single message logged through the <code>Logger</code>. Records are
+ * created on whichever thread logged the message, and are formatted and
+ * handed to each <code>LogSink</code> later, on the <code>Logger</code>'s own
+ * thread.
+ * <br><br>
+ * Each record also remembers which battle was being generated or played when
+ * it was logged, so the debug window can show the messages for one battle.
+ * 
+ * @author Jordan Knapp
+ */
+public final class LogRecord {
+	
+	private final LogLevel level;
+	private final long time;
+	private final int battle;
+	private final String message;
+	
+	/**
+	 * Creates a <code>LogRecord</code>.
+	 * 
+	 * @param level		The level the message was logged at.
+	 * @param time		The time the message was logged, in milliseconds since
+	 * 					the epoch.
+	 * @param battle	The number of the battle the message was logged
+	 * 					during, or 0 if it wasn't logged during a battle.
+	 * @param message	The message.
+	 */
+	public LogRecord(LogLevel level, long time, int battle, String message) {
+		this.level = level;
+		this.time = time;
+		this.battle = battle;
+		this.message = message;
+	}
+	
+	/**
+	 * @return	The level the message was logged at.
+	 */
+	public LogLevel getLevel() {
+		return level;
+	}
+	
+	/**
+	 * @return	The time the message was logged, in milliseconds since the
+	 * 			epoch.
+	 */
+	public long getTime() {
+		return time;
+	}
+	
+	/**
+	 * @return	The number of the battle the message was logged during, or 0
+	 * 			if it wasn't logged during a battle.
+	 */
+	public int getBattle() {
+		return battle;
+	}
+	
+	/**
+	 * @return	The message.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+}
@@ -0,0 +1,30 @@
+package util;
+
+/**
+ * A <code>LogSink</code> is somewhere the <code>Logger</code> sends messages
+ * to, such as the console or the debug window. Both methods are only ever
+ * called from the <code>Logger</code>'s own thread, one at a time.
+ * <br><br>
+ * Messages are handed over in batches: <code>write()</code> is called for
+ * each message that was waiting, and then <code>flush()</code> is called once
+ * at the end. A sink can put off any expensive work until then.
+ * 
+ * @author Jordan Knapp
+ */
+public interface LogSink {
+	
+	/**
+	 * Called for each message.
+	 * 
+	 * @param record	The message.
+	 * @param line		The message, already formatted with its timestamp and
+	 * 					level, without a newline at the end.
+	 */
+	void write(LogRecord record, String line);
+	
+	/**
+	 * Called after a batch of messages has been written.
+	 */
+	void flush();
+
+}
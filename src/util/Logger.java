@@ -0,0 +1,446 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * The <code>Logger</code> is how every class in the program logs messages.
+ * Each message is logged at a <code>LogLevel</code>, and messages below the
+ * current level are thrown away straight away. Messages can be given as a
+ * <code>Supplier</code>, in which case the message isn't even built unless
+ * its level is enabled, so detailed debug messages cost next to nothing when
+ * nobody is looking at them.
+ * <br><br>
+ * Logging a message never writes anything itself. The message is put into a
+ * <code>LogBuffer</code>, which doesn't lock, and a background thread takes
+ * messages back out in batches, formats them, and hands them to each
+ * <code>LogSink</code>. By default, messages go to the console; the
+ * <code>DebugWindow</code> adds a sink of its own. If messages are
+ * logged faster than they can be written and the buffer fills up, new debug
+ * and info messages are dropped, and a warning saying how many were dropped
+ * is logged once there is room again. Warnings and errors wait for room
+ * instead.
+ * <br><br>
+ * The starting level is <code>INFO</code>, unless the
+ * <code>smash.log.level</code> system property says otherwise, i.e.
+ * <code>-Dsmash.log.level=debug</code>.
+ * <br><br>
+ * Messages are also written to a log file if the <code>smash.log.file</code>
+ * system property is set. See <code>FileLogSink</code>.
+ * 
+ * @author Jordan Knapp
+ */
+public final class Logger {
+	
+	/**
+	 * The number of messages that can be waiting to be written at once.
+	 */
+	public static final int BUFFER_SIZE = 8192;
+	
+	/**
+	 * The longest that <code>flush()</code> will wait for messages to be
+	 * written, in milliseconds.
+	 */
+	public static final long FLUSH_TIMEOUT_MS = 2000;
+	
+	//the most messages written before the sinks are flushed, so a constant
+	//stream of messages still shows up in a timely manner
+	private static final int MAX_BATCH = 256;
+	
+	//how long the background thread sleeps when there's nothing to write,
+	//if it isn't woken up before then
+	private static final long IDLE_PARK_NS = TimeUnit.MILLISECONDS.toNanos(50);
+	
+	private static volatile LogLevel level;
+	private static volatile int battle = 0;
+	
+	private static final LogBuffer buffer = new LogBuffer(BUFFER_SIZE);
+	private static final CopyOnWriteArrayList<LogSink> sinks = new CopyOnWriteArrayList<LogSink>();
+	private static final ConsoleLogSink console = new ConsoleLogSink();
+	private static final AtomicLong dropped = new AtomicLong();
+	
+	private static final Thread writer;
+	private static volatile boolean writerIdle = false;
+	
+	//the number of messages that have been handed to every sink and flushed
+	private static volatile long written = 0;
+	
+	//only used on the writer thread. the timestamp only changes once a second,
+	//so it's reused until then
+	private static final StringBuilder lineBuilder = new StringBuilder(128);
+	private static long timestampSecond = Long.MIN_VALUE;
+	private static final char[] timestamp = "[00:00:00] ".toCharArray();
+	
+	static {
+		LogLevel fromProperty = LogLevel.fromString(System.getProperty("smash.log.level"));
+		level = fromProperty != null ? fromProperty : LogLevel.INFO;
+		
+		sinks.add(console);
+		
+		FileLogSink fileSink = FileLogSink.fromProperties();
+		if(fileSink != null) {
+			sinks.add(fileSink);
+		}
+		
+		writer = new Thread(new Runnable() {
+			public void run() {
+				writeForever();
+			}
+		}, "Smash Character Picker Logger");
+		writer.setDaemon(true);
+		writer.start();
+		
+		//the writer is a daemon thread, so make sure anything still waiting
+		//gets written when the program exits, and close any log files
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			public void run() {
+				flush();
+				
+				for(LogSink sinkAt: sinks) {
+					if(sinkAt instanceof Closeable) {
+						try {
+							((Closeable) sinkAt).close();
+						} catch(IOException e) {
+							e.printStackTrace();
+						}
+					}
+				}
+			}
+		}, "Smash Character Picker Logger Shutdown"));
+	}
+	
+	/**
+	 * Private constructor to prevent instantiating the <code>Logger</code>
+	 * class.
+	 */
+	private Logger() {
+		throw new UnsupportedOperationException("Cannot instantiate Logger class");
+	}
+	
+	/**
+	 * @return	The current level. Messages below it are thrown away.
+	 */
+	public static LogLevel getLevel() {
+		return level;
+	}
+	
+	/**
+	 * Sets the current level. Messages below it will be thrown away.
+	 * 
+	 * @param newLevel	The new level.
+	 */
+	public static void setLevel(LogLevel newLevel) {
+		if(newLevel == null) {
+			throw new NullPointerException("Level cannot be null");
+		}
+		
+		level = newLevel;
+	}
+	
+	/**
+	 * @param check	The level to check.
+	 * @return		<code>true</code> if messages at that level are being
+	 * 				kept, <code>false</code> if they are being thrown away.
+	 */
+	public static boolean isEnabled(LogLevel check) {
+		return check.compareTo(level) >= 0;
+	}
+	
+	/**
+	 * @return	The number of the current battle, which is recorded with every
+	 * 			message, or 0 if there isn't one.
+	 */
+	public static int getBattle() {
+		return battle;
+	}
+	
+	/**
+	 * Sets the number of the current battle. Every message logged from now on
+	 * will be recorded as being part of that battle.
+	 * 
+	 * @param newBattle	The number of the battle, or 0 if there isn't one.
+	 */
+	public static void setBattle(int newBattle) {
+		battle = newBattle;
+	}
+	
+	/**
+	 * Adds a sink, which will be given every message logged from now on.
+	 * 
+	 * @param sink	The sink to add.
+	 */
+	public static void addSink(LogSink sink) {
+		sinks.addIfAbsent(sink);
+	}
+	
+	/**
+	 * Removes a sink, so it won't be given any more messages.
+	 * 
+	 * @param sink	The sink to remove.
+	 */
+	public static void removeSink(LogSink sink) {
+		sinks.remove(sink);
+	}
+	
+	/**
+	 * @return	The sink that prints messages to the console, which every
+	 * 			message goes to unless it's removed.
+	 */
+	public static ConsoleLogSink getConsoleSink() {
+		return console;
+	}
+	
+	/**
+	 * Logs a message at the <code>DEBUG</code> level.
+	 * 
+	 * @param message	The message.
+	 */
+	public static void debug(String message) {
+		log(LogLevel.DEBUG, message);
+	}
+	
+	/**
+	 * Logs a message at the <code>DEBUG</code> level, building it only if
+	 * that level is enabled.
+	 * 
+	 * @param message	Builds the message.
+	 */
+	public static void debug(Supplier<String> message) {
+		log(LogLevel.DEBUG, message);
+	}
+	
+	/**
+	 * Logs a message at the <code>INFO</code> level.
+	 * 
+	 * @param message	The message.
+	 */
+	public static void info(String message) {
+		log(LogLevel.INFO, message);
+	}
+	
+	/**
+	 * Logs a message at the <code>INFO</code> level, building it only if
+	 * that level is enabled.
+	 * 
+	 * @param message	Builds the message.
+	 */
+	public static void info(Supplier<String> message) {
+		log(LogLevel.INFO, message);
+	}
+	
+	/**
+	 * Logs a message at the <code>WARNING</code> level.
+	 * 
+	 * @param message	The message.
+	 */
+	public static void warning(String message) {
+		log(LogLevel.WARNING, message);
+	}
+	
+	/**
+	 * Logs a message at the <code>ERROR</code> level.
+	 * 
+	 * @param message	The message.
+	 */
+	public static void error(String message) {
+		log(LogLevel.ERROR, message);
+	}
+	
+	/**
+	 * Logs an exception at the <code>ERROR</code> level.
+	 * 
+	 * @param error	The exception.
+	 */
+	public static void error(Throwable error) {
+		log(LogLevel.ERROR, String.valueOf(error));
+	}
+	
+	/**
+	 * Logs a message at the given level.
+	 * 
+	 * @param at		The level to log the message at.
+	 * @param message	The message.
+	 */
+	public static void log(LogLevel at, String message) {
+		if(isEnabled(at)) {
+			enqueue(new LogRecord(at, System.currentTimeMillis(), battle, message));
+		}
+	}
+	
+	/**
+	 * Logs a message at the given level, building it only if that level is
+	 * enabled.
+	 * 
+	 * @param at		The level to log the message at.
+	 * @param message	Builds the message.
+	 */
+	public static void log(LogLevel at, Supplier<String> message) {
+		if(isEnabled(at)) {
+			enqueue(new LogRecord(at, System.currentTimeMillis(), battle, message.get()));
+		}
+	}
+	
+	/**
+	 * Waits until every message logged before this was called has been
+	 * written to every sink, or until <b><i><code>FLUSH_TIMEOUT_MS</code></b></i>
+	 * milliseconds have passed.
+	 */
+	public static void flush() {
+		//a sink logging something would otherwise wait on itself
+		if(Thread.currentThread() == writer) {
+			return;
+		}
+		
+		long target = buffer.claimed();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_TIMEOUT_MS);
+		
+		while(written < target && System.nanoTime() < deadline) {
+			LockSupport.unpark(writer);
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+	}
+	
+	/**
+	 * Puts a record in the buffer, and wakes up the writer if it's waiting.
+	 */
+	private static void enqueue(LogRecord record) {
+		boolean added = buffer.offer(record);
+		
+		//warnings and errors are worth waiting a moment for, unless it's the
+		//writer itself that would be waiting
+		if(!added && record.getLevel().compareTo(LogLevel.WARNING) >= 0 && Thread.currentThread() != writer) {
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_TIMEOUT_MS);
+			
+			while(!added && System.nanoTime() < deadline) {
+				LockSupport.unpark(writer);
+				Thread.yield();
+				added = buffer.offer(record);
+			}
+		}
+		
+		if(!added) {
+			dropped.incrementAndGet();
+		}
+		
+		if(writerIdle) {
+			LockSupport.unpark(writer);
+		}
+	}
+	
+	/**
+	 * Run by the writer thread. Takes records out of the buffer and writes
+	 * them to each sink, flushing the sinks whenever the buffer runs dry or
+	 * a batch gets big enough.
+	 */
+	private static void writeForever() {
+		int inBatch = 0;
+		
+		while(true) {
+			LogRecord record = buffer.poll();
+			
+			if(record != null) {
+				write(record);
+				inBatch++;
+				
+				if(inBatch < MAX_BATCH) {
+					continue;
+				}
+			}
+			
+			long droppedNow = dropped.getAndSet(0);
+			if(droppedNow > 0) {
+				write(new LogRecord(LogLevel.WARNING, System.currentTimeMillis(), battle,
+						droppedNow + " log messages were dropped because they were logged faster " +
+						"than they could be written."));
+				inBatch++;
+			}
+			
+			if(inBatch > 0) {
+				for(LogSink sinkAt: sinks) {
+					try {
+						sinkAt.flush();
+					} catch(RuntimeException e) {
+						e.printStackTrace();
+					}
+				}
+				
+				written = buffer.taken();
+				inBatch = 0;
+				continue;
+			}
+			
+			written = buffer.taken();
+			
+			//check once more after saying we're idle, so a record added just
+			//before then doesn't sit there until the park times out
+			writerIdle = true;
+			if(buffer.claimed() == buffer.taken()) {
+				LockSupport.parkNanos(IDLE_PARK_NS);
+			}
+			else {
+				//a record has been claimed but not filled in yet
+				Thread.yield();
+			}
+			writerIdle = false;
+		}
+	}
+	
+	/**
+	 * Formats a record and hands it to every sink.
+	 */
+	private static void write(LogRecord record) {
+		lineBuilder.setLength(0);
+		appendTimestamp(lineBuilder, record.getTime());
+		lineBuilder.append(record.getLevel().getLabel()).append(":\t").append(record.getMessage());
+		String line = lineBuilder.toString();
+		
+		for(LogSink sinkAt: sinks) {
+			try {
+				sinkAt.write(record, line);
+			} catch(RuntimeException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Appends a timestamp with the format "[HH:MM:SS] ", in local time, to
+	 * the given <code>StringBuilder</code>. The timestamp is only worked out
+	 * again when the second changes.
+	 * 
+	 * @param to	The <code>StringBuilder</code> to append to.
+	 * @param time	The time, in milliseconds since the epoch.
+	 */
+	private static void appendTimestamp(StringBuilder to, long time) {
+		long second = Math.floorDiv(time, 1000);
+		
+		if(second != timestampSecond) {
+			long local = second + TimeZone.getDefault().getOffset(time) / 1000;
+			int secondOfDay = (int) Math.floorMod(local, 86400L);
+			
+			putTwoDigits(1, secondOfDay / 3600);
+			putTwoDigits(4, secondOfDay / 60 % 60);
+			putTwoDigits(7, secondOfDay % 60);
+			
+			timestampSecond = second;
+		}
+		
+		to.append(timestamp);
+	}
+	
+	/**
+	 * Writes a number from 0 to 99 into the timestamp at the given position,
+	 * as two digits.
+	 */
+	private static void putTwoDigits(int position, int value) {
+		timestamp[position] = (char) ('0' + value / 10);
+		timestamp[position + 1] = (char) ('0' + value % 10);
+	}
+
+}
@@ -0,0 +1,130 @@
+package util;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * A <code>RandomSource</code> is where the randomness used to generate
+ * battles comes from. It's backed by a <code>SplittableRandom</code>, so it
+ * has two things <code>ThreadLocalRandom</code> doesn't:
+ * <ul>
+ * 	<li>A seed. Two sources created with the same seed give exactly the same
+ * 		numbers, so a tier list loaded with the same seed, stats, and "Cannot
+ * 		Get" queues will generate exactly the same battles. Sources created
+ * 		without a seed pick one at random, and it can still be gotten with
+ * 		<code>getSeed()</code>, so any run can be repeated.</li>
+ * 	<li>Splitting. <code>split()</code> creates a new source whose numbers
+ * 		are independent of this one's, which is how each thread simulating
+ * 		sessions gets its own source without sharing one. Splitting is
+ * 		itself determined by the seed, so simulations split up the same way
+ * 		give the same results, no matter how many threads run them.</li>
+ * </ul>
+ * Like <code>SplittableRandom</code>, a <code>RandomSource</code> is not
+ * thread safe. Each one should only be used by one thread at a time, and
+ * split for any others.
+ * 
+ * @author Jordan Knapp
+ */
+public class RandomSource implements RandomGenerator {
+	
+	/**
+	 * The system property that gives the seed for the tier list loaded in
+	 * the window, i.e. <code>-Dsmash.seed=12345</code>.
+	 */
+	public static final String SEED_PROPERTY = "smash.seed";
+	
+	private final SplittableRandom random;
+	private final long seed;
+	
+	/**
+	 * Creates a <code>RandomSource</code> with a random seed.
+	 */
+	public RandomSource() {
+		this(new SplittableRandom().nextLong());
+	}
+	
+	/**
+	 * Creates a <code>RandomSource</code> with the given seed.
+	 * 
+	 * @param seed	The seed.
+	 */
+	public RandomSource(long seed) {
+		this(new SplittableRandom(seed), seed);
+	}
+	
+	private RandomSource(SplittableRandom random, long seed) {
+		this.random = random;
+		this.seed = seed;
+	}
+	
+	/**
+	 * Creates a <code>RandomSource</code> with the seed in the
+	 * <b><i><code>SEED_PROPERTY</code></b></i> system property, or a random
+	 * seed if it isn't set or isn't a number.
+	 * 
+	 * @return	The new source.
+	 */
+	public static RandomSource fromProperty() {
+		String property = System.getProperty(SEED_PROPERTY);
+		
+		if(property != null) {
+			try {
+				return new RandomSource(Long.parseLong(property.trim()));
+			} catch(NumberFormatException e) {
+				Logger.warning(property + " is not a valid seed, so a random one will be used.");
+			}
+		}
+		
+		return new RandomSource();
+	}
+	
+	/**
+	 * Creates a new source whose numbers are independent of this one's. This
+	 * source moves on as if a number had been drawn from it.
+	 * 
+	 * @return	The new source.
+	 */
+	public RandomSource split() {
+		return new RandomSource(random.split(), seed);
+	}
+	
+	/**
+	 * @return	The seed this source was created with. A source that was split
+	 * 			off another has the same seed as the one it was split from,
+	 * 			since that's the seed needed to get it back.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
+	@Override
+	public long nextLong() {
+		return random.nextLong();
+	}
+	
+	@Override
+	public int nextInt() {
+		return random.nextInt();
+	}
+	
+	@Override
+	public int nextInt(int bound) {
+		return random.nextInt(bound);
+	}
+	
+	@Override
+	public int nextInt(int origin, int bound) {
+		return random.nextInt(origin, bound);
+	}
+	
+	@Override
+	public boolean nextBoolean() {
+		return random.nextBoolean();
+	}
+	
+	@Override
+	public double nextDouble() {
+		return random.nextDouble();
+	}
+
+}
@@ -2,10 +2,6 @@ package util;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.text.DecimalFormat;
-import java.time.ZonedDateTime;
-
-import javax.swing.JTextArea;
 
 /**
  * A class that contains a few static utility methods that are used throughout
@@ -16,14 +12,6 @@ import javax.swing.JTextArea;
  */
 public final class Util {
 	
-	/**
-	 * <i><code>debug</code></i> is the text field that the
-	 * <code>DebugWindow</code> will display. Using this class' <code>log</code>
-	 * and <code>error</code> methods, any class in the program can print
-	 * debug messages.
-	 */
-	public static JTextArea debug = new JTextArea();
-	
 	/**
 	 * The maximum size of the "Cannot Get" queue. Value is used in both
 	 * <code>MainWindow</code> and <code>TierList</code> for verifying
@@ -236,66 +224,4 @@ public final class Util {
 			return "NaN";
 		}
 	}
-	
-	/**
-	 * This method adds a new debug line to the debug log. "[DEBUG]:" will be
-	 * appended to the front of the message, and a newline will automatically be
-	 * appended to the end, so there is no need to add that when calling the
-	 * method. Messages will also automatically be printed to the standard
-	 * output.
-	 * 
-	 * @param log	The message to be logged.
-	 */
-	public static void log(String log) {		
-		System.out.println("[DEBUG]:\t\t" + log);
-		debug.append("[DEBUG]:\t\t" + log + "\n");
-	}
-	
-	/**
-	 * This method adds a new line to the debug log. A time stamp will be
-	 * appended to the front of the message, and a newline will be appended to
-	 * the end. Messages will also automatically be printed to standard error.
-	 * 
-	 * @param err	A <code>String</code> representing the error message.
-	 */
-	public static void error(String err) {
-		String timestamp = generateTimestamp();
-		
-		System.err.println(timestamp + err);
-		debug.append(timestamp + err + "\n");
-	}
-	
-	/**
-	 * This method adds a new line to the debug log. A time stamp will be
-	 * appended to the front of the message, and a newline will be appended to
-	 * the end. Messages will also automatically be printed to standard error.
-	 * 
-	 * @param err	The <code>Exception</code> that occurred.
-	 */
-	public static void error(Exception err) {
-		String timestamp = generateTimestamp();
-		
-		System.err.println(timestamp + err);
-		debug.append(timestamp + err + "\n");
-	}
-	
-	/**
-	 * Generates a timestamp with the following format:<br>
-	 * "<code>level</code> [HH:MM:SS]:<code>(tab)</code>"
-	 * 
-	 * @return		A timestamp with the format described above.
-	 */
-	private static String generateTimestamp() {
-		int hourVal = ZonedDateTime.now().getHour();
-		int minVal = ZonedDateTime.now().getMinute();
-		int secVal = ZonedDateTime.now().getSecond();
-		
-		//do this so we can ensure hour/min/sec are always 2 digits
-		DecimalFormat formatter = new DecimalFormat("00");
-		String hour = formatter.format(hourVal);
-		String min = formatter.format(minVal);
-		String sec = formatter.format(secVal);
-		
-		return "[" + hour + ":" + min + ":" + sec + "]:\t";
-	}
 }